@@ -0,0 +1,49 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash;
+
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.map.ChronicleMap;
+
+/**
+ * A predicate on the serialized form of keys or values, i. e. on bytes accessible via {@link
+ * Data#bytes()}, {@link Data#offset()} and {@link Data#size()}. Allows to filter entries without
+ * deserialization of keys and values into objects.
+ *
+ * @see ChronicleMap#scan(BytesPredicate, BytesPredicate, java.util.function.Consumer)
+ */
+@FunctionalInterface
+public interface BytesPredicate {
+
+    /**
+     * Evaluates this predicate on the given bytes.
+     *
+     * @param bytes the bytes to read the serialized form from
+     * @param offset the offset of the serialized form within the {@code bytes}
+     * @param size the size of the serialized form
+     * @return {@code true} if the serialized form matches this predicate, {@code false} otherwise
+     */
+    boolean test(RandomDataInput bytes, long offset, long size);
+
+    /**
+     * Evaluates this predicate on the bytes of the given {@code Data}.
+     */
+    default boolean test(Data<?> data) {
+        return test(data.bytes(), data.offset(), data.size());
+    }
+}
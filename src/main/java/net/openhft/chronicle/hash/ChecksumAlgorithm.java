@@ -0,0 +1,41 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash;
+
+/**
+ * Algorithms of computing checksums of the payload (serialized value) of entries, when {@link
+ * ChronicleHashBuilder#checksumEntries(boolean) checksumEntries(true)} is configured. The
+ * algorithm is stored in the header of persisted Chronicle Hashes.
+ *
+ * @see ChecksumEntry
+ * @see ChronicleHashBuilderPrivateAPI#checksumAlgorithm(ChecksumAlgorithm)
+ */
+public enum ChecksumAlgorithm {
+    /**
+     * xxHash (XXH64) of the payload. The default algorithm, and the only one used by the versions
+     * of Chronicle Map, in which the algorithm is not configurable.
+     */
+    XX_HASH,
+
+    /**
+     * CRC-32C (Castagnoli) of the payload. Since Java 9, it is computed using specialized
+     * processor instructions, and is faster than {@link #XX_HASH} for large values. On Java 8,
+     * a table-driven implementation is used, that is slower than {@link #XX_HASH}.
+     */
+    CRC32C
+}
@@ -336,6 +336,40 @@ public interface ChronicleHashBuilder<K, H extends ChronicleHash<K, ?, ?, ?>,
      */
     B nonTieredSegmentsPercentile(double nonTieredSegmentsPercentile);
 
+    /**
+     * Configures whether segment tiers of Chronicle Hashes, created by this builder, should be
+     * sized for the median number of entries in a segment, rather than for {@link
+     * #nonTieredSegmentsPercentile(double)}, with a pool of overflow tiers, reserved on the
+     * Chronicle Hash creation.
+     *
+     * <p>Sizing all segments for a high percentile of the Poisson distribution of entries in
+     * segments over-allocates memory in all segments, to protect against a few outliers. This is
+     * considerable if segments are small, e. g. if the Chronicle Hash is sparse. With this
+     * configuration, about half of segments allocate an extra tier when the Chronicle Hash is
+     * filled with {@link #entries(long)} entries. Extra tiers are claimed from the reserved pool
+     * without taking the lock, shared by all segments, and without mapping memory, the pool is
+     * sized for the expected number of extra tiers, with 4 standard deviations of margin. When the
+     * pool is exhausted, extra tiers are allocated as usual. The reserved tiers take virtual
+     * memory (or disk space, if the Chronicle Hash is persisted), but their memory pages are not
+     * touched until the tiers are claimed.
+     *
+     * <p>Lookups of keys, absent in the Chronicle Hash, and keys, stored in extra tiers, probe
+     * the hash lookups of more tiers, so this configuration trades some lookup latency for lower
+     * memory footprint.
+     *
+     * <p>If {@link #entriesPerSegment(long)} is configured, segment tiers are sized for it, but the
+     * pool of extra tiers is still reserved for {@link #entries(long)}. This configuration
+     * doesn't make any effect, if {@link #allowSegmentTiering(boolean)
+     * allowSegmentTiering(false)} is configured, or if the Chronicle Hash has a single segment.
+     *
+     * <p>Default is {@code false}.
+     *
+     * @param medianSizedSegments if {@code true}, segment tiers are sized for the median number
+     * of entries in a segment, and a pool of extra tiers is reserved
+     * @return this builder back
+     */
+    B medianSizedSegments(boolean medianSizedSegments);
+
     /**
      * Configures the actual maximum number entries, that could be inserted into any single segment
      * of the hash containers, created by this builder. Configuring both the actual number of
@@ -448,6 +482,23 @@ public interface ChronicleHashBuilder<K, H extends ChronicleHash<K, ?, ?, ?>,
      */
     B keySizeMarshaller(@NotNull SizeMarshaller keySizeMarshaller);
 
+    /**
+     * Configures marshalling of keys of a plain {@link java.io.Serializable} class by a fixed
+     * field layout, instead of Java serialization, which is used for {@code Serializable} key
+     * classes by default. A plain class is a concrete class outside of JDK, all superclasses of
+     * which are {@code Serializable}, without custom serialization methods ({@code writeObject()},
+     * {@code readResolve()}, etc.), and with only fields of primitive, boxed primitive, {@code
+     * String} and {@code byte[]} types. The serialized form is more compact than the Java
+     * serialization form, and keys are serialized and deserialized without reflection.
+     *
+     * <p>The field layout is stored in the hash container header, and a hash container couldn't be
+     * opened with a changed key class.
+     *
+     * @return this builder back
+     * @throws IllegalArgumentException if the key class is not a plain {@code Serializable} class
+     */
+    B keyFieldLayoutMarshalling();
+
     /**
      * Specifies whether on the current combination of platform, OS and Jvm aligned 8-byte reads
      * and writes are atomic or not. By default, Chronicle tries to determine this itself, but
@@ -525,6 +576,19 @@ public interface ChronicleHashBuilder<K, H extends ChronicleHash<K, ?, ?, ?>,
      * file doesn't exist, and {@link #recoverPersistedTo(File, boolean)
      * recoverPersistedTo(file, true)}, if the file exists.
      *
+     * <p>Unlike {@code recoverPersistedTo()}, this method skips the recovery, if the hash container
+     * was closed cleanly by all processes, which opened it, and recovers only the segments, which
+     * might have been modified by crashed processes, if all processes, which opened the hash
+     * container and didn't close it, are dead. Full recovery is done in other cases, and if the
+     * state of the hash container is inconsistent. Processes are checked to be dead only if they
+     * are configured to run in the same process id namespace (e. g. not in different containers,
+     * and not on different hosts, sharing the file), see {@link
+     * ChronicleHashBuilderPrivateAPI#openersInSameProcessIdNamespace(boolean)}, because processes
+     * in other namespaces couldn't be seen, and by default the hash container is fully recovered,
+     * if it is not closed cleanly. Call {@code recoverPersistedTo()} explicitly
+     * after a sudden power loss or a file corruption, because the memory of the hash container,
+     * which was closed cleanly, might be not written to the disk completely in these cases.
+     *
      * @param file the persistence file for existing of future hash container
      * @return a {@code ChronicleHash} instance, mapped to the given instance
      * @throws IOException if any IO error occurs on reading data from the file, or related to
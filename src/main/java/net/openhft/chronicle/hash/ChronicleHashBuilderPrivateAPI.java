@@ -18,8 +18,10 @@
 package net.openhft.chronicle.hash;
 
 import net.openhft.chronicle.hash.replication.ReplicableEntry;
+import net.openhft.chronicle.hash.replication.TimestampSource;
 import net.openhft.chronicle.hash.serialization.impl.SerializationBuilder;
 
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public interface ChronicleHashBuilderPrivateAPI<K, RO> {
@@ -44,10 +46,27 @@ public interface ChronicleHashBuilderPrivateAPI<K, RO> {
 
     long maxExtraTiers();
 
+    long reservedExtraTiers();
+
     boolean aligned64BitMemoryOperationsAtomic();
 
     boolean checksumEntries();
 
+    ChecksumAlgorithm checksumAlgorithm();
+
+    /**
+     * Configures the algorithm of entry checksums of the Chronicle Hash, constructed by this
+     * builder, if {@link ChronicleHashBuilder#checksumEntries(boolean) checksumEntries(true)} is
+     * configured. The algorithm is stored in the header, Chronicle Hashes opened from existing
+     * files use the stored algorithm.
+     *
+     * <p>Default is {@link ChecksumAlgorithm#XX_HASH}.
+     *
+     * @param checksumAlgorithm the algorithm of entry checksums
+     * @throws NullPointerException if the given algorithm is {@code null}
+     */
+    void checksumAlgorithm(ChecksumAlgorithm checksumAlgorithm);
+
     void replication(byte identifier);
 
     /**
@@ -87,5 +106,114 @@ public interface ChronicleHashBuilderPrivateAPI<K, RO> {
      */
     void removedEntryCleanupTimeout(long removedEntryCleanupTimeout, TimeUnit unit);
 
+    /**
+     * Configures the executor, in which the cleanup of removed entries of the Chronicle Hash,
+     * constructed by this builder, is run. The executor could be shared between many Chronicle
+     * Hashes and other tasks: the cleanup is run in short tasks, each of them schedules the next
+     * one. The executor is not shut down, when the Chronicle Hash is closed.
+     *
+     * <p>By default, a dedicated thread is started for the cleanup of each Chronicle Hash.
+     *
+     * @param cleanupExecutor the executor to run the cleanup of removed entries in, {@code null}
+     *                        to start a dedicated thread
+     * @see #cleanupRemovedEntries(boolean)
+     */
+    void cleanupExecutor(ScheduledExecutorService cleanupExecutor);
+
+    /**
+     * Configures the number of threads, segments of the Chronicle Hash are recovered on, when it
+     * is recovered by {@link ChronicleHashBuilder#recoverPersistedTo(java.io.File, boolean)} or
+     * {@link ChronicleHashBuilder#createOrRecoverPersistedTo(java.io.File)}. Segments are
+     * independent, first tiers of them and duplicate keys in them are recovered in parallel, extra
+     * tiers are linked to segments in a single thread.
+     *
+     * <p>Default is the number of available processors.
+     *
+     * @param recoveryThreads the number of threads to recover segments on, 1 to recover them
+     *                        in the calling thread
+     * @throws IllegalArgumentException if the given number is not positive
+     */
+    void recoveryThreads(int recoveryThreads);
+
+    /**
+     * Configures whether the Chronicle Hash, recovered by {@link
+     * ChronicleHashBuilder#recoverPersistedTo(java.io.File, boolean)} or {@link
+     * ChronicleHashBuilder#createOrRecoverPersistedTo(java.io.File)}, should recover its segments
+     * lazily. If {@code true}, only global structures and extra tiers are recovered before the
+     * recovery method returns, and segments are marked as needing recovery in their headers. Each
+     * segment is recovered on the first access to it from any thread, and a background thread
+     * recovers segments, which are not accessed.
+     *
+     * <p>Default is {@code false}.
+     *
+     * @param lazyRecovery if segments should be recovered on the first access
+     * @see #recoveryThreads(int)
+     */
+    void lazyRecovery(boolean lazyRecovery);
+
+    /**
+     * Configures whether all processes, which open the Chronicle Hash persisted to a file, run in
+     * the same process id namespace (i. e. on the same host, and not in different containers), as
+     * the process, which {@linkplain ChronicleHashBuilder#createOrRecoverPersistedTo(java.io.File)
+     * creates or recovers} it. Only in this case, processes, registered as having the Chronicle
+     * Hash opened, could be checked to be dead, and {@code createOrRecoverPersistedTo()} could
+     * recover only the segments, which locks are left acquired by crashed processes. Otherwise a
+     * process id, not visible in the current namespace, could belong to a live process, so
+     * full recovery is done, if the Chronicle Hash is not closed cleanly.
+     *
+     * <p>Default is {@code false}.
+     *
+     * @param openersInSameProcessIdNamespace if all openers of the Chronicle Hash see each other's
+     *                                        process ids
+     */
+    void openersInSameProcessIdNamespace(boolean openersInSameProcessIdNamespace);
+
+    /**
+     * Configures the background verification of entry checksums of the Chronicle Hash,
+     * constructed by this builder with {@link ChronicleHashBuilder#checksumEntries(boolean)
+     * checksumEntries(true)} (or persisted, when checksums are stored by default). A dedicated
+     * thread visits all entries of the Chronicle Hash in rounds, holding the update lock of a
+     * segment only for a bounded number of entries at once, and pacing the verification to the
+     * given number of bytes of keys and values per second. Entries with mismatching checksums
+     * are logged and reported to the given listener.
+     *
+     * <p>By default, the background verification is disabled.
+     *
+     * @param bytesPerSecond the average rate of the verification, in bytes of keys and values per
+     *                       second, 0 to disable the verification
+     * @param listener notified about corrupt entries, {@code null} if they should only be logged
+     * @param quarantineCorruptEntries if corrupt entries should be removed after they are reported
+     *                                 to the listener. In replicated Chronicle Hashes the removal
+     *                                 is not replicated, see {@link
+     *                                 ReplicableEntry#doRemoveCompletely()}
+     * @throws IllegalArgumentException if the given rate is negative
+     */
+    void checksumScrubbing(long bytesPerSecond, CorruptEntryListener listener,
+                           boolean quarantineCorruptEntries);
+
+    /**
+     * Configures the source of timestamps of entry updates in the replicated Chronicle Hash,
+     * constructed by this builder.
+     *
+     * <p>Default is {@link TimestampSource#perThreadMonotonic()}.
+     *
+     * @param timestampSource the source of update timestamps
+     */
+    void timestampSource(TimestampSource timestampSource);
+
+    /**
+     * Configures whether local updates of values, which don't change the value size, are
+     * replicated as patches of the changed byte ranges, rather than full values. Patches are sent
+     * only if the remote node has already received the previous version of the entry. Entries
+     * are sent in full on bootstrap, and on request of the remote node, if it couldn't apply a
+     * patch because of a conflicting update.
+     *
+     * <p>Default is {@code false}.
+     *
+     * @param deltaReplication if value updates should be replicated as patches
+     * @see net.openhft.chronicle.map.Replica#takeDeltaResyncTimestamp(byte)
+     */
+    void deltaReplication(boolean deltaReplication);
+
     void remoteOperations(RO remoteOperations);
 }
@@ -0,0 +1,46 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash;
+
+import net.openhft.chronicle.map.MapEntry;
+
+/**
+ * Notified about entries of a Chronicle Hash, the stored checksums of which don't match the entry
+ * bytes, found by the background checksum scrubbing.
+ *
+ * @see ChronicleHashBuilderPrivateAPI#checksumScrubbing(long, CorruptEntryListener, boolean)
+ * @see ChecksumEntry#checkSum()
+ */
+@FunctionalInterface
+public interface CorruptEntryListener {
+
+    /**
+     * Called for each entry with mismatching checksum, in the scrubbing thread, under the update
+     * lock of the segment. The listener shouldn't access the Chronicle Hash itself and shouldn't
+     * block for long. The given entry is accessible only during this call. If corrupt entries are
+     * quarantined, the entry is removed after this call, so the listener could copy the raw bytes
+     * of the {@link HashEntry#key() key} (and the {@link MapEntry#value() value}, if the entry is a
+     * {@link MapEntry}), to inspect or restore them later. The key and value bytes are likely
+     * corrupt, so deserialization of them may fail or return garbage.
+     *
+     * @param hash the scrubbed Chronicle Hash
+     * @param segmentIndex the index of the segment, the entry is stored in
+     * @param entry the entry with mismatching checksum
+     */
+    void onCorruptEntry(ChronicleHash<?, ?, ?, ?> hash, int segmentIndex, HashEntry<?> entry);
+}
@@ -54,6 +54,31 @@ public interface HashSegmentContext<K, E extends HashEntry<K>> extends HashConte
      */
     boolean forEachSegmentEntryWhile(Predicate<? super E> predicate);
 
+    /**
+     * Performs the given action for each <i>present</i> entry in this segment, like {@link
+     * #forEachSegmentEntry(Consumer)}, but visits entries in the order of their addresses in
+     * memory, rather than in the order of their hash codes. For persisted {@code ChronicleHash}es,
+     * which don't fit the memory, this makes the scan sequential over the mapped file.
+     *
+     * @param action the action to be performed for each entry in this segment
+     * @see #forEachSegmentEntryInAddressOrderWhile(Predicate)
+     */
+    void forEachSegmentEntryInAddressOrder(Consumer<? super E> action);
+
+    /**
+     * Checks the given predicate on each <i>present</i> entry in this segment, like {@link
+     * #forEachSegmentEntryWhile(Predicate)}, but visits entries in the order of their addresses in
+     * memory, rather than in the order of their hash codes. Entries could be removed and their
+     * values could be replaced in the predicate, this requires additional lookup of the entry by
+     * its key hash code, so this method is most efficient for scans, which update or remove
+     * few entries.
+     *
+     * @param predicate the predicate to be checked for each entry in this segment
+     * @return {@code true} if the predicate returned {@code true} for all checked entries,
+     * {@code false} if it returned {@code false} for some entry
+     */
+    boolean forEachSegmentEntryInAddressOrderWhile(Predicate<? super E> predicate);
+
     /**
      * Returns the number of <i>present</i> entries in this segment.
      */
@@ -18,9 +18,7 @@
 package net.openhft.chronicle.hash;
 
 import net.openhft.chronicle.bytes.Byteable;
-import net.openhft.chronicle.values.Group;
-import net.openhft.chronicle.values.Range;
-import net.openhft.chronicle.values.Values;
+import net.openhft.chronicle.values.*;
 
 /**
  * <h1>This interface is a private API, don't use in client code</h1>
@@ -50,6 +48,37 @@ public interface VanillaGlobalMutableState extends Byteable {
     void setDataStoreSize(@Range(min = 0, max = Long.MAX_VALUE) long dataStoreSize);
     long addDataStoreSize(long addition);
 
+    // Groups 6-8 are taken in ReplicatedGlobalMutableState
+
+    @Group(9)
+    boolean getClosedCleanly();
+    void setClosedCleanly(boolean closedCleanly);
+
+    @Group(10)
+    boolean getOpenersRegistryOverflow();
+    void setOpenersRegistryOverflow(boolean openersRegistryOverflow);
+
+    /**
+     * Registry of processes, which have the persisted hash opened, 0 means an empty slot.
+     */
+    @Group(11)
+    @Align(offset = 4)
+    @Array(length = 16)
+    int getOpenerProcessIdAt(int index);
+    void setOpenerProcessIdAt(
+            int index, @Range(min = 0, max = Integer.MAX_VALUE) int openerProcessId);
+
+    /**
+     * The number of extra tiers, claimed from the pool of reserved extra tiers without taking the
+     * global mutable state lock. See {@code ChronicleHashBuilder.medianSizedSegments()}.
+     */
+    @Group(12)
+    @Align(offset = 8)
+    long getReservedExtraTiersClaimed();
+    long getVolatileReservedExtraTiersClaimed();
+    void setReservedExtraTiersClaimed(long reservedExtraTiersClaimed);
+    boolean compareAndSwapReservedExtraTiersClaimed(long expected, long value);
+
     public static void main(String[] args) {
         System.setProperty("chronicle.values.dumpCode", "true");
         Values.nativeClassFor(VanillaGlobalMutableState.class);
@@ -46,6 +46,9 @@ public final class BigSegmentHeader implements SegmentHeader {
     static final long LOWEST_POSSIBLY_FREE_CHUNK_OFFSET = ENTRIES_OFFSET + 4L;
     static final long NEXT_TIER_INDEX_OFFSET = LOWEST_POSSIBLY_FREE_CHUNK_OFFSET + 4L;
     static final long DELETED_OFFSET = NEXT_TIER_INDEX_OFFSET + 8L;
+    static final long FLAGS_OFFSET = DELETED_OFFSET + 4L;
+
+    private static final int NEEDS_RECOVERY_FLAG = 1;
 
     private static final int TRY_LOCK_NANOS_THRESHOLD = 2_000_000;
 
@@ -117,6 +120,18 @@ public final class BigSegmentHeader implements SegmentHeader {
         OS.memory().writeInt(address + DELETED_OFFSET, (int) deleted);
     }
 
+    @Override
+    public boolean needsRecovery(long address) {
+        return (OS.memory().readVolatileInt(address + FLAGS_OFFSET) & NEEDS_RECOVERY_FLAG) != 0;
+    }
+
+    @Override
+    public void needsRecovery(long address, boolean needsRecovery) {
+        int flags = OS.memory().readInt(address + FLAGS_OFFSET);
+        flags = needsRecovery ? flags | NEEDS_RECOVERY_FLAG : flags & ~NEEDS_RECOVERY_FLAG;
+        OS.memory().writeOrderedInt(address + FLAGS_OFFSET, flags);
+    }
+
     @Override
     public long lowestPossiblyFreeChunk(long address) {
         return OS.memory().readInt(address + LOWEST_POSSIBLY_FREE_CHUNK_OFFSET) & UNSIGNED_INT_MASK;
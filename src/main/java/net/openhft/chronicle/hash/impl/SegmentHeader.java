@@ -26,6 +26,13 @@ public interface SegmentHeader {
     long deleted(long address);
     void deleted(long address, long deleted);
 
+    /**
+     * Returns {@code true} if the segment is marked as needing recovery, when the map is opened
+     * with lazy recovery, and the segment is not recovered yet.
+     */
+    boolean needsRecovery(long address);
+    void needsRecovery(long address, boolean needsRecovery);
+
     long lowestPossiblyFreeChunk(long address);
     void lowestPossiblyFreeChunk(long address, long lowestPossiblyFreeChunk);
 
@@ -71,6 +71,11 @@ public abstract class VanillaChronicleHash<K,
 
     public static final long TIER_COUNTERS_AREA_SIZE = 64;
     public static final long RESERVED_GLOBAL_MUTABLE_STATE_BYTES = 1024;
+    /**
+     * The length of {@link VanillaGlobalMutableState#getOpenerProcessIdAt(int)} array
+     */
+    private static final int OPENERS_REGISTRY_SIZE = 16;
+    private static final int NOT_REGISTERED = -1;
 
     /////////////////////////////////////////////////
     // Version
@@ -90,6 +95,7 @@ public abstract class VanillaChronicleHash<K,
     /////////////////////////////////////////////////
     // Checksum entries
     public boolean checksumEntries;
+    public ChecksumAlgorithm checksumAlgorithm;
 
     /////////////////////////////////////////////////
     // Concurrency (number of segments), memory management and dependent fields
@@ -122,6 +128,11 @@ public abstract class VanillaChronicleHash<K,
     public long tierSize;
 
     long maxExtraTiers;
+    /**
+     * The number of the first extra tiers, allocated on the map creation and claimed by segments
+     * without taking the global mutable state lock. They are not linked into the free list.
+     */
+    public long reservedExtraTiers;
     long tierBulkSizeInBytes;
     long tierBulkInnerOffsetToTiers;
     public long tiersInBulk;
@@ -161,6 +172,10 @@ public abstract class VanillaChronicleHash<K,
     private transient Object closeLock;
 
     private transient VanillaGlobalMutableState globalMutableState;
+    /**
+     * The slot in the openers registry of the global mutable state, occupied by this instance
+     */
+    private transient int openersRegistrySlot;
 
     private transient ArrayList<WeakReference<ChainingInterface>> allContexts;
 
@@ -216,12 +231,14 @@ public abstract class VanillaChronicleHash<K,
         tierSize = tierSize();
 
         maxExtraTiers = privateAPI.maxExtraTiers();
+        reservedExtraTiers = privateAPI.reservedExtraTiers();
         tiersInBulk = computeNumberOfTiersInBulk();
         log2TiersInBulk = Maths.intLog2(tiersInBulk);
         tierBulkInnerOffsetToTiers = computeTierBulkInnerOffsetToTiers(tiersInBulk);
         tierBulkSizeInBytes = computeTierBulkBytesSize(tiersInBulk);
 
         checksumEntries = privateAPI.checksumEntries();
+        checksumAlgorithm = privateAPI.checksumAlgorithm();
     }
 
     @Override
@@ -244,6 +261,10 @@ public abstract class VanillaChronicleHash<K,
         keyDataAccess = wireIn.read(() -> "keyDataAccess").typedMarshallable();
 
         checksumEntries = wireIn.read(() -> "checksumEntries").bool();
+        String checksumAlgorithmName = wireIn.read(() -> "checksumAlgorithm").text();
+        // the field is absent in headers, written by older versions
+        checksumAlgorithm = checksumAlgorithmName != null ?
+                ChecksumAlgorithm.valueOf(checksumAlgorithmName) : ChecksumAlgorithm.XX_HASH;
 
         actualSegments = wireIn.read(() -> "actualSegments").int32();
         hashSplitting = wireIn.read(() -> "hashSplitting").typedMarshallable();
@@ -276,6 +297,8 @@ public abstract class VanillaChronicleHash<K,
         tierBulkInnerOffsetToTiers = wireIn.read(() -> "tierBulkInnerOffsetToTiers").int64();
         tiersInBulk = wireIn.read(() -> "tiersInBulk").int64();
         log2TiersInBulk = wireIn.read(() -> "log2TiersInBulk").int32();
+        // the field is absent in headers, written by older versions, 0 is read
+        reservedExtraTiers = wireIn.read(() -> "reservedExtraTiers").int64();
     }
 
     @Override
@@ -288,6 +311,7 @@ public abstract class VanillaChronicleHash<K,
         wireOut.write(() -> "keyDataAccess").typedMarshallable(keyDataAccess);
 
         wireOut.write(() -> "checksumEntries").bool(checksumEntries);
+        wireOut.write(() -> "checksumAlgorithm").text(checksumAlgorithm.name());
 
         wireOut.write(() -> "actualSegments").int32(actualSegments);
         wireOut.write(() -> "hashSplitting").typedMarshallable(hashSplitting);
@@ -320,6 +344,7 @@ public abstract class VanillaChronicleHash<K,
         wireOut.write(() -> "tierBulkInnerOffsetToTiers").int64(tierBulkInnerOffsetToTiers);
         wireOut.write(() -> "tiersInBulk").int64(tiersInBulk);
         wireOut.write(() -> "log2TiersInBulk").int32(log2TiersInBulk);
+        wireOut.write(() -> "reservedExtraTiers").int64(reservedExtraTiers);
     }
 
     protected VanillaGlobalMutableState createGlobalMutableState() {
@@ -375,6 +400,7 @@ public abstract class VanillaChronicleHash<K,
         closed = false;
         closeLock = new Object();
         globalMutableState = createGlobalMutableState();
+        openersRegistrySlot = NOT_REGISTERED;
         tierBulkOffsets = new ArrayList<>();
         if (tierHashLookupSlotSize == 4) {
             hashLookup = new IntCompactOffHeapLinearHashTable(this);
@@ -429,7 +455,7 @@ public abstract class VanillaChronicleHash<K,
         initOffsetsAndBulks();
     }
 
-    private void initOffsetsAndBulks() {
+    private void initOffsetsAndBulks() throws IOException {
         segmentHeadersOffset = segmentHeadersOffset();
 
         long segmentHeadersSize = actualSegments * segmentHeaderSize;
@@ -440,6 +466,7 @@ public abstract class VanillaChronicleHash<K,
             // write the segment headers offset after zeroing out
             globalMutableState.setSegmentHeadersOffset(segmentHeadersOffset);
             globalMutableState.setDataStoreSize(sizeInBytesWithoutTiers());
+            allocateReservedExtraTiers();
         } else {
             initBulks();
         }
@@ -490,7 +517,20 @@ public abstract class VanillaChronicleHash<K,
         createMappedStoreAndSegments(map(dataStoreSize(), 0));
     }
 
-    public final void basicRecover() throws IOException {
+    /**
+     * Recovers the segment, marked as needing recovery in its header, because the hash is
+     * opened with lazy recovery. Called by contexts on the first access to the segment.
+     *
+     * @param waitForAnotherThread if {@code true}, the segment shouldn't be recovered in the
+     * current thread, but the method should wait until the segment is recovered by another thread
+     */
+    public abstract void recoverSegmentLazily(int segmentIndex, boolean waitForAnotherThread);
+
+    /**
+     * @return {@code true} if the global mutable state didn't need any recovery, i. e. its lock
+     * was clear and the counters were consistent
+     */
+    public final boolean basicRecover() throws IOException {
         long segmentHeadersOffset = globalMutableState().getSegmentHeadersOffset();
         if (segmentHeadersOffset <= 0 || segmentHeadersOffset % 4096 != 0 ||
                 segmentHeadersOffset > GIGABYTES.toBytes(1)) {
@@ -508,14 +548,16 @@ public abstract class VanillaChronicleHash<K,
         }
         initBytesStoreAndHeadersViews(map(dataStoreSize, 0));
 
-        resetGlobalMutableStateLock();
-        recoverAllocatedExtraTierBulks(allocatedExtraTierBulks);
-        recoverSegmentHeadersOffset(segmentHeadersOffset);
-        recoverDataStoreSize(dataStoreSize);
+        boolean consistent = resetGlobalMutableStateLock();
+        consistent &= recoverAllocatedExtraTierBulks(allocatedExtraTierBulks);
+        consistent &= recoverSegmentHeadersOffset(segmentHeadersOffset);
+        consistent &= recoverDataStoreSize(dataStoreSize);
+        clearOpenersRegistry();
         initOffsetsAndBulks();
+        return consistent;
     }
 
-    private void resetGlobalMutableStateLock() {
+    private boolean resetGlobalMutableStateLock() {
         long lockAddr = globalMutableStateAddress() + GLOBAL_MUTABLE_STATE_LOCK_OFFSET;
         LockingStrategy lockingStrategy = globalMutableStateLockingStrategy;
         long lockState = lockingStrategy.getState(nativeAccess(), null, lockAddr);
@@ -523,31 +565,157 @@ public abstract class VanillaChronicleHash<K,
             LOG.error("global mutable state lock of map at {} is not clear: {}",
                     file, lockingStrategy.toString(lockState));
             lockingStrategy.reset(nativeAccess(), null, lockAddr);
+            return false;
         }
+        return true;
     }
 
-    private void recoverAllocatedExtraTierBulks(int allocatedExtraTierBulks) {
+    private boolean recoverAllocatedExtraTierBulks(int allocatedExtraTierBulks) {
         if (globalMutableState.getAllocatedExtraTierBulks() != allocatedExtraTierBulks) {
             LOG.error("allocated extra tier bulks counter corrupted, or the map file {} " +
                     "is truncated. stored: {}, should be: {}", file,
                     globalMutableState.getAllocatedExtraTierBulks(), allocatedExtraTierBulks);
             globalMutableState.setAllocatedExtraTierBulks(allocatedExtraTierBulks);
+            return false;
         }
+        return true;
     }
 
-    private void recoverSegmentHeadersOffset(long segmentHeadersOffset) {
+    private boolean recoverSegmentHeadersOffset(long segmentHeadersOffset) {
         if (globalMutableState.getSegmentHeadersOffset() != segmentHeadersOffset) {
             LOG.error("segment headers offset of map at {} corrupted. stored: {}, should be: {}",
                     file, globalMutableState.getSegmentHeadersOffset(), segmentHeadersOffset);
             globalMutableState.setSegmentHeadersOffset(segmentHeadersOffset);
+            return false;
         }
+        return true;
     }
 
-    private void recoverDataStoreSize(long dataStoreSize) {
+    private boolean recoverDataStoreSize(long dataStoreSize) {
         if (globalMutableState.getDataStoreSize() != dataStoreSize) {
             LOG.error("data store size of map at {} corrupted. stored: {}, should be: {}",
                     file, globalMutableState.getDataStoreSize(), dataStoreSize);
             globalMutableState.setDataStoreSize(dataStoreSize);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Processes registered in the openers registry are either dead, or shouldn't access the hash
+     * concurrently with recovery, and re-register themselves, when open the hash again.
+     */
+    private void clearOpenersRegistry() {
+        globalMutableState.setClosedCleanly(false);
+        globalMutableState.setOpenersRegistryOverflow(false);
+        for (int slot = 0; slot < OPENERS_REGISTRY_SIZE; slot++) {
+            globalMutableState.setOpenerProcessIdAt(slot, 0);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the last process, which had this persisted hash opened, has closed
+     * it, and there are no processes having it opened now. Should be called after {@link
+     * #initBeforeMapping}, and before mapping the hash.
+     */
+    public final boolean closedCleanly() {
+        return globalMutableState.getClosedCleanly();
+    }
+
+    /**
+     * Returns {@code true} if all processes, registered as having this persisted hash opened, are
+     * dead, i. e. the hash wasn't closed because those processes crashed or were terminated.
+     * Returns {@code false} if some of the processes are alive, if it couldn't be determined, or
+     * if not all processes, which opened the hash, are registered. Should be called after {@link
+     * #initBeforeMapping}, and before mapping the hash.
+     *
+     * <p>Liveness is checked via procfs, which shows only processes in the process id namespace of
+     * the current process. A process in another container, or on another host, sharing the file,
+     * looks dead, so the result could be trusted only if all openers are known to be in the same
+     * namespace.
+     */
+    public final boolean openedOnlyByDeadProcesses() {
+        if (globalMutableState.getOpenersRegistryOverflow())
+            return false;
+        boolean registeredOpeners = false;
+        for (int slot = 0; slot < OPENERS_REGISTRY_SIZE; slot++) {
+            int processId = globalMutableState.getOpenerProcessIdAt(slot);
+            if (processId != 0) {
+                if (processIsAlive(processId))
+                    return false;
+                registeredOpeners = true;
+            }
+        }
+        return registeredOpeners;
+    }
+
+    /**
+     * Returns {@code false}, if the process is not visible in the process id namespace of the
+     * current process, that doesn't necessarily mean it is dead.
+     */
+    private static boolean processIsAlive(int processId) {
+        if (processId == OS.getProcessId())
+            return true;
+        File proc = new File("/proc");
+        if (proc.isDirectory())
+            return new File(proc, String.valueOf(processId)).exists();
+        // Couldn't determine if the process is alive on this platform, conservatively assume it is
+        return true;
+    }
+
+    /**
+     * Registers the current process in the openers registry of the global mutable state, and
+     * clears the "closed cleanly" mark. Should be called, when the persisted hash is opened and
+     * recovered, if needed.
+     */
+    public final void registerOpener() {
+        if (!persisted())
+            return;
+        int processId = OS.getProcessId();
+        try {
+            globalMutableStateLock();
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to register in the openers registry of the map at {}, the map " +
+                    "will be fully recovered next time: {}", file, e.toString());
+            globalMutableState.setClosedCleanly(false);
+            globalMutableState.setOpenersRegistryOverflow(true);
+            return;
+        }
+        try {
+            globalMutableState.setClosedCleanly(false);
+            for (int slot = 0; slot < OPENERS_REGISTRY_SIZE; slot++) {
+                if (globalMutableState.getOpenerProcessIdAt(slot) == 0) {
+                    globalMutableState.setOpenerProcessIdAt(slot, processId);
+                    openersRegistrySlot = slot;
+                    return;
+                }
+            }
+            // Not enough slots to register, the hash is never considered closed cleanly until
+            // the next recovery
+            globalMutableState.setOpenersRegistryOverflow(true);
+        } finally {
+            globalMutableStateUnlock();
+        }
+    }
+
+    /**
+     * Removes the current process from the openers registry, and marks the hash as closed cleanly,
+     * if there are no other registered openers.
+     */
+    private void unregisterOpener() {
+        globalMutableStateLock();
+        try {
+            globalMutableState.setOpenerProcessIdAt(openersRegistrySlot, 0);
+            openersRegistrySlot = NOT_REGISTERED;
+            if (globalMutableState.getOpenersRegistryOverflow())
+                return;
+            for (int slot = 0; slot < OPENERS_REGISTRY_SIZE; slot++) {
+                if (globalMutableState.getOpenerProcessIdAt(slot) != 0)
+                    return;
+            }
+            globalMutableState.setClosedCleanly(true);
+        } finally {
+            globalMutableStateUnlock();
         }
     }
 
@@ -662,6 +830,15 @@ public abstract class VanillaChronicleHash<K,
                 }
             }
 
+            if (openersRegistrySlot != NOT_REGISTERED) {
+                try {
+                    unregisterOpener();
+                } catch (RuntimeException e) {
+                    // the hash is not marked as closed cleanly, and will be fully recovered
+                    LOG.error("error on unregistering from the map at " + file, e);
+                }
+            }
+
             bs.release();
             assert bs.refCount() == 0;
             for (TierBulkData bulkData : tierBulkOffsets) {
@@ -759,10 +936,56 @@ public abstract class VanillaChronicleHash<K,
                 globalMutableStateAddress() + GLOBAL_MUTABLE_STATE_LOCK_OFFSET);
     }
 
+    /**
+     * Allocates the tier bulks for the {@link #reservedExtraTiers}, on the map creation, so that
+     * claiming a reserved tier doesn't need to map memory. The reserved tiers are zeroed out when
+     * claimed, to not touch their pages until then.
+     */
+    private void allocateReservedExtraTiers() throws IOException {
+        long reservedBulks = (reservedExtraTiers + tiersInBulk - 1) / tiersInBulk;
+        for (long i = 0; i < reservedBulks; i++) {
+            allocateTierBulk();
+        }
+    }
+
+    /**
+     * Returns the number of extra tiers in use, including the tiers, claimed from the {@link
+     * #reservedExtraTiers} pool. Reserved tiers are claimed, and other extra tiers are allocated
+     * in the order of their indexes, so the tiers in use are always the first extra tiers.
+     */
+    public long extraTiersInUse() {
+        // extraTiersInUse is updated only under the global mutable state lock, after all reserved
+        // tiers are claimed, or by the recovery
+        return Math.max(globalMutableState.getExtraTiersInUse(),
+                globalMutableState.getVolatileReservedExtraTiersClaimed());
+    }
+
+    /**
+     * Claims the next tier from the {@link #reservedExtraTiers} pool with a CAS, without taking
+     * the global mutable state lock, and zeroes it out.
+     *
+     * @return the index of the claimed tier, or 0, if all reserved tiers are already claimed
+     */
+    private long claimReservedExtraTier() {
+        while (true) {
+            long claimed = globalMutableState.getVolatileReservedExtraTiersClaimed();
+            if (claimed >= reservedExtraTiers)
+                return 0;
+            if (globalMutableState.compareAndSwapReservedExtraTiersClaimed(claimed, claimed + 1)) {
+                long tierIndex = extraTierIndexToTierIndex(claimed);
+                zeroOutNewlyMappedTier(tierBytesStore(tierIndex), tierBytesOffset(tierIndex));
+                return tierIndex;
+            }
+        }
+    }
+
     public long allocateTier() {
+        long reservedTierIndex = claimReservedExtraTier();
+        if (reservedTierIndex > 0)
+            return reservedTierIndex;
         globalMutableStateLock();
         try {
-            long tiersInUse = globalMutableState.getExtraTiersInUse();
+            long tiersInUse = extraTiersInUse();
             if (tiersInUse >= maxExtraTiers) {
                 throw new IllegalStateException("Attempt to allocate #" + (tiersInUse + 1) +
                         " extra segment tier, " + maxExtraTiers + " is maximum.\n" +
@@ -818,7 +1041,14 @@ public abstract class VanillaChronicleHash<K,
         }
 
         long lastTierIndex = firstTierIndex + tiersInBulk - 1;
-        linkAndZeroOutFreeTiers(firstTierIndex, lastTierIndex);
+        // reserved tiers are not linked into the free list, see claimReservedExtraTier()
+        long firstFreeTierIndex =
+                Math.max(firstTierIndex, extraTierIndexToTierIndex(reservedExtraTiers));
+        if (firstFreeTierIndex <= lastTierIndex) {
+            linkAndZeroOutFreeTiers(firstFreeTierIndex, lastTierIndex);
+        } else {
+            firstFreeTierIndex = 0;
+        }
 
         // see HCOLL-397
         if (persisted()) {
@@ -830,7 +1060,7 @@ public abstract class VanillaChronicleHash<K,
 
         // after we are sure the new bulk is initialized, update the global mutable state
         globalMutableState.setAllocatedExtraTierBulks(allocatedExtraTierBulks + 1);
-        globalMutableState.setFirstFreeTierIndex(firstTierIndex);
+        globalMutableState.setFirstFreeTierIndex(firstFreeTierIndex);
         globalMutableState.addDataStoreSize(tierBulkSizeInBytes);
     }
 
@@ -1000,7 +1230,7 @@ public abstract class VanillaChronicleHash<K,
         }
     }
 
-    private void checkOpen() {
+    protected final void checkOpen() {
         if (closed)
             throw new ChronicleHashClosedException();
     }
@@ -17,9 +17,169 @@
 
 package net.openhft.chronicle.hash.impl.stage.entry;
 
+import net.openhft.chronicle.algo.hashing.LongHashFunction;
+import net.openhft.chronicle.hash.ChecksumAlgorithm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Checksum;
+
+import static java.lang.invoke.MethodType.methodType;
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
 public enum ChecksumHashing {
     ;
 
+    /**
+     * Computes the payload checksum of the given memory range by the given algorithm.
+     */
+    public static long hashMemory(ChecksumAlgorithm algorithm, long address, long length) {
+        if (algorithm == ChecksumAlgorithm.CRC32C)
+            return crc32c(address, length);
+        return LongHashFunction.xx_r39().hashMemory(address, length);
+    }
+
+    /**
+     * Computes CRC-32C of the given memory range, using the {@code java.util.zip.CRC32C}
+     * intrinsic on Java 9+, or a table-driven implementation on Java 8.
+     */
+    public static long crc32c(long address, long length) {
+        if (JdkCrc32c.AVAILABLE)
+            return JdkCrc32c.crc32c(address, length);
+        return softwareCrc32c(address, length);
+    }
+
+    /**
+     * Slicing-by-8 CRC-32C implementation, for JVMs without {@code java.util.zip.CRC32C}.
+     */
+    public static long softwareCrc32c(long address, long length) {
+        int[][] t = Crc32cTables.TABLES;
+        int[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3], t4 = t[4], t5 = t[5], t6 = t[6],
+                t7 = t[7];
+        boolean littleEndian = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+        int crc = 0xFFFFFFFF;
+        long end = address + length;
+        for (; address + 8 <= end; address += 8) {
+            long v = UNSAFE.getLong(address);
+            if (!littleEndian)
+                v = Long.reverseBytes(v);
+            int lo = crc ^ (int) v;
+            int hi = (int) (v >>> 32);
+            crc = t7[lo & 0xFF] ^ t6[(lo >>> 8) & 0xFF] ^ t5[(lo >>> 16) & 0xFF] ^
+                    t4[lo >>> 24] ^ t3[hi & 0xFF] ^ t2[(hi >>> 8) & 0xFF] ^
+                    t1[(hi >>> 16) & 0xFF] ^ t0[hi >>> 24];
+        }
+        for (; address < end; address++) {
+            crc = (crc >>> 8) ^ t0[(crc ^ UNSAFE.getByte(address)) & 0xFF];
+        }
+        return (~crc) & 0xFFFFFFFFL;
+    }
+
+    private static class Crc32cTables {
+        static final int[][] TABLES = new int[8][256];
+
+        static {
+            // reversed Castagnoli polynomial
+            int polynomial = 0x82F63B78;
+            for (int i = 0; i < 256; i++) {
+                int crc = i;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & 1) != 0 ? (crc >>> 1) ^ polynomial : crc >>> 1;
+                }
+                TABLES[0][i] = crc;
+            }
+            for (int i = 0; i < 256; i++) {
+                for (int k = 1; k < 8; k++) {
+                    int prev = TABLES[k - 1][i];
+                    TABLES[k][i] = (prev >>> 8) ^ TABLES[0][prev & 0xFF];
+                }
+            }
+        }
+    }
+
+    /**
+     * Access to {@code java.util.zip.CRC32C} (Java 9+) via a direct {@code ByteBuffer}, which
+     * address and capacity are reassigned to point to the memory range to checksum, because
+     * {@code CRC32C} has no API to checksum memory by address.
+     */
+    private static class JdkCrc32c {
+        static final boolean AVAILABLE;
+        private static final MethodHandle NEW_CRC32C;
+        private static final MethodHandle UPDATE;
+        private static final long ADDRESS_OFFSET;
+        private static final long CAPACITY_OFFSET;
+
+        static {
+            boolean available = false;
+            MethodHandle newCrc32c = null;
+            MethodHandle update = null;
+            long addressOffset = -1;
+            long capacityOffset = -1;
+            try {
+                Class<?> crc32cClass = Class.forName("java.util.zip.CRC32C");
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                newCrc32c = lookup.findConstructor(crc32cClass, methodType(void.class))
+                        .asType(methodType(Checksum.class));
+                update = lookup.findVirtual(crc32cClass, "update",
+                        methodType(void.class, ByteBuffer.class))
+                        .asType(methodType(void.class, Checksum.class, ByteBuffer.class));
+                Field address = Buffer.class.getDeclaredField("address");
+                Field capacity = Buffer.class.getDeclaredField("capacity");
+                addressOffset = UNSAFE.objectFieldOffset(address);
+                capacityOffset = UNSAFE.objectFieldOffset(capacity);
+                available = true;
+            } catch (Throwable e) {
+                // Java 8, or unknown ByteBuffer layout, fall back to the software implementation
+                available = false;
+            }
+            AVAILABLE = available;
+            NEW_CRC32C = newCrc32c;
+            UPDATE = update;
+            ADDRESS_OFFSET = addressOffset;
+            CAPACITY_OFFSET = capacityOffset;
+        }
+
+        private static final ThreadLocal<Checksum> CRC32C = ThreadLocal.withInitial(() -> {
+            try {
+                return (Checksum) NEW_CRC32C.invokeExact();
+            } catch (Throwable e) {
+                throw new AssertionError(e);
+            }
+        });
+
+        private static final ThreadLocal<ByteBuffer> BUFFER =
+                ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(0));
+
+        static long crc32c(long address, long length) {
+            Checksum crc32c = CRC32C.get();
+            crc32c.reset();
+            ByteBuffer buffer = BUFFER.get();
+            try {
+                while (length > 0) {
+                    int chunk = (int) Math.min(length, Integer.MAX_VALUE);
+                    UNSAFE.putLong(buffer, ADDRESS_OFFSET, address);
+                    UNSAFE.putInt(buffer, CAPACITY_OFFSET, chunk);
+                    buffer.clear();
+                    UPDATE.invokeExact(crc32c, buffer);
+                    address += chunk;
+                    length -= chunk;
+                }
+            } catch (Throwable e) {
+                throw new AssertionError(e);
+            } finally {
+                // don't leave the buffer pointing to the memory, which might be unmapped
+                UNSAFE.putLong(buffer, ADDRESS_OFFSET, 0L);
+                UNSAFE.putInt(buffer, CAPACITY_OFFSET, 0);
+                buffer.clear();
+            }
+            return crc32c.getValue();
+        }
+    }
+
     /**
      * A smart procedure copied from CityHash/FarmHash, see the full implementation in
      * Zero-allocation-hashing or Chronicle-Algorithms
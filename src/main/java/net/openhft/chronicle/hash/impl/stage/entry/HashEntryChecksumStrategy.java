@@ -17,15 +17,17 @@
 
 package net.openhft.chronicle.hash.impl.stage.entry;
 
-import net.openhft.chronicle.algo.hashing.LongHashFunction;
+import net.openhft.chronicle.hash.impl.VanillaChronicleHashHolder;
 import net.openhft.sg.StageRef;
 import net.openhft.sg.Staged;
 
 import static net.openhft.chronicle.hash.impl.stage.entry.ChecksumHashing.hash8To16Bytes;
+import static net.openhft.chronicle.hash.impl.stage.entry.ChecksumHashing.hashMemory;
 
 @Staged
 public class HashEntryChecksumStrategy implements ChecksumStrategy {
 
+    @StageRef VanillaChronicleHashHolder<?> hh;
     @StageRef SegmentStages s;
     @StageRef HashEntryStages<?> e;
     @StageRef KeyHashCode h;
@@ -46,7 +48,7 @@ public class HashEntryChecksumStrategy implements ChecksumStrategy {
         long checksum;
         if (len > 0) {
             long addr = s.tierBaseAddr + keyEnd;
-            long payloadChecksum = LongHashFunction.xx_r39().hashMemory(addr, len);
+            long payloadChecksum = hashMemory(hh.h().checksumAlgorithm, addr, len);
             checksum = hash8To16Bytes(e.keySize, keyHashCode, payloadChecksum);
         } else {
             // non replicated ChronicleSet has no payload
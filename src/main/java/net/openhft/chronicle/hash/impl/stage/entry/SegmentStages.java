@@ -67,6 +67,12 @@ public abstract class SegmentStages implements SegmentLock, LocksInterface {
     private void initSegmentHeader() {
         segmentHeaderAddress = hh.h().segmentHeaderAddress(segmentIndex);
         segmentHeader = BigSegmentHeader.INSTANCE;
+        if (segmentHeader.needsRecovery(segmentHeaderAddress)) {
+            // Recovery write-locks the segment, that is forbidden when an iteration context is
+            // locked in this thread, then wait until the segment is recovered by another thread
+            hh.h().recoverSegmentLazily(segmentIndex,
+                    chaining.rootContextInThisThread.iterationContextLockedInThisThread);
+        }
     }
 
     public long tierEntries() {
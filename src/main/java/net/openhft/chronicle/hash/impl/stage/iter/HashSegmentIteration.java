@@ -27,9 +27,13 @@ import net.openhft.chronicle.hash.impl.stage.hash.CheckOnEachPublicOperation;
 import net.openhft.sg.StageRef;
 import net.openhft.sg.Staged;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import static net.openhft.chronicle.algo.bitset.BitSetFrame.NOT_FOUND;
+
 @Staged
 public abstract class HashSegmentIteration<K, E extends HashEntry<K>>
         implements HashEntry<K>, HashSegmentContext<K, E> {
@@ -39,6 +43,7 @@ public abstract class HashSegmentIteration<K, E extends HashEntry<K>>
     @StageRef VanillaChronicleHashHolder<?> hh;
     @StageRef public CheckOnEachPublicOperation checkOnEachPublicOperation;
     @StageRef protected HashLookupPos hlp;
+    @StageRef IterationKeyHashCode khc;
     
     public boolean shouldTestEntry() {
         return true;
@@ -77,15 +82,30 @@ public abstract class HashSegmentIteration<K, E extends HashEntry<K>>
         return innerForEachSegmentEntryWhile(predicate);
     }
 
+    @Override
+    public boolean forEachSegmentEntryInAddressOrderWhile(Predicate<? super E> predicate) {
+        checkOnEachPublicOperation.checkOnEachPublicOperation();
+        s.innerUpdateLock.lock();
+        return innerForEachSegmentEntryWhile(predicate, true);
+    }
+
     public <T> boolean innerForEachSegmentEntryWhile(Predicate<? super T> predicate) {
+        return innerForEachSegmentEntryWhile(predicate, false);
+    }
+
+    public <T> boolean innerForEachSegmentEntryWhile(
+            Predicate<? super T> predicate, boolean addressOrder) {
         try {
             s.goToLastTier();
             while (true) {
                 int currentTier = s.tier;
                 long currentTierBaseAddr = s.tierBaseAddr;
                 long currentTierIndex = s.tierIndex;
-                boolean interrupted = forEachTierEntryWhile(
-                        predicate, currentTier, currentTierBaseAddr, currentTierIndex);
+                boolean interrupted = addressOrder ?
+                        forEachTierEntryInAddressOrderWhile(
+                                predicate, currentTier, currentTierBaseAddr, currentTierIndex) :
+                        forEachTierEntryWhile(
+                                predicate, currentTier, currentTierBaseAddr, currentTierIndex);
                 if (interrupted)
                     return false;
                 if (currentTier == 0)
@@ -169,6 +189,240 @@ public abstract class HashSegmentIteration<K, E extends HashEntry<K>>
         return interrupted;
     }
 
+    /**
+     * Visits entries of the tier in the order of their positions in the entry space, by walking
+     * the tier's free list, rather than in the order of hash lookup slots. The entry space of the
+     * tier is read sequentially. The hash lookup slot of the entry is located only if the entry is
+     * removed or its value is replaced in the {@code predicate}, see {@link
+     * #locateHashLookupEntry()}.
+     */
+    public <T> boolean forEachTierEntryInAddressOrderWhile(
+            Predicate<? super T> predicate,
+            int currentTier, long currentTierBaseAddr, long tierIndex) {
+        long leftEntries = tierEntriesForIteration();
+        if (leftEntries == 0)
+            return false;
+        boolean interrupted = false;
+        // positions, to which entries were relocated within the tier during this iteration,
+        // forward of the iteration position. Should be skipped, not to visit entries twice
+        Set<Long> relocatedEntries = null;
+        long pos = 0L;
+        // access s.freeList on each step, not via a local variable, because the free list is
+        // re-pointed if the tier is restored after relocation of an entry to the next tier
+        while ((pos = s.freeList.nextSetBit(pos)) != NOT_FOUND) {
+            e.readExistingEntry(pos);
+            if ((relocatedEntries != null && relocatedEntries.remove(pos)) || !shouldTestEntry()) {
+                pos += e.entrySizeInChunks;
+                continue;
+            }
+            closeHashLookupEntry();
+            initEntryRemovedOnThisIteration(false);
+            try {
+                if (!predicate.test((T) entryForIteration())) {
+                    interrupted = true;
+                    break;
+                } else {
+                    leftEntries--;
+                }
+            } finally {
+                if (s.tier != currentTier) {
+                    // doReplaceValue() -> relocation() -> alloc() -> nextTier() was called,
+                    // restore the tier we were iterating over
+                    s.initSegmentTier_WithBaseAddr(currentTier, currentTierBaseAddr, tierIndex);
+                } else if (e.pos > pos) {
+                    if (relocatedEntries == null)
+                        relocatedEntries = new HashSet<>();
+                    relocatedEntries.add(e.pos);
+                }
+                s.innerWriteLock.unlock();
+                // force entry checksum update (delayedUpdateChecksum depends on keyOffset)
+                e.closeKeyOffset();
+            }
+            if (leftEntries == 0)
+                break;
+            if (s.freeList.isSet(pos)) {
+                // the entry is still at this position, but its size could be changed in the
+                // predicate
+                e.readExistingEntry(pos);
+                pos += e.entrySizeInChunks;
+            } else {
+                // the entry is removed or relocated, its chunks are freed
+                pos++;
+            }
+        }
+        if (!interrupted && leftEntries > 0) {
+            throw new IllegalStateException("Iterated a tier without interruption, " +
+                    "but according to tier counters there should be " + leftEntries +
+                    " more entries. Size diverged?");
+        }
+        return interrupted;
+    }
+
+    /**
+     * Locates the hash lookup slot of the current entry by the hash code of it's key, if it is
+     * not located yet, i. e. if the iteration is performed in address order. Must be called
+     * before the entry is removed or relocated during iteration.
+     */
+    public void locateHashLookupEntry() {
+        if (hashLookupEntryInit())
+            return;
+        CompactOffHeapLinearHashTable hashLookup = hh.h().hashLookup;
+        long searchKey = hashLookup.maskUnsetKey(
+                hh.h().hashSplitting.segmentHash(khc.keyHashCode()));
+        long hashLookupPos = hashLookup.hlPos(searchKey);
+        while (true) {
+            // volatile read not needed because iteration is performed at least under update lock
+            long entry = hashLookup.readEntry(s.tierBaseAddr, hashLookupPos);
+            if (hashLookup.empty(entry)) {
+                throw new IllegalStateException("Entry at pos " + e.pos + " in the tier with " +
+                        "index " + s.tierIndex + " is not found in the hash lookup. " +
+                        "Memory corruption?");
+            }
+            if (hashLookup.key(entry) == searchKey && hashLookup.value(entry) == e.pos) {
+                hlp.initHashLookupPos(hashLookupPos);
+                initHashLookupEntry(entry);
+                return;
+            }
+            hashLookupPos = hashLookup.step(hashLookupPos);
+        }
+    }
+
+    /**
+     * Visits present entries of the segment, starting from the position of the given cursor,
+     * under the segment read lock, and advances the cursor. The batch is over after at least
+     * {@code batchSize} entries are visited, at the next empty slot of the tier's hash lookup
+     * (or at the end of the tier). Stopping at empty slots, rather than in the middle of a slot
+     * cluster, prevents skipping and visiting twice entries, shifted within clusters by concurrent
+     * removals between batches, except when clusters merge between batches. Entries shouldn't be
+     * modified or removed in the {@code action}.
+     *
+     * @return {@code true} if there are more entries to visit in the segment, {@code false} if the
+     * iteration over the segment is complete
+     */
+    public boolean forEachSegmentEntryBatch(
+            SegmentCursor cursor, int batchSize, Consumer<? super E> action) {
+        checkOnEachPublicOperation.checkOnEachPublicOperation();
+        s.innerReadLock.lock();
+        try {
+            CompactOffHeapLinearHashTable hashLookup = hh.h().hashLookup;
+            if (!cursor.started()) {
+                s.goToFirstTier();
+                cursor.startTier(s.tier, s.tierIndex, firstEmptyPos(s.tierBaseAddr));
+            } else {
+                s.initSegmentTier(cursor.tier, cursor.tierIndex);
+            }
+            int visited = 0;
+            while (true) {
+                long tierBaseAddr = s.tierBaseAddr;
+                long pos = cursor.pos;
+                while ((pos = hashLookup.step(pos)) != cursor.startPos) {
+                    // volatile read not needed because iteration is performed under read lock
+                    long entry = hashLookup.readEntry(tierBaseAddr, pos);
+                    if (hashLookup.empty(entry)) {
+                        if (visited >= batchSize) {
+                            cursor.pos = pos;
+                            return true;
+                        }
+                    } else {
+                        e.readExistingEntry(hashLookup.value(entry));
+                        if (shouldTestEntry()) {
+                            //noinspection unchecked
+                            action.accept((E) entryForIteration());
+                            visited++;
+                        }
+                    }
+                }
+                if (!s.hasNextTier())
+                    return false;
+                s.nextTier();
+                cursor.startTier(s.tier, s.tierIndex, firstEmptyPos(s.tierBaseAddr));
+                if (visited >= batchSize)
+                    return true;
+            }
+        } finally {
+            s.innerReadLock.unlock();
+        }
+    }
+
+    /**
+     * Visits entries of the segment in batches, the same way as {@link
+     * #forEachSegmentEntryBatch}, but under the segment update lock, which should be already
+     * acquired, and allows to remove the visited entries in the {@code predicate}. Values of the
+     * entries shouldn't be replaced in the {@code predicate}, because this could relocate them to
+     * another tier. If the {@code predicate} returns {@code false}, the cursor is not advanced,
+     * i. e. the entries of the interrupted batch are visited again in the next batch.
+     *
+     * @return {@code true} if there are more entries to visit in the segment, or the iteration is
+     * interrupted by the {@code predicate}, {@code false} if the iteration over the segment is
+     * complete
+     */
+    public <T> boolean innerForEachSegmentEntryBatchWhile(
+            SegmentCursor cursor, int batchSize, Predicate<? super T> predicate) {
+        try {
+            CompactOffHeapLinearHashTable hashLookup = hh.h().hashLookup;
+            if (!cursor.started()) {
+                s.goToFirstTier();
+                cursor.startTier(s.tier, s.tierIndex, firstEmptyPos(s.tierBaseAddr));
+            } else {
+                s.initSegmentTier(cursor.tier, cursor.tierIndex);
+            }
+            int visited = 0;
+            while (true) {
+                long tierBaseAddr = s.tierBaseAddr;
+                hlp.initHashLookupPos(cursor.pos);
+                long pos;
+                // Step from hlp.hashLookupPos, because it is stepped back in doRemove(), if
+                // another entry is shifted to the removed entry's slot
+                while ((pos = hashLookup.step(hlp.hashLookupPos)) != cursor.startPos) {
+                    hlp.setHashLookupPos(pos);
+                    // volatile read not needed because iteration is performed under update lock
+                    long entry = hashLookup.readEntry(tierBaseAddr, pos);
+                    if (hashLookup.empty(entry)) {
+                        if (visited >= batchSize) {
+                            cursor.pos = pos;
+                            return true;
+                        }
+                        continue;
+                    }
+                    initHashLookupEntry(entry);
+                    e.readExistingEntry(hashLookup.value(entry));
+                    if (!shouldTestEntry())
+                        continue;
+                    visited++;
+                    initEntryRemovedOnThisIteration(false);
+                    try {
+                        //noinspection unchecked
+                        if (!predicate.test((T) entryForIteration()))
+                            return true;
+                    } finally {
+                        s.innerWriteLock.unlock();
+                        // force entry checksum update (delayedUpdateChecksum depends on keyOffset)
+                        e.closeKeyOffset();
+                    }
+                }
+                if (!s.hasNextTier())
+                    return false;
+                s.nextTier();
+                cursor.startTier(s.tier, s.tierIndex, firstEmptyPos(s.tierBaseAddr));
+                if (visited >= batchSize)
+                    return true;
+            }
+        } finally {
+            closeHashLookupEntry();
+            s.innerReadLock.unlock();
+            initEntryRemovedOnThisIteration(false);
+        }
+    }
+
+    private long firstEmptyPos(long tierBaseAddr) {
+        CompactOffHeapLinearHashTable hashLookup = hh.h().hashLookup;
+        long pos = 0L;
+        while (!hashLookup.empty(hashLookup.readEntry(tierBaseAddr, pos))) {
+            pos = hashLookup.step(pos);
+        }
+        return pos;
+    }
+
     @Override
     public void forEachSegmentEntry(Consumer<? super E> action) {
         forEachSegmentEntryWhile(e -> {
@@ -182,9 +436,18 @@ public abstract class HashSegmentIteration<K, E extends HashEntry<K>>
             throw new IllegalStateException("Entry was already removed on this iteration");
     }
 
+    @Override
+    public void forEachSegmentEntryInAddressOrder(Consumer<? super E> action) {
+        forEachSegmentEntryInAddressOrderWhile(e -> {
+            action.accept(e);
+            return true;
+        });
+    }
+
     @Override
     public void doRemove() {
         checkOnEachPublicOperation.checkOnEachPublicOperation();
+        locateHashLookupEntry();
         s.innerWriteLock.lock();
         try {
             iterationRemove();
@@ -0,0 +1,57 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl.stage.iter;
+
+/**
+ * Position of a batched iteration over a segment, see {@link
+ * HashSegmentIteration#forEachSegmentEntryBatch}. Between batches, the segment lock is released,
+ * and the cursor remembers the tier and the position in the tier's hash lookup to continue the
+ * iteration from.
+ */
+public final class SegmentCursor {
+
+    /** The tier (0-based within the segment) to continue the iteration from */
+    public int tier;
+    /** The index of the {@link #tier}, 0 if the iteration over the segment is not started */
+    public long tierIndex;
+    /**
+     * The hash lookup position, from which the iteration over the tier started, the tier is
+     * iterated over when the position returns to this one
+     */
+    public long startPos;
+    /** The last visited hash lookup position, always empty at the time of the visit */
+    public long pos;
+
+    public boolean started() {
+        return tierIndex != 0;
+    }
+
+    void startTier(int tier, long tierIndex, long startPos) {
+        this.tier = tier;
+        this.tierIndex = tierIndex;
+        this.startPos = startPos;
+        this.pos = startPos;
+    }
+
+    public void reset() {
+        tier = 0;
+        tierIndex = 0;
+        startPos = 0;
+        pos = 0;
+    }
+}
@@ -18,6 +18,7 @@
 package net.openhft.chronicle.hash.impl.stage.iter;
 
 import net.openhft.chronicle.hash.VanillaGlobalMutableState;
+import net.openhft.chronicle.hash.impl.BigSegmentHeader;
 import net.openhft.chronicle.hash.impl.TierCountersArea;
 import net.openhft.chronicle.hash.impl.VanillaChronicleHash;
 import net.openhft.chronicle.hash.impl.VanillaChronicleHashHolder;
@@ -38,17 +39,43 @@ public abstract class SegmentsRecovery implements IterationContext {
 
     @Override
     public void recoverSegments() {
-        Logger log = lh.LOG;
         VanillaChronicleHash<?, ?, ?, ?> h = hh.h();
         for (int segmentIndex = 0; segmentIndex < h.actualSegments; segmentIndex++) {
-            s.initSegmentIndex(segmentIndex);
-            resetSegmentLock();
-            zeroOutFirstSegmentTierCountersArea();
-            tierRecovery.recoverTier(segmentIndex);
+            recoverFirstTier(segmentIndex);
+        }
+        recoverExtraTiers();
+        for (int segmentIndex = 0; segmentIndex < h.actualSegments; segmentIndex++) {
+            removeDuplicatesInSegment(segmentIndex);
         }
+    }
+
+    /**
+     * Recovers the lock, the counters and the hash lookup of the first tier of the segment with
+     * the given index. First tiers of different segments could be recovered concurrently, from
+     * different threads.
+     */
+    @Override
+    public void recoverFirstTier(int segmentIndex) {
+        s.initSegmentIndex(segmentIndex);
+        resetSegmentLock();
+        zeroOutFirstSegmentTierCountersArea();
+        tierRecovery.recoverTier(segmentIndex);
+    }
 
+    /**
+     * Recovers extra tiers in use, and links them to the tier chains of the segments they belong
+     * to, then links the rest of the allocated extra tiers into the free list. Must be called
+     * after the first tiers of all segments are recovered, from a single thread.
+     */
+    @Override
+    public void recoverExtraTiers() {
+        Logger log = lh.LOG;
+        VanillaChronicleHash<?, ?, ?, ?> h = hh.h();
+        // extra tiers are recovered in the context of an arbitrary segment, the actual segment of
+        // each tier is determined by recoverTier()
+        s.initSegmentIndex(0);
         VanillaGlobalMutableState globalMutableState = h.globalMutableState();
-        long storedExtraTiersInUse = globalMutableState.getExtraTiersInUse();
+        long storedExtraTiersInUse = h.extraTiersInUse();
         long allocatedExtraTiers = globalMutableState.getAllocatedExtraTierBulks() * h.tiersInBulk;
         long expectedExtraTiersInUse =
                 Math.max(0, Math.min(storedExtraTiersInUse, allocatedExtraTiers));
@@ -88,16 +115,20 @@ public abstract class SegmentsRecovery implements IterationContext {
                     "should be: {}", storedExtraTiersInUse, actualExtraTiersInUse);
             globalMutableState.setExtraTiersInUse(actualExtraTiersInUse);
         }
+        // unused reserved tiers are zeroed out when claimed, and the next claimed tier should be
+        // the first not in use
+        globalMutableState.setReservedExtraTiersClaimed(
+                Math.min(actualExtraTiersInUse, h.reservedExtraTiers));
 
+        if (firstFreeExtraTierIndex == -1)
+            firstFreeExtraTierIndex = expectedExtraTiersInUse;
+        // reserved tiers are not linked into the free list
+        firstFreeExtraTierIndex = Math.max(firstFreeExtraTierIndex, h.reservedExtraTiers);
         long firstFreeTierIndex;
-        if (firstFreeExtraTierIndex == -1) {
-            if (allocatedExtraTiers > expectedExtraTiersInUse) {
-                firstFreeTierIndex = h.extraTierIndexToTierIndex(expectedExtraTiersInUse);
-            } else {
-                firstFreeTierIndex = 0;
-            }
-        } else {
+        if (allocatedExtraTiers > firstFreeExtraTierIndex) {
             firstFreeTierIndex = h.extraTierIndexToTierIndex(firstFreeExtraTierIndex);
+        } else {
+            firstFreeTierIndex = 0;
         }
         if (firstFreeTierIndex > 0) {
             long lastTierIndex = h.extraTierIndexToTierIndex(allocatedExtraTiers - 1);
@@ -109,23 +140,125 @@ public abstract class SegmentsRecovery implements IterationContext {
                     "should be: {}", storedFirstFreeTierIndex, firstFreeTierIndex);
             globalMutableState.setFirstFreeTierIndex(firstFreeTierIndex);
         }
+    }
+
+    /**
+     * Removes entries with duplicate keys in all tiers of the segment with the given index, and
+     * recovers the tier counters. Must be called after {@link #recoverExtraTiers()}. Different
+     * segments could be processed concurrently, from different threads.
+     */
+    @Override
+    public void removeDuplicatesInSegment(int segmentIndex) {
+        s.initSegmentIndex(segmentIndex);
+        s.initSegmentTier();
+        removeDuplicatesInSegmentTiers();
+    }
+
+    /**
+     * Recovers the segments partially: locks and counters of the first tiers, and extra tiers,
+     * and marks all segments as needing recovery. The rest of the recovery of each segment (of
+     * the first tier's hash lookup, duplicate keys and tier counters) is done by {@link
+     * #recoverSegmentLazily(int)} on the first access to the segment.
+     */
+    @Override
+    public void prepareLazyRecovery() {
+        VanillaChronicleHash<?, ?, ?, ?> h = hh.h();
+        for (int segmentIndex = 0; segmentIndex < h.actualSegments; segmentIndex++) {
+            s.initSegmentIndex(segmentIndex);
+            resetSegmentLock();
+            zeroOutFirstSegmentTierCountersArea();
+        }
+        recoverExtraTiers();
+        for (int segmentIndex = 0; segmentIndex < h.actualSegments; segmentIndex++) {
+            BigSegmentHeader.INSTANCE.needsRecovery(h.segmentHeaderAddress(segmentIndex), true);
+        }
+    }
 
-        removeDuplicatesInSegments();
+    /**
+     * Recovers the segment, marked as needing recovery by {@link #prepareLazyRecovery()}, under
+     * the segment write lock, and clears the mark. Does nothing, if the segment is already
+     * recovered by another thread. The mark is checked before taking the lock, not to wait for
+     * the lock of an already recovered segment, which might be held by another context, and
+     * checked again under the lock.
+     */
+    @Override
+    public void recoverSegmentLazily(int segmentIndex) {
+        VanillaChronicleHash<?, ?, ?, ?> h = hh.h();
+        if (!BigSegmentHeader.INSTANCE.needsRecovery(h.segmentHeaderAddress(segmentIndex)))
+            return;
+        s.initSegmentIndex(segmentIndex);
+        s.innerWriteLock.lock();
+        try {
+            if (!s.segmentHeader.needsRecovery(s.segmentHeaderAddress))
+                return;
+            tierRecovery.recoverTier(segmentIndex);
+            removeDuplicatesInSegmentTiers();
+            s.segmentHeader.needsRecovery(s.segmentHeaderAddress, false);
+        } finally {
+            s.innerReadLock.unlock();
+        }
     }
 
-    private void removeDuplicatesInSegments() {
+    /**
+     * Recovers only the segments, which locks are not clear, or which are marked as needing
+     * recovery, i. e. the segments, which might have been modified by crashed processes. Each of
+     * these segments is recovered completely: all its tiers, duplicate keys and tier counters.
+     *
+     * @return {@code false} if the tier chains of the segments are inconsistent with the global
+     * mutable state, e. g. a crashed process has allocated an extra tier, but hasn't linked it to
+     * the segment's tier chain. Full recovery is needed in this case, nothing is recovered by this
+     * method
+     */
+    @Override
+    public boolean recoverLockedSegments() {
         VanillaChronicleHash<?, ?, ?, ?> h = hh.h();
+        long extraTiersInUse = h.extraTiersInUse();
+        long maxTierIndex = h.extraTierIndexToTierIndex(extraTiersInUse - 1);
+        long linkedExtraTiers = 0;
         for (int segmentIndex = 0; segmentIndex < h.actualSegments; segmentIndex++) {
             s.initSegmentIndex(segmentIndex);
             s.initSegmentTier();
-            s.goToLastTier();
-            while (true) {
-                tierRecovery.removeDuplicatesInSegment();
-                if (s.tier > 0) {
-                    s.prevTier();
-                } else {
-                    break;
+            while (s.hasNextTier()) {
+                long nextTierIndex = s.nextTierIndex();
+                if (nextTierIndex <= h.actualSegments || nextTierIndex > maxTierIndex ||
+                        ++linkedExtraTiers > extraTiersInUse) {
+                    return false;
                 }
+                s.nextTier();
+            }
+        }
+        if (linkedExtraTiers != extraTiersInUse)
+            return false;
+
+        for (int segmentIndex = 0; segmentIndex < h.actualSegments; segmentIndex++) {
+            s.initSegmentIndex(segmentIndex);
+            boolean lockClear = s.segmentHeader.getLockState(s.segmentHeaderAddress) ==
+                    s.segmentHeader.resetLockState();
+            boolean needsRecovery = s.segmentHeader.needsRecovery(s.segmentHeaderAddress);
+            if (lockClear && !needsRecovery)
+                continue;
+            resetSegmentLock();
+            s.initSegmentTier();
+            tierRecovery.recoverTier(segmentIndex);
+            while (s.hasNextTier()) {
+                s.nextTier();
+                tierRecovery.recoverTier(segmentIndex);
+            }
+            removeDuplicatesInSegmentTiers();
+            if (needsRecovery)
+                s.segmentHeader.needsRecovery(s.segmentHeaderAddress, false);
+        }
+        return true;
+    }
+
+    private void removeDuplicatesInSegmentTiers() {
+        s.goToLastTier();
+        while (true) {
+            tierRecovery.removeDuplicatesInSegment();
+            if (s.tier > 0) {
+                s.prevTier();
+            } else {
+                break;
             }
         }
     }
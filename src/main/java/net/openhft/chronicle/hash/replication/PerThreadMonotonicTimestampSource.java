@@ -0,0 +1,61 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.hash.replication;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Keeps the last returned timestamp in a thread-local, and doesn't touch shared state in {@link
+ * #currentTime()}, except a volatile read of the {@code floor}, which is written only in {@link
+ * #barrierTime()}, i. e. rarely.
+ *
+ * @see TimestampSource#perThreadMonotonic()
+ */
+final class PerThreadMonotonicTimestampSource implements TimestampSource {
+
+    static final PerThreadMonotonicTimestampSource INSTANCE =
+            new PerThreadMonotonicTimestampSource();
+
+    private final AtomicLong floor = new AtomicLong();
+    private final ThreadLocal<long[]> lastTimeHolder = ThreadLocal.withInitial(() -> new long[1]);
+
+    private PerThreadMonotonicTimestampSource() {}
+
+    @Override
+    public long currentTime() {
+        long[] lastTime = lastTimeHolder.get();
+        long now = Math.max(MILLISECONDS.toNanos(System.currentTimeMillis()), floor.get());
+        if (now <= lastTime[0])
+            return lastTime[0];
+        lastTime[0] = now;
+        return now;
+    }
+
+    @Override
+    public long barrierTime() {
+        long time = currentTime();
+        while (true) {
+            long currentFloor = floor.get();
+            if (time <= currentFloor)
+                return currentFloor;
+            if (floor.compareAndSet(currentFloor, time))
+                return time;
+        }
+    }
+}
@@ -49,9 +49,12 @@ public final class TimeProvider {
      * {@link #systemTimeIntervalBetween(long, long, TimeUnit)}, applied to the returned values
      * from those {@code currentTime()} calls.
      *
-     * <p>Safe and scalable for concurrent use from multiple threads.
+     * <p>Safe for concurrent use from multiple threads, but threads contend on the shared last
+     * returned timestamp, see {@link TimestampSource#perThreadMonotonic()} for a more scalable
+     * alternative.
      *
      * @return the current timestamp
+     * @see TimestampSource#global()
      */
     public static long currentTime() {
         long now = MILLISECONDS.toNanos(System.currentTimeMillis());
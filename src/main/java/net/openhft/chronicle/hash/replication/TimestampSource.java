@@ -0,0 +1,75 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.hash.replication;
+
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+
+/**
+ * Source of timestamps of entry updates in a replicated {@code ChronicleHash}. Timestamps are
+ * compared by {@link DefaultEventualConsistencyStrategy} to resolve conflicting updates of the
+ * same entry on different nodes (last write wins), so they should approximate the wall time.
+ * Timestamps must be measured in the same units, as {@link TimeProvider#currentTime()} returns,
+ * for {@link TimeProvider#systemTimeIntervalBetween(long, long, java.util.concurrent.TimeUnit)}
+ * to be applicable to them.
+ *
+ * <p>The timestamp of an update of an entry is always greater than the previous timestamp of the
+ * same entry, regardless of the {@code TimestampSource}, so updates of a single entry made on one
+ * node are ordered even if timestamps, returned from different threads, are not.
+ *
+ * @see ChronicleHashBuilderPrivateAPI#timestampSource(TimestampSource)
+ */
+@FunctionalInterface
+public interface TimestampSource {
+
+    /**
+     * Returns a single {@code TimestampSource}, delegating to {@link TimeProvider#currentTime()}.
+     * It returns non-decreasing values across all threads, but concurrent updates from many
+     * threads contend on the shared state.
+     */
+    static TimestampSource global() {
+        return TimeProvider::currentTime;
+    }
+
+    /**
+     * Returns a {@code TimestampSource}, which returns non-decreasing values within each thread,
+     * not lower than the node-wide floor, raised only in {@link #barrierTime()} calls. Threads
+     * don't write any shared state in {@link #currentTime()}, so it scales with the number of
+     * threads updating entries concurrently. Timestamps, returned from different threads, are
+     * ordered only as much as the system time is.
+     */
+    static TimestampSource perThreadMonotonic() {
+        return PerThreadMonotonicTimestampSource.INSTANCE;
+    }
+
+    /**
+     * Returns the timestamp for an update, performed in the current thread.
+     */
+    long currentTime();
+
+    /**
+     * Returns a timestamp, such that {@link #currentTime()} calls in any thread, which
+     * happen-after this call, return not smaller values. Used as the "bootstrap time" in
+     * replication, to ensure that all updates, which are not yet observed by the replication,
+     * get not smaller timestamps.
+     *
+     * @implSpec default implementation returns {@link #currentTime()}, that is correct for
+     * timestamp sources, which return non-decreasing values across all threads.
+     */
+    default long barrierTime() {
+        return currentTime();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.hash.serialization.impl.BlockCompression;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static net.openhft.chronicle.hash.serialization.CompressedSizedWriter.COMPRESSED_FLAG;
+import static net.openhft.chronicle.hash.serialization.StatefulCopyable.copyIfNeeded;
+
+/**
+ * {@link SizedReader} decorator, which decompresses the form, written by {@link
+ * CompressedSizedWriter}, and passes the uncompressed serialized form to the delegate reader.
+ *
+ * <p>Uncompressed serialized forms are passed to the delegate reader directly from the input
+ * {@code Bytes}, without copying. Compressed forms are decompressed into internal buffers, which
+ * are preallocated according to the uncompressed size, stored in the header of the compressed
+ * form, and reused between calls, so this class is {@link StatefulCopyable}.
+ *
+ * @param <T> the type of the object deserialized
+ * @see CompressedSizedWriter
+ * @see ChronicleMapBuilder#valueCompression(int)
+ */
+public final class CompressedSizedReader<T>
+        implements SizedReader<T>, StatefulCopyable<CompressedSizedReader<T>> {
+
+    /**
+     * Returns a {@code CompressedSizedReader} which decompresses the form, written by {@link
+     * CompressedSizedWriter}, and reads objects from it using the given {@code delegate}.
+     *
+     * @param delegate the reader of the uncompressed serialized form
+     * @param <T> the type of the object deserialized
+     * @return a decompressing decorator of the given reader
+     */
+    public static <T> CompressedSizedReader<T> of(SizedReader<T> delegate) {
+        return new CompressedSizedReader<>(delegate);
+    }
+
+    /** Config field */
+    private SizedReader<T> delegate;
+
+    // Cache fields
+    private transient Bytes uncompressedBytes;
+    private transient byte[] uncompressed;
+    private transient byte[] compressed;
+
+    private CompressedSizedReader(SizedReader<T> delegate) {
+        this.delegate = delegate;
+        initTransients();
+    }
+
+    private void initTransients() {
+        uncompressedBytes = Bytes.allocateElasticDirect(1);
+        uncompressed = new byte[0];
+        compressed = new byte[0];
+    }
+
+    @NotNull
+    @Override
+    public T read(Bytes in, long size, @Nullable T using) {
+        long start = in.readPosition();
+        long header = in.readStopBit();
+        long uncompressedSize = header >>> 1;
+        long payloadSize = size - (in.readPosition() - start);
+        if ((header & COMPRESSED_FLAG) == 0) {
+            if (payloadSize != uncompressedSize) {
+                throw new IORuntimeException("Uncompressed payload size " + uncompressedSize +
+                        " doesn't match the remaining size " + payloadSize + ". Memory corruption?");
+            }
+            return delegate.read(in, uncompressedSize, using);
+        }
+        if (uncompressedSize > Integer.MAX_VALUE || payloadSize < 0 ||
+                payloadSize > Integer.MAX_VALUE) {
+            throw new IORuntimeException("Compressed form of " + uncompressedSize +
+                    " bytes couldn't take " + payloadSize + " bytes. Memory corruption?");
+        }
+        int uncompressedLength = (int) uncompressedSize;
+        int compressedLength = (int) payloadSize;
+        if (compressed.length < compressedLength)
+            compressed = new byte[compressedLength];
+        in.read(compressed, 0, compressedLength);
+        if (uncompressed.length < uncompressedLength)
+            uncompressed = new byte[uncompressedLength];
+        BlockCompression.decompress(compressed, compressedLength, uncompressed, uncompressedLength);
+        uncompressedBytes.clear();
+        uncompressedBytes.write(uncompressed, 0, uncompressedLength);
+        return delegate.read(uncompressedBytes, uncompressedSize, using);
+    }
+
+    @Override
+    public CompressedSizedReader<T> copy() {
+        return new CompressedSizedReader<>(copyIfNeeded(delegate));
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wireIn) {
+        delegate = wireIn.read(() -> "delegate").typedMarshallable();
+        initTransients();
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wireOut) {
+        wireOut.write(() -> "delegate").typedMarshallable(delegate);
+    }
+}
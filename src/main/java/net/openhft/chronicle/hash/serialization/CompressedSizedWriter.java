@@ -0,0 +1,181 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.serialization.impl.BlockCompression;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+
+import static net.openhft.chronicle.hash.serialization.StatefulCopyable.copyIfNeeded;
+
+/**
+ * {@link SizedWriter} decorator, which compresses the serialized form, produced by the delegate
+ * writer, with a fast LZ4-style block codec. Should be paired with {@link CompressedSizedReader}.
+ *
+ * <p>The compressed form starts with a stop bit-encoded header, which holds the size of the
+ * uncompressed serialized form and a flag if the following payload is actually compressed. Objects
+ * which serialized form is smaller than the configured {@code compressionThreshold}, as well as
+ * objects which serialized form doesn't shrink after compression, are stored uncompressed, so the
+ * overhead for them is only the header (1-3 bytes, usually).
+ *
+ * <p>The size of the compressed form couldn't be known without actual compression, so {@link
+ * #size(Object)} serializes and compresses the given object into internal buffers, and the
+ * subsequent {@link #write(Bytes, long, Object)} call with the same object just copies the
+ * buffers. That's why this class is {@link StatefulCopyable}.
+ *
+ * @param <T> the type of the object marshalled
+ * @see CompressedSizedReader
+ * @see ChronicleMapBuilder#valueCompression(int)
+ */
+public final class CompressedSizedWriter<T>
+        implements SizedWriter<T>, StatefulCopyable<CompressedSizedWriter<T>> {
+
+    /**
+     * Returns a {@code CompressedSizedWriter} which compresses the serialized form of objects,
+     * written by the given {@code delegate}, if the size of that form is equal to or greater than
+     * the given {@code compressionThreshold}.
+     *
+     * @param delegate the writer, producing the uncompressed serialized form
+     * @param compressionThreshold the minimum size of the uncompressed serialized form, which
+     * is tried to be compressed
+     * @param <T> the type of the object marshalled
+     * @return a compressing decorator of the given writer
+     */
+    public static <T> CompressedSizedWriter<T> of(
+            SizedWriter<? super T> delegate, int compressionThreshold) {
+        return new CompressedSizedWriter<>(delegate, compressionThreshold);
+    }
+
+    static final long COMPRESSED_FLAG = 1L;
+
+    static long header(long uncompressedSize, boolean compressed) {
+        return (uncompressedSize << 1) | (compressed ? COMPRESSED_FLAG : 0L);
+    }
+
+    // Config fields
+    private SizedWriter<? super T> delegate;
+    private int compressionThreshold;
+
+    // Cache fields
+    private transient Bytes uncompressedBytes;
+    private transient byte[] uncompressed;
+    private transient byte[] compressed;
+    private transient int[] hashTable;
+
+    // State fields
+    private transient T serializedInstance;
+    private transient int uncompressedSize;
+    /** -1 means the serialized form of the {@link #serializedInstance} is stored uncompressed */
+    private transient int compressedSize;
+
+    private CompressedSizedWriter(SizedWriter<? super T> delegate, int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("compressionThreshold should be non-negative, " +
+                    compressionThreshold + " given");
+        }
+        this.delegate = delegate;
+        this.compressionThreshold = compressionThreshold;
+        initTransients();
+    }
+
+    private void initTransients() {
+        uncompressedBytes = Bytes.allocateElasticDirect(1);
+        uncompressed = new byte[0];
+        compressed = new byte[0];
+        hashTable = BlockCompression.newHashTable();
+    }
+
+    public int compressionThreshold() {
+        return compressionThreshold;
+    }
+
+    @Override
+    public long size(@NotNull T toWrite) {
+        serializedInstance = null;
+        long uncompressedSize = delegate.size(toWrite);
+        if (uncompressedSize < compressionThreshold || uncompressedSize > Integer.MAX_VALUE) {
+            return headerLength(uncompressedSize, false) + uncompressedSize;
+        }
+        serializeAndCompress(toWrite, (int) uncompressedSize);
+        if (compressedSize < 0)
+            return headerLength(uncompressedSize, false) + uncompressedSize;
+        return headerLength(uncompressedSize, true) + compressedSize;
+    }
+
+    private void serializeAndCompress(T toWrite, int uncompressedSize) {
+        uncompressedBytes.clear();
+        delegate.write(uncompressedBytes, uncompressedSize, toWrite);
+        if (uncompressed.length < uncompressedSize)
+            uncompressed = new byte[uncompressedSize];
+        uncompressedBytes.read(uncompressed, 0, uncompressedSize);
+        int maxCompressedLength = BlockCompression.maxCompressedLength(uncompressedSize);
+        if (compressed.length < maxCompressedLength)
+            compressed = new byte[maxCompressedLength];
+        int compressedSize =
+                BlockCompression.compress(uncompressed, uncompressedSize, compressed, hashTable);
+        this.compressedSize = compressedSize < uncompressedSize ? compressedSize : -1;
+        this.uncompressedSize = uncompressedSize;
+        serializedInstance = toWrite;
+    }
+
+    private static int headerLength(long uncompressedSize, boolean compressed) {
+        return SizeMarshaller.stopBit().storingLength(header(uncompressedSize, compressed));
+    }
+
+    @Override
+    public void write(Bytes out, long size, @NotNull T toWrite) {
+        if (serializedInstance != toWrite) {
+            long uncompressedSize = delegate.size(toWrite);
+            if (uncompressedSize < compressionThreshold || uncompressedSize > Integer.MAX_VALUE) {
+                out.writeStopBit(header(uncompressedSize, false));
+                delegate.write(out, uncompressedSize, toWrite);
+                return;
+            }
+            serializeAndCompress(toWrite, (int) uncompressedSize);
+        }
+        if (compressedSize >= 0) {
+            out.writeStopBit(header(uncompressedSize, true));
+            out.write(compressed, 0, compressedSize);
+        } else {
+            out.writeStopBit(header(uncompressedSize, false));
+            out.write(uncompressed, 0, uncompressedSize);
+        }
+        serializedInstance = null;
+    }
+
+    @Override
+    public CompressedSizedWriter<T> copy() {
+        return new CompressedSizedWriter<>(copyIfNeeded(delegate), compressionThreshold);
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wireIn) {
+        delegate = wireIn.read(() -> "delegate").typedMarshallable();
+        compressionThreshold = wireIn.read(() -> "compressionThreshold").int32();
+        initTransients();
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wireOut) {
+        wireOut.write(() -> "delegate").typedMarshallable(delegate);
+        wireOut.write(() -> "compressionThreshold").int32(compressionThreshold);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.core.io.IORuntimeException;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java block codec in the LZ4 block format: a sequence of (token, literals, match offset,
+ * match length) tuples, where the token holds 4-bit literal and match lengths, extended with
+ * 255-valued bytes when they don't fit. Trades compression ratio for speed, single hash probe
+ * per position, no match chains.
+ *
+ * <p>Operates on heap {@code byte[]} buffers, which callers reuse between invocations, so that
+ * the codec itself is allocation-free.
+ */
+public final class BlockCompression {
+
+    private static final int MIN_MATCH = 4;
+    /** The last 5 bytes of the block are always literals */
+    private static final int LAST_LITERALS = 5;
+    /** A match shouldn't start within the last 12 bytes of the block */
+    private static final int MF_LIMIT = 12;
+    private static final int MIN_LENGTH = MF_LIMIT + 1;
+    private static final int MAX_DISTANCE = (1 << 16) - 1;
+    private static final int RUN_MASK = 15;
+    private static final int ML_MASK = 15;
+    private static final int SKIP_STRENGTH = 6;
+
+    static final int HASH_LOG = 12;
+    private static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+
+    private BlockCompression() {}
+
+    /**
+     * Returns a new hash table, that should be passed to {@link #compress} calls. The table
+     * could be reused between calls from the same thread.
+     */
+    public static int[] newHashTable() {
+        return new int[HASH_TABLE_SIZE];
+    }
+
+    /**
+     * Returns the max length of the compressed form of {@code srcLength} bytes, i. e. the minimum
+     * size of the {@code dst} array to pass to {@link #compress}.
+     */
+    public static int maxCompressedLength(int srcLength) {
+        return srcLength + (srcLength / 255) + 16;
+    }
+
+    /**
+     * Compresses {@code srcLength} bytes from the beginning of {@code src} array into {@code
+     * dst}, from the beginning of the array.
+     *
+     * @return the length of the compressed form
+     */
+    public static int compress(byte[] src, int srcLength, byte[] dst, int[] hashTable) {
+        int anchor = 0;
+        int dp = 0;
+        if (srcLength >= MIN_LENGTH) {
+            Arrays.fill(hashTable, -1);
+            int mfLimit = srcLength - MF_LIMIT;
+            int matchLimit = srcLength - LAST_LITERALS;
+            int sp = 0;
+            while (sp < mfLimit) {
+                int sequence = readInt(src, sp);
+                int h = hash(sequence);
+                int ref = hashTable[h];
+                hashTable[h] = sp;
+                if (ref < 0 || sp - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    // accelerate through incompressible data
+                    sp += 1 + ((sp - anchor) >>> SKIP_STRENGTH);
+                    continue;
+                }
+                // extend the match backwards
+                while (sp > anchor && ref > 0 && src[sp - 1] == src[ref - 1]) {
+                    sp--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (sp + matchLength < matchLimit &&
+                        src[sp + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                dp = writeSequence(src, anchor, sp - anchor, sp - ref, matchLength, dst, dp);
+                sp += matchLength;
+                anchor = sp;
+            }
+        }
+        return writeLastLiterals(src, anchor, srcLength - anchor, dst, dp);
+    }
+
+    /**
+     * Decompresses {@code srcLength} bytes from {@code src} array, starting from the beginning,
+     * into the first {@code dstLength} bytes of {@code dst} array.
+     *
+     * @throws IORuntimeException if the compressed form is malformed or doesn't decompress to
+     * exactly {@code dstLength} bytes
+     */
+    public static void decompress(byte[] src, int srcLength, byte[] dst, int dstLength) {
+        int sp = 0;
+        int dp = 0;
+        while (true) {
+            if (sp >= srcLength)
+                throw corrupted(sp);
+            int token = src[sp++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sp >= srcLength)
+                        throw corrupted(sp);
+                    b = src[sp++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (sp + literalLength > srcLength || dp + literalLength > dstLength)
+                throw corrupted(sp);
+            System.arraycopy(src, sp, dst, dp, literalLength);
+            sp += literalLength;
+            dp += literalLength;
+            if (sp == srcLength)
+                break;
+
+            if (sp + 2 > srcLength)
+                throw corrupted(sp);
+            int offset = (src[sp] & 0xFF) | ((src[sp + 1] & 0xFF) << 8);
+            sp += 2;
+            int ref = dp - offset;
+            if (offset == 0 || ref < 0)
+                throw corrupted(sp);
+
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                int b;
+                do {
+                    if (sp >= srcLength)
+                        throw corrupted(sp);
+                    b = src[sp++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (dp + matchLength > dstLength)
+                throw corrupted(sp);
+            if (offset >= matchLength) {
+                System.arraycopy(dst, ref, dst, dp, matchLength);
+            } else {
+                // overlapping copy, e. g. a run of the same byte
+                for (int i = 0; i < matchLength; i++) {
+                    dst[dp + i] = dst[ref + i];
+                }
+            }
+            dp += matchLength;
+        }
+        if (dp != dstLength) {
+            throw new IORuntimeException("Compressed block decompressed to " + dp + " bytes, " +
+                    dstLength + " expected. Memory corruption?");
+        }
+    }
+
+    private static int writeSequence(byte[] src, int literalsOffset, int literalLength,
+                                     int offset, int matchLength, byte[] dst, int dp) {
+        int tokenPos = dp++;
+        int token;
+        if (literalLength >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            dp = writeLength(literalLength - RUN_MASK, dst, dp);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(src, literalsOffset, dst, dp, literalLength);
+        dp += literalLength;
+
+        dst[dp++] = (byte) offset;
+        dst[dp++] = (byte) (offset >>> 8);
+
+        int ml = matchLength - MIN_MATCH;
+        if (ml >= ML_MASK) {
+            token |= ML_MASK;
+            dp = writeLength(ml - ML_MASK, dst, dp);
+        } else {
+            token |= ml;
+        }
+        dst[tokenPos] = (byte) token;
+        return dp;
+    }
+
+    private static int writeLastLiterals(
+            byte[] src, int literalsOffset, int literalLength, byte[] dst, int dp) {
+        if (literalLength >= RUN_MASK) {
+            dst[dp++] = (byte) (RUN_MASK << 4);
+            dp = writeLength(literalLength - RUN_MASK, dst, dp);
+        } else {
+            dst[dp++] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, literalsOffset, dst, dp, literalLength);
+        return dp + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] dst, int dp) {
+        while (length >= 255) {
+            dst[dp++] = (byte) 255;
+            length -= 255;
+        }
+        dst[dp++] = (byte) length;
+        return dp;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) |
+                (b[i + 3] << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static IORuntimeException corrupted(int position) {
+        return new IORuntimeException("Malformed compressed block at position " + position +
+                ". Memory corruption?");
+    }
+}
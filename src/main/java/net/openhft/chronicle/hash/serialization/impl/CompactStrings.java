@@ -0,0 +1,79 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import java.lang.reflect.Field;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * Access to the internal {@code byte[]} of {@link String}s, on JVMs with compact strings (Java 9+),
+ * when the string's coder is Latin-1. If a Latin-1 string consists only of ASCII characters, its
+ * internal bytes are identical to its UTF-8 encoding, so they could be hashed and compared with
+ * UTF-8 encoded keys in Chronicle Map directly, without encoding.
+ */
+final class CompactStrings {
+
+    private static final byte LATIN1 = 0;
+
+    private static final boolean ENABLED;
+    private static final long VALUE_OFFSET;
+    private static final long CODER_OFFSET;
+
+    static {
+        boolean enabled = false;
+        long valueOffset = -1;
+        long coderOffset = -1;
+        try {
+            Field value = String.class.getDeclaredField("value");
+            if (value.getType() == byte[].class) {
+                Field coder = String.class.getDeclaredField("coder");
+                valueOffset = UNSAFE.objectFieldOffset(value);
+                coderOffset = UNSAFE.objectFieldOffset(coder);
+                // -XX:-CompactStrings makes all strings UTF16-coded, then the fast path is useless
+                enabled = UNSAFE.getByte("a", coderOffset) == LATIN1;
+            }
+        } catch (Throwable e) {
+            // Java 8 (char[] value) or unknown String layout, fall back to UTF-8 encoding
+            enabled = false;
+        }
+        ENABLED = enabled;
+        VALUE_OFFSET = valueOffset;
+        CODER_OFFSET = coderOffset;
+    }
+
+    private CompactStrings() {}
+
+    /**
+     * Returns the internal array of the given string, if it is identical to the string's UTF-8
+     * encoding, i. e. the string is Latin-1 coded and consists only of ASCII characters, otherwise
+     * returns {@code null}. The returned array <i>must not</i> be modified.
+     */
+    static byte[] asciiBytes(String s) {
+        if (!ENABLED || UNSAFE.getByte(s, CODER_OFFSET) != LATIN1)
+            return null;
+        byte[] value = (byte[]) UNSAFE.getObject(s, VALUE_OFFSET);
+        // indexed loop, hot path
+        //noinspection ForLoopReplaceableByForEach
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] < 0)
+                return null;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.serialization.DataAccess;
+import net.openhft.chronicle.hash.serialization.SizedWriter;
+import net.openhft.chronicle.hash.serialization.StatefulCopyable;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Adapts a {@link DataAccess} to the {@link SizedWriter} interface, allowing to wrap default
+ * serialization strategies of {@link SerializationBuilder} (which are {@code DataAccess}es) with
+ * writer decorators, e. g. {@link net.openhft.chronicle.hash.serialization.CompressedSizedWriter}.
+ */
+public final class DataAccessSizedWriter<T>
+        implements SizedWriter<T>, StatefulCopyable<DataAccessSizedWriter<T>> {
+
+    /** Config field */
+    private DataAccess<T> dataAccess;
+
+    /** State field */
+    private transient Data<T> data;
+
+    public DataAccessSizedWriter(DataAccess<T> dataAccess) {
+        this.dataAccess = dataAccess;
+    }
+
+    @Override
+    public long size(@NotNull T toWrite) {
+        data = dataAccess.getData(toWrite);
+        return data.size();
+    }
+
+    @Override
+    public void write(Bytes out, long size, @NotNull T toWrite) {
+        Data<T> data = this.data;
+        if (data == null || data.get() != toWrite)
+            data = dataAccess.getData(toWrite);
+        data.writeTo(out, out.writePosition());
+        out.writeSkip(size);
+        this.data = null;
+        dataAccess.uninit();
+    }
+
+    @Override
+    public DataAccessSizedWriter<T> copy() {
+        return new DataAccessSizedWriter<>(dataAccess.copy());
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wireIn) {
+        dataAccess = wireIn.read(() -> "dataAccess").typedMarshallable();
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wireOut) {
+        wireOut.write(() -> "dataAccess").typedMarshallable(dataAccess);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.serialization.BytesReader;
+import net.openhft.chronicle.hash.serialization.BytesWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Marshaller of {@code double[]} arrays: stop bit-encoded length, followed by the elements, copied
+ * in bulk. Deserializes into the {@code using} array, if its length is equal to the length of
+ * the serialized array.
+ *
+ * <p>{@code double[]} keys and values are serialized by Java serialization by default, this marshaller
+ * should be configured explicitly, e. g. {@code valueMarshaller(DoubleArrayMarshaller.INSTANCE)}.
+ */
+public final class DoubleArrayMarshaller
+        implements BytesReader<double[]>, BytesWriter<double[]>,
+        EnumMarshallable<DoubleArrayMarshaller> {
+    public static final DoubleArrayMarshaller INSTANCE = new DoubleArrayMarshaller();
+
+    private DoubleArrayMarshaller() {}
+
+    @NotNull
+    @Override
+    public double[] read(Bytes in, @Nullable double[] using) {
+        int length = PrimitiveArrays.readLength(in, 8);
+        if (using == null || using.length != length)
+            using = new double[length];
+        PrimitiveArrays.readDoubles(in, using);
+        return using;
+    }
+
+    @Override
+    public void write(Bytes out, @NotNull double[] toWrite) {
+        out.writeStopBit(toWrite.length);
+        PrimitiveArrays.writeDoubles(out, toWrite);
+    }
+
+    @Override
+    public DoubleArrayMarshaller readResolve() {
+        return INSTANCE;
+    }
+}
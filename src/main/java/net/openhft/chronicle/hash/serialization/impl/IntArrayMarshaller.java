@@ -0,0 +1,63 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.serialization.BytesReader;
+import net.openhft.chronicle.hash.serialization.BytesWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Marshaller of {@code int[]} arrays: stop bit-encoded length, followed by the elements, copied
+ * in bulk. Deserializes into the {@code using} array, if its length is equal to the length of
+ * the serialized array.
+ *
+ * <p>{@code int[]} keys and values are serialized by Java serialization by default, this marshaller
+ * should be configured explicitly, e. g. {@code valueMarshaller(IntArrayMarshaller.INSTANCE)}.
+ *
+ * @see SortedIntArrayMarshaller
+ */
+public final class IntArrayMarshaller
+        implements BytesReader<int[]>, BytesWriter<int[]>,
+        EnumMarshallable<IntArrayMarshaller> {
+    public static final IntArrayMarshaller INSTANCE = new IntArrayMarshaller();
+
+    private IntArrayMarshaller() {}
+
+    @NotNull
+    @Override
+    public int[] read(Bytes in, @Nullable int[] using) {
+        int length = PrimitiveArrays.readLength(in, 4);
+        if (using == null || using.length != length)
+            using = new int[length];
+        PrimitiveArrays.readInts(in, using);
+        return using;
+    }
+
+    @Override
+    public void write(Bytes out, @NotNull int[] toWrite) {
+        out.writeStopBit(toWrite.length);
+        PrimitiveArrays.writeInts(out, toWrite);
+    }
+
+    @Override
+    public IntArrayMarshaller readResolve() {
+        return INSTANCE;
+    }
+}
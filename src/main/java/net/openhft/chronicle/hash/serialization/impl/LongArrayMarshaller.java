@@ -0,0 +1,63 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.serialization.BytesReader;
+import net.openhft.chronicle.hash.serialization.BytesWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Marshaller of {@code long[]} arrays: stop bit-encoded length, followed by the elements, copied
+ * in bulk. Deserializes into the {@code using} array, if its length is equal to the length of
+ * the serialized array.
+ *
+ * <p>{@code long[]} keys and values are serialized by Java serialization by default, this marshaller
+ * should be configured explicitly, e. g. {@code valueMarshaller(LongArrayMarshaller.INSTANCE)}.
+ *
+ * @see SortedLongArrayMarshaller
+ */
+public final class LongArrayMarshaller
+        implements BytesReader<long[]>, BytesWriter<long[]>,
+        EnumMarshallable<LongArrayMarshaller> {
+    public static final LongArrayMarshaller INSTANCE = new LongArrayMarshaller();
+
+    private LongArrayMarshaller() {}
+
+    @NotNull
+    @Override
+    public long[] read(Bytes in, @Nullable long[] using) {
+        int length = PrimitiveArrays.readLength(in, 8);
+        if (using == null || using.length != length)
+            using = new long[length];
+        PrimitiveArrays.readLongs(in, using);
+        return using;
+    }
+
+    @Override
+    public void write(Bytes out, @NotNull long[] toWrite) {
+        out.writeStopBit(toWrite.length);
+        PrimitiveArrays.writeLongs(out, toWrite);
+    }
+
+    @Override
+    public LongArrayMarshaller readResolve() {
+        return INSTANCE;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.*;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.serialization.DataAccess;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * {@code DataAccess} to plain {@link java.io.Serializable} classes with a fixed field layout,
+ * which could be configured instead of {@link SerializableDataAccess} for such classes, see
+ * {@link SerializationBuilder#fieldLayoutMarshalling()} and {@link PojoFieldLayout}. When the
+ * serialized form size is not needed in advance, the instance is written directly to the target
+ * memory.
+ *
+ * @param <T> the type of serialized objects
+ * @see PojoReader
+ */
+public class PojoDataAccess<T> extends InstanceCreatingMarshaller<T>
+        implements DataAccess<T>, Data<T> {
+
+    // Cache fields
+    private transient PojoFieldLayout layout;
+    private transient boolean bytesInit;
+    private transient Bytes bytes;
+    private transient VanillaBytes targetBytes;
+
+    /** State field */
+    private transient T instance;
+
+    public PojoDataAccess(Class<T> tClass) {
+        super(tClass);
+        initTransients();
+    }
+
+    private void initTransients() {
+        layout = PojoFieldLayout.of(tClass());
+        bytes = Bytes.allocateElasticDirect(1);
+        targetBytes = VanillaBytes.vanillaBytes();
+    }
+
+    @Override
+    protected T createInstance() {
+        try {
+            //noinspection unchecked
+            return (T) OS.memory().allocateInstance(tClass());
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public RandomDataInput bytes() {
+        initBytes();
+        return bytes.bytesStore();
+    }
+
+    private void initBytes() {
+        if (!bytesInit) {
+            bytes.clear();
+            layout.write(bytes, instance);
+            bytesInit = true;
+        }
+    }
+
+    @Override
+    public long offset() {
+        return 0;
+    }
+
+    @Override
+    public long size() {
+        initBytes();
+        return bytes.readRemaining();
+    }
+
+    @Override
+    public void writeTo(RandomDataOutput target, long targetOffset) {
+        if (!bytesInit && target instanceof BytesStore) {
+            targetBytes.bytesStore((BytesStore) target, targetOffset,
+                    target.capacity() - targetOffset);
+            targetBytes.writePosition(targetOffset);
+            layout.write(targetBytes, instance);
+            targetBytes.bytesStore(NoBytesStore.NO_BYTES_STORE, 0, 0);
+        } else {
+            // bytes() serializes the instance into the internal buffer, if not yet
+            target.write(targetOffset, bytes(), offset(), size());
+        }
+    }
+
+    @Override
+    public T get() {
+        return instance;
+    }
+
+    @Override
+    public T getUsing(@Nullable T using) {
+        if (using == null)
+            using = createInstance();
+        initBytes();
+        layout.read(bytes, using);
+        bytes.readPosition(0);
+        return using;
+    }
+
+    @Override
+    public int hashCode() {
+        return dataHashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return dataEquals(obj);
+    }
+
+    @Override
+    public String toString() {
+        return get().toString();
+    }
+
+    @Override
+    public Data<T> getData(@NotNull T instance) {
+        this.instance = instance;
+        bytesInit = false;
+        return this;
+    }
+
+    @Override
+    public void uninit() {
+        instance = null;
+    }
+
+    @Override
+    public DataAccess<T> copy() {
+        return new PojoDataAccess<>(tClass());
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wireIn) {
+        super.readMarshallable(wireIn);
+        initTransients();
+        PojoFieldLayout.checkLayout(tClass(), layout, wireIn.read(() -> "layout").text());
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wireOut) {
+        super.writeMarshallable(wireOut);
+        wireOut.write(() -> "layout").text(layout.description());
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * Serialized form layout of plain {@link Serializable} classes (POJOs), which fields are only
+ * primitives, boxed primitives, {@code String}s and {@code byte[]} arrays. The layout is computed
+ * once per class; serialization and deserialization access the fields by precomputed offsets,
+ * without reflection.
+ *
+ * <p>The serialized form is a fixed-size part with all primitive fields, ordered by size
+ * descending, followed by the variable-size part with boxed primitives (preceded by a presence
+ * flag), {@code String}s (stop bit-encoded UTF-8 length, followed by UTF-8 bytes) and {@code
+ * byte[]} arrays (stop bit-encoded length, followed by the bytes). Null {@code String}s and
+ * arrays are encoded with -1 length.
+ */
+final class PojoFieldLayout {
+
+    private static final int BOOLEAN = 0;
+    private static final int BYTE = 1;
+    private static final int CHAR = 2;
+    private static final int SHORT = 3;
+    private static final int INT = 4;
+    private static final int FLOAT = 5;
+    private static final int LONG = 6;
+    private static final int DOUBLE = 7;
+    /** Boxed kinds are primitive kinds plus this constant */
+    private static final int BOXED = 8;
+    private static final int STRING = 16;
+    private static final int BYTE_ARRAY = 17;
+
+    private static final Class[] PRIMITIVES = {boolean.class, byte.class, char.class, short.class,
+            int.class, float.class, long.class, double.class};
+    private static final Class[] BOXES = {Boolean.class, Byte.class, Character.class, Short.class,
+            Integer.class, Float.class, Long.class, Double.class};
+    private static final int[] PRIMITIVE_SIZES = {1, 1, 2, 2, 4, 4, 8, 8};
+
+    /**
+     * Computes the layout of the given class, which should be a plain {@code Serializable}
+     * class: a concrete class outside of JDK, all superclasses of which are {@code
+     * Serializable}, without custom serialization hooks, and with only fields of supported types.
+     *
+     * @throws IllegalArgumentException if the given class is not a plain {@code Serializable}
+     * class
+     */
+    static PojoFieldLayout of(Class<?> c) {
+        return new PojoFieldLayout(fields(c));
+    }
+
+    private static List<Field> fields(Class<?> c) {
+        if (c.isInterface() || c.isArray() || c.isEnum() || c.isPrimitive() ||
+                Modifier.isAbstract(c.getModifiers()) || !Serializable.class.isAssignableFrom(c) ||
+                Externalizable.class.isAssignableFrom(c) || jdkClass(c)) {
+            throw new IllegalArgumentException(c + " is not a plain Serializable class");
+        }
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> k = c; k != Object.class; k = k.getSuperclass()) {
+            if (!Serializable.class.isAssignableFrom(k) || hasSerializationHooks(k))
+                throw new IllegalArgumentException(k + " has custom serialization logic");
+            for (Field f : k.getDeclaredFields()) {
+                int modifiers = f.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers))
+                    continue;
+                if (kind(f.getType()) < 0)
+                    throw new IllegalArgumentException(f + " type is not supported");
+                fields.add(f);
+            }
+        }
+        // deterministic order, doesn't depend on reflection order, which is unspecified
+        fields.sort(Comparator
+                .comparingInt((Field f) -> isFixedSize(kind(f.getType())) ? 0 : 1)
+                .thenComparingInt(f -> -fixedSize(kind(f.getType())))
+                .thenComparing(f -> f.getDeclaringClass().getName())
+                .thenComparing(Field::getName));
+        return fields;
+    }
+
+    private static boolean jdkClass(Class<?> c) {
+        String name = c.getName();
+        return c.getClassLoader() == null || name.startsWith("java.") ||
+                name.startsWith("javax.");
+    }
+
+    private static boolean hasSerializationHooks(Class<?> k) {
+        for (Method m : k.getDeclaredMethods()) {
+            switch (m.getName()) {
+                case "writeObject":
+                case "readObject":
+                case "readObjectNoData":
+                case "writeReplace":
+                case "readResolve":
+                    return true;
+            }
+        }
+        for (Field f : k.getDeclaredFields()) {
+            if (f.getName().equals("serialPersistentFields"))
+                return true;
+        }
+        return false;
+    }
+
+    private static int kind(Class<?> type) {
+        for (int i = 0; i < PRIMITIVES.length; i++) {
+            if (type == PRIMITIVES[i])
+                return i;
+            if (type == BOXES[i])
+                return i + BOXED;
+        }
+        if (type == String.class)
+            return STRING;
+        if (type == byte[].class)
+            return BYTE_ARRAY;
+        return -1;
+    }
+
+    private static boolean isFixedSize(int kind) {
+        return kind < BOXED;
+    }
+
+    private static int fixedSize(int kind) {
+        return isFixedSize(kind) ? PRIMITIVE_SIZES[kind] : 0;
+    }
+
+    private final int[] kinds;
+    private final long[] offsets;
+    private final String description;
+
+    private PojoFieldLayout(List<Field> fields) {
+        kinds = new int[fields.size()];
+        offsets = new long[fields.size()];
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            Field f = fields.get(i);
+            kinds[i] = kind(f.getType());
+            offsets[i] = UNSAFE.objectFieldOffset(f);
+            if (i > 0)
+                description.append(", ");
+            description.append(f.getDeclaringClass().getSimpleName()).append('.')
+                    .append(f.getName()).append(':').append(f.getType().getSimpleName());
+        }
+        this.description = description.toString();
+    }
+
+    /**
+     * Returns the description of the serialized form layout, to check that the class is not
+     * changed since the layout was persisted.
+     */
+    String description() {
+        return description;
+    }
+
+    static void checkLayout(Class<?> c, PojoFieldLayout layout, String persistedDescription) {
+        if (!layout.description.equals(persistedDescription)) {
+            throw new IllegalStateException("Fields of " + c + " are changed since the " +
+                    "Chronicle Map was created: persisted layout is [" + persistedDescription +
+                    "], current layout is [" + layout.description + "]. Configure a custom " +
+                    "marshaller, compatible with the old serialized form");
+        }
+    }
+
+    void write(Bytes out, Object o) {
+        int[] kinds = this.kinds;
+        long[] offsets = this.offsets;
+        for (int i = 0; i < kinds.length; i++) {
+            long offset = offsets[i];
+            int kind = kinds[i];
+            switch (kind) {
+                case BOOLEAN: out.writeBoolean(UNSAFE.getBoolean(o, offset)); break;
+                case BYTE: out.writeByte(UNSAFE.getByte(o, offset)); break;
+                case CHAR: out.writeShort((short) UNSAFE.getChar(o, offset)); break;
+                case SHORT: out.writeShort(UNSAFE.getShort(o, offset)); break;
+                case INT: out.writeInt(UNSAFE.getInt(o, offset)); break;
+                case FLOAT: out.writeFloat(UNSAFE.getFloat(o, offset)); break;
+                case LONG: out.writeLong(UNSAFE.getLong(o, offset)); break;
+                case DOUBLE: out.writeDouble(UNSAFE.getDouble(o, offset)); break;
+                case STRING: out.writeUtf8((String) UNSAFE.getObject(o, offset)); break;
+                case BYTE_ARRAY: {
+                    byte[] array = (byte[]) UNSAFE.getObject(o, offset);
+                    if (array == null) {
+                        out.writeStopBit(-1);
+                    } else {
+                        out.writeStopBit(array.length);
+                        out.write(array);
+                    }
+                    break;
+                }
+                default: writeBoxed(out, kind - BOXED, UNSAFE.getObject(o, offset));
+            }
+        }
+    }
+
+    private static void writeBoxed(Bytes out, int kind, Object box) {
+        out.writeBoolean(box != null);
+        if (box == null)
+            return;
+        switch (kind) {
+            case BOOLEAN: out.writeBoolean((Boolean) box); break;
+            case BYTE: out.writeByte((Byte) box); break;
+            case CHAR: out.writeShort((short) ((Character) box).charValue()); break;
+            case SHORT: out.writeShort((Short) box); break;
+            case INT: out.writeInt((Integer) box); break;
+            case FLOAT: out.writeFloat((Float) box); break;
+            case LONG: out.writeLong((Long) box); break;
+            case DOUBLE: out.writeDouble((Double) box); break;
+            default: throw new AssertionError();
+        }
+    }
+
+    void read(Bytes in, Object o) {
+        int[] kinds = this.kinds;
+        long[] offsets = this.offsets;
+        for (int i = 0; i < kinds.length; i++) {
+            long offset = offsets[i];
+            int kind = kinds[i];
+            switch (kind) {
+                case BOOLEAN: UNSAFE.putBoolean(o, offset, in.readBoolean()); break;
+                case BYTE: UNSAFE.putByte(o, offset, in.readByte()); break;
+                case CHAR: UNSAFE.putChar(o, offset, (char) in.readShort()); break;
+                case SHORT: UNSAFE.putShort(o, offset, in.readShort()); break;
+                case INT: UNSAFE.putInt(o, offset, in.readInt()); break;
+                case FLOAT: UNSAFE.putFloat(o, offset, in.readFloat()); break;
+                case LONG: UNSAFE.putLong(o, offset, in.readLong()); break;
+                case DOUBLE: UNSAFE.putDouble(o, offset, in.readDouble()); break;
+                case STRING: UNSAFE.putObject(o, offset, in.readUtf8()); break;
+                case BYTE_ARRAY: {
+                    long length = in.readStopBit();
+                    if (length == -1) {
+                        UNSAFE.putObject(o, offset, null);
+                        break;
+                    }
+                    if (length < 0 || length > in.readRemaining()) {
+                        throw new IORuntimeException("byte[] length " + length + " is out of " +
+                                "bounds. Memory corruption?");
+                    }
+                    byte[] array = (byte[]) UNSAFE.getObject(o, offset);
+                    if (array == null || array.length != length)
+                        array = new byte[(int) length];
+                    in.read(array);
+                    UNSAFE.putObject(o, offset, array);
+                    break;
+                }
+                default: UNSAFE.putObject(o, offset, readBoxed(in, kind - BOXED));
+            }
+        }
+    }
+
+    private static Object readBoxed(Bytes in, int kind) {
+        if (!in.readBoolean())
+            return null;
+        switch (kind) {
+            case BOOLEAN: return in.readBoolean();
+            case BYTE: return in.readByte();
+            case CHAR: return (char) in.readShort();
+            case SHORT: return in.readShort();
+            case INT: return in.readInt();
+            case FLOAT: return in.readFloat();
+            case LONG: return in.readLong();
+            case DOUBLE: return in.readDouble();
+            default: throw new AssertionError();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.hash.serialization.BytesReader;
+import net.openhft.chronicle.hash.serialization.SizedReader;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reader of plain {@link java.io.Serializable} classes with a fixed field layout, which could be
+ * configured instead of {@link SerializableReader} for such classes, see {@link
+ * SerializationBuilder#fieldLayoutMarshalling()} and {@link PojoFieldLayout}.
+ * Fields are read directly into the {@code using} instance, if provided.
+ *
+ * @param <T> the type of deserialized objects
+ * @see PojoDataAccess
+ */
+public class PojoReader<T> extends InstanceCreatingMarshaller<T>
+        implements SizedReader<T>, BytesReader<T> {
+
+    /** Cache field */
+    private transient PojoFieldLayout layout;
+
+    public PojoReader(Class<T> tClass) {
+        super(tClass);
+        initTransients();
+    }
+
+    private void initTransients() {
+        layout = PojoFieldLayout.of(tClass());
+    }
+
+    /**
+     * Creates a new instance without calling constructors, like Java deserialization does for
+     * classes, all superclasses of which are {@code Serializable}.
+     */
+    @Override
+    protected T createInstance() {
+        try {
+            //noinspection unchecked
+            return (T) OS.memory().allocateInstance(tClass());
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NotNull
+    @Override
+    public T read(@NotNull Bytes in, long size, @Nullable T using) {
+        return read(in, using);
+    }
+
+    @NotNull
+    @Override
+    public T read(Bytes in, @Nullable T using) {
+        if (using == null)
+            using = createInstance();
+        layout.read(in, using);
+        return using;
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wireIn) {
+        super.readMarshallable(wireIn);
+        initTransients();
+        PojoFieldLayout.checkLayout(tClass(), layout, wireIn.read(() -> "layout").text());
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wireOut) {
+        super.writeMarshallable(wireOut);
+        wireOut.write(() -> "layout").text(layout.description());
+    }
+}
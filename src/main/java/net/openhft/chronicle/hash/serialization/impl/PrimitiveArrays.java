@@ -0,0 +1,136 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * Bulk copy of primitive arrays to and from {@link Bytes}. When the bytes are backed by native
+ * memory, arrays are copied with a single {@code copyMemory()} call, instead of a virtual call
+ * per element. Elements are written in the native byte order, the same as {@code
+ * Bytes.writeLong()} and similar methods do.
+ */
+final class PrimitiveArrays {
+
+    private static final long LONG_BASE = UNSAFE.arrayBaseOffset(long[].class);
+    private static final long INT_BASE = UNSAFE.arrayBaseOffset(int[].class);
+    private static final long DOUBLE_BASE = UNSAFE.arrayBaseOffset(double[].class);
+
+    private PrimitiveArrays() {}
+
+    static int readLength(Bytes in, int elementSize) {
+        long length = in.readStopBit();
+        if (length < 0 || length > Integer.MAX_VALUE ||
+                length * elementSize > in.readRemaining()) {
+            throw new IORuntimeException("Array length " + length + " is out of bounds. " +
+                    "Memory corruption?");
+        }
+        return (int) length;
+    }
+
+    static int readLengthOfEncoded(Bytes in) {
+        long length = in.readStopBit();
+        // each element takes at least one byte, when stop bit-encoded
+        if (length < 0 || length > Integer.MAX_VALUE || length > in.readRemaining()) {
+            throw new IORuntimeException("Array length " + length + " is out of bounds. " +
+                    "Memory corruption?");
+        }
+        return (int) length;
+    }
+
+    static void writeLongs(Bytes out, long[] a) {
+        long position = out.writePosition();
+        long size = a.length * 8L;
+        out.writeSkip(size);
+        if (out.bytesStore().isDirectMemory()) {
+            UNSAFE.copyMemory(a, LONG_BASE, null, out.address(position), size);
+        } else {
+            for (int i = 0; i < a.length; i++) {
+                out.writeLong(position + i * 8L, a[i]);
+            }
+        }
+    }
+
+    static void readLongs(Bytes in, long[] a) {
+        long position = in.readPosition();
+        long size = a.length * 8L;
+        in.readSkip(size);
+        if (in.bytesStore().isDirectMemory()) {
+            UNSAFE.copyMemory(null, in.address(position), a, LONG_BASE, size);
+        } else {
+            for (int i = 0; i < a.length; i++) {
+                a[i] = in.readLong(position + i * 8L);
+            }
+        }
+    }
+
+    static void writeInts(Bytes out, int[] a) {
+        long position = out.writePosition();
+        long size = a.length * 4L;
+        out.writeSkip(size);
+        if (out.bytesStore().isDirectMemory()) {
+            UNSAFE.copyMemory(a, INT_BASE, null, out.address(position), size);
+        } else {
+            for (int i = 0; i < a.length; i++) {
+                out.writeInt(position + i * 4L, a[i]);
+            }
+        }
+    }
+
+    static void readInts(Bytes in, int[] a) {
+        long position = in.readPosition();
+        long size = a.length * 4L;
+        in.readSkip(size);
+        if (in.bytesStore().isDirectMemory()) {
+            UNSAFE.copyMemory(null, in.address(position), a, INT_BASE, size);
+        } else {
+            for (int i = 0; i < a.length; i++) {
+                a[i] = in.readInt(position + i * 4L);
+            }
+        }
+    }
+
+    static void writeDoubles(Bytes out, double[] a) {
+        long position = out.writePosition();
+        long size = a.length * 8L;
+        out.writeSkip(size);
+        if (out.bytesStore().isDirectMemory()) {
+            UNSAFE.copyMemory(a, DOUBLE_BASE, null, out.address(position), size);
+        } else {
+            for (int i = 0; i < a.length; i++) {
+                out.writeDouble(position + i * 8L, a[i]);
+            }
+        }
+    }
+
+    static void readDoubles(Bytes in, double[] a) {
+        long position = in.readPosition();
+        long size = a.length * 8L;
+        in.readSkip(size);
+        if (in.bytesStore().isDirectMemory()) {
+            UNSAFE.copyMemory(null, in.address(position), a, DOUBLE_BASE, size);
+        } else {
+            for (int i = 0; i < a.length; i++) {
+                a[i] = in.readDouble(position + i * 8L);
+            }
+        }
+    }
+}
@@ -141,6 +141,19 @@ public final class SerializationBuilder<T> implements Cloneable {
         }
     }
 
+    /**
+     * Configures {@link PojoReader} and {@link PojoDataAccess}, which marshal a plain {@code
+     * Serializable} class by a fixed field layout, instead of Java serialization.
+     *
+     * @throws IllegalArgumentException if {@link #tClass} is not a plain {@code Serializable}
+     * class, see {@link PojoFieldLayout}
+     */
+    @SuppressWarnings("unchecked")
+    public void fieldLayoutMarshalling() {
+        reader((BytesReader<T>) new PojoReader<>(tClass));
+        dataAccess(new PojoDataAccess<>(tClass));
+    }
+
     public void reader(SizedReader<T> reader) {
         checkNonMarshallableEnum(reader.getClass());
         this.reader = reader;
@@ -179,6 +192,23 @@ public final class SerializationBuilder<T> implements Cloneable {
         dataAccess(new ExternalBytesMarshallableDataAccess<>(tClass, reader, writer));
     }
 
+    /**
+     * Wraps the currently configured reader and data access with {@link CompressedSizedReader}
+     * and {@link CompressedSizedWriter}. Does nothing, if they are already wrapped.
+     */
+    public void compression(int compressionThreshold) {
+        if (reader instanceof CompressedSizedReader)
+            return;
+        if (constantSizeMarshaller()) {
+            throw new IllegalStateException("Size of " + tClass + " instances is constant, " +
+                    "they couldn't be compressed");
+        }
+        DataAccess<T> uncompressedDataAccess = dataAccess;
+        reader(CompressedSizedReader.of(reader));
+        writer(CompressedSizedWriter.of(
+                new DataAccessSizedWriter<>(uncompressedDataAccess), compressionThreshold));
+    }
+
     public long serializationSize(T sampleObject) {
         return dataAccess().getData(sampleObject).size();
     }
@@ -0,0 +1,69 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.serialization.BytesReader;
+import net.openhft.chronicle.hash.serialization.BytesWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Marshaller of {@code int[]} arrays, sorted in ascending order: stop bit-encoded length, followed
+ * by the first element and the differences between the subsequent elements, stop bit-encoded.
+ * Dense sorted sequences (e. g. IDs) take one or two bytes per element. Unsorted arrays are
+ * serialized correctly as well, but less compactly, than by {@link IntArrayMarshaller}.
+ * Deserializes into the {@code using} array, if its length is equal to the length of the
+ * serialized array.
+ */
+public final class SortedIntArrayMarshaller
+        implements BytesReader<int[]>, BytesWriter<int[]>,
+        EnumMarshallable<SortedIntArrayMarshaller> {
+    public static final SortedIntArrayMarshaller INSTANCE = new SortedIntArrayMarshaller();
+
+    private SortedIntArrayMarshaller() {}
+
+    @NotNull
+    @Override
+    public int[] read(Bytes in, @Nullable int[] using) {
+        int length = PrimitiveArrays.readLengthOfEncoded(in);
+        if (using == null || using.length != length)
+            using = new int[length];
+        long previous = 0;
+        for (int i = 0; i < length; i++) {
+            previous += in.readStopBit();
+            using[i] = (int) previous;
+        }
+        return using;
+    }
+
+    @Override
+    public void write(Bytes out, @NotNull int[] toWrite) {
+        out.writeStopBit(toWrite.length);
+        long previous = 0;
+        for (int e : toWrite) {
+            out.writeStopBit(e - previous);
+            previous = e;
+        }
+    }
+
+    @Override
+    public SortedIntArrayMarshaller readResolve() {
+        return INSTANCE;
+    }
+}
@@ -17,11 +17,72 @@
 
 package net.openhft.chronicle.hash.serialization.impl;
 
+import net.openhft.chronicle.bytes.HeapBytesStore;
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.serialization.DataAccess;
+import net.openhft.chronicle.wire.WireIn;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * On JVMs with compact strings, ASCII-only strings are not encoded, their internal Latin-1 bytes
+ * (which are identical to UTF-8 encoding in this case) are accessed directly, for hashing and
+ * comparison with the keys in the Chronicle Map. Other strings are UTF-8 encoded.
+ */
 public final class StringUtf8DataAccess extends AbstractCharSequenceUtf8DataAccess<String> {
 
+    /** Cache field */
+    private transient HeapBytesStore<byte[]> asciiBytesStore;
+
+    /** State field */
+    private transient boolean ascii;
+
+    public StringUtf8DataAccess() {
+        initOwnTransients();
+    }
+
+    private void initOwnTransients() {
+        asciiBytesStore = HeapBytesStore.uninitialized();
+    }
+
+    @Override
+    public Data<String> getData(@NotNull String cs) {
+        byte[] asciiBytes = CompactStrings.asciiBytes(cs);
+        if (asciiBytes != null) {
+            this.cs = cs;
+            asciiBytesStore.init(asciiBytes);
+            ascii = true;
+            return this;
+        }
+        ascii = false;
+        return super.getData(cs);
+    }
+
+    @Override
+    public void uninit() {
+        super.uninit();
+        if (ascii) {
+            asciiBytesStore.uninit();
+            ascii = false;
+        }
+    }
+
+    @Override
+    public RandomDataInput bytes() {
+        return ascii ? asciiBytesStore : super.bytes();
+    }
+
+    @Override
+    public long offset() {
+        return ascii ? asciiBytesStore.start() : super.offset();
+    }
+
+    @Override
+    public long size() {
+        return ascii ? asciiBytesStore.capacity() : super.size();
+    }
+
     @Override
     public String getUsing(@Nullable String using) {
         return cs;
@@ -31,4 +92,10 @@ public final class StringUtf8DataAccess extends AbstractCharSequenceUtf8DataAcce
     public DataAccess<String> copy() {
         return new StringUtf8DataAccess();
     }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wireIn) {
+        super.readMarshallable(wireIn);
+        initOwnTransients();
+    }
 }
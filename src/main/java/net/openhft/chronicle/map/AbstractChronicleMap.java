@@ -18,7 +18,9 @@
 package net.openhft.chronicle.map;
 
 import net.openhft.chronicle.core.util.SerializableFunction;
+import net.openhft.chronicle.hash.BytesPredicate;
 import net.openhft.chronicle.hash.impl.util.CharSequences;
+import net.openhft.chronicle.map.impl.IterationContext;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
@@ -33,6 +35,8 @@ import static net.openhft.chronicle.hash.impl.util.Objects.requireNonNull;
 
 interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V> {
 
+    IterationContext<K, V, ?> iterationContext();
+
     @Override
     default <R> R getMapped(K key, @NotNull SerializableFunction<? super V, R> function) {
         requireNonNull(function);
@@ -45,14 +49,26 @@ interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V> {
     @Override
     default void getAll(File toFile) throws IOException {
         synchronized (this) {
-            JsonSerializer.getAll(toFile, this, emptyList());
+            if (this instanceof VanillaChronicleMap && YamlMapDump.isYamlFile(toFile)) {
+                YamlMapDump.exportTo(toFile, (VanillaChronicleMap<K, V, ?>) this);
+            } else if (this instanceof VanillaChronicleMap && !BinaryMapDump.isJsonFile(toFile)) {
+                BinaryMapDump.exportTo(toFile, (VanillaChronicleMap<K, V, ?>) this);
+            } else {
+                JsonSerializer.getAll(toFile, this, emptyList());
+            }
         }
     }
 
     @Override
     default void putAll(File fromFile) throws IOException {
         synchronized (this) {
-            JsonSerializer.putAll(fromFile, this, emptyList());
+            if (this instanceof VanillaChronicleMap && YamlMapDump.isYamlFile(fromFile)) {
+                YamlMapDump.importFrom(fromFile, (VanillaChronicleMap<K, V, ?>) this);
+            } else if (this instanceof VanillaChronicleMap && BinaryMapDump.isDump(fromFile)) {
+                BinaryMapDump.importFrom(fromFile, (VanillaChronicleMap<K, V, ?>) this);
+            } else {
+                JsonSerializer.putAll(fromFile, this, emptyList());
+            }
         }
     }
 
@@ -127,6 +143,11 @@ interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V> {
             public void forEach(java.util.function.Consumer<? super V> action) {
                 AbstractChronicleMap.this.forEachEntry(c -> action.accept(c.value().get()));
             }
+
+            @Override
+            public Spliterator<V> spliterator() {
+                return new ChronicleMapSpliterator.OfValues<>(AbstractChronicleMap.this);
+            }
         };
     }
 
@@ -161,6 +182,11 @@ interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V> {
             public void forEach(java.util.function.Consumer<? super K> action) {
                 AbstractChronicleMap.this.forEachEntry(c -> action.accept(c.key().get()));
             }
+
+            @Override
+            public Spliterator<K> spliterator() {
+                return new ChronicleMapSpliterator.OfKeys<>(AbstractChronicleMap.this);
+            }
         };
     }
 
@@ -252,4 +278,46 @@ interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V> {
         }
         return !interrupt;
     }
+
+    @Override
+    default void forEachEntryParallel(
+            int parallelism, Consumer<? super MapEntry<K, V>> action) {
+        SegmentsParallelIteration.forEachEntryParallel(this, parallelism, action);
+    }
+
+    @Override
+    default Iterator<Entry<K, V>> reusingEntryIterator(int batchSize) {
+        return new ChronicleMapIterator.OfReusedEntries<>(this, batchSize);
+    }
+
+    @Override
+    default void scan(BytesPredicate keyFilter, BytesPredicate valueFilter,
+                      Consumer<? super MapEntry<K, V>> action) {
+        Consumer<MapEntry<K, V>> filteringAction =
+                filteringAction(keyFilter, valueFilter, action);
+        for (int i = segments() - 1; i >= 0; i--) {
+            try (MapSegmentContext<K, V, ?> c = segmentContext(i)) {
+                c.forEachSegmentEntryInAddressOrder(filteringAction);
+            }
+        }
+    }
+
+    @Override
+    default void scanParallel(int parallelism, BytesPredicate keyFilter,
+                              BytesPredicate valueFilter,
+                              Consumer<? super MapEntry<K, V>> action) {
+        forEachEntryParallel(parallelism, filteringAction(keyFilter, valueFilter, action));
+    }
+
+    static <K, V> Consumer<MapEntry<K, V>> filteringAction(
+            BytesPredicate keyFilter, BytesPredicate valueFilter,
+            Consumer<? super MapEntry<K, V>> action) {
+        requireNonNull(action);
+        return e -> {
+            if ((keyFilter == null || keyFilter.test(e.key())) &&
+                    (valueFilter == null || valueFilter.test(e.value()))) {
+                action.accept(e);
+            }
+        };
+    }
 }
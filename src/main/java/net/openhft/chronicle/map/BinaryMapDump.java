@@ -0,0 +1,323 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.serialization.SizedReader;
+import net.openhft.chronicle.wire.TextWire;
+import net.openhft.chronicle.wire.Wire;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static net.openhft.chronicle.map.MapDumps.*;
+
+/**
+ * Exports entries of a {@link ChronicleMap} to a file and imports them back, in a compact binary
+ * format: serialized keys and values are copied as they are stored in the map, without
+ * deserialization.
+ *
+ * <p>The format is: {@link #MAGIC} bytes, the format version (int), the length of the header
+ * (int), followed by the header: key and value classes, size marshallers, readers and data
+ * accesses of the exported map, in the same text form as in the header of a persisted Chronicle
+ * Map. Then follow blocks of entries of the exported segments, in the segment order, each block
+ * is the number of entries in it (int), the length of the rest of the block in bytes (long), and
+ * entries: stop bit-encoded key size, key bytes, stop bit-encoded value size, value bytes. Empty
+ * segments are skipped, the last block is followed by -1 (int). Numbers not in stop bit encoding are
+ * big-endian. The file is compressed with GZIP, if its name ends with ".gz".
+ *
+ * <p>Segments are exported in parallel, in the {@link ForkJoinPool#commonPool() common pool},
+ * each segment is read into a separate buffer under the segment lock, buffers are written to the
+ * file in the segment order. If the serialization configuration of the map the dump is imported
+ * into is the same as of the exported map, raw key and value bytes are inserted, otherwise keys
+ * and values are deserialized with the readers from the dump header, and put into the map as
+ * objects.
+ *
+ * @see ChronicleMap#getAll(File)
+ * @see ChronicleMap#putAll(File)
+ */
+final class BinaryMapDump {
+
+    static final byte[] MAGIC = "ChMapDmp".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int END_OF_BLOCKS = -1;
+
+    private BinaryMapDump() {}
+
+    /**
+     * Returns {@code true} if the file name suggests the JSON format, i. e. ends with ".json" or
+     * ".json.gz".
+     */
+    static boolean isJsonFile(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".json") || name.endsWith(".json.gz");
+    }
+
+    /**
+     * Returns {@code true} if the given file starts with {@link #MAGIC} bytes (after
+     * decompression, if the file name ends with ".gz").
+     */
+    static boolean isDump(File file) throws IOException {
+        try (InputStream in = openInput(file)) {
+            byte[] magic = new byte[MAGIC.length];
+            int read = 0;
+            int r;
+            while (read < magic.length && (r = in.read(magic, read, magic.length - read)) >= 0) {
+                read += r;
+            }
+            return read == magic.length && Arrays.equals(magic, MAGIC);
+        }
+    }
+
+    static void exportTo(File toFile, VanillaChronicleMap<?, ?, ?> map) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(openOutput(toFile))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            byte[] header = header(map);
+            out.writeInt(header.length);
+            out.write(header);
+
+            int segments = map.segments();
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int parallelism = Math.min(segments, ForkJoinPool.getCommonPoolParallelism());
+            // Bounds the number of segment buffers in memory, while the earliest of them is
+            // written to the file
+            ArrayDeque<ForkJoinTask<SegmentBlock>> pending = new ArrayDeque<>();
+            byte[] transferBuffer = new byte[TRANSFER_BUFFER_SIZE];
+            try {
+                int nextSegment = 0;
+                while (nextSegment < segments || !pending.isEmpty()) {
+                    while (nextSegment < segments && pending.size() < 2 * parallelism) {
+                        int segmentIndex = nextSegment++;
+                        pending.add(pool.submit(() -> readSegment(map, segmentIndex)));
+                    }
+                    // Dequeued only when done, to be released in the finally block otherwise
+                    SegmentBlock block = pending.peek().get();
+                    pending.poll();
+                    try {
+                        block.writeTo(out, transferBuffer);
+                    } finally {
+                        block.bytes.release();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Export of the map is interrupted");
+            } catch (ExecutionException e) {
+                throw new IOException("Error on export of the map", e.getCause());
+            } finally {
+                // Segment reads, already submitted to the shared pool, are not cancelled: a read,
+                // cancelled while running, would lose its buffer. Wait for them and release
+                // the buffers instead
+                for (ForkJoinTask<SegmentBlock> read : pending) {
+                    read.quietlyJoin();
+                    if (read.isCompletedNormally())
+                        read.getRawResult().bytes.release();
+                }
+            }
+            out.writeInt(END_OF_BLOCKS);
+        }
+    }
+
+    private static SegmentBlock readSegment(VanillaChronicleMap<?, ?, ?> map, int segmentIndex) {
+        Bytes<?> bytes = Bytes.allocateElasticDirect();
+        SegmentBlock block = new SegmentBlock(bytes);
+        try (MapSegmentContext<?, ?, ?> c = map.segmentContext(segmentIndex)) {
+            c.forEachSegmentEntry(e -> {
+                Data<?> key = e.key();
+                bytes.writeStopBit(key.size());
+                bytes.write(key.bytes(), key.offset(), key.size());
+                Data<?> value = e.value();
+                bytes.writeStopBit(value.size());
+                bytes.write(value.bytes(), value.offset(), value.size());
+                block.entries++;
+            });
+        } catch (RuntimeException | Error e) {
+            bytes.release();
+            throw e;
+        }
+        return block;
+    }
+
+    private static class SegmentBlock {
+        final Bytes<?> bytes;
+        int entries;
+
+        SegmentBlock(Bytes<?> bytes) {
+            this.bytes = bytes;
+        }
+
+        void writeTo(DataOutputStream out, byte[] transferBuffer) throws IOException {
+            if (entries == 0)
+                return;
+            out.writeInt(entries);
+            out.writeLong(bytes.readRemaining());
+            while (bytes.readRemaining() > 0) {
+                int read = bytes.read(transferBuffer);
+                out.write(transferBuffer, 0, read);
+            }
+        }
+    }
+
+    static <K, V> void importFrom(File fromFile, VanillaChronicleMap<K, V, ?> map)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(openInput(fromFile))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC))
+                throw new IOException(fromFile + " is not a Chronicle Map dump");
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version of Chronicle Map dump " + fromFile +
+                        ": " + version + ", expected " + VERSION);
+            }
+            byte[] header = new byte[in.readInt()];
+            in.readFully(header);
+            EntryImporter<K, V> importer = Arrays.equals(header, header(map)) ?
+                    new RawEntryImporter<>(map) : new DeserializingEntryImporter<>(map, header);
+
+            byte[] block = new byte[0];
+            Bytes<byte[]> blockBytes = null;
+            int entries;
+            while ((entries = in.readInt()) != END_OF_BLOCKS) {
+                long blockLength = in.readLong();
+                if (entries < 0 || blockLength < 0 || blockLength > Integer.MAX_VALUE - 8) {
+                    throw new IOException("Corrupt Chronicle Map dump " + fromFile +
+                            ": block of " + entries + " entries, " + blockLength + " bytes");
+                }
+                if (block.length < blockLength) {
+                    block = new byte[(int) Math.max(blockLength, block.length * 2L)];
+                    blockBytes = Bytes.wrapForRead(block);
+                }
+                in.readFully(block, 0, (int) blockLength);
+                assert blockBytes != null;
+                blockBytes.readPositionRemaining(0, blockLength);
+                for (int i = 0; i < entries; i++) {
+                    long keySize = blockBytes.readStopBit();
+                    long keyOffset = blockBytes.readPosition();
+                    blockBytes.readSkip(keySize);
+                    long valueSize = blockBytes.readStopBit();
+                    long valueOffset = blockBytes.readPosition();
+                    blockBytes.readSkip(valueSize);
+                    importer.put(blockBytes, keyOffset, keySize, valueOffset, valueSize);
+                }
+            }
+        }
+    }
+
+    private interface EntryImporter<K, V> {
+        void put(Bytes<byte[]> block, long keyOffset, long keySize,
+                 long valueOffset, long valueSize);
+    }
+
+    /**
+     * Inserts raw key and value bytes, without deserialization.
+     */
+    private static class RawEntryImporter<K, V> implements EntryImporter<K, V> {
+        private final VanillaChronicleMap<K, V, ?> map;
+
+        RawEntryImporter(VanillaChronicleMap<K, V, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void put(Bytes<byte[]> block, long keyOffset, long keySize,
+                        long valueOffset, long valueSize) {
+            BytesStore blockStore = block.bytesStore();
+            try (ExternalMapQueryContext<K, V, ?> c =
+                         map.queryContext(blockStore, keyOffset, keySize)) {
+                MapDumps.put(c, c.wrapValueBytesAsData(blockStore, valueOffset, valueSize));
+            }
+        }
+    }
+
+    /**
+     * Deserializes keys and values with the readers from the dump header, and puts them into the
+     * map as objects. Used, if the serialization configuration of the map differs from the
+     * exported map's.
+     */
+    private static class DeserializingEntryImporter<K, V> implements EntryImporter<K, V> {
+        private final VanillaChronicleMap<K, V, ?> map;
+        private final SizedReader<K> keyReader;
+        private final SizedReader<V> valueReader;
+        private K usingKey;
+        private V usingValue;
+
+        DeserializingEntryImporter(VanillaChronicleMap<K, V, ?> map, byte[] header) {
+            this.map = map;
+            Wire wire = new TextWire(Bytes.wrapForRead(header));
+            Class<?> keyClass = wire.read(() -> "keyClass").typeLiteral();
+            wire.read(() -> "keySizeMarshaller").typedMarshallable();
+            keyReader = wire.read(() -> "keyReader").typedMarshallable();
+            Class<?> valueClass = wire.read(() -> "valueClass").typeLiteral();
+            wire.read(() -> "valueSizeMarshaller").typedMarshallable();
+            valueReader = wire.read(() -> "valueReader").typedMarshallable();
+            checkImportable(keyClass, valueClass, map);
+        }
+
+        @Override
+        public void put(Bytes<byte[]> block, long keyOffset, long keySize,
+                        long valueOffset, long valueSize) {
+            long limit = block.readLimit();
+            try {
+                block.readPositionRemaining(keyOffset, keySize);
+                usingKey = keyReader.read(block, keySize, usingKey);
+                block.readPositionRemaining(valueOffset, valueSize);
+                usingValue = valueReader.read(block, valueSize, usingValue);
+            } finally {
+                block.readLimit(limit);
+                block.readPosition(valueOffset + valueSize);
+            }
+            map.put(usingKey, usingValue);
+        }
+    }
+
+    /**
+     * Returns the serialization configuration of the map, which should be the same to import raw
+     * entry bytes: size marshallers, readers and data accesses of keys and values.
+     */
+    private static byte[] header(VanillaChronicleMap<?, ?, ?> map) {
+        Bytes<?> bytes = Bytes.allocateElasticDirect();
+        try {
+            Wire wire = new TextWire(bytes);
+            wire.write(() -> "keyClass").typeLiteral(map.keyClass);
+            wire.write(() -> "keySizeMarshaller").typedMarshallable(map.keySizeMarshaller);
+            wire.write(() -> "keyReader").typedMarshallable(map.keyReader);
+            wire.write(() -> "valueClass").typeLiteral(map.valueClass);
+            wire.write(() -> "valueSizeMarshaller").typedMarshallable(map.valueSizeMarshaller);
+            wire.write(() -> "valueReader").typedMarshallable(map.valueReader);
+            // Not needed for deserialization, but raw bytes written by different data accesses
+            // with the same readers are not necessarily the same
+            wire.write(() -> "keyDataAccess").typedMarshallable(map.keyDataAccess);
+            wire.write(() -> "valueDataAccess").typedMarshallable(map.valueDataAccess);
+            byte[] header = new byte[(int) bytes.readRemaining()];
+            bytes.read(header);
+            return header;
+        } finally {
+            bytes.release();
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.hash.ChecksumEntry;
+import net.openhft.chronicle.hash.ChronicleHash;
+import net.openhft.chronicle.hash.ChronicleHashClosedException;
+import net.openhft.chronicle.hash.CorruptEntryListener;
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
+import net.openhft.chronicle.hash.replication.ReplicableEntry;
+import net.openhft.chronicle.map.impl.IterationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Verifies checksums of all entries of the map in the background, to detect corruption of the
+ * entries, which are rarely accessed, long before they are read.
+ *
+ * <p>The scrubbing is performed in rounds, in each round all segments are visited in the index
+ * order. Each segment is visited in batches of {@link #ENTRIES_PER_LOCK_HOLD} entries, the segment
+ * update lock is released between batches. The scrubbing is paced to verify not more than the
+ * configured number of bytes of keys and values per second on average: the scrubber sleeps after
+ * each batch, without holding the lock, for the time the batch "costs" at this rate, minus the
+ * time spent on the batch. The next round starts in {@link #ROUND_INTERVAL_NANOS} after the end of
+ * the previous round.
+ *
+ * <p>Entries with mismatching checksums are logged and reported to the {@link
+ * CorruptEntryListener}, if configured. If quarantine of corrupt entries is configured, they are
+ * removed from the map after that. In replicated maps they are removed completely (see {@link
+ * ReplicableEntry#doRemoveCompletely()}), i. e. the removal is not replicated, otherwise the
+ * corruption of the entry on this node would result in removal of the healthy copies of the entry
+ * on the remote nodes.
+ *
+ * @see net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI#checksumScrubbing(long,
+ * CorruptEntryListener, boolean)
+ */
+class ChecksumScrubber implements Runnable, Closeable, Predicate<MapEntry<?, ?>> {
+    private static final Logger LOG = LoggerFactory.getLogger(ChecksumScrubber.class);
+
+    /**
+     * The number of entries, verified under a single segment update lock hold. Bounds the time
+     * other threads could wait for the update lock because of the scrubbing.
+     */
+    static final int ENTRIES_PER_LOCK_HOLD = 256;
+    private static final long ROUND_INTERVAL_NANOS = SECONDS.toNanos(1);
+
+    private final VanillaChronicleMap<?, ?, ?> map;
+    private final long bytesPerSecond;
+    private final CorruptEntryListener listener;
+    private final boolean quarantine;
+    private final SegmentCursor cursor = new SegmentCursor();
+    private volatile boolean shutdown;
+    private volatile Thread runnerThread;
+
+    // State of the current batch
+    private int segmentIndex;
+    private long batchBytes;
+
+    // Metrics
+    private volatile long verifiedEntries;
+    private volatile long verifiedBytes;
+    private volatile long corruptEntries;
+    private volatile long quarantinedEntries;
+    private volatile long completeRounds;
+    private volatile long lastRoundNanos;
+
+    ChecksumScrubber(VanillaChronicleMap<?, ?, ?> map, long bytesPerSecond,
+                     CorruptEntryListener listener, boolean quarantine) {
+        this.map = map;
+        this.bytesPerSecond = bytesPerSecond;
+        this.listener = listener;
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Runs scrubbing rounds in the current thread, until {@link #close()}d, or the map is closed.
+     */
+    @Override
+    public void run() {
+        runnerThread = Thread.currentThread();
+        while (!shutdown) {
+            sleepNanos(runRound());
+        }
+    }
+
+    /**
+     * @return the delay before the next round, in nanoseconds
+     */
+    private long runRound() {
+        long roundStart = System.nanoTime();
+        try {
+            for (int segmentIndex = 0; segmentIndex < map.segments(); segmentIndex++) {
+                if (!scrubSegment(segmentIndex))
+                    return 0;
+            }
+        } catch (ChronicleHashClosedException e) {
+            shutdown = true;
+            return 0;
+        } catch (RuntimeException e) {
+            LOG.error("Error on checksum scrubbing of map persisted at " + map.file(), e);
+            return ROUND_INTERVAL_NANOS;
+        }
+        long roundNanos = System.nanoTime() - roundStart;
+        lastRoundNanos = roundNanos;
+        completeRounds++;
+        LOG.debug("Verified checksums of map persisted at {} in {} ns, {} corrupt entries found " +
+                "so far", map.file(), roundNanos, corruptEntries);
+        return ROUND_INTERVAL_NANOS;
+    }
+
+    /**
+     * @return {@code false} if the scrubbing is interrupted by {@link #close()}
+     */
+    private boolean scrubSegment(int segmentIndex) {
+        this.segmentIndex = segmentIndex;
+        cursor.reset();
+        while (true) {
+            if (shutdown)
+                return false;
+            long batchStart = System.nanoTime();
+            batchBytes = 0;
+            boolean moreEntries;
+            try (IterationContext<?, ?, ?> c = map.iterationContext()) {
+                c.initSegmentIndex(segmentIndex);
+                moreEntries = c.forEachSegmentEntryBatchWhile(
+                        cursor, ENTRIES_PER_LOCK_HOLD, this);
+            }
+            long batchCostNanos =
+                    (long) (batchBytes * (double) SECONDS.toNanos(1) / bytesPerSecond);
+            sleepNanos(batchStart + batchCostNanos - System.nanoTime());
+            if (!moreEntries)
+                return true;
+        }
+    }
+
+    @Override
+    public boolean test(MapEntry<?, ?> entry) {
+        if (shutdown)
+            return false;
+        long entryBytes = entry.key().size() + entry.value().size();
+        batchBytes += entryBytes;
+        verifiedBytes += entryBytes;
+        verifiedEntries++;
+        if (!((ChecksumEntry) entry).checkSum())
+            onCorruptEntry(entry);
+        return true;
+    }
+
+    private void onCorruptEntry(MapEntry<?, ?> entry) {
+        corruptEntries++;
+        LOG.warn("Checksum mismatch of an entry in segment {} of map persisted at {}{}",
+                segmentIndex, map.file(), quarantine ? ", the entry is removed" : "");
+        if (listener != null) {
+            ChronicleHash<?, ?, ?, ?> hash = map.chronicleSet != null ? map.chronicleSet : map;
+            try {
+                listener.onCorruptEntry(hash, segmentIndex, entry);
+            } catch (RuntimeException e) {
+                LOG.error("Error in CorruptEntryListener", e);
+            }
+        }
+        if (quarantine) {
+            if (entry instanceof ReplicableEntry) {
+                ((ReplicableEntry) entry).doRemoveCompletely();
+            } else {
+                entry.doRemove();
+            }
+            quarantinedEntries++;
+        }
+    }
+
+    long verifiedEntries() {
+        return verifiedEntries;
+    }
+
+    long verifiedBytes() {
+        return verifiedBytes;
+    }
+
+    long corruptEntries() {
+        return corruptEntries;
+    }
+
+    long quarantinedEntries() {
+        return quarantinedEntries;
+    }
+
+    long completeRounds() {
+        return completeRounds;
+    }
+
+    long lastRoundNanos() {
+        return lastRoundNanos;
+    }
+
+    private void sleepNanos(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long toSleep;
+        while ((toSleep = deadline - System.nanoTime()) > 0 && !shutdown)
+            LockSupport.parkNanos(this, toSleep);
+    }
+
+    @Override
+    public void close() {
+        shutdown = true;
+        if (runnerThread != null &&
+                // this means blocked in sleepNanos()
+                LockSupport.getBlocker(runnerThread) == this) {
+            runnerThread.interrupt(); // unblock
+        }
+    }
+}
@@ -19,14 +19,18 @@ package net.openhft.chronicle.map;
 
 import net.openhft.chronicle.bytes.Byteable;
 import net.openhft.chronicle.core.util.SerializableFunction;
+import net.openhft.chronicle.hash.BytesPredicate;
 import net.openhft.chronicle.hash.ChronicleHash;
 import net.openhft.chronicle.hash.serialization.SizedReader;
 import net.openhft.chronicle.hash.serialization.SizedWriter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 /**
  * {@code ChronicleMap} provides concurrent access to a <i>Chronicle Map key-value store</i> from a
@@ -170,32 +174,131 @@ public interface ChronicleMap<K, V> extends ConcurrentMap<K, V>,
     <R> R getMapped(K key, @NotNull SerializableFunction<? super V, R> function);
 
     /**
-     * Exports all the entries to a {@link File} storing them in JSON format, an attempt is
-     * made where possible to use standard java serialisation and keep the data human readable, data
-     * serialized using the custom serialises are converted to a binary format which is not human
-     * readable but this is only done if the Keys or Values are not {@link Serializable}.
-     * This method can be used in conjunction with {@link ChronicleMap#putAll(File)} and is
+     * Performs the given action for each entry in this map, scanning segments concurrently in
+     * at most the given number of threads of the {@link
+     * java.util.concurrent.ForkJoinPool#commonPool() common pool}, or of a dedicated {@code
+     * ForkJoinPool}, if the given parallelism exceeds the common pool's. Each task holds only
+     * the lock of the segment it currently scans, the action is called for the entries of this
+     * segment under it's update lock, as in {@link #forEachEntry(Consumer)}. This method returns
+     * after all segments are scanned; if the action throws an exception, it is rethrown from this
+     * method.
+     *
+     * <p>The action is called concurrently from several threads, so it should be thread-safe.
+     * Like in {@link #forEachEntry(Consumer)}, the {@code MapEntry} object passed to the action
+     * shouldn't be used outside of the action call.
+     *
+     * <p>The {@link #entrySet()}, {@link #keySet()} and {@link #values()} views of Chronicle Map
+     * also provide spliterators, which split by segment ranges, so that {@code parallelStream()}
+     * of these views processes segments concurrently as well.
+     *
+     * @param parallelism the maximum number of threads to scan segments concurrently
+     * @param action the action to be performed for each entry
+     * @throws IllegalArgumentException if {@code parallelism} is not positive
+     */
+    void forEachEntryParallel(int parallelism, Consumer<? super MapEntry<K, V>> action);
+
+    /**
+     * Performs the given action for each entry in this map, which key and value bytes match the
+     * given predicates. Predicates are evaluated on the serialized form of keys and values right
+     * in the entry memory, during the iteration over the segment, so keys and values of entries
+     * which don't pass the filters are not deserialized. The key predicate is evaluated first, the
+     * value predicate is evaluated only for entries with keys matching the key predicate.
+     *
+     * <p>Entries are iterated and the action is called under segments' update lock, as in {@link
+     * #forEachEntry(Consumer)}. Segments are scanned in the order of entry addresses in memory,
+     * see {@link MapSegmentContext#forEachSegmentEntryInAddressOrder(Consumer)}.
+     *
+     * @param keyFilter the predicate on the key bytes, {@code null} to accept all keys
+     * @param valueFilter the predicate on the value bytes, {@code null} to accept all values
+     * @param action the action to be performed for each matching entry
+     * @see #scanParallel(int, BytesPredicate, BytesPredicate, Consumer)
+     */
+    void scan(@Nullable BytesPredicate keyFilter, @Nullable BytesPredicate valueFilter,
+              Consumer<? super MapEntry<K, V>> action);
+
+    /**
+     * Same as {@link #scan(BytesPredicate, BytesPredicate, Consumer)}, but scans segments
+     * concurrently, as {@link #forEachEntryParallel(int, Consumer)} does. The predicates and the
+     * action are called concurrently from several threads, so they should be thread-safe.
+     *
+     * @param parallelism the maximum number of threads to scan segments concurrently
+     * @param keyFilter the predicate on the key bytes, {@code null} to accept all keys
+     * @param valueFilter the predicate on the value bytes, {@code null} to accept all values
+     * @param action the action to be performed for each matching entry
+     * @throws IllegalArgumentException if {@code parallelism} is not positive
+     */
+    void scanParallel(int parallelism, @Nullable BytesPredicate keyFilter,
+                      @Nullable BytesPredicate valueFilter,
+                      Consumer<? super MapEntry<K, V>> action);
+
+    /**
+     * Returns an iterator over the entries of this map, which deserializes keys and values into
+     * reused instances (via {@link net.openhft.chronicle.hash.Data#getUsing(Object)}), to avoid
+     * garbage creation during full scans of the map. The returned {@code Map.Entry} objects, and
+     * their keys and values, are valid only until the following {@code hasNext()} or {@code
+     * next()} call on the iterator, they must be copied if needed for longer. {@code
+     * Map.Entry.setValue()} is not supported, {@code Iterator.remove()} is supported.
+     *
+     * <p>The iterator reads entries in batches of about {@code batchSize} entries, holding the
+     * segment lock only while reading a batch, and remembering its position in the segment
+     * between batches, so the iterator memory consumption is bounded by the batch size.
+     * Iterators of {@link #entrySet()} and {@link #keySet()} work the same way, with the default
+     * batch size and without instance reuse.
+     *
+     * <p>The iteration is weakly consistent: entries inserted or removed during the iteration may
+     * be or may be not observed. The returned iterator should be used only in the thread it was
+     * created in.
+     *
+     * @param batchSize the number of entries to read under a single segment lock acquisition
+     * @return an iterator over the entries of this map, reusing key and value instances
+     * @throws IllegalArgumentException if {@code batchSize} is not positive
+     */
+    Iterator<Map.Entry<K, V>> reusingEntryIterator(int batchSize);
+
+    /**
+     * Exports all the entries to a {@link File}. If the file name ends with ".json" (or
+     * ".json.gz"), the entries are stored in JSON format, an attempt is made where possible to
+     * use standard java serialisation and keep the data human readable, data serialized using the
+     * custom serialises are converted to a binary format which is not human readable but this is
+     * only done if the Keys or Values are not {@link Serializable}. The JSON export could be
+     * imported even when the versions of ChronicleMap differ, but it is not performant and as
+     * such we recommend it is not used in performance sensitive code.
+     *
+     * <p>If the file name ends with ".yaml" or ".yml" (optionally followed by ".gz"), the entries
+     * are streamed in YAML format, using Chronicle Wire, in batches, so that memory usage is
+     * bounded by the size of a batch. Keys and values should be of types, which Chronicle Wire
+     * could write as objects, e. g. strings, boxed primitives or {@link
+     * net.openhft.chronicle.wire.Marshallable}s.
+     *
+     * <p>Otherwise the entries are stored in a compact binary format: serialized keys and values
+     * are copied as they are stored in this map, segments are read in parallel, each segment lock
+     * is held only while the segment is read. Along with the entries, the key and value classes
+     * and serialization configuration of this map are stored.
+     *
+     * <p>If the file name ends with ".gz", the file is compressed with GZIP.
+     *
+     * <p>This method can be used in conjunction with {@link ChronicleMap#putAll(File)} and is
      * especially useful if you wish to import/export entries from one chronicle map into another.
-     * This import and export of the entries can be performed even when the versions of ChronicleMap
-     * differ. This method is not performant and as such we recommend it is not used in performance
-     * sensitive code.
      *
-     * @param toFile the file to store all the entries to, the entries will be stored in JSON
-     *               format
+     * @param toFile the file to store all the entries to
      * @throws IOException its not possible store the data to {@code toFile}
      * @see ChronicleMap#putAll(File)
      */
     void getAll(File toFile) throws IOException;
 
     /**
-     * Imports all the entries from a {@link File}, the {@code fromFile} must be created
-     * using or the same format as {@link ChronicleMap#get(Object)}, this method behaves
-     * similar to {@link Map#put(Object, Object)} where existing
-     * entries are overwritten. A write lock is only held while each individual entry is inserted
-     * into the map, not over all the entries in the {@link File}
-     *
-     * @param fromFile the file containing entries ( in JSON format ) which will be deserialized and
-     *                 {@link Map#put(Object, Object)} into the map
+     * Imports all the entries from a {@link File}, created by {@link ChronicleMap#getAll(File)}
+     * (the YAML format is detected by the file name, the binary or JSON format is detected from
+     * the file contents), this method behaves similar to {@link Map#put(Object, Object)} where
+     * existing entries are overwritten. A write lock is only held while each individual entry is
+     * inserted into the map, not over all the entries in the {@link File}.
+     *
+     * <p>Entries, exported in the binary format from a map with the same key and value
+     * serialization configuration, as of this map, are inserted without deserialization.
+     * Otherwise keys and values are deserialized and {@link Map#put(Object, Object)} into the map.
+     *
+     * @param fromFile the file containing entries, which will be {@link Map#put(Object, Object)}
+     *                 into the map
      * @throws IOException its not possible read the {@code fromFile}
      * @see ChronicleMap#getAll(File)
      */
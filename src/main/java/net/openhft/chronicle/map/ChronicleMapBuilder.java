@@ -24,14 +24,18 @@ import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.hash.ChecksumAlgorithm;
 import net.openhft.chronicle.hash.ChronicleHashBuilder;
+import net.openhft.chronicle.hash.ChronicleHashClosedException;
 import net.openhft.chronicle.hash.ChronicleHashRecoveryFailedException;
+import net.openhft.chronicle.hash.CorruptEntryListener;
 import net.openhft.chronicle.hash.impl.CompactOffHeapLinearHashTable;
 import net.openhft.chronicle.hash.impl.SizePrefixedBlob;
 import net.openhft.chronicle.hash.impl.VanillaChronicleHash;
 import net.openhft.chronicle.hash.impl.stage.entry.ChecksumStrategy;
 import net.openhft.chronicle.hash.impl.util.CanonicalRandomAccessFiles;
 import net.openhft.chronicle.hash.impl.util.math.PoissonDistribution;
+import net.openhft.chronicle.hash.replication.TimestampSource;
 import net.openhft.chronicle.hash.serialization.*;
 import net.openhft.chronicle.hash.serialization.impl.SerializationBuilder;
 import net.openhft.chronicle.map.replication.MapRemoteOperations;
@@ -52,12 +56,14 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.Double.isNaN;
@@ -152,6 +158,15 @@ public final class ChronicleMapBuilder<K, V> implements
     long cleanupTimeout = 1;
     TimeUnit cleanupTimeoutUnit = TimeUnit.MINUTES;
     boolean cleanupRemovedEntries = true;
+    ScheduledExecutorService cleanupExecutor = null;
+    int recoveryThreads = Runtime.getRuntime().availableProcessors();
+    boolean lazyRecovery = false;
+    boolean openersInSameProcessIdNamespace = false;
+    long checksumScrubbingBytesPerSecond = 0;
+    CorruptEntryListener corruptEntryListener = null;
+    boolean quarantineCorruptEntries = false;
+    TimestampSource timestampSource = TimestampSource.perThreadMonotonic();
+    boolean deltaReplication = false;
 
     //////////////////////////////
     // Configuration fields
@@ -173,6 +188,7 @@ public final class ChronicleMapBuilder<K, V> implements
     private K sampleKey;
     private double averageValueSize = UNDEFINED_DOUBLE_CONFIG;
     private V sampleValue;
+    private int valueCompressionThreshold = -1;
     private int actualChunkSize = 0;
     private int worstAlignment = -1;
     private int maxChunksPerEntry = -1;
@@ -181,8 +197,10 @@ public final class ChronicleMapBuilder<K, V> implements
     private double maxBloatFactor = 1.0;
     private boolean allowSegmentTiering = true;
     private double nonTieredSegmentsPercentile = 0.99999;
+    private boolean medianSizedSegments = false;
     private boolean aligned64BitMemoryOperationsAtomic = OS.is64Bit();
     private ChecksumEntries checksumEntries = ChecksumEntries.IF_PERSISTED;
+    private ChecksumAlgorithm checksumAlgorithm = ChecksumAlgorithm.XX_HASH;
     private boolean putReturnsNull = false;
     private boolean removeReturnsNull = false;
     private boolean replicated;
@@ -605,6 +623,45 @@ public final class ChronicleMapBuilder<K, V> implements
         return this;
     }
 
+    /**
+     * Configures maps, created by this builder, to store values compressed with a fast LZ4-style
+     * block codec, if the size of the serialized form of the value is equal to or greater than the
+     * given {@code compressionThreshold}. Smaller values, as well as values which don't shrink
+     * after compression, are stored uncompressed, with 1-3 bytes of overhead.
+     *
+     * <p>The configured (or default) value marshallers are wrapped with {@link
+     * CompressedSizedReader} and {@link CompressedSizedWriter} at the moment when a map is created,
+     * so this method could be called before or after {@link #valueMarshallers(SizedReader,
+     * SizedWriter)} and similar methods.
+     *
+     * <p>{@link #averageValue(Object)} configuration accounts compression automatically, i. e.
+     * chunk size and the entry space are estimated from the <i>compressed</i> size of the average
+     * value, so this is the recommended way to configure value size along with compression. If
+     * {@link #averageValueSize(double)} is used instead, it should be the average size of values
+     * in compressed form.
+     *
+     * <p>Compression couldn't be applied to values which size is constant.
+     *
+     * @param compressionThreshold the minimum size of the serialized form of a value, which is
+     *                             tried to be compressed
+     * @return this builder back
+     * @throws IllegalStateException    if value size is known statically
+     * @throws IllegalArgumentException if the given {@code compressionThreshold} is negative
+     * @see CompressedSizedWriter
+     */
+    public ChronicleMapBuilder<K, V> valueCompression(int compressionThreshold) {
+        if (valueBuilder.sizeIsStaticallyKnown) {
+            throw new IllegalStateException("Size of " + valueBuilder.tClass +
+                    " instances is constant and statically known, they couldn't be compressed");
+        }
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("compressionThreshold should be non-negative, " +
+                    compressionThreshold + " given");
+        }
+        this.valueCompressionThreshold = compressionThreshold;
+        return this;
+    }
+
     double averageValueSize() {
         if (!isDefined(averageValueSize))
             throw new AssertionError();
@@ -885,7 +942,7 @@ public final class ChronicleMapBuilder<K, V> implements
             double averageEntriesPerSegment = entries() * 1.0 / actualSegments;
             if (actualSegments > 1) {
                 entriesPerSegment = PoissonDistribution.inverseCumulativeProbability(
-                        averageEntriesPerSegment, nonTieredSegmentsPercentile);
+                        averageEntriesPerSegment, segmentSizingPercentile());
             } else {
                 // if there is only 1 segment, there is no source of variance in segments filling
                 entriesPerSegment = roundUp(averageEntriesPerSegment);
@@ -1071,7 +1128,7 @@ public final class ChronicleMapBuilder<K, V> implements
         double precision = 1.0 / averageChunksPerEntry();
         long entriesPerSegmentShouldBe =
                 roundDown(PoissonDistribution.meanByCumulativeProbabilityAndValue(
-                        nonTieredSegmentsPercentile, entriesPerSegment, precision));
+                        segmentSizingPercentile(), entriesPerSegment, precision));
         long segments = divideRoundUp(entries(), entriesPerSegmentShouldBe);
         checkSegments(segments);
         if (minSegments > 0)
@@ -1193,15 +1250,268 @@ public final class ChronicleMapBuilder<K, V> implements
         return this;
     }
 
+    @Override
+    public ChronicleMapBuilder<K, V> medianSizedSegments(boolean medianSizedSegments) {
+        this.medianSizedSegments = medianSizedSegments;
+        return this;
+    }
+
+    private double segmentSizingPercentile() {
+        return medianSizedSegments && allowSegmentTiering ? 0.5 : nonTieredSegmentsPercentile;
+    }
+
+    /**
+     * Returns the number of extra tiers to reserve on the map creation, if {@link
+     * #medianSizedSegments(boolean)} is configured: the expected number of extra tiers, allocated
+     * by all segments, when the map is filled with {@link #entries(long)} entries, plus 4
+     * standard deviations.
+     */
+    long reservedExtraTiers() {
+        if (!medianSizedSegments || !allowSegmentTiering)
+            return 0;
+        int actualSegments = actualSegments();
+        // if there is only 1 segment, there is no source of variance in segments filling
+        if (actualSegments == 1)
+            return 0;
+        double averageEntriesPerSegment = entries() * 1.0 / actualSegments;
+        long entriesPerTier = entriesPerSegment();
+        // the expected number of extra tiers of a segment is the sum of probabilities of
+        // overflowing 1, 2, ... tiers
+        double extraTiersPerSegment = 0.0;
+        for (long tiers = 1; tiers <= 1000; tiers++) {
+            double overflowProbability = 1.0 - PoissonDistribution.cumulativeProbability(
+                    averageEntriesPerSegment, tiers * entriesPerTier);
+            if (overflowProbability < 1e-9)
+                break;
+            extraTiersPerSegment += overflowProbability;
+        }
+        double extraTiers = actualSegments * extraTiersPerSegment;
+        return (long) Math.ceil(extraTiers + 4 * Math.sqrt(extraTiers));
+    }
+
+    /**
+     * Configures the geometry of maps, created by this builder, from the given sample of entries,
+     * which should be representative for the entries, that are going to be put into the maps.
+     * Keys and values of the sample are serialized with the currently configured marshallers, so
+     * this method should be called after the configurations of marshallers, value alignment and
+     * {@linkplain #checksumEntries(boolean) entry checksums}, and before {@code create()}.
+     *
+     * <p>From the sizes of serialized keys and values in the sample, this method configures:
+     * <ul>
+     *     <li>{@link #averageKeySize(double)} and {@link #averageValueSize(double)}, unless key or
+     *     value size is constant;</li>
+     *     <li>{@link #entries(long)} to the given {@code expectedEntries};</li>
+     *     <li>{@link #actualChunkSize(int)}, minimizing the memory taken by entries of the sample,
+     *     including internal fragmentation and the free list, among chunk sizes, with which an
+     *     entry takes at most {@code 8} chunks on average ({@code 4}, if the map is replicated),
+     *     and {@link #maxChunksPerEntry(int)}, allowing entries twice as large as the largest
+     *     entry of the sample, unless both key and value sizes are constant;</li>
+     *     <li>{@link #actualSegments(int)} and {@link #entriesPerSegment(long)}, computed the same
+     *     way as they are computed by default, i. e. with the number of entries in a segment
+     *     bounded by the Poisson distribution at {@link #nonTieredSegmentsPercentile(double)};</li>
+     *     <li>{@link #maxBloatFactor(double)}, to let segments, filled with entries larger than
+     *     average, allocate extra tiers: the ratio of the number of chunks, taken by a segment
+     *     with entries of the sample distribution, 4 standard deviations above the mean, to the
+     *     number of chunks in a segment tier, if greater than 1.0.</li>
+     * </ul>
+     *
+     * <p>The expected memory footprint of the map and the probability of segment tiering are
+     * logged at INFO level.
+     *
+     * @param sample the sample of entries, iterated once
+     * @param expectedEntries the number of entries, expected to be put into the map
+     * @return this builder back
+     * @throws IllegalArgumentException if the sample is empty, or {@code expectedEntries} is not
+     * positive
+     */
+    public ChronicleMapBuilder<K, V> sizeFromSample(
+            Iterable<? extends Map.Entry<? extends K, ? extends V>> sample, long expectedEntries) {
+        if (expectedEntries <= 0L) {
+            throw new IllegalArgumentException("expectedEntries should be positive, " +
+                    expectedEntries + " given");
+        }
+        DataAccess<K> keyDataAccess = keyBuilder.dataAccess();
+        DataAccess<V> valueDataAccess = valueBuilder.dataAccess();
+        SizeMarshaller keySizeMarshaller = keyBuilder.sizeMarshaller();
+        SizeMarshaller valueSizeMarshaller = valueBuilder.sizeMarshaller();
+        // whether the map is persisted is not known yet, assume checksums, unless disabled.
+        // replicated field is set only on create(), check the configured identifier instead
+        long entryOverhead =
+                (replicationIdentifier != -1 ? ReplicatedChronicleMap.ADDITIONAL_ENTRY_BYTES : 0) +
+                (checksumEntries != ChecksumEntries.NO ? ChecksumStrategy.CHECKSUM_STORED_BYTES : 0) +
+                worstAlignmentWithoutValueSize(valueAlignment());
+        long[] entrySizes = new long[16];
+        int n = 0;
+        double keySizeSum = 0, valueSizeSum = 0;
+        try {
+            for (Map.Entry<? extends K, ? extends V> entry : sample) {
+                long keySize = keyDataAccess.getData(entry.getKey()).size();
+                long valueSize = valueDataAccess.getData(entry.getValue()).size();
+                keySizeSum += keySize;
+                valueSizeSum += valueSize;
+                if (n == entrySizes.length)
+                    entrySizes = Arrays.copyOf(entrySizes, n * 2);
+                entrySizes[n++] = keySizeMarshaller.storingLength(keySize) + keySize +
+                        valueSizeMarshaller.storingLength(valueSize) + valueSize + entryOverhead;
+            }
+        } finally {
+            keyDataAccess.uninit();
+            valueDataAccess.uninit();
+        }
+        if (n == 0)
+            throw new IllegalArgumentException("sample shouldn't be empty");
+        entrySizes = Arrays.copyOf(entrySizes, n);
+        Arrays.sort(entrySizes);
+
+        if (!keyBuilder.constantSizeMarshaller() && sampleKey == null)
+            averageKeySize(keySizeSum / n);
+        if (!valueBuilder.constantSizeMarshaller() && sampleValue == null)
+            averageValueSize(valueSizeSum / n);
+        entries(expectedEntries);
+        if (!constantlySizedEntries()) {
+            int sampleChunkSize = chunkSizeFromSample(entrySizes);
+            actualChunkSize(sampleChunkSize);
+            long maxChunks = divideRoundUp(2 * entrySizes[n - 1], sampleChunkSize);
+            maxChunksPerEntry((int) Math.min(maxChunks, Integer.MAX_VALUE));
+        }
+        int segments = actualSegments();
+        long entriesPerSegment = entriesPerSegment();
+        actualSegments(segments);
+        entriesPerSegment(entriesPerSegment);
+
+        double chunksPerTier = actualChunksPerSegmentTier();
+        double averageEntriesPerSegment = expectedEntries * 1.0 / segments;
+        double meanChunks = 0, chunksVariance = 0;
+        long chunkSize = chunkSize();
+        for (long entrySize : entrySizes) {
+            meanChunks += divideRoundUp(entrySize, chunkSize);
+        }
+        meanChunks /= n;
+        for (long entrySize : entrySizes) {
+            double d = divideRoundUp(entrySize, chunkSize) - meanChunks;
+            chunksVariance += d * d;
+        }
+        chunksVariance /= n;
+        double segmentChunks = averageEntriesPerSegment * meanChunks +
+                4 * Math.sqrt(averageEntriesPerSegment * chunksVariance);
+        maxBloatFactor(Math.min(1_000.0, Math.max(1.0, segmentChunks / chunksPerTier)));
+
+        logSizingFromSample(n, entrySizes, segments, entriesPerSegment, averageEntriesPerSegment);
+        return this;
+    }
+
+    /**
+     * Chooses the chunk size, minimizing the memory taken by the entries of the given sizes,
+     * including internal fragmentation and free list bits, among chunk sizes, with which an
+     * entry takes at most {@link #maxDefaultChunksPerAverageEntry(boolean)} chunks on average.
+     * Candidates are multiples of 4 up to 1024 (or the largest entry size, if smaller), and powers
+     * of 2 above. Larger chunk sizes are preferred, if the memory is the same.
+     */
+    private int chunkSizeFromSample(long[] sortedEntrySizes) {
+        int n = sortedEntrySizes.length;
+        long maxEntrySize = sortedEntrySizes[n - 1];
+        int maxChunksPerAverageEntry =
+                maxDefaultChunksPerAverageEntry(replicationIdentifier != -1);
+        int bestChunkSize = -1;
+        double bestBytes = Double.MAX_VALUE;
+        for (long chunkSize = 4; chunkSize <= (1 << 30); ) {
+            long chunks = 0;
+            for (long entrySize : sortedEntrySizes) {
+                chunks += divideRoundUp(entrySize, chunkSize);
+            }
+            if (chunks <= (long) maxChunksPerAverageEntry * n) {
+                double bytes = chunks * (chunkSize + 1.0 / 8);
+                if (bytes <= bestBytes) {
+                    bestBytes = bytes;
+                    bestChunkSize = (int) chunkSize;
+                }
+            }
+            if (chunkSize >= maxEntrySize)
+                break;
+            chunkSize = chunkSize < 1024 ? chunkSize + 4 : chunkSize * 2;
+        }
+        assert bestChunkSize > 0;
+        return bestChunkSize;
+    }
+
+    private void logSizingFromSample(int sampleSize, long[] sortedEntrySizes, int segments,
+                                     long entriesPerSegment, double averageEntriesPerSegment) {
+        if (!LOG.isInfoEnabled())
+            return;
+        double segmentTieringProbability = 1.0 - PoissonDistribution.cumulativeProbability(
+                averageEntriesPerSegment, entriesPerSegment);
+        double anySegmentTieringProbability =
+                1.0 - Math.pow(1.0 - segmentTieringProbability, segments);
+        String footprint;
+        try {
+            VanillaChronicleMap<K, V, ?> map = newUnmappedMap();
+            footprint = map.sizeInBytesWithoutTiers() + " bytes, " + map.tierSize +
+                    " bytes per extra tier, up to " + maxExtraTiers() + " extra tiers";
+        } catch (IOException | RuntimeException e) {
+            footprint = "unknown (" + e + ")";
+        }
+        LOG.info("Sized from the sample of {} entries: entry sizes min {}, median {}, max {} " +
+                        "bytes, {}; {} segments, {} entries per segment (average {}); " +
+                        "expected memory footprint {}; probability of a segment to be tiered: " +
+                        "{}, of any segment: {}",
+                sampleSize, sortedEntrySizes[0], sortedEntrySizes[sampleSize / 2],
+                sortedEntrySizes[sampleSize - 1],
+                constantlySizedEntries() ? "constant entry size" :
+                        "chunk size " + actualChunkSize + ", max chunks per entry " +
+                                maxChunksPerEntry,
+                segments, entriesPerSegment, averageEntriesPerSegment, footprint,
+                segmentTieringProbability, anySegmentTieringProbability);
+    }
+
+    /**
+     * Constructs a map object with the configuration of this builder, without affecting this
+     * builder and without allocating or mapping memory, to inspect the computed geometry.
+     */
+    VanillaChronicleMap<K, V, ?> newUnmappedMap() throws IOException {
+        return clone().newMap();
+    }
+
+    /**
+     * Renders the geometry configurations of this builder, as the chain of builder calls, which
+     * reproduces them.
+     */
+    String geometryConfigurationAsCode() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("ChronicleMapBuilder.of(").append(keyBuilder.tClass.getName())
+                .append(".class, ").append(valueBuilder.tClass.getName()).append(".class)");
+        sb.append("\n        .entries(").append(entries()).append(")");
+        if (isDefined(averageKeySize))
+            sb.append("\n        .averageKeySize(").append(averageKeySize).append(")");
+        if (isDefined(averageValueSize))
+            sb.append("\n        .averageValueSize(").append(averageValueSize).append(")");
+        if (actualChunkSize > 0)
+            sb.append("\n        .actualChunkSize(").append(actualChunkSize).append(")");
+        if (maxChunksPerEntry > 0)
+            sb.append("\n        .maxChunksPerEntry(").append(maxChunksPerEntry).append(")");
+        if (actualSegments > 0)
+            sb.append("\n        .actualSegments(").append(actualSegments).append(")");
+        if (entriesPerSegment > 0)
+            sb.append("\n        .entriesPerSegment(").append(entriesPerSegment).append(")");
+        if (maxBloatFactor != 1.0)
+            sb.append("\n        .maxBloatFactor(").append(maxBloatFactor).append(")");
+        if (checksumEntries != ChecksumEntries.IF_PERSISTED)
+            sb.append("\n        .checksumEntries(").append(checksumEntries()).append(")");
+        if (alignment != UNDEFINED_ALIGNMENT_CONFIG)
+            sb.append("\n        .entryAndValueOffsetAlignment(").append(alignment).append(")");
+        return sb.toString();
+    }
+
     long maxExtraTiers() {
         if (!allowSegmentTiering)
             return 0;
         int actualSegments = actualSegments();
         // maxBloatFactor is scale, so we do (- 1.0) to compute _extra_ tiers
-        return round((maxBloatFactor - 1.0) * actualSegments)
+        long maxExtraTiers = round((maxBloatFactor - 1.0) * actualSegments)
                 // but to mitigate slight misconfiguration, and uneven distribution of entries
                 // between segments, add 1.0 x actualSegments
                 + actualSegments;
+        // reserved extra tiers should be allowed to be claimed
+        return Math.max(maxExtraTiers, reservedExtraTiers());
     }
 
     @Override
@@ -1215,11 +1525,14 @@ public final class ChronicleMapBuilder<K, V> implements
                 ", sampleKeyForConstantSizeComputation=" + pretty(sampleKey) +
                 ", averageValueSize=" + pretty(averageValueSize) +
                 ", sampleValueForConstantSizeComputation=" + pretty(sampleValue) +
+                ", valueCompressionThreshold=" + (valueCompressionThreshold >= 0 ?
+                        valueCompressionThreshold + "" : "not configured") +
                 ", actualChunkSize=" + pretty(actualChunkSize) +
                 ", valueAlignment=" + valueAlignment() +
                 ", entries=" + entries() +
                 ", putReturnsNull=" + putReturnsNull() +
                 ", removeReturnsNull=" + removeReturnsNull() +
+                ", medianSizedSegments=" + medianSizedSegments +
                 ", keyBuilder=" + keyBuilder +
                 ", valueBuilder=" + valueBuilder +
                 '}';
@@ -1252,6 +1565,54 @@ public final class ChronicleMapBuilder<K, V> implements
         return this;
     }
 
+    ChronicleMapBuilder<K, V> cleanupExecutor(ScheduledExecutorService cleanupExecutor) {
+        this.cleanupExecutor = cleanupExecutor;
+        return this;
+    }
+
+    ChronicleMapBuilder<K, V> recoveryThreads(int recoveryThreads) {
+        if (recoveryThreads <= 0) {
+            throw new IllegalArgumentException("recoveryThreads should be positive, " +
+                    recoveryThreads + " given");
+        }
+        this.recoveryThreads = recoveryThreads;
+        return this;
+    }
+
+    ChronicleMapBuilder<K, V> lazyRecovery(boolean lazyRecovery) {
+        this.lazyRecovery = lazyRecovery;
+        return this;
+    }
+
+    ChronicleMapBuilder<K, V> openersInSameProcessIdNamespace(
+            boolean openersInSameProcessIdNamespace) {
+        this.openersInSameProcessIdNamespace = openersInSameProcessIdNamespace;
+        return this;
+    }
+
+    ChronicleMapBuilder<K, V> checksumScrubbing(
+            long bytesPerSecond, CorruptEntryListener listener, boolean quarantineCorruptEntries) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("bytesPerSecond should be non-negative, " +
+                    bytesPerSecond + " given");
+        }
+        this.checksumScrubbingBytesPerSecond = bytesPerSecond;
+        this.corruptEntryListener = listener;
+        this.quarantineCorruptEntries = quarantineCorruptEntries;
+        return this;
+    }
+
+    ChronicleMapBuilder<K, V> timestampSource(TimestampSource timestampSource) {
+        Objects.requireNonNull(timestampSource);
+        this.timestampSource = timestampSource;
+        return this;
+    }
+
+    ChronicleMapBuilder<K, V> deltaReplication(boolean deltaReplication) {
+        this.deltaReplication = deltaReplication;
+        return this;
+    }
+
     @Override
     public ChronicleMapBuilder<K, V> keyReaderAndDataAccess(
             SizedReader<K> keyReader, @NotNull DataAccess<K> keyDataAccess) {
@@ -1294,6 +1655,12 @@ public final class ChronicleMapBuilder<K, V> implements
         return this;
     }
 
+    @Override
+    public ChronicleMapBuilder<K, V> keyFieldLayoutMarshalling() {
+        keyBuilder.fieldLayoutMarshalling();
+        return this;
+    }
+
     @Override
     public ChronicleMapBuilder<K, V> aligned64BitMemoryOperationsAtomic(
             boolean aligned64BitMemoryOperationsAtomic) {
@@ -1316,6 +1683,15 @@ public final class ChronicleMapBuilder<K, V> implements
         }
     }
 
+    ChronicleMapBuilder<K, V> checksumAlgorithm(ChecksumAlgorithm checksumAlgorithm) {
+        this.checksumAlgorithm = Objects.requireNonNull(checksumAlgorithm);
+        return this;
+    }
+
+    ChecksumAlgorithm checksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
     boolean aligned64BitMemoryOperationsAtomic() {
         return aligned64BitMemoryOperationsAtomic;
     }
@@ -1410,6 +1786,21 @@ public final class ChronicleMapBuilder<K, V> implements
         return this;
     }
 
+    /**
+     * Configures marshalling of values of a plain {@link java.io.Serializable} class by a fixed
+     * field layout, instead of Java serialization, which is used for {@code Serializable} value
+     * classes by default. See {@link #keyFieldLayoutMarshalling()} for the requirements to the
+     * class.
+     *
+     * @return this builder back
+     * @throws IllegalArgumentException if the value class is not a plain {@code Serializable} class
+     * @see #keyFieldLayoutMarshalling()
+     */
+    public ChronicleMapBuilder<K, V> valueFieldLayoutMarshalling() {
+        valueBuilder.fieldLayoutMarshalling();
+        return this;
+    }
+
     /**
      * Specifies the function to obtain a value for the key during {@link ChronicleMap#acquireUsing
      * acquireUsing()} calls, if the key is absent in the map, created by this builder.
@@ -1442,7 +1833,9 @@ public final class ChronicleMapBuilder<K, V> implements
 
     @Override
     public ChronicleMap<K, V> createOrRecoverPersistedTo(File file) throws IOException {
-        return file.exists() ? recoverPersistedTo(file, true) : createPersistedTo(file);
+        if (!file.exists())
+            return createPersistedTo(file);
+        return clone().createWithFile(file, true, true, true);
     }
 
     @Override
@@ -1461,6 +1854,17 @@ public final class ChronicleMapBuilder<K, V> implements
 
     ChronicleMap<K, V> createWithFile(
             File file, boolean recover, boolean overrideBuilderConfig) throws IOException {
+        return createWithFile(file, recover, overrideBuilderConfig, false);
+    }
+
+    /**
+     * @param recoverOnlyIfNeeded if {@code true}, full recovery is done only if the map wasn't
+     * closed cleanly last time, and it couldn't be limited to the segments, modified by crashed
+     * processes. See {@link #openWithoutFullRecovery}
+     */
+    private ChronicleMap<K, V> createWithFile(
+            File file, boolean recover, boolean overrideBuilderConfig,
+            boolean recoverOnlyIfNeeded) throws IOException {
         if (overrideBuilderConfig && !recover)
             throw new AssertionError("recover -> overrideBuilderConfig");
         replicated = replicationIdentifier != -1;
@@ -1476,7 +1880,8 @@ public final class ChronicleMapBuilder<K, V> implements
         RandomAccessFile raf = CanonicalRandomAccessFiles.acquire(file);
         try {
             if (raf.length() > 0)
-                return result = openWithExistingFile(file, raf, recover, overrideBuilderConfig);
+                return result = openWithExistingFile(
+                        file, raf, recover, overrideBuilderConfig, recoverOnlyIfNeeded);
 
             @SuppressWarnings("unchecked")
             VanillaChronicleMap<K, V, ?>[] map = new VanillaChronicleMap[1];
@@ -1498,11 +1903,13 @@ public final class ChronicleMapBuilder<K, V> implements
                 int headerSize = headerBuffer[0].remaining();
                 return result = createWithNewFile(map[0], file, raf, headerBuffer[0], headerSize);
             } else {
-                return result = openWithExistingFile(file, raf, recover, overrideBuilderConfig);
+                return result = openWithExistingFile(
+                        file, raf, recover, overrideBuilderConfig, recoverOnlyIfNeeded);
             }
         } finally {
             if (result != null) {
                 result.registerRafReleaser();
+                result.registerOpener();
             } else {
                 CanonicalRandomAccessFiles.release(file);
             }
@@ -1604,14 +2011,20 @@ public final class ChronicleMapBuilder<K, V> implements
         map.createMappedStoreAndSegments();
         commitChronicleMapReady(map, raf, headerBuffer, headerSize);
         establishReplication(map);
+        establishChecksumScrubbing(map);
         return map;
     }
 
     private VanillaChronicleMap<K, V, ?> openWithExistingFile(
-            File file, RandomAccessFile raf, boolean recover, boolean overrideBuilderConfig)
-            throws IOException {
+            File file, RandomAccessFile raf, boolean recover, boolean overrideBuilderConfig,
+            boolean recoverOnlyIfNeeded) throws IOException {
         try {
             int headerSize = waitUntilReady(raf, recover);
+            if (recoverOnlyIfNeeded) {
+                VanillaChronicleMap<K, V, ?> map = openWithoutFullRecovery(file, raf, headerSize);
+                if (map != null)
+                    return map;
+            }
             FileChannel fileChannel = raf.getChannel();
             ByteBuffer headerBuffer;
             if (overrideBuilderConfig) {
@@ -1622,12 +2035,7 @@ public final class ChronicleMapBuilder<K, V> implements
                 headerBuffer = checkSumSelfBootstrappingHeader(raf, headerSize, recover);
                 assert headerSize == headerBuffer.remaining();
             }
-            Bytes<ByteBuffer> headerBytes = Bytes.wrapForRead(headerBuffer);
-            headerBytes.readPosition(headerBuffer.position());
-            headerBytes.readLimit(headerBuffer.limit());
-            Wire wire = new TextWire(headerBytes);
-            VanillaChronicleMap<K, V, ?> map = wire.getValueIn().typedMarshallable();
-            assert map != null;
+            VanillaChronicleMap<K, V, ?> map = readMapFromHeader(headerBuffer);
             map.initBeforeMapping(file, raf, headerBuffer.limit(), recover);
             long dataStoreSize = map.globalMutableState().getDataStoreSize();
             if (!recover && dataStoreSize > file.length()) {
@@ -1638,6 +2046,9 @@ public final class ChronicleMapBuilder<K, V> implements
             map.initTransientsFromBuilder(this);
             if (!recover) {
                 map.createMappedStoreAndSegments();
+                // segments might be left not recovered by a process, which opened the map with
+                // lazy recovery, and closed or crashed before all segments were recovered
+                startLazyRecoverySweeperIfNeeded(map);
             } else {
                 if (!overrideBuilderConfig)
                     writeNotComplete(fileChannel, headerBuffer, headerSize);
@@ -1645,8 +2056,10 @@ public final class ChronicleMapBuilder<K, V> implements
                 // in writeHeader() call
                 map.recover();
                 commitChronicleMapReady(map, raf, headerBuffer, headerSize);
+                startLazyRecoverySweeperIfNeeded(map);
             }
             establishReplication(map);
+            establishChecksumScrubbing(map);
             return map;
         } catch (Exception e) {
             if (recover && !(e instanceof IOException) &&
@@ -1656,6 +2069,65 @@ public final class ChronicleMapBuilder<K, V> implements
         }
     }
 
+    /**
+     * Opens the map without recovery, if it was closed cleanly last time, or recovers only the
+     * segments, which might have been modified by crashed processes, if all processes, which
+     * had the map opened, are dead.
+     *
+     * @return the opened map, or {@code null} if full recovery is needed: the header is not
+     * readable, the map was accessed by processes, which are still alive (or their liveness
+     * couldn't be determined, in particular if openers are not configured to be in the same
+     * process id namespace), or the map was opened by a version of the library, which doesn't
+     * maintain the "closed cleanly" mark
+     */
+    private VanillaChronicleMap<K, V, ?> openWithoutFullRecovery(
+            File file, RandomAccessFile raf, int headerSize) throws IOException {
+        ByteBuffer headerBuffer;
+        try {
+            headerBuffer = checkSumSelfBootstrappingHeader(raf, headerSize, false);
+        } catch (IOException e) {
+            return null;
+        }
+        VanillaChronicleMap<K, V, ?> map = readMapFromHeader(headerBuffer);
+        try {
+            map.initBeforeMapping(file, raf, headerBuffer.limit(), false);
+        } catch (IOException e) {
+            return null;
+        }
+        if (map.globalMutableState().getDataStoreSize() > file.length())
+            return null;
+        if (map.closedCleanly()) {
+            map.initTransientsFromBuilder(this);
+            map.createMappedStoreAndSegments();
+            startLazyRecoverySweeperIfNeeded(map);
+        } else if (openersInSameProcessIdNamespace && map.openedOnlyByDeadProcesses()) {
+            // processes in other process id namespaces look dead, see processIsAlive()
+            LOG.info("Map at {} was not closed by the crashed processes, recovering " +
+                    "the segments they held locked", file);
+            map.initTransientsFromBuilder(this);
+            writeNotComplete(raf.getChannel(), headerBuffer, headerSize);
+            map.recoverLockedSegments();
+            commitChronicleMapReady(map, raf, headerBuffer, headerSize);
+            startLazyRecoverySweeperIfNeeded(map);
+        } else {
+            return null;
+        }
+        establishReplication(map);
+        establishChecksumScrubbing(map);
+        return map;
+    }
+
+    private static <K, V> VanillaChronicleMap<K, V, ?> readMapFromHeader(
+            ByteBuffer headerBuffer) {
+        Bytes<ByteBuffer> headerBytes = Bytes.wrapForRead(headerBuffer);
+        headerBytes.readPosition(headerBuffer.position());
+        headerBytes.readLimit(headerBuffer.limit());
+        Wire wire = new TextWire(headerBytes);
+        VanillaChronicleMap<K, V, ?> map = wire.getValueIn().typedMarshallable();
+        assert map != null;
+        return map;
+    }
+
     ChronicleMap<K, V> createWithoutFile() {
         replicated = replicationIdentifier != -1;
         persisted = false;
@@ -1666,6 +2138,7 @@ public final class ChronicleMapBuilder<K, V> implements
                     lazyNativeBytesStoreWithFixedCapacity(map.sizeInBytesWithoutTiers());
             map.createMappedStoreAndSegments(bytesStore);
             establishReplication(map);
+            establishChecksumScrubbing(map);
             return map;
         } catch (IOException e) {
             // file-less version should never trigger an IOException.
@@ -1684,6 +2157,14 @@ public final class ChronicleMapBuilder<K, V> implements
     }
 
     void preMapConstruction() {
+        if (valueCompressionThreshold >= 0) {
+            if (sampleValue != null) {
+                throw new IllegalStateException("Value compression couldn't be used along with " +
+                        "constantValueSizeBySample() configuration");
+            }
+            // before computing average value size, to estimate it from the compressed size
+            valueBuilder.compression(valueCompressionThreshold);
+        }
         averageKeySize = preMapConstruction(
                 keyBuilder, averageKeySize, averageKey, sampleKey, "Key");
         averageValueSize = preMapConstruction(
@@ -1728,8 +2209,68 @@ public final class ChronicleMapBuilder<K, V> implements
         }
     }
 
+    /**
+     * Starts the lazy recovery sweeper, if any segment of the map is marked as needing recovery:
+     * either the map is just recovered lazily, or the marks are left by a process, which opened
+     * the map with lazy recovery, and was closed or crashed before all segments were recovered.
+     * Threads, which wait for segments to be recovered by another thread, rely on the sweeper.
+     */
+    private static void startLazyRecoverySweeperIfNeeded(VanillaChronicleMap<?, ?, ?> map) {
+        for (int segmentIndex = 0; segmentIndex < map.segments(); segmentIndex++) {
+            if (map.segmentNeedsRecovery(segmentIndex)) {
+                startLazyRecoverySweeper(map);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts a background thread, recovering segments of the lazily recovered map, which are not
+     * accessed (and therefore recovered) by other threads yet.
+     */
+    private static void startLazyRecoverySweeper(VanillaChronicleMap<?, ?, ?> map) {
+        NamedThreadFactory threadFactory =
+                new NamedThreadFactory("recovery thread for map persisted at " + map.file());
+        Thread sweeper = threadFactory.newThread(() -> {
+            for (int segmentIndex = 0; segmentIndex < map.segments(); segmentIndex++) {
+                try {
+                    map.recoverSegmentLazily(segmentIndex, false);
+                } catch (ChronicleHashClosedException e) {
+                    // the map is closed before all segments are recovered, the rest of them are
+                    // recovered when the map is recovered next time
+                    return;
+                } catch (RuntimeException e) {
+                    // don't leave the rest of segments not recovered, the failed segment is
+                    // recovered on the first access to it
+                    LOG.error("Error on lazy recovery of segment " + segmentIndex +
+                            " of map persisted at " + map.file(), e);
+                }
+            }
+        });
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    private void establishChecksumScrubbing(VanillaChronicleMap<K, V, ?> map) {
+        if (checksumScrubbingBytesPerSecond == 0 || !map.checksumEntries)
+            return;
+        ChecksumScrubber scrubber = new ChecksumScrubber(map, checksumScrubbingBytesPerSecond,
+                corruptEntryListener, quarantineCorruptEntries);
+        map.checksumScrubber = scrubber;
+        Thread scrubberThread = new NamedThreadFactory(
+                "checksum scrubbing thread for map persisted at " + map.file()).newThread(scrubber);
+        scrubberThread.setDaemon(true);
+        scrubberThread.start();
+    }
+
     private void establishCleanupThread(ReplicatedChronicleMap map) {
         OldDeletedEntriesCleanup cleanup = new OldDeletedEntriesCleanup(map);
+        map.cleanup = cleanup;
+        if (cleanupExecutor != null) {
+            cleanup.scheduleOn(cleanupExecutor);
+            map.addCloseable(cleanup);
+            return;
+        }
         NamedThreadFactory threadFactory =
                 new NamedThreadFactory("cleanup thread for map persisted at " + map.file());
         ExecutorService executor = Executors.newSingleThreadExecutor(threadFactory);
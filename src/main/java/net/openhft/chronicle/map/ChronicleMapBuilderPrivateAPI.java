@@ -17,10 +17,14 @@
 
 package net.openhft.chronicle.map;
 
+import net.openhft.chronicle.hash.ChecksumAlgorithm;
 import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import net.openhft.chronicle.hash.CorruptEntryListener;
+import net.openhft.chronicle.hash.replication.TimestampSource;
 import net.openhft.chronicle.hash.serialization.impl.SerializationBuilder;
 import net.openhft.chronicle.map.replication.MapRemoteOperations;
 
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 class ChronicleMapBuilderPrivateAPI<K, V>
@@ -82,6 +86,11 @@ class ChronicleMapBuilderPrivateAPI<K, V>
         return b.maxExtraTiers();
     }
 
+    @Override
+    public long reservedExtraTiers() {
+        return b.reservedExtraTiers();
+    }
+
     @Override
     public boolean aligned64BitMemoryOperationsAtomic() {
         return b.aligned64BitMemoryOperationsAtomic();
@@ -92,6 +101,16 @@ class ChronicleMapBuilderPrivateAPI<K, V>
         return b.checksumEntries();
     }
 
+    @Override
+    public ChecksumAlgorithm checksumAlgorithm() {
+        return b.checksumAlgorithm();
+    }
+
+    @Override
+    public void checksumAlgorithm(ChecksumAlgorithm checksumAlgorithm) {
+        b.checksumAlgorithm(checksumAlgorithm);
+    }
+
     @Override
     public void replication(byte identifier) {
         b.replication(identifier);
@@ -107,6 +126,42 @@ class ChronicleMapBuilderPrivateAPI<K, V>
         b.removedEntryCleanupTimeout(removedEntryCleanupTimeout, unit);
     }
 
+    @Override
+    public void cleanupExecutor(ScheduledExecutorService cleanupExecutor) {
+        b.cleanupExecutor(cleanupExecutor);
+    }
+
+    @Override
+    public void recoveryThreads(int recoveryThreads) {
+        b.recoveryThreads(recoveryThreads);
+    }
+
+    @Override
+    public void lazyRecovery(boolean lazyRecovery) {
+        b.lazyRecovery(lazyRecovery);
+    }
+
+    @Override
+    public void openersInSameProcessIdNamespace(boolean openersInSameProcessIdNamespace) {
+        b.openersInSameProcessIdNamespace(openersInSameProcessIdNamespace);
+    }
+
+    @Override
+    public void checksumScrubbing(long bytesPerSecond, CorruptEntryListener listener,
+                                  boolean quarantineCorruptEntries) {
+        b.checksumScrubbing(bytesPerSecond, listener, quarantineCorruptEntries);
+    }
+
+    @Override
+    public void timestampSource(TimestampSource timestampSource) {
+        b.timestampSource(timestampSource);
+    }
+
+    @Override
+    public void deltaReplication(boolean deltaReplication) {
+        b.deltaReplication(deltaReplication);
+    }
+
     @Override
     public void remoteOperations(MapRemoteOperations<K, V, ?> remoteOperations) {
         b.remoteOperations(remoteOperations);
@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import java.util.AbstractSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Spliterator;
 
 class ChronicleMapEntrySet<K, V> extends AbstractSet<Map.Entry<K, V>> {
 
@@ -36,6 +37,11 @@ class ChronicleMapEntrySet<K, V> extends AbstractSet<Map.Entry<K, V>> {
         return new ChronicleMapIterator.OfEntries<>(map);
     }
 
+    @Override
+    public Spliterator<Map.Entry<K, V>> spliterator() {
+        return new ChronicleMapSpliterator.OfEntries<>(map);
+    }
+
     public final boolean contains(Object o) {
         if (!(o instanceof Map.Entry))
             return false;
@@ -17,26 +17,53 @@
 
 package net.openhft.chronicle.map;
 
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
+import net.openhft.chronicle.map.impl.IterationContext;
+
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.function.Consumer;
 
 /**
- * Very inefficient (esp. if segments are large), but CORRECT implementation
+ * Iterator, which reads entries in batches of about {@link #batchSize} entries, holding the
+ * segment read lock only while reading a batch. Between batches, the position in the segment
+ * is remembered by a {@link SegmentCursor}, so memory consumption of the iterator is bounded by
+ * the batch size, rather than the segment size.
+ *
+ * <p>The iteration is weakly consistent: entries, inserted or removed during the iteration, may be
+ * or may be not observed, entries present in the map for the whole duration of the iteration are
+ * observed once, except a rare case of hash lookup slot clusters merging between batches, which
+ * may lead to skipping or observing twice an entry, shifted by a concurrent removal.
  */
 abstract class ChronicleMapIterator<K, V, E> implements Iterator<E>, Consumer<MapEntry<K, V>> {
 
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
     final AbstractChronicleMap<K, V> map;
+    private final int batchSize;
     private final Thread ownerThread = Thread.currentThread();
     private final Queue<E> entryBuffer = new ArrayDeque<>();
+    private final SegmentCursor cursor = new SegmentCursor();
     private int segmentIndex;
     E returned;
 
     ChronicleMapIterator(AbstractChronicleMap<K, V> map) {
+        this(map, DEFAULT_BATCH_SIZE);
+    }
+
+    ChronicleMapIterator(AbstractChronicleMap<K, V> map, int batchSize) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("batchSize should be positive, " + batchSize +
+                    " given");
         this.map = map;
+        this.batchSize = batchSize;
         segmentIndex = map.segments() - 1;
     }
 
@@ -50,20 +77,26 @@ abstract class ChronicleMapIterator<K, V, E> implements Iterator<E>, Consumer<Ma
     private void fillEntryBuffer() {
         if (!entryBuffer.isEmpty())
             return;
-        while (true) {
-            if (segmentIndex < 0)
-                return;
-
-            try (MapSegmentContext<K, V, ?> c = map.segmentContext(segmentIndex)) {
+        beforeFill();
+        while (segmentIndex >= 0) {
+            try (IterationContext<K, V, ?> c = map.iterationContext()) {
+                c.initSegmentIndex(segmentIndex);
+                if ((cursor.started() || c.size() != 0) &&
+                        c.forEachSegmentEntryBatch(cursor, batchSize, this)) {
+                    // the segment is not finished, the batch is full
+                    return;
+                }
                 segmentIndex--;
-                if (c.size() == 0)
-                    continue;
-                c.forEachSegmentEntry(this);
-                return;
+                cursor.reset();
             }
+            if (!entryBuffer.isEmpty())
+                return;
         }
     }
 
+    void beforeFill() {
+    }
+
     @Override
     public void accept(MapEntry<K, V> e) {
         entryBuffer.add(read(e));
@@ -134,4 +167,86 @@ abstract class ChronicleMapIterator<K, V, E> implements Iterator<E>, Consumer<Ma
             map.remove(returned);
         }
     }
+
+    /**
+     * Deserializes keys and values into a pool of reused instances, the entries (and their keys
+     * and values) are valid until the following {@link #hasNext()} or {@link #next()} call.
+     *
+     * @see ChronicleMap#reusingEntryIterator(int)
+     */
+    static class OfReusedEntries<K, V> extends ChronicleMapIterator<K, V, Entry<K, V>> {
+
+        private final List<ReusedEntry<K, V>> pool = new ArrayList<>();
+        private int nextPooled;
+
+        OfReusedEntries(AbstractChronicleMap<K, V> map, int batchSize) {
+            super(map, batchSize);
+        }
+
+        @Override
+        void beforeFill() {
+            nextPooled = 0;
+        }
+
+        private ReusedEntry<K, V> nextPooled() {
+            if (nextPooled == pool.size())
+                pool.add(new ReusedEntry<>());
+            return pool.get(nextPooled++);
+        }
+
+        @Override
+        Entry<K, V> read(MapEntry<K, V> entry) {
+            ReusedEntry<K, V> e = nextPooled();
+            // keep the returned entry intact, it is needed if remove() is called after hasNext()
+            if (e == returned)
+                e = nextPooled();
+            e.key = entry.key().getUsing(e.key);
+            e.value = entry.value().getUsing(e.value);
+            return e;
+        }
+
+        @Override
+        void removeReturned() {
+            map.remove(returned.getKey());
+        }
+    }
+
+    static final class ReusedEntry<K, V> implements Entry<K, V> {
+        K key;
+        V value;
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException(
+                    "Reused entries don't write through, use ChronicleMap.put()");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
 }
@@ -0,0 +1,200 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import java.util.ArrayDeque;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * {@code Spliterator} over a range of segments of a {@link ChronicleMap}. Splits by halving the
+ * segment range, so parallel streams process different segments concurrently, each task locking
+ * only the segment it currently traverses. Entries of a single segment at a time are copied
+ * into a buffer under the segment lock, and actions are applied to them after the lock is
+ * released, so actions may access the map freely.
+ *
+ * <p>Traversal is weakly consistent: each segment is observed in a consistent state at the time
+ * it is traversed, but modifications of other segments made during the traversal may be or may
+ * be not reflected.
+ */
+abstract class ChronicleMapSpliterator<K, V, E> implements Spliterator<E> {
+
+    final AbstractChronicleMap<K, V> map;
+    private int fromSegment;
+    private final int toSegment;
+    private long sizeEstimate;
+    private final Queue<E> entryBuffer = new ArrayDeque<>();
+
+    ChronicleMapSpliterator(AbstractChronicleMap<K, V> map) {
+        this(map, 0, map.segments(), map.longSize());
+    }
+
+    ChronicleMapSpliterator(
+            AbstractChronicleMap<K, V> map, int fromSegment, int toSegment, long sizeEstimate) {
+        this.map = map;
+        this.fromSegment = fromSegment;
+        this.toSegment = toSegment;
+        this.sizeEstimate = sizeEstimate;
+    }
+
+    abstract E read(MapEntry<K, V> entry);
+
+    abstract ChronicleMapSpliterator<K, V, E> newSpliterator(
+            int fromSegment, int toSegment, long sizeEstimate);
+
+    /**
+     * Copies entries of the next segment into {@link #entryBuffer} under the segment lock, so
+     * that actions are applied to them after the lock is released.
+     */
+    private void bufferNextSegment() {
+        try (MapSegmentContext<K, V, ?> c = map.segmentContext(fromSegment++)) {
+            c.forEachSegmentEntry(e -> entryBuffer.add(read(e)));
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        while (entryBuffer.isEmpty()) {
+            if (fromSegment >= toSegment)
+                return false;
+            bufferNextSegment();
+        }
+        action.accept(entryBuffer.poll());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+        while (true) {
+            E e;
+            while ((e = entryBuffer.poll()) != null) {
+                action.accept(e);
+            }
+            if (fromSegment >= toSegment)
+                return;
+            bufferNextSegment();
+        }
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        int segmentsLeft = toSegment - fromSegment;
+        if (segmentsLeft < 2)
+            return null;
+        int middle = fromSegment + segmentsLeft / 2;
+        long prefixSizeEstimate = sizeEstimate / 2;
+        ChronicleMapSpliterator<K, V, E> prefix =
+                newSpliterator(fromSegment, middle, prefixSizeEstimate);
+        fromSegment = middle;
+        sizeEstimate -= prefixSizeEstimate;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return sizeEstimate;
+    }
+
+    /**
+     * Doesn't report {@link #SIZED}, because it's incompatible with {@link #CONCURRENT}, see
+     * {@link Spliterator} specification.
+     */
+    @Override
+    public int characteristics() {
+        return CONCURRENT | DISTINCT | NONNULL;
+    }
+
+    static class OfEntries<K, V> extends ChronicleMapSpliterator<K, V, Entry<K, V>> {
+
+        OfEntries(AbstractChronicleMap<K, V> map) {
+            super(map);
+        }
+
+        private OfEntries(AbstractChronicleMap<K, V> map, int fromSegment, int toSegment,
+                          long sizeEstimate) {
+            super(map, fromSegment, toSegment, sizeEstimate);
+        }
+
+        @Override
+        Entry<K, V> read(MapEntry<K, V> entry) {
+            K key = entry.key().getUsing(null);
+            V value = entry.value().getUsing(null);
+            return new WriteThroughEntry<>(map, key, value);
+        }
+
+        @Override
+        ChronicleMapSpliterator<K, V, Entry<K, V>> newSpliterator(
+                int fromSegment, int toSegment, long sizeEstimate) {
+            return new OfEntries<>(map, fromSegment, toSegment, sizeEstimate);
+        }
+    }
+
+    static class OfKeys<K, V> extends ChronicleMapSpliterator<K, V, K> {
+
+        OfKeys(AbstractChronicleMap<K, V> map) {
+            super(map);
+        }
+
+        private OfKeys(AbstractChronicleMap<K, V> map, int fromSegment, int toSegment,
+                       long sizeEstimate) {
+            super(map, fromSegment, toSegment, sizeEstimate);
+        }
+
+        @Override
+        K read(MapEntry<K, V> entry) {
+            return entry.key().getUsing(null);
+        }
+
+        @Override
+        ChronicleMapSpliterator<K, V, K> newSpliterator(
+                int fromSegment, int toSegment, long sizeEstimate) {
+            return new OfKeys<>(map, fromSegment, toSegment, sizeEstimate);
+        }
+    }
+
+    static class OfValues<K, V> extends ChronicleMapSpliterator<K, V, V> {
+
+        OfValues(AbstractChronicleMap<K, V> map) {
+            super(map);
+        }
+
+        private OfValues(AbstractChronicleMap<K, V> map, int fromSegment, int toSegment,
+                         long sizeEstimate) {
+            super(map, fromSegment, toSegment, sizeEstimate);
+        }
+
+        @Override
+        V read(MapEntry<K, V> entry) {
+            return entry.value().getUsing(null);
+        }
+
+        /** Values are not distinct */
+        @Override
+        public int characteristics() {
+            return CONCURRENT | NONNULL;
+        }
+
+        @Override
+        ChronicleMapSpliterator<K, V, V> newSpliterator(
+                int fromSegment, int toSegment, long sizeEstimate) {
+            return new OfValues<>(map, fromSegment, toSegment, sizeEstimate);
+        }
+    }
+}
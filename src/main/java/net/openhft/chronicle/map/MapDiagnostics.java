@@ -17,17 +17,82 @@
 
 package net.openhft.chronicle.map;
 
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
+import net.openhft.chronicle.map.impl.IterationContext;
+
 import java.io.File;
 import java.io.IOException;
 
 public final class MapDiagnostics {
 
+    /**
+     * The headroom of the number of entries, for which the geometry is recommended by default,
+     * over the current number of entries in the map
+     */
+    static final double DEFAULT_ENTRIES_HEADROOM = 1.25;
+    /**
+     * The number of entries, visited under a single acquisition of a segment read lock during
+     * {@link #analyzeGeometry(ChronicleMap, long)}
+     */
+    static final int ENTRIES_PER_BATCH = 1024;
+
+    /**
+     * Usage: {@code MapDiagnostics <map file> [--advise [expected entries]]}. Without {@code
+     * --advise}, prints all entries of the map by segments, with {@code --advise}, prints the
+     * {@linkplain #analyzeGeometry(ChronicleMap, long) geometry analysis} of the map.
+     */
     public static void main(String[] args) throws IOException {
         String mapFile = args[0];
         try (ChronicleMap map = ChronicleMap.of(Object.class, Object.class)
                 .createPersistedTo(new File(mapFile))) {
-            printMapStats(map);
+            if (args.length > 1 && args[1].equals("--advise")) {
+                long expectedEntries = args.length > 2 ? Long.parseLong(args[2]) :
+                        defaultExpectedEntries(map);
+                System.out.print(analyzeGeometry(map, expectedEntries));
+            } else {
+                printMapStats(map);
+            }
+        }
+    }
+
+    private static long defaultExpectedEntries(ChronicleMap<?, ?> map) {
+        return Math.max(1L, (long) Math.ceil(map.longSize() * DEFAULT_ENTRIES_HEADROOM));
+    }
+
+    /**
+     * Analyzes the occupancy of the given map and recommends the geometry configuration for the
+     * map with the observed distribution of entry sizes, and the given number of entries. See
+     * {@link MapGeometryReport} for details.
+     *
+     * <p>The map is scanned in batches of entries under segment read locks, so concurrent reads
+     * and updates of the map (including in other processes, if the map is persisted) are blocked
+     * only for short periods. The analysis is a snapshot neither of the whole map, nor of any
+     * segment.
+     *
+     * @param map the map to analyze, typically opened with {@code ChronicleMap.of(Object.class,
+     * Object.class).createPersistedTo(file)} alongside the production process
+     * @param expectedEntries the number of entries the recommended configuration is sized for
+     * @return the report of the occupancy and the recommended configuration of the map
+     */
+    public static <K, V> MapGeometryReport<K, V> analyzeGeometry(
+            ChronicleMap<K, V> map, long expectedEntries) {
+        VanillaChronicleMap<K, V, ?> m = (VanillaChronicleMap<K, V, ?>) map;
+        MapGeometryReport<K, V> report = new MapGeometryReport<>(m);
+        SegmentCursor cursor = new SegmentCursor();
+        for (int segmentIndex = 0; segmentIndex < m.segments(); segmentIndex++) {
+            cursor.reset();
+            boolean moreEntries = true;
+            while (moreEntries) {
+                try (IterationContext<K, V, ?> c = m.iterationContext()) {
+                    c.initSegmentIndex(segmentIndex);
+                    moreEntries = c.forEachSegmentEntryBatch(cursor, ENTRIES_PER_BATCH,
+                            e -> report.accept(cursor.tier, e));
+                }
+            }
+            report.segmentIterated(cursor.tier + 1);
         }
+        report.recommend(expectedEntries);
+        return report;
     }
 
     public static <K, V> void printMapStats(ChronicleMap<K, V> map) {
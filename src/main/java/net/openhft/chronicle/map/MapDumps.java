@@ -0,0 +1,87 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.Data;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Routines shared by {@link BinaryMapDump} and {@link YamlMapDump}.
+ */
+final class MapDumps {
+
+    static final int TRANSFER_BUFFER_SIZE = 1 << 16;
+
+    private MapDumps() {}
+
+    /**
+     * Opens a buffered stream to write to the file, compressed with GZIP, if the file name ends
+     * with ".gz".
+     */
+    static OutputStream openOutput(File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file),
+                TRANSFER_BUFFER_SIZE);
+        return file.getName().toLowerCase().endsWith(".gz") ?
+                new GZIPOutputStream(out, TRANSFER_BUFFER_SIZE) : out;
+    }
+
+    /**
+     * Opens a buffered stream to read from the file, decompressed with GZIP, if the file name
+     * ends with ".gz".
+     */
+    static InputStream openInput(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), TRANSFER_BUFFER_SIZE);
+        return file.getName().toLowerCase().endsWith(".gz") ?
+                new GZIPInputStream(in, TRANSFER_BUFFER_SIZE) : in;
+    }
+
+    /**
+     * Checks that entries of the exported map with the given key and value classes could be
+     * imported into the given map.
+     *
+     * @throws IllegalArgumentException if the key or the value class of the given map is not
+     * a supertype of the respective class of the exported map
+     */
+    static void checkImportable(
+            Class<?> keyClass, Class<?> valueClass, VanillaChronicleMap<?, ?, ?> map) {
+        if (!map.keyClass.isAssignableFrom(keyClass) ||
+                !map.valueClass.isAssignableFrom(valueClass)) {
+            throw new IllegalArgumentException("Entries of " + keyClass + " -> " +
+                    valueClass + " map couldn't be imported into " + map.keyClass + " -> " +
+                    map.valueClass + " map");
+        }
+    }
+
+    /**
+     * Puts the value for the key of the given context, without deserialization of the previous
+     * value.
+     */
+    static <K, V> void put(ExternalMapQueryContext<K, V, ?> c, Data<V> value) {
+        c.writeLock().lock();
+        MapEntry<K, V> entry = c.entry();
+        if (entry != null) {
+            c.replaceValue(entry, value);
+        } else {
+            c.insert(c.absentEntry(), value);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 package net.openhft.chronicle.map;
 
+import net.openhft.chronicle.bytes.RandomDataInput;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.HashEntry;
 import org.jetbrains.annotations.NotNull;
@@ -52,6 +53,36 @@ public interface MapEntry<K, V> extends HashEntry<K> {
      */
     void doReplaceValue(Data<V> newValue);
 
+    /**
+     * Overwrites a part of the entry's value in place: {@code length} bytes starting from {@code
+     * offsetInValue} from the start of the {@linkplain #value() value} bytes are replaced with
+     * {@code length} bytes from the {@code source}, starting from {@code sourceOffset}. The value
+     * size is not changed.
+     *
+     * <p>This is the way to update fixed-size fields of flat values (e. g. {@link
+     * net.openhft.chronicle.bytes.BytesMarshallable} or Chronicle Values interfaces), which
+     * offsets within the value are known, without serialization of the whole new value, like
+     * {@link #doReplaceValue(Data)} does. Fields of such values could be read without
+     * deserialization of the whole value in the same way, from {@code value().bytes()} at
+     * {@code value().offset() + fieldOffset}.
+     *
+     * <p>This method acquires the update lock (if not held yet), and the write lock for the
+     * duration of the write, like {@link #doReplaceValue(Data)}. The entry checksum and
+     * replication state (if the map is replicated) are updated. Unlike {@link
+     * #doReplaceValue(Data)}, this method is not routed through {@link MapEntryOperations}.
+     *
+     * @param offsetInValue the offset within the value bytes to write at
+     * @param source the bytes to write
+     * @param sourceOffset the offset in the {@code source} to copy the bytes from
+     * @param length the number of bytes to write
+     * @throws IndexOutOfBoundsException if {@code offsetInValue} or {@code length} is negative,
+     * or {@code offsetInValue + length} is greater than the value size
+     * @throws IllegalStateException if some locking/state conditions required to perform the
+     * update are not met
+     */
+    void doUpdateValueBytes(long offsetInValue, RandomDataInput source, long sourceOffset,
+                            long length);
+
     /**
      * Removes the entry from the map.
      * 
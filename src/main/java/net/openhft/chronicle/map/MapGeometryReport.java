@@ -0,0 +1,358 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.impl.stage.entry.ChecksumStrategy;
+import net.openhft.chronicle.hash.impl.util.math.PoissonDistribution;
+
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The occupancy of an existing Chronicle Map: sizes of keys and values, utilization of chunks
+ * and segment tiers, lengths of the chains of segment tiers and loads of hash lookups, with the
+ * expected cost of key lookups, and the geometry configuration of {@link ChronicleMapBuilder},
+ * recommended for the map with the observed entries, with its projected memory footprint and
+ * lookup cost. Produced by {@link MapDiagnostics#analyzeGeometry(ChronicleMap, long)}.
+ *
+ * <p>Lookup costs are expected numbers of probed hash lookup slots per lookup, assuming uniform
+ * key hashes and linear probing: {@code (1 + 1 / (1 - load)) / 2} slots for a key, present in a
+ * tier, {@code (1 + 1 / (1 - load)^2) / 2} for a key, absent in a tier. A lookup probes the tiers
+ * of the segment one by one until the key is found, an absent key is looked up in all tiers.
+ *
+ * @param <K> the key type of the analyzed map
+ * @param <V> the value type of the analyzed map
+ */
+public final class MapGeometryReport<K, V> {
+
+    /** Max number of entries, kept in memory to size the recommended configuration from */
+    static final int SAMPLE_SIZE = 10_000;
+    private static final double MAX_LOAD = 0.99;
+
+    private final VanillaChronicleMap<K, V, ?> map;
+    private final long entryOverhead;
+
+    private final long[] keySizeHistogram = new long[65];
+    private final long[] valueSizeHistogram = new long[65];
+    private long entries;
+    private long payloadBytes;
+    private long usedChunks;
+
+    private long[] segmentTierEntries = new long[1];
+    private long[] segmentsByTiers = new long[1];
+    private long tiers;
+    private double maxHashLookupLoad;
+    private double presentKeyProbes;
+    private double absentKeyProbes;
+
+    private final List<Map.Entry<K, V>> sample = new ArrayList<>();
+
+    private long expectedEntries;
+    private ChronicleMapBuilder<K, V> recommendedBuilder;
+    private long projectedMemory;
+    private double projectedSegmentTieringProbability;
+    private double projectedPresentKeyProbes;
+    private double projectedAbsentKeyProbes;
+
+    MapGeometryReport(VanillaChronicleMap<K, V, ?> map) {
+        this.map = map;
+        entryOverhead = (map instanceof ReplicatedChronicleMap ?
+                ReplicatedChronicleMap.ADDITIONAL_ENTRY_BYTES : 0) +
+                (map.checksumEntries ? ChecksumStrategy.CHECKSUM_STORED_BYTES : 0);
+    }
+
+    void accept(int tier, MapEntry<K, V> e) {
+        long keySize = e.key().size();
+        long valueSize = e.value().size();
+        keySizeHistogram[sizeClass(keySize)]++;
+        valueSizeHistogram[sizeClass(valueSize)]++;
+        long entrySize = map.keySizeMarshaller.storingLength(keySize) + keySize +
+                map.valueSizeMarshaller.storingLength(valueSize) + valueSize + entryOverhead;
+        payloadBytes += entrySize;
+        usedChunks += map.constantlySizedEntry ? 1 : map.inChunks(entrySize + map.worstAlignment);
+        if (tier >= segmentTierEntries.length)
+            segmentTierEntries = Arrays.copyOf(segmentTierEntries, tier + 1);
+        segmentTierEntries[tier]++;
+
+        // reservoir sampling
+        entries++;
+        if (sample.size() < SAMPLE_SIZE) {
+            sample.add(new SimpleImmutableEntry<>(
+                    e.key().getUsing(null), e.value().getUsing(null)));
+        } else {
+            long i = ThreadLocalRandom.current().nextLong(entries);
+            if (i < SAMPLE_SIZE) {
+                sample.set((int) i, new SimpleImmutableEntry<>(
+                        e.key().getUsing(null), e.value().getUsing(null)));
+            }
+        }
+    }
+
+    void segmentIterated(int segmentTiers) {
+        tiers += segmentTiers;
+        if (segmentTiers > segmentsByTiers.length)
+            segmentsByTiers = Arrays.copyOf(segmentsByTiers, segmentTiers);
+        segmentsByTiers[segmentTiers - 1]++;
+        if (segmentTiers > segmentTierEntries.length)
+            segmentTierEntries = Arrays.copyOf(segmentTierEntries, segmentTiers);
+        double precedingTiersProbes = 0;
+        for (int tier = 0; tier < segmentTiers; tier++) {
+            double load = segmentTierEntries[tier] * 1.0 / map.tierHashLookupCapacity;
+            maxHashLookupLoad = Math.max(maxHashLookupLoad, load);
+            presentKeyProbes +=
+                    segmentTierEntries[tier] * (precedingTiersProbes + presentKeyProbes(load));
+            precedingTiersProbes += absentKeyProbes(load);
+        }
+        absentKeyProbes += precedingTiersProbes;
+        Arrays.fill(segmentTierEntries, 0);
+    }
+
+    void recommend(long expectedEntries) {
+        this.expectedEntries = expectedEntries;
+        if (sample.isEmpty())
+            return;
+        ChronicleMapBuilder<K, V> builder = ChronicleMapBuilder.of(map.keyClass, map.valueClass)
+                .keySizeMarshaller(map.keySizeMarshaller)
+                .keyReaderAndDataAccess(map.keyReader, map.keyDataAccess)
+                .valueSizeMarshaller(map.valueSizeMarshaller)
+                .valueReaderAndDataAccess(map.valueReader, map.valueDataAccess)
+                .checksumEntries(map.checksumEntries);
+        if (map.alignment > 1)
+            builder.entryAndValueOffsetAlignment(map.alignment);
+        builder.sizeFromSample(sample, expectedEntries);
+
+        VanillaChronicleMap<K, V, ?> projected;
+        try {
+            projected = builder.newUnmappedMap();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        int segments = projected.actualSegments;
+        double averageEntriesPerSegment = expectedEntries * 1.0 / segments;
+        long entriesPerSegment = builder.entriesPerSegment();
+        projectedSegmentTieringProbability = segments == 1 ? 0.0 :
+                1.0 - PoissonDistribution.cumulativeProbability(
+                        averageEntriesPerSegment, entriesPerSegment);
+        // extra tiers are allocated in bulks
+        double extraTiers = segments * projectedSegmentTieringProbability;
+        long extraTierBulks = (long) Math.ceil(extraTiers / projected.tiersInBulk);
+        projectedMemory = projected.sizeInBytesWithoutTiers() +
+                extraTierBulks * projected.tiersInBulk * projected.tierSize;
+        double load = Math.min(averageEntriesPerSegment, entriesPerSegment) /
+                projected.tierHashLookupCapacity;
+        projectedPresentKeyProbes = presentKeyProbes(load);
+        projectedAbsentKeyProbes = absentKeyProbes(load);
+        recommendedBuilder = builder;
+    }
+
+    private static int sizeClass(long size) {
+        return 64 - Long.numberOfLeadingZeros(size);
+    }
+
+    private static double presentKeyProbes(double load) {
+        load = Math.min(load, MAX_LOAD);
+        return (1.0 + 1.0 / (1.0 - load)) / 2.0;
+    }
+
+    private static double absentKeyProbes(double load) {
+        load = Math.min(load, MAX_LOAD);
+        return (1.0 + 1.0 / ((1.0 - load) * (1.0 - load))) / 2.0;
+    }
+
+    /**
+     * Returns the number of present entries in the analyzed map.
+     */
+    public long entries() {
+        return entries;
+    }
+
+    /**
+     * Returns the histogram of serialized key sizes: element {@code 0} is the number of keys of 0
+     * bytes, element {@code i > 0} is the number of keys of [2^(i-1), 2^i) bytes.
+     */
+    public long[] keySizeHistogram() {
+        return keySizeHistogram.clone();
+    }
+
+    /**
+     * Returns the histogram of serialized value sizes, in the format of {@link
+     * #keySizeHistogram()}.
+     */
+    public long[] valueSizeHistogram() {
+        return valueSizeHistogram.clone();
+    }
+
+    /**
+     * Returns the numbers of segments by the number of tiers in them: element {@code i} is the
+     * number of segments of {@code i + 1} tiers.
+     */
+    public long[] segmentsByTiers() {
+        return segmentsByTiers.clone();
+    }
+
+    /**
+     * Returns the share of the bytes of the allocated chunks, taken by the entries' data, the rest
+     * is lost to the internal fragmentation and alignment.
+     */
+    public double chunkUtilization() {
+        return usedChunks == 0 ? 0.0 : payloadBytes * 1.0 / (usedChunks * map.chunkSize);
+    }
+
+    /**
+     * Returns the share of the chunks of all segment tiers, allocated by entries.
+     */
+    public double tierSpaceUtilization() {
+        return usedChunks * 1.0 / (tiers * map.actualChunksPerSegmentTier);
+    }
+
+    /**
+     * Returns the average load of the hash lookups of segment tiers.
+     */
+    public double averageHashLookupLoad() {
+        return entries * 1.0 / (tiers * map.tierHashLookupCapacity);
+    }
+
+    /**
+     * Returns the max load of a hash lookup of a segment tier.
+     */
+    public double maxHashLookupLoad() {
+        return maxHashLookupLoad;
+    }
+
+    /**
+     * Returns the number of bytes, allocated by the analyzed map, including the allocated extra
+     * tiers.
+     */
+    public long memory() {
+        return map.dataStoreSize();
+    }
+
+    /**
+     * Returns the expected number of hash lookup slots, probed to find a key, present in the map.
+     */
+    public double presentKeyProbes() {
+        return entries == 0 ? 0.0 : presentKeyProbes / entries;
+    }
+
+    /**
+     * Returns the expected number of hash lookup slots, probed to find out that a key is absent in
+     * the map.
+     */
+    public double absentKeyProbes() {
+        return absentKeyProbes / map.actualSegments;
+    }
+
+    /**
+     * Returns the number of entries, the recommended configuration is sized for.
+     */
+    public long expectedEntries() {
+        return expectedEntries;
+    }
+
+    /**
+     * Returns the builder with the recommended configuration, which could be further configured
+     * and used to create a new map, or {@code null} if the analyzed map is empty.
+     */
+    public ChronicleMapBuilder<K, V> recommendedBuilder() {
+        return recommendedBuilder != null ? recommendedBuilder.clone() : null;
+    }
+
+    /**
+     * Returns the projected memory footprint of a map of {@link #expectedEntries()} entries,
+     * created with the {@linkplain #recommendedBuilder() recommended configuration}, including
+     * extra tiers, expected to be allocated.
+     */
+    public long projectedMemory() {
+        return projectedMemory;
+    }
+
+    /**
+     * Returns the probability of a segment of a map, created with the {@linkplain
+     * #recommendedBuilder() recommended configuration}, to allocate an extra tier.
+     */
+    public double projectedSegmentTieringProbability() {
+        return projectedSegmentTieringProbability;
+    }
+
+    /**
+     * Returns the expected number of hash lookup slots, probed to find a present key in a map,
+     * created with the {@linkplain #recommendedBuilder() recommended configuration}.
+     */
+    public double projectedPresentKeyProbes() {
+        return projectedPresentKeyProbes;
+    }
+
+    /**
+     * Returns the expected number of hash lookup slots, probed to find out that a key is absent in
+     * a map, created with the {@linkplain #recommendedBuilder() recommended configuration}.
+     */
+    public double projectedAbsentKeyProbes() {
+        return projectedAbsentKeyProbes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        Object mapName = map.file() != null ? map.file() : "in-memory map";
+        sb.append(String.format("%s: %d entries, %d segments, %d tiers, chunk size %d%n",
+                mapName, entries, map.actualSegments, tiers, map.chunkSize));
+        sb.append("Key sizes:\n");
+        appendHistogram(sb, keySizeHistogram);
+        sb.append("Value sizes:\n");
+        appendHistogram(sb, valueSizeHistogram);
+        sb.append(String.format("Chunk utilization: %.1f%%, tier space utilization: %.1f%%%n",
+                chunkUtilization() * 100, tierSpaceUtilization() * 100));
+        sb.append("Segments by tiers:\n");
+        for (int i = 0; i < segmentsByTiers.length; i++) {
+            if (segmentsByTiers[i] > 0)
+                sb.append(String.format("  %d: %d%n", i + 1, segmentsByTiers[i]));
+        }
+        sb.append(String.format("Hash lookup load: average %.3f, max %.3f%n",
+                averageHashLookupLoad(), maxHashLookupLoad));
+        sb.append(String.format("Memory: %d bytes, probes per lookup: present key %.2f, " +
+                "absent key %.2f%n", memory(), presentKeyProbes(), absentKeyProbes()));
+        if (recommendedBuilder == null) {
+            sb.append("The map is empty, no configuration to recommend\n");
+            return sb.toString();
+        }
+        sb.append("Recommended configuration, sized from ").append(sample.size())
+                .append(" sampled entries:\n");
+        sb.append(recommendedBuilder.geometryConfigurationAsCode()).append('\n');
+        sb.append(String.format("Projected memory: %d bytes, probability of a segment to be " +
+                        "tiered: %.2e, probes per lookup: present key %.2f, absent key %.2f%n",
+                projectedMemory, projectedSegmentTieringProbability, projectedPresentKeyProbes,
+                projectedAbsentKeyProbes));
+        return sb.toString();
+    }
+
+    private void appendHistogram(StringBuilder sb, long[] histogram) {
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0)
+                continue;
+            long from = i == 0 ? 0 : 1L << (i - 1);
+            String to = i == 0 ? "0" : i == 64 ? "inf" : String.valueOf((1L << i) - 1);
+            sb.append(String.format("  [%d, %s] bytes: %d (%.1f%%)%n",
+                    from, to, histogram[i], histogram[i] * 100.0 / entries));
+        }
+    }
+}
@@ -18,147 +18,249 @@
 package net.openhft.chronicle.map;
 
 import net.openhft.chronicle.core.io.Closeable;
-import net.openhft.chronicle.hash.ReplicatedHashSegmentContext;
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
 import net.openhft.chronicle.hash.replication.ReplicableEntry;
+import net.openhft.chronicle.map.impl.ReplicatedIterationContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
 import java.util.function.Predicate;
 
-import static net.openhft.chronicle.hash.replication.TimeProvider.currentTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static net.openhft.chronicle.hash.replication.TimeProvider.systemTimeIntervalBetween;
 
+/**
+ * Removes completely deleted entries of the replicated map, which are older than {@link
+ * ReplicatedChronicleMap#cleanupTimeout}, and are already replicated to all remote nodes.
+ *
+ * <p>The cleanup is performed in rounds. In each round, only segments, which have deleted entries
+ * according to the tier counters, are visited, in the descending order of the number of deleted
+ * entries. Each segment is visited in batches of {@link #ENTRIES_PER_LOCK_HOLD} entries, the
+ * segment update lock is released between batches. The next round starts, when the earliest of
+ * the deleted entries, which were too young to be removed in the current round, reaches the
+ * timeout, or in the cleanup timeout, if there were no such entries.
+ *
+ * <p>Rounds are run either in a loop in a dedicated thread (see {@link #run()}), or as tasks,
+ * scheduled in a shared executor (see {@link #scheduleOn(ScheduledExecutorService)}).
+ */
 class OldDeletedEntriesCleanup implements Runnable, Closeable, Predicate<ReplicableEntry> {
     private static final Logger LOG = LoggerFactory.getLogger(OldDeletedEntriesCleanup.class);
 
+    /**
+     * The number of entries, visited under a single segment update lock hold. Bounds the time
+     * other threads could wait for the update lock because of the cleanup.
+     */
+    static final int ENTRIES_PER_LOCK_HOLD = 1024;
+    private static final long MIN_ROUND_INTERVAL_NANOS = MILLISECONDS.toNanos(1);
+
     private final ReplicatedChronicleMap<?, ?, ?> map;
-    private final int[] segmentsPermutation;
-    private final int[] inverseSegmentsPermutation;
+    private final SegmentCursor cursor = new SegmentCursor();
+    /**
+     * Held for the duration of a round, close() acquires it to wait until the round, running
+     * concurrently, is interrupted
+     */
+    private final Object roundLock = new Object();
     private volatile boolean shutdown;
     private volatile Thread runnerThread;
-    private long prevSegment0ScanStart = -1;
-    private long removedCompletely;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> nextRound;
+
+    // State of the current round
+    private long roundTime;
+    private long removableAgeNanos;
+    private long nextExpiryNanos;
+
+    // Metrics
+    private volatile long removedCompletely;
+    private volatile long roundsNanos;
+    private volatile long lastRoundNanos;
+    private volatile long lastRoundRemoved;
 
     public OldDeletedEntriesCleanup(ReplicatedChronicleMap<?, ?, ?> map) {
         this.map = map;
-        segmentsPermutation = randomPermutation(map.segments());
-        inverseSegmentsPermutation = inversePermutation(segmentsPermutation);
     }
 
+    /**
+     * Runs cleanup rounds in the current thread, until {@link #close()}d.
+     */
     @Override
     public void run() {
         runnerThread = Thread.currentThread();
         while (!shutdown) {
-            int segmentIndex = map.globalMutableState().getCurrentCleanupSegmentIndex();
-            int nextSegmentIndex;
-            try (MapSegmentContext<?, ?, ?> context = map.segmentContext(segmentIndex)) {
-                if (segmentIndex == 0)
-                    prevSegment0ScanStart = currentTime();
-                removedCompletely = 0;
-                if (((ReplicatedHashSegmentContext<?, ?>) context)
-                        .forEachSegmentReplicableEntryWhile(this)) {
-                    LOG.debug("Removed {} old deleted entries in the segment {}",
-                            removedCompletely, segmentIndex);
-                    nextSegmentIndex = nextSegmentIndex(segmentIndex);
-                    map.globalMutableState().setCurrentCleanupSegmentIndex(nextSegmentIndex);
-                } else {
-                    // forEachWhile returned false => interrupted => shutdown = true
-                    assert shutdown;
-                    return;
+            sleepNanos(runRound());
+        }
+    }
+
+    /**
+     * Schedules cleanup rounds in the given executor, shared with other tasks, until {@link
+     * #close()}d. Each round schedules the next one.
+     */
+    void scheduleOn(ScheduledExecutorService executor) {
+        synchronized (roundLock) {
+            this.executor = executor;
+            nextRound = executor.schedule(this::runScheduledRound, 0, NANOSECONDS);
+        }
+    }
+
+    private void runScheduledRound() {
+        synchronized (roundLock) {
+            long delayNanos = runRound();
+            if (shutdown)
+                return;
+            try {
+                nextRound = executor.schedule(this::runScheduledRound, delayNanos, NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Cleanup of map persisted at {} is stopped, because the executor " +
+                        "rejected the next round", map.file(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the delay before the next round, in nanoseconds
+     */
+    private long runRound() {
+        synchronized (roundLock) {
+            long cleanupTimeoutNanos = map.cleanupTimeoutUnit.toNanos(map.cleanupTimeout);
+            if (shutdown)
+                return cleanupTimeoutNanos;
+            long roundStart = System.nanoTime();
+            long removedBeforeRound = removedCompletely;
+            roundTime = map.timestampSource.currentTime();
+            // test() removes an entry, if its age in cleanupTimeoutUnit is greater than
+            // cleanupTimeout, i. e. the age is at least cleanupTimeout + 1 whole units
+            removableAgeNanos = map.cleanupTimeoutUnit.toNanos(map.cleanupTimeout + 1);
+            nextExpiryNanos = cleanupTimeoutNanos;
+            try {
+                for (int segmentIndex : segmentsByDeletedEntries()) {
+                    if (!cleanupSegment(segmentIndex))
+                        break;
                 }
+            } catch (RuntimeException e) {
+                LOG.error("Error while cleaning up old deleted entries", e);
+                nextExpiryNanos = cleanupTimeoutNanos;
             }
-            if (nextSegmentIndex == 0) {
-                long currentTime = currentTime();
-                TimeUnit cleanupTimeoutUnit = map.cleanupTimeoutUnit;
-                long mapScanTime = systemTimeIntervalBetween(
-                        prevSegment0ScanStart, currentTime, cleanupTimeoutUnit);
-                LOG.debug("Old deleted entries scan time: {} {}", mapScanTime, cleanupTimeoutUnit);
-                long cleanupTimeout = map.cleanupTimeout;
-                if (mapScanTime < cleanupTimeout) {
-                    long timeToSleep = cleanupTimeoutUnit.toMillis(cleanupTimeout - mapScanTime);
-                    if (timeToSleep > 0) {
-                        sleepMillis(timeToSleep);
-                    } else {
-                        sleepNanos(cleanupTimeoutUnit.toNanos(cleanupTimeout - mapScanTime));
-                    }
+            long roundNanos = System.nanoTime() - roundStart;
+            lastRoundNanos = roundNanos;
+            roundsNanos += roundNanos;
+            lastRoundRemoved = removedCompletely - removedBeforeRound;
+            LOG.debug("Removed {} old deleted entries in {} ns, next round in {} ns",
+                    lastRoundRemoved, roundNanos, nextExpiryNanos);
+            return Math.max(nextExpiryNanos, MIN_ROUND_INTERVAL_NANOS);
+        }
+    }
+
+    /**
+     * @return {@code false} if the cleanup is interrupted by {@link #close()}
+     */
+    private boolean cleanupSegment(int segmentIndex) {
+        cursor.reset();
+        while (true) {
+            if (shutdown)
+                return false;
+            try (ReplicatedIterationContext<?, ?, ?> c = map.iterationContext()) {
+                c.initSegmentIndex(segmentIndex);
+                if (!c.forEachSegmentReplicableEntryBatchWhile(
+                        cursor, ENTRIES_PER_LOCK_HOLD, this)) {
+                    return true;
                 }
             }
         }
     }
 
+    /**
+     * Returns indexes of segments, having deleted entries, in the descending order of the number
+     * of deleted entries in them.
+     */
+    private int[] segmentsByDeletedEntries() {
+        int segments = map.segments();
+        long[] deletedAndIndex = new long[segments];
+        int n = 0;
+        for (int i = 0; i < segments; i++) {
+            long deleted = Math.min(map.segmentDeletedEntries(i), Integer.MAX_VALUE);
+            if (deleted > 0)
+                deletedAndIndex[n++] = (deleted << 32) | i;
+        }
+        Arrays.sort(deletedAndIndex, 0, n);
+        int[] segmentIndexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            segmentIndexes[i] = (int) deletedAndIndex[n - 1 - i];
+        }
+        return segmentIndexes;
+    }
+
     @Override
     public boolean test(ReplicableEntry e) {
         if (shutdown)
             return false;
         if (e instanceof MapAbsentEntry) {
             long deleteTimeout = systemTimeIntervalBetween(
-                    e.originTimestamp(), currentTime(), map.cleanupTimeoutUnit);
-            if (deleteTimeout > map.cleanupTimeout && !e.isChanged()) {
-                e.doRemoveCompletely();
-                removedCompletely++;
+                    e.originTimestamp(), map.timestampSource.currentTime(),
+                    map.cleanupTimeoutUnit);
+            if (deleteTimeout > map.cleanupTimeout) {
+                if (!e.isChanged()) {
+                    e.doRemoveCompletely();
+                    removedCompletely++;
+                }
+            } else {
+                long ageNanos = systemTimeIntervalBetween(
+                        e.originTimestamp(), roundTime, NANOSECONDS);
+                nextExpiryNanos = Math.min(nextExpiryNanos, removableAgeNanos - ageNanos);
             }
         }
         return true;
     }
 
-    private void sleepMillis(long millis) {
-        long deadline = System.currentTimeMillis() + millis;
-        while (System.currentTimeMillis() < deadline && !shutdown)
-            LockSupport.parkUntil(this, deadline);
+    /**
+     * Returns the total number of deleted entries, removed completely by this cleanup.
+     */
+    long removedCompletely() {
+        return removedCompletely;
+    }
+
+    /**
+     * Returns the number of deleted entries, removed completely per second of the cleanup rounds
+     * duration, on average since the cleanup is started.
+     */
+    double throughput() {
+        long roundsNanos = this.roundsNanos;
+        return roundsNanos != 0 ?
+                removedCompletely * (double) TimeUnit.SECONDS.toNanos(1) / roundsNanos : 0.0;
+    }
+
+    long lastRoundNanos() {
+        return lastRoundNanos;
+    }
+
+    long lastRoundRemoved() {
+        return lastRoundRemoved;
     }
 
     private void sleepNanos(long nanos) {
         long deadline = System.nanoTime() + nanos;
-        while (System.nanoTime() < deadline && !shutdown)
-            LockSupport.parkNanos(this, deadline);
+        long toSleep;
+        while ((toSleep = deadline - System.nanoTime()) > 0 && !shutdown)
+            LockSupport.parkNanos(this, toSleep);
     }
 
     @Override
     public void close() {
         shutdown = true;
         if (runnerThread != null &&
-                // this means blocked in sleepMillis() or sleepNanos()
+                // this means blocked in sleepNanos()
                 LockSupport.getBlocker(runnerThread) == this) {
             runnerThread.interrupt(); // unblock
         }
-    }
-
-    private int nextSegmentIndex(int segmentIndex) {
-        int permutationIndex = inverseSegmentsPermutation[segmentIndex];
-        int nextPermutationIndex = (permutationIndex + 1) % map.segments();
-        return segmentsPermutation[nextPermutationIndex];
-    }
-
-    private static int[] randomPermutation(int n) {
-        int[] a = new int[n];
-        for (int i = 0; i < n; i++) {
-            a[i] = i;
-        }
-        shuffle(a);
-        return a;
-    }
-
-    // Implementing Fisher–Yates shuffle
-    private static void shuffle(int[] a) {
-        Random rnd = ThreadLocalRandom.current();
-        for (int i = a.length - 1; i > 0; i--) {
-            int index = rnd.nextInt(i + 1);
-            int e = a[index];
-            a[index] = a[i];
-            a[i] = e;
-        }
-    }
-
-    private static int[] inversePermutation(int[] permutation) {
-        int n = permutation.length;
-        int[] inverse = new int[n];
-        for (int i = 0; i < n; i++) {
-            inverse[permutation[i]] = i;
+        synchronized (roundLock) {
+            if (nextRound != null)
+                nextRound.cancel(false);
         }
-        return inverse;
     }
 }
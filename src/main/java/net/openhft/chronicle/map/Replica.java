@@ -95,13 +95,29 @@ public interface Replica extends Closeable {
     void setRemoteNodeCouldBootstrapFrom(
             byte remoteIdentifier, long bootstrapTimestamp);
 
+    /**
+     * Returns the earliest origin timestamp of delta updates from the specified remote node, which
+     * couldn't be applied to this Replica because of a conflicting update, and resets it. The
+     * remote node should be asked to resend entries, changed since then, in full, via {@link
+     * ModificationIterator#dirtyEntries(long)}.
+     *
+     * @param remoteIdentifier the identifier of the remote node
+     * @return the timestamp to resend the entries from, or 0 if all delta updates were applied
+     */
+    long takeDeltaResyncTimestamp(byte remoteIdentifier);
+
     /**
      * notifies when there is a changed to the modification iterator
      */
     interface ModificationNotifier {
 
         /**
-         * called when ever there is a change applied to the modification iterator
+         * called when a change is applied to the modification iterator, which was idle: the
+         * notifier is called on the first change after the start of a pass of the modification
+         * iterator over the whole map, not on each change. If a pass completes without finding
+         * changed entries, but some change was raised during the pass, the notifier is called
+         * again, because the change might be raised behind the scan, so the consumer should make
+         * another pass
          */
         void onChange();
     }
@@ -129,6 +145,22 @@ public interface Replica extends Closeable {
          */
         boolean nextEntry(@NotNull final Callback callback, final int chronicleId);
 
+        /**
+         * Writes up to {@code maxEntries} changed entries to the {@code destination}, in the same
+         * format as {@link EntryExternalizable#writeExternalEntry(ReplicableEntry, Bytes, Bytes,
+         * int)} does, and clears their changed state. All changed entries of a segment tier are
+         * written under a single acquisition of the segment lock. When a pass over the whole map
+         * is complete, the bootstrap time is written to the {@code destination} as well. Entries,
+         * written to the destination, should be read on the remote node by calling {@link
+         * EntryExternalizable#readExternalEntry(Bytes, byte)} until the source is exhausted.
+         *
+         * @param maxEntries the maximum number of entries to write
+         * @param destination the bytes to write entries to
+         * @return the number of written entries, {@code 0} if there are no changed entries
+         * @throws IllegalArgumentException if {@code maxEntries} is not positive
+         */
+        int drain(int maxEntries, @NotNull Bytes destination);
+
         /**
          * Dirties all entries with a modification time equal to {@code fromTimeStamp} or newer and
          * origin identifier equal to the current node identifier. It means all these entries will
@@ -21,16 +21,20 @@ import net.openhft.chronicle.algo.bitset.*;
 import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.VanillaGlobalMutableState;
+import net.openhft.chronicle.hash.impl.BigSegmentHeader;
 import net.openhft.chronicle.hash.impl.TierCountersArea;
 import net.openhft.chronicle.hash.impl.stage.hash.ChainingInterface;
 import net.openhft.chronicle.hash.replication.ReplicableEntry;
+import net.openhft.chronicle.hash.replication.TimestampSource;
 import net.openhft.chronicle.map.impl.CompiledReplicatedMapIterationContext;
 import net.openhft.chronicle.map.impl.CompiledReplicatedMapQueryContext;
+import net.openhft.chronicle.map.impl.ValueDelta;
 import net.openhft.chronicle.map.replication.MapRemoteOperations;
 import net.openhft.chronicle.values.Values;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,15 +43,16 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Stream;
 
 import static net.openhft.chronicle.algo.MemoryUnit.*;
 import static net.openhft.chronicle.algo.bitset.BitSetFrame.NOT_FOUND;
 import static net.openhft.chronicle.algo.bytes.Access.nativeAccess;
-import static net.openhft.chronicle.hash.replication.TimeProvider.currentTime;
 
 /**
  * <h2>A Replicating Multi Master HashMap</h2> <p>Each remote hash map, mirrors its changes over to
@@ -96,11 +101,26 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
 
     static final byte ENTRY_HUNK = 1;
     static final byte BOOTSTRAP_TIME_HUNK = 2;
+    static final byte DELTA_HUNK = 3;
+
+    /**
+     * Number of bits in the summary of a tier's modification bit set, the summary occupies one
+     * cache line of the padding after the bit set, see {@link
+     * #computeTierModIterBitSetOuterSize()}
+     */
+    private static final long MOD_ITER_SUMMARY_BITS = BITS.convert(1, CACHE_LINES);
 
     private long tierModIterBitSetSizeInBits;
     private long tierModIterBitSetOuterSize;
     private long segmentModIterBitSetsForIdentifierOuterSize;
     private long tierBulkModIterBitSetsForIdentifierOuterSize;
+    /**
+     * Number of 64-bit words of a tier's modification bit set, covered by a single bit of the
+     * summary of this bit set. The summary bit is raised, if any of the words has raised bits.
+     * 0 means that summaries are not maintained: the field is absent in the headers of maps,
+     * created by Chronicle Map versions, which didn't maintain summaries.
+     */
+    private long modIterSummaryGroupWords;
 
     /**
      * Default value is 0, that corresponds to "unset" identifier value (valid ids are positive)
@@ -120,10 +140,28 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
     public transient boolean cleanupRemovedEntries;
     public transient long cleanupTimeout;
     public transient TimeUnit cleanupTimeoutUnit;
+    public transient TimestampSource timestampSource;
+    /**
+     * The background cleanup of old deleted entries, {@code null} if {@link
+     * #cleanupRemovedEntries} is {@code false} or the cleanup is not started yet
+     */
+    transient OldDeletedEntriesCleanup cleanup;
+    /**
+     * If {@code true}, local updates of values, which don't change the value size, are replicated
+     * by {@link ModificationIterator#drain(int, Bytes)} as patches of the changed byte ranges
+     */
+    public transient boolean deltaReplication;
+    /**
+     * Per remote node identifier, the earliest timestamp of delta updates, which couldn't be
+     * applied, because this node doesn't have the base version of the entry, 0 if none
+     */
+    private transient long[] deltaResyncTimestamps;
     
     public transient MapRemoteOperations<K, V, R> remoteOperations;
 
     transient BitSetFrame tierModIterFrame;
+    private transient BitSetFrame modIterSummaryFrame;
+    private transient long modIterSummaryOffset;
 
     private transient long[] remoteNodeCouldBootstrapFrom;
 
@@ -135,6 +173,7 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                 computeSegmentModIterBitSetsForIdentifierOuterSize();
         tierBulkModIterBitSetsForIdentifierOuterSize =
                 computeTierBulkModIterBitSetsForIdentifierOuterSize(tiersInBulk);
+        modIterSummaryGroupWords = computeModIterSummaryGroupWords();
     }
 
     @Override
@@ -147,6 +186,8 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                 wireIn.read(() -> "segmentModIterBitSetsForIdentifierOuterSize").int64();
         tierBulkModIterBitSetsForIdentifierOuterSize =
                 wireIn.read(() -> "tierBulkModIterBitSetsForIdentifierOuterSize").int64();
+        // reads 0, if the field is absent
+        modIterSummaryGroupWords = wireIn.read(() -> "modIterSummaryGroupWords").int64();
     }
 
     @Override
@@ -159,6 +200,7 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                 .int64(segmentModIterBitSetsForIdentifierOuterSize);
         wireOut.write(() -> "tierBulkModIterBitSetsForIdentifierOuterSize")
                 .int64(tierBulkModIterBitSetsForIdentifierOuterSize);
+        wireOut.write(() -> "modIterSummaryGroupWords").int64(modIterSummaryGroupWords);
     }
 
     @Override
@@ -183,7 +225,11 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         modificationIterators = new AtomicReferenceArray<>(128);
         closeables = new CopyOnWriteArraySet<>();
         tierModIterFrame = new SingleThreadedFlatBitSetFrame(computeTierModIterBitSetSizeInBits());
+        modIterSummaryFrame = new SingleThreadedFlatBitSetFrame(MOD_ITER_SUMMARY_BITS);
+        modIterSummaryOffset = BYTES.convert(tierModIterBitSetSizeInBits, BITS);
         remoteNodeCouldBootstrapFrom = new long[128];
+        timestampSource = TimestampSource.perThreadMonotonic();
+        deltaResyncTimestamps = new long[128];
     }
 
     @Override
@@ -197,6 +243,8 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         cleanupRemovedEntries = builder.cleanupRemovedEntries;
         cleanupTimeout = builder.cleanupTimeout;
         cleanupTimeoutUnit = builder.cleanupTimeoutUnit;
+        timestampSource = builder.timestampSource;
+        deltaReplication = builder.deltaReplication;
     }
 
     private long computeTierModIterBitSetSizeInBits() {
@@ -205,7 +253,8 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
 
     private long computeTierModIterBitSetOuterSize() {
         long tierModIterBitSetOuterSize = BYTES.convert(computeTierModIterBitSetSizeInBits(), BITS);
-        // protect from false sharing between bit sets of adjacent segments
+        // protect from false sharing between bit sets of adjacent segments. The first cache line
+        // of the padding is used for the summary of the bit set, see modIterSummaryGroupWords
         tierModIterBitSetOuterSize += BYTES.convert(2, CACHE_LINES);
         if (CACHE_LINES.align(tierModIterBitSetOuterSize, BYTES) == tierModIterBitSetOuterSize) {
             tierModIterBitSetOuterSize =
@@ -214,6 +263,11 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         return tierModIterBitSetOuterSize;
     }
 
+    private long computeModIterSummaryGroupWords() {
+        long words = LONGS.convert(computeTierModIterBitSetSizeInBits(), BITS);
+        return Math.max(1, (words + MOD_ITER_SUMMARY_BITS - 1) / MOD_ITER_SUMMARY_BITS);
+    }
+
     private long computeSegmentModIterBitSetsForIdentifierOuterSize() {
         return computeTierModIterBitSetOuterSize() * actualSegments;
     }
@@ -245,6 +299,87 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         return remoteNodeCouldBootstrapFrom[remoteIdentifier];
     }
 
+    /**
+     * Called, when a delta update from the remote node couldn't be applied to the local version
+     * of the entry.
+     */
+    public synchronized void requestDeltaResync(byte remoteIdentifier, long fromTimestamp) {
+        long current = deltaResyncTimestamps[remoteIdentifier];
+        if (current == 0 || fromTimestamp < current)
+            deltaResyncTimestamps[remoteIdentifier] = fromTimestamp;
+    }
+
+    @Override
+    public synchronized long takeDeltaResyncTimestamp(byte remoteIdentifier) {
+        long fromTimestamp = deltaResyncTimestamps[remoteIdentifier];
+        deltaResyncTimestamps[remoteIdentifier] = 0;
+        return fromTimestamp;
+    }
+
+    /**
+     * Returns the number of deleted entries in all tiers of the segment with the given index.
+     * The tier counters are read without locking the segment, so the result is approximate, if
+     * the segment is concurrently updated.
+     */
+    public long segmentDeletedEntries(int segmentIndex) {
+        long segmentHeaderAddress = segmentHeaderAddress(segmentIndex);
+        long deleted = BigSegmentHeader.INSTANCE.deleted(segmentHeaderAddress);
+        long tierIndex = BigSegmentHeader.INSTANCE.nextTierIndex(segmentHeaderAddress);
+        long maxTierIndex = extraTierIndexToTierIndex(extraTiersInUse() - 1);
+        // Bound the number of visited tiers, not to follow a chain of tiers, which is concurrently
+        // updated, forever
+        for (long tiers = 0; tierIndex > actualSegments && tierIndex <= maxTierIndex &&
+                tiers < maxTierIndex - actualSegments; tiers++) {
+            long tierCountersAreaAddr = tierIndexToBaseAddr(tierIndex) + tierHashLookupOuterSize;
+            deleted += TierCountersArea.deleted(tierCountersAreaAddr);
+            tierIndex = TierCountersArea.nextTierIndex(tierCountersAreaAddr);
+        }
+        return Math.max(deleted, 0);
+    }
+
+    /**
+     * Returns the number of deleted entries in the map, which are not removed completely yet,
+     * i. e. the backlog of the cleanup of old deleted entries. Approximate, see {@link
+     * #segmentDeletedEntries(int)}.
+     */
+    public long deletedEntries() {
+        long deleted = 0;
+        for (int i = 0; i < actualSegments; i++) {
+            deleted += segmentDeletedEntries(i);
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the total number of deleted entries, removed completely by the background cleanup
+     * since this map instance is created, 0 if the cleanup is disabled.
+     *
+     * @see net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI#cleanupRemovedEntries(boolean)
+     */
+    public long cleanupRemovedEntriesCount() {
+        OldDeletedEntriesCleanup cleanup = this.cleanup;
+        return cleanup != null ? cleanup.removedCompletely() : 0;
+    }
+
+    /**
+     * Returns the number of deleted entries, removed completely by the background cleanup per
+     * second of the cleanup work, on average since this map instance is created, 0.0 if the
+     * cleanup is disabled.
+     */
+    public double cleanupThroughput() {
+        OldDeletedEntriesCleanup cleanup = this.cleanup;
+        return cleanup != null ? cleanup.throughput() : 0.0;
+    }
+
+    /**
+     * Returns the duration of the last round of the background cleanup, in nanoseconds, 0 if the
+     * cleanup is disabled or no round is complete yet.
+     */
+    public long cleanupLastRoundNanos() {
+        OldDeletedEntriesCleanup cleanup = this.cleanup;
+        return cleanup != null ? cleanup.lastRoundNanos() : 0;
+    }
+
     @Override
     public void onHeaderCreated() {
         // Pad modification iterators at 3 cache lines from the end of the map header,
@@ -358,8 +493,18 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
     }
 
     public void raiseChange(long tierIndex, long pos) {
+        raiseChange(tierIndex, pos, null);
+    }
+
+    /**
+     * Raises the change of the entry for all remote nodes.
+     *
+     * @param valueDelta the delta of the value, made by this change, or {@code null}, if the
+     *                   change couldn't be replicated as a delta
+     */
+    public void raiseChange(long tierIndex, long pos, @Nullable ValueDelta valueDelta) {
         // -1 is invalid remoteIdentifier => raise change for all
-        raiseChangeForAllExcept(tierIndex, pos, (byte) -1);
+        raiseChangeForAllExcept(tierIndex, pos, (byte) -1, valueDelta);
     }
 
     public void raiseChangeFor(long tierIndex, long pos, byte remoteIdentifier) {
@@ -367,13 +512,18 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
     }
 
     public void raiseChangeForAllExcept(long tierIndex, long pos, byte remoteIdentifier) {
+        raiseChangeForAllExcept(tierIndex, pos, remoteIdentifier, null);
+    }
+
+    private void raiseChangeForAllExcept(
+            long tierIndex, long pos, byte remoteIdentifier, @Nullable ValueDelta valueDelta) {
         updateModificationIteratorsArray();
         if (tierIndex <= actualSegments) {
             long segmentIndex = tierIndex - 1;
             long offsetToTierBitSet = segmentIndex * tierModIterBitSetOuterSize;
             for (ModificationIterator it : assignedModificationIterators) {
                 if (it.remoteIdentifier != remoteIdentifier)
-                    it.raiseChangeInSegment(offsetToTierBitSet, pos);
+                    it.raiseChangeInSegment(offsetToTierBitSet, pos, valueDelta);
             }
         } else {
             long extraTierIndex = tierIndex - 1 - actualSegments;
@@ -382,7 +532,7 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                     (extraTierIndex & (tiersInBulk - 1)) * tierModIterBitSetOuterSize;
             for (ModificationIterator it : assignedModificationIterators) {
                 if (it.remoteIdentifier != remoteIdentifier)
-                    it.raiseChangeInTierBulk(bulkIndex, offsetToTierBitSet, pos);
+                    it.raiseChangeInTierBulk(bulkIndex, offsetToTierBitSet, pos, valueDelta);
             }
         }
     }
@@ -510,6 +660,22 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
      * this method, especially when being used in a multi threaded context.
      */
     private void writeExternalEntry0(ReplicableEntry entry, Bytes destination) {
+        writeExternalEntry0(entry, destination, null);
+    }
+
+    /**
+     * Writes the entry as a delta, if the {@code valueDelta} is given, still applicable to the
+     * entry, and makes sense, otherwise writes the entry in full.
+     */
+    private void writeExternalEntry0(
+            ReplicableEntry entry, Bytes destination, @Nullable ValueDelta valueDelta) {
+        if (valueDelta != null && entry instanceof MapEntry) {
+            Data value = ((MapEntry) entry).value();
+            if (value.size() == valueDelta.valueSize() && valueDelta.worthSending()) {
+                writeExternalDelta(entry, ((MapEntry) entry).key(), value, valueDelta, destination);
+                return;
+            }
+        }
         destination.writeByte(ENTRY_HUNK);
 
         destination.writeStopBit(entry.originTimestamp());
@@ -577,6 +743,29 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                 ci -> new CompiledReplicatedMapQueryContext<>(ci, this));
     }
 
+    /**
+     * Delta hunk: origin timestamp and identifier of the entry, timestamp and identifier of the
+     * base version of the entry, which the patches should be applied to, the key, the value size
+     * and {@linkplain ValueDelta#writePatches patches}.
+     */
+    private void writeExternalDelta(ReplicableEntry entry, Data key, Data value,
+                                    ValueDelta valueDelta, Bytes destination) {
+        destination.writeByte(DELTA_HUNK);
+        destination.writeStopBit(entry.originTimestamp());
+        destination.writeByte(entry.originIdentifier());
+        destination.writeStopBit(valueDelta.baseTimestamp());
+        destination.writeByte(valueDelta.baseIdentifier());
+        keySizeMarshaller.writeSize(destination, key.size());
+        key.writeTo(destination, destination.writePosition());
+        destination.writeSkip(key.size());
+        destination.writeStopBit(value.size());
+        valueDelta.writePatches(destination, value.bytes(), value.offset());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("WRITING DELTA TO DEST  -  into local-id={}, key={}, base timestamp={}",
+                    identifier(), key, valueDelta.baseTimestamp());
+        }
+    }
+
     /**
      * This method does not set a segment lock, A segment lock should be obtained before calling
      * this method, especially when being used in a multi threaded context.
@@ -586,6 +775,10 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         byte hunk = source.readByte();
         if (hunk == BOOTSTRAP_TIME_HUNK) {
             setRemoteNodeCouldBootstrapFrom(remoteNodeIdentifier, source.readLong());
+        } else if (hunk == DELTA_HUNK) {
+            try (CompiledReplicatedMapQueryContext<K, V, R> remoteOpContext = mapContext()) {
+                remoteOpContext.processReplicatedDelta(remoteNodeIdentifier, source);
+            }
         } else {
             assert hunk == ENTRY_HUNK;
             try (CompiledReplicatedMapQueryContext<K, V, R> remoteOpContext = mapContext()) {
@@ -630,6 +823,15 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         private final long offsetToBitSetsWithinATierBulk;
 
         private ModificationNotifier modificationNotifier;
+        /**
+         * {@code true} if the {@link #modificationNotifier} is already notified after the start
+         * of the current pass over the bit sets. Reset at the start of each pass, so the notifier
+         * is called on the first change raised since then, rather than on each change. A change,
+         * raised behind the scan after the flag is set, doesn't notify, so if the pass completes
+         * without finding changes while the flag is set, the notifier is called again, see
+         * {@link #nextEntryPos}.
+         */
+        private final AtomicBoolean notified = new AtomicBoolean();
 
         private long bootstrapTimeAfterNextIterationComplete = 0L;
         private boolean somethingSentOnThisIteration = false;
@@ -654,8 +856,17 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
          */
         private long tierBitSetAddr;
 
+        /**
+         * Deltas of changed entries, which could be sent as patches to the remote node, keyed by
+         * {@link #bitKey(long, long)}. An entry has a delta, if all its changes since it was last
+         * sent are local updates of the value, not changing the value size. {@code null}, if
+         * {@link #deltaReplication} is off.
+         */
+        private final ConcurrentHashMap<Long, ValueDelta> pendingDeltas;
+
         public ModificationIterator(byte remoteIdentifier, boolean sharedMemoryInit) {
             this.remoteIdentifier = remoteIdentifier;
+            pendingDeltas = deltaReplication ? new ConcurrentHashMap<>() : null;
             segmentBitSetsAddr = bsAddress() + startOfModificationIterators +
                     remoteIdentifier * segmentModIterBitSetsForIdentifierOuterSize;
             if (!sharedMemoryInit) {
@@ -679,32 +890,187 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
 
         public void setModificationNotifier(@NotNull ModificationNotifier modificationNotifier) {
             this.modificationNotifier = modificationNotifier;
+            notified.set(false);
         }
 
         void raiseChangeInSegment(long offsetToTierBitSet, long pos) {
-            tierModIterFrame.set(nativeAccess(), null,
-                    segmentBitSetsAddr + offsetToTierBitSet, pos);
-            if (modificationNotifier != null)
-                modificationNotifier.onChange();
+            raiseChangeInSegment(offsetToTierBitSet, pos, null);
+        }
+
+        void raiseChangeInSegment(
+                long offsetToTierBitSet, long pos, @Nullable ValueDelta valueDelta) {
+            raiseChangeInBitSet(segmentBitSetsAddr + offsetToTierBitSet, pos, valueDelta);
         }
 
         void raiseChangeInTierBulk(int bulkIndex, long offsetToTierBitSet, long pos) {
+            raiseChangeInTierBulk(bulkIndex, offsetToTierBitSet, pos, null);
+        }
+
+        void raiseChangeInTierBulk(int bulkIndex, long offsetToTierBitSet, long pos,
+                                   @Nullable ValueDelta valueDelta) {
             TierBulkData tierBulkData = tierBulkOffsets.get(bulkIndex);
             long bitSetAddr = bitSetsAddr(tierBulkData) + offsetToTierBitSet;
+            raiseChangeInBitSet(bitSetAddr, pos, valueDelta);
+        }
+
+        /**
+         * Returns the key of the entry in {@link #pendingDeltas}: the absolute number of the bit
+         * of the entry in the memory is unique for each entry in each tier.
+         */
+        private long bitKey(long bitSetAddr, long pos) {
+            return (bitSetAddr << 3) + pos;
+        }
+
+        private void raiseChangeInBitSet(
+                long bitSetAddr, long pos, @Nullable ValueDelta valueDelta) {
+            if (pendingDeltas != null) {
+                Long key = bitKey(bitSetAddr, pos);
+                if (valueDelta == null) {
+                    pendingDeltas.remove(key);
+                } else if (!tierModIterFrame.get(nativeAccess(), null, bitSetAddr, pos)) {
+                    // the previous version of the entry is already sent to the remote node,
+                    // so it could apply the delta
+                    pendingDeltas.put(key, valueDelta.copy());
+                } else {
+                    ValueDelta pendingDelta = pendingDeltas.get(key);
+                    if (pendingDelta != null)
+                        pendingDelta.merge(valueDelta);
+                }
+            }
             tierModIterFrame.set(nativeAccess(), null, bitSetAddr, pos);
-            if (modificationNotifier != null)
+            if (modIterSummaryGroupWords > 0) {
+                modIterSummaryFrame.set(nativeAccess(), null, bitSetAddr + modIterSummaryOffset,
+                        (pos >>> 6) / modIterSummaryGroupWords);
+            }
+            notifyChange();
+        }
+
+        /**
+         * Called under the segment lock, after the change bit is raised. Notifies, unless already
+         * notified since the start of the current pass. The pass might miss the raised bit, if it
+         * has already scanned this segment, and another change has already set {@link #notified}.
+         * This is caught when the pass completes, see {@link #nextEntryPos}.
+         */
+        private void notifyChange() {
+            ModificationNotifier modificationNotifier = this.modificationNotifier;
+            // plain volatile read first, not to write the shared cache line on each change
+            if (modificationNotifier != null && !notified.get() &&
+                    notified.compareAndSet(false, true)) {
                 modificationNotifier.onChange();
+            }
         }
 
         boolean dropChangeInSegment(long offsetToTierBitSet, long pos) {
-            return tierModIterFrame.clearIfSet(nativeAccess(), null,
-                    segmentBitSetsAddr + offsetToTierBitSet, pos);
+            return dropChangeInBitSet(segmentBitSetsAddr + offsetToTierBitSet, pos);
         }
 
         boolean dropChangeInTierBulk(int bulkIndex, long offsetToTierBitSet, long pos) {
             TierBulkData tierBulkData = tierBulkOffsets.get(bulkIndex);
             long bitSetAddr = bitSetsAddr(tierBulkData) + offsetToTierBitSet;
-            return tierModIterFrame.clearIfSet(nativeAccess(), null, bitSetAddr, pos);
+            return dropChangeInBitSet(bitSetAddr, pos);
+        }
+
+        private boolean dropChangeInBitSet(long bitSetAddr, long pos) {
+            if (pendingDeltas != null)
+                pendingDeltas.remove(bitKey(bitSetAddr, pos));
+            if (tierModIterFrame.clearIfSet(nativeAccess(), null, bitSetAddr, pos)) {
+                updateSummary(bitSetAddr, pos, pos + 1);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Clears the bits of the summary of the given bit set, which cover the given range of
+         * positions, if the covered words of the bit set have no raised bits. Called under the
+         * update lock of the segment, the same as bits are raised, so a summary bit couldn't be
+         * cleared concurrently with raising a bit, which it covers.
+         */
+        private void updateSummary(long bitSetAddr, long fromPos, long toPosExclusive) {
+            if (modIterSummaryGroupWords == 0 || fromPos >= toPosExclusive)
+                return;
+            long firstGroup = (fromPos >>> 6) / modIterSummaryGroupWords;
+            long lastGroup = ((toPosExclusive - 1) >>> 6) / modIterSummaryGroupWords;
+            for (long group = firstGroup; group <= lastGroup; group++) {
+                if (groupIsClear(bitSetAddr, group)) {
+                    modIterSummaryFrame.clear(
+                            nativeAccess(), null, bitSetAddr + modIterSummaryOffset, group);
+                }
+            }
+        }
+
+        private boolean groupIsClear(long bitSetAddr, long group) {
+            long words = tierModIterBitSetSizeInBits >>> 6;
+            long toWord = Math.min((group + 1) * modIterSummaryGroupWords, words);
+            for (long word = group * modIterSummaryGroupWords; word < toWord; word++) {
+                if (nativeAccess().readLong(null, bitSetAddr + (word << 3)) != 0)
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the next raised bit in the given bit set, starting from {@code fromPos}, or
+         * {@link BitSetFrame#NOT_FOUND}. If summaries are maintained, only words of the bit set,
+         * covered by raised summary bits, are read.
+         */
+        private long nextChangedPos(long bitSetAddr, long fromPos) {
+            if (modIterSummaryGroupWords == 0)
+                return tierModIterFrame.nextSetBit(nativeAccess(), null, bitSetAddr, fromPos);
+            long words = tierModIterBitSetSizeInBits >>> 6;
+            long fromWord = fromPos >>> 6;
+            if (fromWord >= words)
+                return NOT_FOUND;
+            long groups = (words + modIterSummaryGroupWords - 1) / modIterSummaryGroupWords;
+            long group = fromWord / modIterSummaryGroupWords;
+            long summaryAddr = bitSetAddr + modIterSummaryOffset;
+            while (group < groups && (group = modIterSummaryFrame.nextSetBit(
+                    nativeAccess(), null, summaryAddr, group)) != NOT_FOUND) {
+                long toWord = Math.min((group + 1) * modIterSummaryGroupWords, words);
+                for (long word = Math.max(fromWord, group * modIterSummaryGroupWords);
+                     word < toWord; word++) {
+                    long bits = nativeAccess().readLong(null, bitSetAddr + (word << 3));
+                    if (word == fromWord)
+                        bits &= -1L << fromPos; // shift distance is taken modulo 64
+                    if (bits != 0)
+                        return (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                group++;
+            }
+            return NOT_FOUND;
+        }
+
+        /**
+         * Recomputes the summary of the modification bit set of the tier with the given index,
+         * e. g. after recovery, when the summary might be inconsistent with the bit set.
+         */
+        public void rebuildSummary0(long tierIndex) {
+            if (modIterSummaryGroupWords == 0)
+                return;
+            long bitSetAddr = tierBitSetAddr(tierIndex);
+            long summaryAddr = bitSetAddr + modIterSummaryOffset;
+            long groups = ((tierModIterBitSetSizeInBits >>> 6) + modIterSummaryGroupWords - 1) /
+                    modIterSummaryGroupWords;
+            for (long group = 0; group < groups; group++) {
+                if (groupIsClear(bitSetAddr, group)) {
+                    modIterSummaryFrame.clear(nativeAccess(), null, summaryAddr, group);
+                } else {
+                    modIterSummaryFrame.set(nativeAccess(), null, summaryAddr, group);
+                }
+            }
+        }
+
+        private long tierBitSetAddr(long tierIndex) {
+            if (tierIndex <= actualSegments) {
+                long segmentIndex = tierIndex - 1;
+                return segmentBitSetsAddr + segmentIndex * tierModIterBitSetOuterSize;
+            } else {
+                long extraTierIndex = tierIndex - 1 - actualSegments;
+                int bulkIndex = (int) (extraTierIndex >> log2TiersInBulk);
+                long offsetToTierBitSet =
+                        (extraTierIndex & (tiersInBulk - 1)) * tierModIterBitSetOuterSize;
+                return bitSetsAddr(tierBulkOffsets.get(bulkIndex)) + offsetToTierBitSet;
+            }
         }
 
         boolean isChangedSegment(long offsetToTierBitSet, long pos) {
@@ -743,8 +1109,9 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                 if (segmentIndex >= 0) {
                     allBitSetsScannedFromTheStart = segmentIndex == 0 && entryPos == -1;
                     if (allBitSetsScannedFromTheStart) {
-                        bootstrapTimeAfterNextIterationComplete = currentTime();
+                        bootstrapTimeAfterNextIterationComplete = timestampSource.barrierTime();
                         somethingSentOnThisIteration = false;
+                        notified.set(false);
                     }
 
                     while (segmentIndex < actualSegments) {
@@ -762,8 +1129,8 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                             acquireAndReleaseUpdateLock(segmentIndex);
                         }
 
-                        if ((nextEntryPos = tierModIterFrame.nextSetBit(nativeAccess(),
-                                null, tierBitSetAddr, entryPos + 1)) != NOT_FOUND) {
+                        if ((nextEntryPos = nextChangedPos(tierBitSetAddr, entryPos + 1)) !=
+                                NOT_FOUND) {
                             return nextEntryPos;
                         } else {
                             segmentIndex++;
@@ -781,8 +1148,8 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                 // for each allocated tier bulk
                 while (bulkIndex < globalMutableState().getAllocatedExtraTierBulks()) {
                     while (tierIndexOffsetWithinBulk < tiersInBulk) {
-                        if ((nextEntryPos = tierModIterFrame.nextSetBit(nativeAccess(), null,
-                                tierBitSetAddr, entryPos + 1)) != NOT_FOUND) {
+                        if ((nextEntryPos = nextChangedPos(tierBitSetAddr, entryPos + 1)) !=
+                                NOT_FOUND) {
                             return nextEntryPos;
                         } else {
                             tierIndexOffsetWithinBulk++;
@@ -804,6 +1171,14 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                     callback.onBootstrapTime(bootstrapTimeAfterNextIterationComplete, chronicleId);
                 }
             }
+            // A full pass, which reset the notified flag at the start, found nothing. If some change
+            // was raised during the pass, it might be raised behind the scan without notifying,
+            // because the flag was already set. Notify again, not to leave the consumer, waiting
+            // for the notifier, idle with changed entries. At worst, the consumer makes one
+            // extra pass, that starts with the reset flag.
+            ModificationNotifier modificationNotifier = this.modificationNotifier;
+            if (modificationNotifier != null && notified.get())
+                modificationNotifier.onChange();
             return NOT_FOUND;
         }
 
@@ -827,22 +1202,7 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                 entryPos = nextEntryPos;
 
                 try (CompiledReplicatedMapIterationContext<K, V, R> context = iterationContext()) {
-                    if (segmentIndex >= 0) {
-                        // we are in first tiers (aka "segments")
-                        context.initSegmentIndex(segmentIndex);
-                    } else {
-                        // we are in extra tiers
-                        TierBulkData tierBulkData = tierBulkOffsets.get(bulkIndex);
-                        long tierBaseAddr = tierAddr(tierBulkData, tierIndexOffsetWithinBulk);
-                        long tierCountersAreaAddr = tierBaseAddr + tierHashLookupOuterSize;
-                        context.initSegmentIndex(
-                                TierCountersArea.segmentIndex(tierCountersAreaAddr));
-                        int tier = TierCountersArea.tier(tierCountersAreaAddr);
-                        long tierIndex = actualSegments +
-                                (bulkIndex << log2TiersInBulk) + tierIndexOffsetWithinBulk + 1;
-                        context.initSegmentTier(tier, tierIndex, tierBaseAddr);
-                    }
-
+                    initCurrentTier(context);
                     context.updateLock().lock();
 
                     if (entryIsStillDirty(entryPos)) {
@@ -860,16 +1220,90 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
             }
         }
 
+        /**
+         * Initializes the context to the tier, which the "cursor" points to.
+         */
+        private void initCurrentTier(CompiledReplicatedMapIterationContext<K, V, R> context) {
+            if (segmentIndex >= 0) {
+                // we are in first tiers (aka "segments")
+                context.initSegmentIndex(segmentIndex);
+            } else {
+                // we are in extra tiers
+                TierBulkData tierBulkData = tierBulkOffsets.get(bulkIndex);
+                long tierBaseAddr = tierAddr(tierBulkData, tierIndexOffsetWithinBulk);
+                long tierCountersAreaAddr = tierBaseAddr + tierHashLookupOuterSize;
+                context.initSegmentIndex(TierCountersArea.segmentIndex(tierCountersAreaAddr));
+                int tier = TierCountersArea.tier(tierCountersAreaAddr);
+                long tierIndex = actualSegments +
+                        (bulkIndex << log2TiersInBulk) + tierIndexOffsetWithinBulk + 1;
+                context.initSegmentTier(tier, tierIndex, tierBaseAddr);
+            }
+        }
+
+        @Override
+        public int drain(int maxEntries, @NotNull Bytes destination) {
+            if (maxEntries <= 0)
+                throw new IllegalArgumentException("maxEntries should be positive, " +
+                        maxEntries + " given");
+            Callback bootstrapTimeWriter = new Callback() {
+                @Override
+                public void onEntry(ReplicableEntry entry, int chronicleId) {
+                    throw new AssertionError("entries are not passed to this callback");
+                }
+
+                @Override
+                public void onBootstrapTime(long bootstrapTime, int chronicleId) {
+                    destination.writeByte(BOOTSTRAP_TIME_HUNK);
+                    destination.writeLong(bootstrapTime);
+                }
+            };
+            int drained = 0;
+            while (drained < maxEntries) {
+                long nextEntryPos = nextEntryPos(bootstrapTimeWriter, 0);
+                if (nextEntryPos == NOT_FOUND)
+                    break;
+                try (CompiledReplicatedMapIterationContext<K, V, R> context = iterationContext()) {
+                    initCurrentTier(context);
+                    // Bits of the tier are raised and dropped only under the update lock, so while
+                    // it is held, all dirty entries of the tier are drained in one pass
+                    context.updateLock().lock();
+                    // the first found entry could be already cleared by another thread while we
+                    // were trying to obtain the lock, so search again from it's position
+                    entryPos = nextEntryPos;
+                    for (long pos = nextChangedPos(tierBitSetAddr, nextEntryPos);
+                         pos != NOT_FOUND && drained < maxEntries;
+                         pos = nextChangedPos(tierBitSetAddr, pos + 1)) {
+                        entryPos = pos;
+                        context.readExistingEntry(pos);
+                        ValueDelta valueDelta = pendingDeltas != null ?
+                                pendingDeltas.remove(bitKey(tierBitSetAddr, pos)) : null;
+                        writeExternalEntry0((ReplicableEntry) context.entryForIteration(),
+                                destination, valueDelta);
+                        somethingSentOnThisIteration = true;
+                        clearEntry(pos);
+                        drained++;
+                    }
+                }
+            }
+            return drained;
+        }
+
         private boolean entryIsStillDirty(long entryPos) {
             return tierModIterFrame.get(nativeAccess(), null, tierBitSetAddr, entryPos);
         }
 
         private void clearEntry(long entryPos) {
+            if (pendingDeltas != null)
+                pendingDeltas.remove(bitKey(tierBitSetAddr, entryPos));
             tierModIterFrame.clear(nativeAccess(), null, tierBitSetAddr, entryPos);
+            updateSummary(tierBitSetAddr, entryPos, entryPos + 1);
         }
 
         @Override
         public void dirtyEntries(long fromTimeStamp) {
+            // the remote node might miss base versions of pending deltas, send entries in full
+            if (pendingDeltas != null)
+                pendingDeltas.clear();
             try (CompiledReplicatedMapIterationContext<K, V, R> c = iterationContext()) {
                 // iterate over all the segments and mark bit in the modification iterator
                 // that correspond to entries with an older timestamp
@@ -931,20 +1365,9 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         }
 
         public void clearRange0(long tierIndex, long pos, long endPosExclusive) {
-            if (tierIndex <= actualSegments) {
-                long segmentIndex = tierIndex - 1;
-                long offsetToTierBitSet = segmentIndex * tierModIterBitSetOuterSize;
-                tierModIterFrame.clearRange(nativeAccess(), null,
-                        segmentBitSetsAddr + offsetToTierBitSet, pos, endPosExclusive);
-            } else {
-                long extraTierIndex = tierIndex - 1 - actualSegments;
-                int bulkIndex = (int) (extraTierIndex >> log2TiersInBulk);
-                long offsetToTierBitSet =
-                        (extraTierIndex & (tiersInBulk - 1)) * tierModIterBitSetOuterSize;
-                TierBulkData tierBulkData = tierBulkOffsets.get(bulkIndex);
-                long bitSetAddr = bitSetsAddr(tierBulkData) + offsetToTierBitSet;
-                tierModIterFrame.clearRange(nativeAccess(), null, bitSetAddr, pos, endPosExclusive);
-            }
+            long bitSetAddr = tierBitSetAddr(tierIndex);
+            tierModIterFrame.clearRange(nativeAccess(), null, bitSetAddr, pos, endPosExclusive);
+            updateSummary(bitSetAddr, pos, endPosExclusive);
         }
     }
 
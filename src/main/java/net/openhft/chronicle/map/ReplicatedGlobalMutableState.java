@@ -22,6 +22,12 @@ import net.openhft.chronicle.values.*;
 
 interface ReplicatedGlobalMutableState extends VanillaGlobalMutableState {
 
+    /**
+     * Unused, reserved: {@link OldDeletedEntriesCleanup} used to persist the segment to continue
+     * the cleanup from, now it orders segments by the number of deleted entries in each round.
+     * Kept, because removing the field would change the layout of the persisted global mutable
+     * state, and the following fields' offsets.
+     */
     @Group(6)
     int getCurrentCleanupSegmentIndex();
     void setCurrentCleanupSegmentIndex(
@@ -0,0 +1,92 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Iterates entries of a range of segments of a {@link ChronicleMap}, splitting the range in
+ * halves and forking until the range is split into the given number of parts, each part is
+ * iterated segment by segment in a single task. Each task holds only the lock of the segment it
+ * iterates. The number of parts bounds the number of threads iterating concurrently, so that the
+ * {@link ForkJoinPool#commonPool() common pool} is used, if its parallelism is sufficient, rather
+ * than a new pool per iteration.
+ *
+ * @see ChronicleMap#forEachEntryParallel(int, Consumer)
+ */
+final class SegmentsParallelIteration<K, V> extends RecursiveAction {
+    private static final long serialVersionUID = 0L;
+
+    static <K, V> void forEachEntryParallel(
+            AbstractChronicleMap<K, V> map, int parallelism,
+            Consumer<? super MapEntry<K, V>> action) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism should be positive, " + parallelism +
+                    " given");
+        int segments = map.segments();
+        int parts = Math.min(parallelism, segments);
+        SegmentsParallelIteration<K, V> iteration =
+                new SegmentsParallelIteration<>(map, 0, segments, parts, action);
+        if (parts <= ForkJoinPool.getCommonPoolParallelism()) {
+            ForkJoinPool.commonPool().invoke(iteration);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parts);
+            try {
+                pool.invoke(iteration);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private final transient AbstractChronicleMap<K, V> map;
+    private final int fromSegment;
+    private final int toSegment;
+    private final int parts;
+    private final transient Consumer<? super MapEntry<K, V>> action;
+
+    private SegmentsParallelIteration(
+            AbstractChronicleMap<K, V> map, int fromSegment, int toSegment, int parts,
+            Consumer<? super MapEntry<K, V>> action) {
+        this.map = map;
+        this.fromSegment = fromSegment;
+        this.toSegment = toSegment;
+        this.parts = parts;
+        this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+        if (parts > 1) {
+            int leftParts = parts >>> 1;
+            int middle = (int) (fromSegment +
+                    (long) (toSegment - fromSegment) * leftParts / parts);
+            invokeAll(new SegmentsParallelIteration<>(map, fromSegment, middle, leftParts, action),
+                    new SegmentsParallelIteration<>(
+                            map, middle, toSegment, parts - leftParts, action));
+        } else {
+            for (int segmentIndex = fromSegment; segmentIndex < toSegment; segmentIndex++) {
+                try (MapSegmentContext<K, V, ?> c = map.segmentContext(segmentIndex)) {
+                    c.forEachSegmentEntry(action);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.map.impl.IterationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Recovers a persisted {@link ChronicleMap} on a pool of threads. First tiers of segments are
+ * independent from each other, and recovered in parallel, then extra tiers are recovered and
+ * linked to the segments' tier chains in the calling thread, then duplicate keys are removed
+ * from segments in parallel again. Progress of the parallel phases is logged each 10% of
+ * segments, with the recovery throughput.
+ *
+ * @see VanillaChronicleMap#recover()
+ */
+final class SegmentsParallelRecovery<K, V> extends RecursiveAction {
+    private static final long serialVersionUID = 0L;
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentsParallelRecovery.class);
+    private static final int PROGRESS_STEPS = 10;
+
+    static <K, V> void recoverSegments(VanillaChronicleMap<K, V, ?> map, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, map.segments()));
+        try {
+            long start = System.nanoTime();
+            pool.invoke(new SegmentsParallelRecovery<>(new Phase<>(map, "first tiers recovery",
+                    IterationContext::recoverFirstTier), 0, map.segments()));
+            try (IterationContext<K, V, ?> c = map.iterationContext()) {
+                c.recoverExtraTiers();
+            }
+            pool.invoke(new SegmentsParallelRecovery<>(new Phase<>(map, "duplicates removal",
+                    IterationContext::removeDuplicatesInSegment), 0, map.segments()));
+            long time = System.nanoTime() - start;
+            LOG.info("Recovered map at {}, {} bytes in {} ms, {} GB/s",
+                    map.file(), map.dataStoreSize(), time / 1_000_000,
+                    String.format("%.2f", gbPerSecond(map.dataStoreSize(), time)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static double gbPerSecond(long bytes, long nanos) {
+        return nanos > 0 ? bytes / (double) nanos : 0.0;
+    }
+
+    private static final class Phase<K, V> {
+        final VanillaChronicleMap<K, V, ?> map;
+        final String name;
+        final ObjIntConsumer<IterationContext<K, V, ?>> segmentAction;
+        final long start = System.nanoTime();
+        final AtomicInteger doneSegments = new AtomicInteger();
+
+        Phase(VanillaChronicleMap<K, V, ?> map, String name,
+              ObjIntConsumer<IterationContext<K, V, ?>> segmentAction) {
+            this.map = map;
+            this.name = name;
+            this.segmentAction = segmentAction;
+        }
+
+        void segmentDone() {
+            int segments = map.segments();
+            int done = doneSegments.incrementAndGet();
+            // log when the number of done segments crosses a multiple of segments / PROGRESS_STEPS
+            if ((long) done * PROGRESS_STEPS / segments !=
+                    (long) (done - 1) * PROGRESS_STEPS / segments) {
+                long time = System.nanoTime() - start;
+                long bytes = map.dataStoreSize() / segments * done;
+                LOG.info("Map at {}: {} of {} segments done ({}%), {} GB/s", map.file(), name,
+                        done, segments, (long) done * 100 / segments,
+                        String.format("%.2f", gbPerSecond(bytes, time)));
+            }
+        }
+    }
+
+    private final transient Phase<K, V> phase;
+    private final int fromSegment;
+    private final int toSegment;
+
+    private SegmentsParallelRecovery(Phase<K, V> phase, int fromSegment, int toSegment) {
+        this.phase = phase;
+        this.fromSegment = fromSegment;
+        this.toSegment = toSegment;
+    }
+
+    @Override
+    protected void compute() {
+        if (toSegment - fromSegment > 1) {
+            int middle = (fromSegment + toSegment) >>> 1;
+            invokeAll(new SegmentsParallelRecovery<>(phase, fromSegment, middle),
+                    new SegmentsParallelRecovery<>(phase, middle, toSegment));
+        } else if (toSegment > fromSegment) {
+            // Iteration contexts are thread-local, each worker thread uses its own
+            try (IterationContext<K, V, ?> c = phase.map.iterationContext()) {
+                phase.segmentAction.accept(c, fromSegment);
+            }
+            phase.segmentDone();
+        }
+    }
+}
@@ -42,9 +42,13 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.openhft.chronicle.hash.impl.BigSegmentHeader.LOCK_TIMEOUT_SECONDS;
 import static net.openhft.chronicle.map.ChronicleMapBuilder.greatestCommonDivisor;
 
 public class VanillaChronicleMap<K, V, R>
@@ -82,6 +86,24 @@ public class VanillaChronicleMap<K, V, R>
     public transient MapMethods<K, V, R> methods;
     private transient boolean defaultEntryOperationsAndMethods;
     public transient DefaultValueProvider<K, V> defaultValueProvider;
+    /**
+     * The number of threads, segments are recovered on in {@link #recover()}
+     */
+    transient int recoveryThreads;
+    /**
+     * If {@code true}, {@link #recover()} recovers segments lazily, on the first access to each
+     * segment
+     */
+    transient boolean lazyRecovery;
+    /**
+     * {@code true} in the thread, which recovers segments, not to start recovery of the segment
+     * again, when the recovery procedure accesses it
+     */
+    private transient ThreadLocal<Boolean> recoveringSegments;
+    /**
+     * The background verification of entry checksums, {@code null} if it is not configured
+     */
+    transient ChecksumScrubber checksumScrubber;
     
     transient ThreadLocal<ChainingInterface> cxt;
 
@@ -142,6 +164,8 @@ public class VanillaChronicleMap<K, V, R>
         defaultEntryOperationsAndMethods = entryOperations == DefaultSpi.mapEntryOperations() &&
                 methods == DefaultSpi.mapMethods();
         defaultValueProvider = builder.defaultValueProvider;
+        recoveryThreads = builder.recoveryThreads;
+        lazyRecovery = builder.lazyRecovery;
     }
 
     @Override
@@ -152,15 +176,154 @@ public class VanillaChronicleMap<K, V, R>
 
     public void recover() throws IOException {
         basicRecover();
-        try (IterationContext<K, V, ?> iterationContext = iterationContext()) {
-            iterationContext.recoverSegments();
+        // segments, which were not recovered lazily after the previous recovery, are recovered
+        // again below
+        for (int segmentIndex = 0; segmentIndex < segments(); segmentIndex++) {
+            BigSegmentHeader.INSTANCE.needsRecovery(segmentHeaderAddress(segmentIndex), false);
+        }
+        if (lazyRecovery) {
+            try (IterationContext<K, V, ?> iterationContext = iterationContext()) {
+                iterationContext.prepareLazyRecovery();
+            }
+        } else if (recoveryThreads > 1 && segments() > 1) {
+            SegmentsParallelRecovery.recoverSegments(this, recoveryThreads);
+        } else {
+            try (IterationContext<K, V, ?> iterationContext = iterationContext()) {
+                iterationContext.recoverSegments();
+            }
+        }
+    }
+
+    /**
+     * Recovers only the segments, which might have been modified by processes, which crashed
+     * while having this map opened (see {@link #openedOnlyByDeadProcesses()}). Falls back to full
+     * {@link #recover()}, if the global mutable state or the tier chains of segments are
+     * inconsistent.
+     */
+    public void recoverLockedSegments() throws IOException {
+        if (basicRecover()) {
+            // segments, which are marked as needing lazy recovery, are recovered in the context
+            // below, not when initialized in this context
+            recoveringSegments.set(true);
+            try (IterationContext<K, V, ?> iterationContext = iterationContext()) {
+                if (iterationContext.recoverLockedSegments())
+                    return;
+            } finally {
+                recoveringSegments.set(false);
+            }
+        }
+        recover();
+    }
+
+    @Override
+    public void recoverSegmentLazily(int segmentIndex, boolean waitForAnotherThread) {
+        if (recoveringSegments.get())
+            return;
+        if (waitForAnotherThread) {
+            // the segment is recovered by the sweeper, started whenever the map is opened with
+            // segments marked as needing recovery, but don't wait forever, if it fails
+            long segmentHeaderAddress = segmentHeaderAddress(segmentIndex);
+            long deadline = System.nanoTime() + SECONDS.toNanos(LOCK_TIMEOUT_SECONDS);
+            while (BigSegmentHeader.INSTANCE.needsRecovery(segmentHeaderAddress)) {
+                checkOpen();
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IllegalStateException("Segment " + segmentIndex + " of map " +
+                            "persisted at " + file() + " is not recovered by another thread in " +
+                            LOCK_TIMEOUT_SECONDS + " seconds, it couldn't be recovered in this " +
+                            "thread, because an iteration context is locked in this thread");
+                }
+                LockSupport.parkNanos(this, MILLISECONDS.toNanos(1));
+            }
+            return;
+        }
+        recoveringSegments.set(true);
+        try (IterationContext<K, V, ?> c = iterationContext()) {
+            c.recoverSegmentLazily(segmentIndex);
+        } finally {
+            recoveringSegments.set(false);
         }
     }
 
+    /**
+     * Returns {@code true} if the segment with the given index is not recovered yet, after
+     * the map is opened with lazy recovery.
+     */
+    public boolean segmentNeedsRecovery(int segmentIndex) {
+        return BigSegmentHeader.INSTANCE.needsRecovery(segmentHeaderAddress(segmentIndex));
+    }
+
+    /**
+     * Returns the total number of entries, checksums of which are verified by the background
+     * checksum scrubbing since this map instance is created, 0 if the scrubbing is disabled.
+     *
+     * @see net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI#checksumScrubbing
+     */
+    public long checksumScrubbedEntries() {
+        ChecksumScrubber scrubber = this.checksumScrubber;
+        return scrubber != null ? scrubber.verifiedEntries() : 0;
+    }
+
+    /**
+     * Returns the total size of keys and values of the entries, checksums of which are verified by
+     * the background checksum scrubbing since this map instance is created, in bytes, 0 if the
+     * scrubbing is disabled.
+     */
+    public long checksumScrubbedBytes() {
+        ChecksumScrubber scrubber = this.checksumScrubber;
+        return scrubber != null ? scrubber.verifiedBytes() : 0;
+    }
+
+    /**
+     * Returns the number of entries with mismatching checksums, found by the background checksum
+     * scrubbing since this map instance is created, 0 if the scrubbing is disabled.
+     */
+    public long checksumScrubbingCorruptEntries() {
+        ChecksumScrubber scrubber = this.checksumScrubber;
+        return scrubber != null ? scrubber.corruptEntries() : 0;
+    }
+
+    /**
+     * Returns the number of corrupt entries, removed by the background checksum scrubbing since
+     * this map instance is created, 0 if the scrubbing is disabled or doesn't quarantine corrupt
+     * entries.
+     */
+    public long checksumScrubbingQuarantinedEntries() {
+        ChecksumScrubber scrubber = this.checksumScrubber;
+        return scrubber != null ? scrubber.quarantinedEntries() : 0;
+    }
+
+    /**
+     * Returns the number of complete rounds of the background checksum scrubbing over all
+     * segments of this map, 0 if the scrubbing is disabled.
+     */
+    public long checksumScrubbingRounds() {
+        ChecksumScrubber scrubber = this.checksumScrubber;
+        return scrubber != null ? scrubber.completeRounds() : 0;
+    }
+
+    /**
+     * Returns the duration of the last complete round of the background checksum scrubbing, in
+     * nanoseconds, including the pauses of rate limiting, 0 if the scrubbing is disabled or no
+     * round is complete yet.
+     */
+    public long checksumScrubbingLastRoundNanos() {
+        ChecksumScrubber scrubber = this.checksumScrubber;
+        return scrubber != null ? scrubber.lastRoundNanos() : 0;
+    }
+
+    @Override
+    public void close() {
+        ChecksumScrubber scrubber = this.checksumScrubber;
+        if (scrubber != null)
+            scrubber.close();
+        super.close();
+    }
+
     private void initOwnTransients() {
         couldNotDetermineAlignmentBeforeAllocation =
                 greatestCommonDivisor((int) chunkSize, alignment) != alignment;
         cxt = new ThreadLocal<>();
+        recoveringSegments = ThreadLocal.withInitial(() -> false);
     }
 
     public final V checkValue(Object value) {
@@ -289,6 +452,7 @@ public class VanillaChronicleMap<K, V, R>
         return iterContext;
     }
 
+    @Override
     public IterationContext<K, V, ?> iterationContext() {
         return i().getContext(CompiledMapIterationContext.class,
                 ci -> new CompiledMapIterationContext<>(ci, this));
@@ -0,0 +1,210 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
+import net.openhft.chronicle.map.impl.IterationContext;
+import net.openhft.chronicle.wire.ReadMarshallable;
+import net.openhft.chronicle.wire.TextWire;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireIn;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static net.openhft.chronicle.map.MapDumps.*;
+
+/**
+ * Exports entries of a {@link ChronicleMap} to a YAML file, using Chronicle Wire's {@link
+ * TextWire}, and imports them back, streaming: entries are written and read in batches, memory
+ * usage is bounded by the size of a batch, not the size of the map.
+ *
+ * <p>The file is a sequence of YAML documents, separated by "---" lines. The first document is
+ * the header with key and value classes of the exported map, each of the following documents
+ * is a batch of up to {@link #ENTRIES_PER_BATCH} entries: <pre>{@code
+ * keyClass: !type java.lang.Integer
+ * valueClass: !type java.lang.String
+ * ---
+ * entry: { key: 1, value: one }
+ * entry: { key: 2, value: two }
+ * ---
+ * }</pre>
+ * Keys and values are written as Chronicle Wire objects, so they should be of types, supported by
+ * {@link net.openhft.chronicle.wire.ValueOut#object(Object)}: strings, boxed primitives, {@link
+ * net.openhft.chronicle.wire.Marshallable}s, etc. The file is compressed with GZIP, if its name
+ * ends with ".gz".
+ *
+ * <p>Each batch is exported under the segment read lock, and written to the file after the lock
+ * is released. The export checks the interruption status of the calling thread between batches.
+ *
+ * @see ChronicleMap#getAll(File)
+ * @see ChronicleMap#putAll(File)
+ */
+final class YamlMapDump {
+
+    static final int ENTRIES_PER_BATCH = 1024;
+    private static final String DOCUMENT_SEPARATOR = "---";
+
+    private YamlMapDump() {}
+
+    /**
+     * Returns {@code true} if the file name ends with ".yaml" or ".yml", optionally followed by
+     * ".gz".
+     */
+    static boolean isYamlFile(File file) {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".gz"))
+            name = name.substring(0, name.length() - ".gz".length());
+        return name.endsWith(".yaml") || name.endsWith(".yml");
+    }
+
+    static <K, V> void exportTo(File toFile, VanillaChronicleMap<K, V, ?> map)
+            throws IOException {
+        Bytes<?> batch = Bytes.allocateElasticDirect();
+        try (OutputStream out = openOutput(toFile)) {
+            byte[] transferBuffer = new byte[TRANSFER_BUFFER_SIZE];
+            Wire wire = new TextWire(batch);
+            wire.write(() -> "keyClass").typeLiteral(map.keyClass);
+            wire.write(() -> "valueClass").typeLiteral(map.valueClass);
+            writeDocument(batch, out, transferBuffer);
+
+            EntryWriter<K, V> entryWriter = new EntryWriter<>(wire);
+            SegmentCursor cursor = new SegmentCursor();
+            for (int segmentIndex = 0; segmentIndex < map.segments(); segmentIndex++) {
+                cursor.reset();
+                boolean moreEntries = true;
+                while (moreEntries) {
+                    if (Thread.interrupted()) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Export of the map is interrupted");
+                    }
+                    try (IterationContext<K, V, ?> c = map.iterationContext()) {
+                        c.initSegmentIndex(segmentIndex);
+                        moreEntries = c.forEachSegmentEntryBatch(
+                                cursor, ENTRIES_PER_BATCH, entryWriter);
+                    }
+                    if (batch.readRemaining() > 0)
+                        writeDocument(batch, out, transferBuffer);
+                }
+            }
+        } finally {
+            batch.release();
+        }
+    }
+
+    private static class EntryWriter<K, V> implements Consumer<MapEntry<K, V>> {
+        private final Wire wire;
+        private K usingKey;
+        private V usingValue;
+
+        EntryWriter(Wire wire) {
+            this.wire = wire;
+        }
+
+        @Override
+        public void accept(MapEntry<K, V> e) {
+            K key = usingKey = e.key().getUsing(usingKey);
+            V value = usingValue = e.value().getUsing(usingValue);
+            wire.write(() -> "entry").marshallable(w -> {
+                w.write(() -> "key").object(key);
+                w.write(() -> "value").object(value);
+            });
+        }
+    }
+
+    private static void writeDocument(Bytes<?> document, OutputStream out, byte[] transferBuffer)
+            throws IOException {
+        while (document.readRemaining() > 0) {
+            int read = document.read(transferBuffer);
+            out.write(transferBuffer, 0, read);
+        }
+        out.write((DOCUMENT_SEPARATOR + "\n").getBytes(StandardCharsets.US_ASCII));
+        document.clear();
+    }
+
+    static <K, V> void importFrom(File fromFile, VanillaChronicleMap<K, V, ?> map)
+            throws IOException {
+        Bytes<?> document = Bytes.allocateElasticDirect();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(openInput(fromFile), StandardCharsets.UTF_8))) {
+            Wire wire = new TextWire(document);
+            if (!readDocument(in, document))
+                throw new IOException(fromFile + " is empty");
+            Class<?> keyClass = wire.read(() -> "keyClass").typeLiteral();
+            Class<?> valueClass = wire.read(() -> "valueClass").typeLiteral();
+            checkImportable(keyClass, valueClass, map);
+
+            EntryReader<K, V> entryReader = new EntryReader<>(map);
+            while (readDocument(in, document)) {
+                while (true) {
+                    wire.consumePadding();
+                    if (document.readRemaining() == 0)
+                        break;
+                    wire.read(() -> "entry").marshallable(entryReader);
+                    entryReader.put();
+                }
+            }
+        } finally {
+            document.release();
+        }
+    }
+
+    /**
+     * Reads lines until the document separator or the end of the input into the given bytes.
+     *
+     * @return {@code false} if the end of the input is reached and the document is empty
+     */
+    private static boolean readDocument(BufferedReader in, Bytes<?> document) throws IOException {
+        document.clear();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(DOCUMENT_SEPARATOR))
+                return true;
+            document.appendUtf8(line).append('\n');
+        }
+        return document.readRemaining() > 0;
+    }
+
+    private static class EntryReader<K, V> implements ReadMarshallable {
+        private final VanillaChronicleMap<K, V, ?> map;
+        private K key;
+        private V value;
+
+        EntryReader(VanillaChronicleMap<K, V, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void readMarshallable(WireIn wire) {
+            key = wire.read(() -> "key").object(key, map.keyClass);
+            value = wire.read(() -> "value").object(value, map.valueClass);
+        }
+
+        /**
+         * Puts the last read entry into the map, without deserialization of the previous value.
+         */
+        void put() {
+            try (ExternalMapQueryContext<K, V, ?> c = map.queryContext(key)) {
+                MapDumps.put(c, c.wrapValueAsData(value));
+            }
+        }
+    }
+
+}
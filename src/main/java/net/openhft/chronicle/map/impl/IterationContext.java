@@ -17,11 +17,14 @@
 
 package net.openhft.chronicle.map.impl;
 
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
 import net.openhft.chronicle.map.MapEntry;
 import net.openhft.chronicle.map.MapSegmentContext;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface IterationContext<K, V, R> extends MapEntry<K, V>, MapSegmentContext<K, V, R> {
     long pos();
@@ -29,4 +32,22 @@ public interface IterationContext<K, V, R> extends MapEntry<K, V>, MapSegmentCon
     void initSegmentIndex(int segmentIndex);
 
     void recoverSegments();
+
+    void recoverFirstTier(int segmentIndex);
+
+    void recoverExtraTiers();
+
+    void removeDuplicatesInSegment(int segmentIndex);
+
+    void prepareLazyRecovery();
+
+    void recoverSegmentLazily(int segmentIndex);
+
+    boolean recoverLockedSegments();
+
+    boolean forEachSegmentEntryBatch(
+            SegmentCursor cursor, int batchSize, Consumer<? super MapEntry<K, V>> action);
+
+    boolean forEachSegmentEntryBatchWhile(
+            SegmentCursor cursor, int batchSize, Predicate<? super MapEntry<K, V>> predicate);
 }
@@ -17,7 +17,26 @@
 
 package net.openhft.chronicle.map.impl;
 
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
+import net.openhft.chronicle.hash.replication.ReplicableEntry;
+
+import java.util.function.Predicate;
+
 public interface ReplicatedIterationContext<K, V, R> extends IterationContext<K, V, R> {
 
     void readExistingEntry(long pos);
+
+    /**
+     * Visits present and deleted entries of the segment, starting from the position of the given
+     * cursor, under the segment update lock, and advances the cursor. The update lock is held
+     * only for the duration of the batch, i. e. until at least {@code batchSize} entries are
+     * visited. Entries could be removed in the {@code predicate}, but their values shouldn't be
+     * replaced.
+     *
+     * @return {@code true} if there are more entries to visit in the segment, or the iteration is
+     * interrupted by the {@code predicate}, {@code false} if the iteration over the segment is
+     * complete
+     */
+    boolean forEachSegmentReplicableEntryBatchWhile(
+            SegmentCursor cursor, int batchSize, Predicate<? super ReplicableEntry> predicate);
 }
@@ -0,0 +1,226 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.RandomDataInput;
+
+/**
+ * Byte ranges of a replicated entry value, changed since the version of the entry with the given
+ * base timestamp and identifier, i. e. the version, which was last sent to a remote node. Ranges
+ * are kept sorted and non-overlapping, close ranges are coalesced.
+ *
+ * <p>Serialized form of the ranges (patches): stop bit-encoded number of ranges, then for each
+ * range stop bit-encoded distance from the end of the previous range, stop bit-encoded length and
+ * the bytes of the range, taken from the new version of the value.
+ */
+public final class ValueDelta {
+
+    /**
+     * Ranges, separated by a gap of this size or smaller, are coalesced, because encoding of a
+     * separate range takes about as many bytes
+     */
+    private static final long MIN_GAP = 16;
+    /**
+     * If a delta has more ranges than this, all ranges are coalesced into one, to bound the
+     * memory footprint of pending deltas
+     */
+    private static final int MAX_RANGES = 16;
+
+    private final long baseTimestamp;
+    private final byte baseIdentifier;
+    private final long valueSize;
+    private long[] ranges;
+    private int rangeCount;
+
+    private ValueDelta(long baseTimestamp, byte baseIdentifier, long valueSize, long[] ranges,
+                       int rangeCount) {
+        this.baseTimestamp = baseTimestamp;
+        this.baseIdentifier = baseIdentifier;
+        this.valueSize = valueSize;
+        this.ranges = ranges;
+        this.rangeCount = rangeCount;
+    }
+
+    /**
+     * Returns the delta between the old and the new versions of the value of the same size.
+     */
+    public static ValueDelta diff(long baseTimestamp, byte baseIdentifier,
+                                  RandomDataInput oldValue, long oldOffset,
+                                  RandomDataInput newValue, long newOffset, long valueSize) {
+        ValueDelta delta = new ValueDelta(
+                baseTimestamp, baseIdentifier, valueSize, new long[4], 0);
+        long i = 0;
+        while (i < valueSize) {
+            while (i + 8 <= valueSize &&
+                    oldValue.readLong(oldOffset + i) == newValue.readLong(newOffset + i)) {
+                i += 8;
+            }
+            while (i < valueSize &&
+                    oldValue.readByte(oldOffset + i) == newValue.readByte(newOffset + i)) {
+                i++;
+            }
+            if (i == valueSize)
+                break;
+            long from = i;
+            long lastDifferent = i;
+            for (i++; i < valueSize && i - lastDifferent <= MIN_GAP; i++) {
+                if (oldValue.readByte(oldOffset + i) != newValue.readByte(newOffset + i))
+                    lastDifferent = i;
+            }
+            delta.addRange(from, lastDifferent + 1);
+        }
+        return delta;
+    }
+
+    /**
+     * Returns the delta of a single range of the value of the given size.
+     */
+    public static ValueDelta range(long baseTimestamp, byte baseIdentifier, long valueSize,
+                                   long offset, long length) {
+        ValueDelta delta = new ValueDelta(
+                baseTimestamp, baseIdentifier, valueSize, new long[2], 0);
+        if (length > 0)
+            delta.addRange(offset, offset + length);
+        return delta;
+    }
+
+    public long baseTimestamp() {
+        return baseTimestamp;
+    }
+
+    public byte baseIdentifier() {
+        return baseIdentifier;
+    }
+
+    public long valueSize() {
+        return valueSize;
+    }
+
+    public ValueDelta copy() {
+        return new ValueDelta(baseTimestamp, baseIdentifier, valueSize, ranges.clone(), rangeCount);
+    }
+
+    /**
+     * Adds the ranges of the given subsequent delta of the same value to this delta. The base
+     * version of this delta is retained.
+     */
+    public void merge(ValueDelta subsequent) {
+        for (int i = 0; i < subsequent.rangeCount; i++) {
+            addRange(subsequent.ranges[2 * i], subsequent.ranges[2 * i + 1]);
+        }
+    }
+
+    private void addRange(long from, long to) {
+        // find the first range, which ends not before the gap before the new range
+        int i = 0;
+        while (i < rangeCount && ranges[2 * i + 1] + MIN_GAP < from) {
+            i++;
+        }
+        // absorb all ranges, which start not after the gap after the new range
+        int j = i;
+        while (j < rangeCount && ranges[2 * j] <= to + MIN_GAP) {
+            from = Math.min(from, ranges[2 * j]);
+            to = Math.max(to, ranges[2 * j + 1]);
+            j++;
+        }
+        int newRangeCount = rangeCount - (j - i) + 1;
+        if (newRangeCount > MAX_RANGES) {
+            long first = Math.min(from, ranges[0]);
+            long last = Math.max(to, ranges[2 * rangeCount - 1]);
+            ranges[0] = first;
+            ranges[1] = last;
+            rangeCount = 1;
+            return;
+        }
+        if (2 * newRangeCount > ranges.length) {
+            long[] newRanges = new long[Math.min(2 * MAX_RANGES, ranges.length * 2)];
+            System.arraycopy(ranges, 0, newRanges, 0, 2 * rangeCount);
+            ranges = newRanges;
+        }
+        System.arraycopy(ranges, 2 * j, ranges, 2 * (i + 1), 2 * (rangeCount - j));
+        ranges[2 * i] = from;
+        ranges[2 * i + 1] = to;
+        rangeCount = newRangeCount;
+    }
+
+    /**
+     * Returns {@code true}, if the patches of this delta are considerably smaller than the value.
+     */
+    public boolean worthSending() {
+        long patchBytes = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            patchBytes += ranges[2 * i + 1] - ranges[2 * i] + 4;
+        }
+        return patchBytes < valueSize / 2;
+    }
+
+    /**
+     * Writes the patches of this delta, taking bytes of the ranges from the given new version of
+     * the value.
+     */
+    public void writePatches(Bytes destination, RandomDataInput value, long valueOffset) {
+        destination.writeStopBit(rangeCount);
+        long previousEnd = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            long from = ranges[2 * i];
+            long to = ranges[2 * i + 1];
+            destination.writeStopBit(from - previousEnd);
+            destination.writeStopBit(to - from);
+            destination.write(value, valueOffset + from, to - from);
+            previousEnd = to;
+        }
+    }
+
+    /**
+     * Reads patches, written by {@link #writePatches}, from the source and applies them to the
+     * value of the given size in the target.
+     *
+     * @return {@code false} if a patch is out of the value bounds, in this case the rest of the
+     * patches is skipped
+     */
+    public static boolean applyPatches(Bytes source, BytesStore target, long valueSize) {
+        long rangeCount = source.readStopBit();
+        long previousEnd = 0;
+        boolean applied = true;
+        for (long i = 0; i < rangeCount; i++) {
+            long from = previousEnd + source.readStopBit();
+            long length = source.readStopBit();
+            if (applied && from + length <= valueSize) {
+                target.write(from, source, source.readPosition(), length);
+            } else {
+                applied = false;
+            }
+            source.readSkip(length);
+            previousEnd = from + length;
+        }
+        return applied;
+    }
+
+    /**
+     * Skips patches, written by {@link #writePatches}, in the source.
+     */
+    public static void skipPatches(Bytes source) {
+        long rangeCount = source.readStopBit();
+        for (long i = 0; i < rangeCount; i++) {
+            source.readStopBit();
+            source.readSkip(source.readStopBit());
+        }
+    }
+}
@@ -181,6 +181,20 @@ public abstract class MapEntryStages<K, V> extends HashEntryStages<K>
         }
     }
 
+    public void innerUpdateValueBytes(
+            long offsetInValue, RandomDataInput source, long sourceOffset, long length) {
+        assert s.innerUpdateLock.isHeldByCurrentThread();
+        if (offsetInValue < 0 || length < 0 || offsetInValue + length > valueSize) {
+            throw new IndexOutOfBoundsException("Update of " + length + " bytes at offset " +
+                    offsetInValue + " is out of the value bounds, value size: " + valueSize);
+        }
+        // Concurrent readers shouldn't observe partially updated value, the same as in
+        // innerDefaultReplaceValue(), but the scope of the write lock is only the bytes copy
+        s.innerWriteLock.lock();
+        initDelayedUpdateChecksum(true);
+        s.segmentBS.write(valueOffset + offsetInValue, source, sourceOffset, length);
+    }
+
     public long newEntrySize(Data<V> newValue, long entryStartOffset, long newValueOffset) {
         return checksumStrategy.extraEntryBytes() +
                 newValueOffset + newValue.size() - entryStartOffset;
@@ -18,15 +18,16 @@
 package net.openhft.chronicle.map.impl.stage.entry;
 
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.RandomDataInput;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.map.impl.ReplicatedChronicleMapHolder;
+import net.openhft.chronicle.map.impl.ValueDelta;
 import net.openhft.chronicle.map.impl.stage.replication.ReplicationUpdate;
 import net.openhft.chronicle.map.replication.MapReplicableEntry;
 import net.openhft.sg.Stage;
 import net.openhft.sg.StageRef;
 import net.openhft.sg.Staged;
 
-import static net.openhft.chronicle.hash.replication.TimeProvider.currentTime;
 import static net.openhft.chronicle.map.ReplicatedChronicleMap.ADDITIONAL_ENTRY_BYTES;
 
 @Staged
@@ -152,7 +153,7 @@ public abstract class ReplicatedMapEntryStages<K, V> extends MapEntryStages<K, V
     public void updatedReplicationStateOnPresentEntry() {
         if (!ru.replicationUpdateInit()) {
             s.innerWriteLock.lock();
-            long timestamp = Math.max(timestamp() + 1, currentTime());
+            long timestamp = Math.max(timestamp() + 1, mh.m().timestampSource.currentTime());
             updateReplicationState(mh.m().identifier(), timestamp);
         }
     }
@@ -160,7 +161,72 @@ public abstract class ReplicatedMapEntryStages<K, V> extends MapEntryStages<K, V
     public void updatedReplicationStateOnAbsentEntry() {
         if (!ru.replicationUpdateInit()) {
             s.innerWriteLock.lock();
-            updateReplicationState(mh.m().identifier(), currentTime());
+            updateReplicationState(mh.m().identifier(), mh.m().timestampSource.currentTime());
+        }
+    }
+
+    /**
+     * The delta of the value of the entry, made by the current local update, if {@linkplain
+     * net.openhft.chronicle.map.ReplicatedChronicleMap#deltaReplication delta replication} is
+     * enabled. Consumed by {@link ReplicationUpdate#updateChange()}.
+     */
+    @Stage("ValueDelta") ValueDelta valueDelta = null;
+    @Stage("ValueDelta") long valueDeltaTierIndex;
+    @Stage("ValueDelta") long valueDeltaPos;
+
+    void initValueDelta(ValueDelta valueDelta) {
+        this.valueDelta = valueDelta;
+        valueDeltaTierIndex = s.tierIndex;
+        valueDeltaPos = pos;
+    }
+
+    public abstract boolean valueDeltaInit();
+
+    public abstract void closeValueDelta();
+
+    /**
+     * Returns and clears the delta of the value, made by the current local update of this entry,
+     * or {@code null}, if the update couldn't be replicated as a delta.
+     */
+    public ValueDelta takeValueDelta() {
+        if (!valueDeltaInit())
+            return null;
+        ValueDelta delta = valueDeltaTierIndex == s.tierIndex && valueDeltaPos == pos ?
+                valueDelta : null;
+        closeValueDelta();
+        return delta;
+    }
+
+    private boolean valueDeltaApplicable() {
+        return mh.m().deltaReplication && !ru.replicationUpdateInit() && !entryDeleted();
+    }
+
+    @Override
+    public void innerDefaultReplaceValue(Data<V> newValue) {
+        if (newValue.size() == valueSize && valueDeltaApplicable()) {
+            addValueDelta(ValueDelta.diff(timestamp(), identifier(), s.segmentBS, valueOffset,
+                    newValue.bytes(), newValue.offset(), valueSize));
+        } else if (valueDeltaInit()) {
+            closeValueDelta();
+        }
+        super.innerDefaultReplaceValue(newValue);
+    }
+
+    @Override
+    public void innerUpdateValueBytes(
+            long offsetInValue, RandomDataInput source, long sourceOffset, long length) {
+        super.innerUpdateValueBytes(offsetInValue, source, sourceOffset, length);
+        if (valueDeltaApplicable()) {
+            addValueDelta(ValueDelta.range(
+                    timestamp(), identifier(), valueSize, offsetInValue, length));
+        }
+    }
+
+    private void addValueDelta(ValueDelta delta) {
+        if (valueDeltaInit() && valueDeltaTierIndex == s.tierIndex && valueDeltaPos == pos) {
+            valueDelta.merge(delta);
+        } else {
+            initValueDelta(delta);
         }
     }
 
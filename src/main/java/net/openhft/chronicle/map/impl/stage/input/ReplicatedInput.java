@@ -18,19 +18,26 @@
 package net.openhft.chronicle.map.impl.stage.input;
 
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.impl.stage.entry.SegmentStages;
 import net.openhft.chronicle.hash.impl.stage.hash.CheckOnEachPublicOperation;
+import net.openhft.chronicle.hash.impl.stage.query.KeySearch;
 import net.openhft.chronicle.hash.replication.RemoteOperationContext;
 import net.openhft.chronicle.map.Replica;
 import net.openhft.chronicle.map.impl.ReplicatedChronicleMapHolder;
+import net.openhft.chronicle.map.impl.ValueDelta;
 import net.openhft.chronicle.map.impl.stage.data.DummyValueZeroData;
+import net.openhft.chronicle.map.impl.stage.entry.ReplicatedMapEntryStages;
 import net.openhft.chronicle.map.impl.stage.query.ReplicatedMapQuery;
 import net.openhft.chronicle.map.impl.stage.replication.ReplicationUpdate;
 import net.openhft.chronicle.map.replication.MapRemoteQueryContext;
 import net.openhft.sg.StageRef;
 import net.openhft.sg.Staged;
 
+import static net.openhft.chronicle.hash.replication.DefaultEventualConsistencyStrategy.AcceptanceDecision.DISCARD;
+import static net.openhft.chronicle.hash.replication.DefaultEventualConsistencyStrategy.decideOnRemoteModification;
+
 @Staged
 public abstract class ReplicatedInput<K, V, R> implements RemoteOperationContext<K>,
         MapRemoteQueryContext<K, V, R>, Replica.QueryContext<K, V> {
@@ -41,6 +48,13 @@ public abstract class ReplicatedInput<K, V, R> implements RemoteOperationContext
     @StageRef ReplicatedMapQuery<K, V, ?> q;
     @StageRef SegmentStages s;
     @StageRef DummyValueZeroData<V> dummyValue;
+    @StageRef ReplicatedMapEntryStages<K, V> e;
+    @StageRef KeySearch<K> ks;
+
+    /**
+     * Buffer, where the local value is copied and patched in {@link #processReplicatedDelta}
+     */
+    private byte[] patchedValue = new byte[0];
 
     @Override
     public Data<V> dummyZeroValue() {
@@ -72,6 +86,52 @@ public abstract class ReplicatedInput<K, V, R> implements RemoteOperationContext
         }
     }
 
+    /**
+     * Applies a delta update, written by {@code ReplicatedChronicleMap.writeExternalDelta()}. If
+     * the local entry (or the deleted entry) is already at the version of the delta, or is newer
+     * and wins over it, the delta is redundant and dropped. Otherwise, if the local version of the
+     * entry is not the base version of the delta, the delta is skipped, and resync of entries
+     * from the remote node is requested.
+     */
+    public void processReplicatedDelta(byte remoteNodeIdentifier, Bytes replicatedInputBytes) {
+        long timestamp = replicatedInputBytes.readStopBit();
+        byte identifier = replicatedInputBytes.readByte();
+        long baseTimestamp = replicatedInputBytes.readStopBit();
+        byte baseIdentifier = replicatedInputBytes.readByte();
+        ru.initReplicationUpdate(identifier, timestamp, remoteNodeIdentifier);
+
+        long keySize = mh.m().keySizeMarshaller.readSize(replicatedInputBytes);
+        long keyOffset = replicatedInputBytes.readPosition();
+        q.initInputKey(q.getInputKeyBytesAsData(replicatedInputBytes, keyOffset, keySize));
+        replicatedInputBytes.readSkip(keySize);
+        long valueSize = replicatedInputBytes.readStopBit();
+
+        s.innerUpdateLock.lock();
+        if (ks.searchStatePresent() &&
+                ((e.timestamp() == timestamp && e.originIdentifier() == identifier) ||
+                        decideOnRemoteModification(e, this) == DISCARD)) {
+            // the full entry would be discarded as well, resync is not needed
+            ValueDelta.skipPatches(replicatedInputBytes);
+            return;
+        }
+        if (q.entryPresent() && e.valueSize == valueSize &&
+                e.timestamp() == baseTimestamp && e.originIdentifier() == baseIdentifier) {
+            if (patchedValue.length < valueSize)
+                patchedValue = new byte[(int) valueSize];
+            BytesStore patched = BytesStore.wrap(patchedValue);
+            patched.write(0, s.segmentBS, e.valueOffset, valueSize);
+            if (ValueDelta.applyPatches(replicatedInputBytes, patched, valueSize)) {
+                Data<V> value = q.wrapValueBytesAsData(patched, 0, valueSize);
+                s.innerWriteLock.lock();
+                mh.m().remoteOperations.put(this, value);
+                return;
+            }
+        } else {
+            ValueDelta.skipPatches(replicatedInputBytes);
+        }
+        mh.m().requestDeltaResync(remoteNodeIdentifier, timestamp);
+    }
+
     @Override
     public void remotePut(
             Data<V> newValue,
@@ -17,8 +17,10 @@
 
 package net.openhft.chronicle.map.impl.stage.iter;
 
+import net.openhft.chronicle.bytes.RandomDataInput;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.impl.stage.iter.HashSegmentIteration;
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
 import net.openhft.chronicle.map.MapEntry;
 import net.openhft.chronicle.map.impl.IterationContext;
 import net.openhft.chronicle.map.impl.stage.entry.MapEntryStages;
@@ -31,6 +33,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 @Staged
 public abstract class MapSegmentIteration<K, V, R> extends HashSegmentIteration<K, MapEntry<K, V>>
@@ -42,6 +45,7 @@ public abstract class MapSegmentIteration<K, V, R> extends HashSegmentIteration<
     @Override
     public void doReplaceValue(Data<V> newValue) {
         checkOnEachPublicOperation.checkOnEachPublicOperation();
+        locateHashLookupEntry();
         try {
             entry.innerDefaultReplaceValue(newValue);
         } finally {
@@ -49,6 +53,25 @@ public abstract class MapSegmentIteration<K, V, R> extends HashSegmentIteration<
         }
     }
 
+    @Override
+    public void doUpdateValueBytes(
+            long offsetInValue, RandomDataInput source, long sourceOffset, long length) {
+        checkOnEachPublicOperation.checkOnEachPublicOperation();
+        try {
+            entry.innerUpdateValueBytes(offsetInValue, source, sourceOffset, length);
+        } finally {
+            s.innerWriteLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean forEachSegmentEntryBatchWhile(
+            SegmentCursor cursor, int batchSize, Predicate<? super MapEntry<K, V>> predicate) {
+        checkOnEachPublicOperation.checkOnEachPublicOperation();
+        s.innerUpdateLock.lock();
+        return innerForEachSegmentEntryBatchWhile(cursor, batchSize, predicate);
+    }
+
     @NotNull
     @Override
     public WrappedValueInstanceDataHolderAccess<K, V, ?> context() {
@@ -17,6 +17,8 @@
 
 package net.openhft.chronicle.map.impl.stage.iter;
 
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.hash.ChecksumEntry;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.impl.stage.replication.ReplicableEntryDelegating;
 import net.openhft.chronicle.hash.replication.ReplicableEntry;
@@ -29,7 +31,7 @@ import org.jetbrains.annotations.NotNull;
 
 @Staged
 public class  ReplicatedMapEntryDelegating<K, V>
-        implements MapEntry<K, V>, ReplicableEntryDelegating {
+        implements MapEntry<K, V>, ReplicableEntryDelegating, ChecksumEntry {
 
     @StageRef ReplicatedMapSegmentIteration<K, V, ?> delegate;
     @StageRef ReplicatedMapEntryStages<K, V> e;
@@ -57,11 +59,27 @@ public class  ReplicatedMapEntryDelegating<K, V>
         delegate.doReplaceValue(newValue);
     }
 
+    @Override
+    public void doUpdateValueBytes(
+            long offsetInValue, RandomDataInput source, long sourceOffset, long length) {
+        delegate.doUpdateValueBytes(offsetInValue, source, sourceOffset, length);
+    }
+
     @Override
     public void doRemove() {
         delegate.doRemove();
     }
 
+    @Override
+    public void updateChecksum() {
+        e.updateChecksum();
+    }
+
+    @Override
+    public boolean checkSum() {
+        return e.checkSum();
+    }
+
     @Override
     public ReplicableEntry d() {
         return e;
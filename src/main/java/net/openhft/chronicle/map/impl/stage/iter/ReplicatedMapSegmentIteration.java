@@ -17,8 +17,10 @@
 
 package net.openhft.chronicle.map.impl.stage.iter;
 
+import net.openhft.chronicle.bytes.RandomDataInput;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.ReplicatedHashSegmentContext;
+import net.openhft.chronicle.hash.impl.stage.iter.SegmentCursor;
 import net.openhft.chronicle.hash.replication.ReplicableEntry;
 import net.openhft.chronicle.map.MapEntry;
 import net.openhft.chronicle.map.impl.ReplicatedIterationContext;
@@ -73,6 +75,7 @@ public abstract class ReplicatedMapSegmentIteration<K, V, R> extends MapSegmentI
     @Override
     public void doReplaceValue(Data<V> newValue) {
         checkOnEachPublicOperation.checkOnEachPublicOperation();
+        locateHashLookupEntry();
         try {
             entry.innerDefaultReplaceValue(newValue);
             e.updatedReplicationStateOnPresentEntry();
@@ -82,6 +85,19 @@ public abstract class ReplicatedMapSegmentIteration<K, V, R> extends MapSegmentI
         }
     }
 
+    @Override
+    public void doUpdateValueBytes(
+            long offsetInValue, RandomDataInput source, long sourceOffset, long length) {
+        checkOnEachPublicOperation.checkOnEachPublicOperation();
+        try {
+            entry.innerUpdateValueBytes(offsetInValue, source, sourceOffset, length);
+            e.updatedReplicationStateOnPresentEntry();
+            ru.updateChange();
+        } finally {
+            s.innerWriteLock.unlock();
+        }
+    }
+
     @Override
     public boolean forEachSegmentEntryWhile(Predicate<? super MapEntry<K, V>> predicate) {
         checkOnEachPublicOperation.checkOnEachPublicOperation();
@@ -90,6 +106,24 @@ public abstract class ReplicatedMapSegmentIteration<K, V, R> extends MapSegmentI
         return innerForEachSegmentEntryWhile(predicate);
     }
 
+    @Override
+    public boolean forEachSegmentEntryInAddressOrderWhile(
+            Predicate<? super MapEntry<K, V>> predicate) {
+        checkOnEachPublicOperation.checkOnEachPublicOperation();
+        initEntriesToTest(PRESENT);
+        s.innerUpdateLock.lock();
+        return innerForEachSegmentEntryWhile(predicate, true);
+    }
+
+    @Override
+    public boolean forEachSegmentEntryBatchWhile(
+            SegmentCursor cursor, int batchSize, Predicate<? super MapEntry<K, V>> predicate) {
+        checkOnEachPublicOperation.checkOnEachPublicOperation();
+        initEntriesToTest(PRESENT);
+        s.innerUpdateLock.lock();
+        return innerForEachSegmentEntryBatchWhile(cursor, batchSize, predicate);
+    }
+
     @Override
     public boolean forEachSegmentReplicableEntryWhile(
             Predicate<? super ReplicableEntry> predicate) {
@@ -99,6 +133,15 @@ public abstract class ReplicatedMapSegmentIteration<K, V, R> extends MapSegmentI
         return innerForEachSegmentEntryWhile(predicate);
     }
 
+    @Override
+    public boolean forEachSegmentReplicableEntryBatchWhile(
+            SegmentCursor cursor, int batchSize, Predicate<? super ReplicableEntry> predicate) {
+        checkOnEachPublicOperation.checkOnEachPublicOperation();
+        initEntriesToTest(ALL);
+        s.innerUpdateLock.lock();
+        return innerForEachSegmentEntryBatchWhile(cursor, batchSize, predicate);
+    }
+
     @Override
     public void forEachSegmentReplicableEntry(Consumer<? super ReplicableEntry> action) {
         forEachSegmentReplicableEntryWhile(e -> {
@@ -110,6 +153,7 @@ public abstract class ReplicatedMapSegmentIteration<K, V, R> extends MapSegmentI
     @Override
     public void doRemove() {
         checkOnEachPublicOperation.checkOnEachPublicOperation();
+        locateHashLookupEntry();
         try {
             if (e.valueSize > dummyValue.size())
                 e.innerDefaultReplaceValue(dummyValue);
@@ -134,6 +178,7 @@ public abstract class ReplicatedMapSegmentIteration<K, V, R> extends MapSegmentI
 
     public void doInsert(Data<V> value) {
         checkOnEachPublicOperation.checkOnEachPublicOperation();
+        locateHashLookupEntry();
         if (e.entryDeleted()) {
             try {
                 s.tierDeleted(s.tierDeleted() - 1);
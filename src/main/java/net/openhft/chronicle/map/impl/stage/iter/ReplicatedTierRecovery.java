@@ -95,5 +95,8 @@ public class ReplicatedTierRecovery extends TierRecovery {
                 break;
             }
         }
+        for (ReplicatedChronicleMap<?, ?, ?>.ModificationIterator it : its) {
+            it.rebuildSummary0(s.tierIndex);
+        }
     }
 }
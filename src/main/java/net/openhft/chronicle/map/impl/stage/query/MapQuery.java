@@ -18,6 +18,7 @@
 package net.openhft.chronicle.map.impl.stage.query;
 
 import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.RandomDataInput;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.impl.stage.data.bytes.InputKeyBytesData;
 import net.openhft.chronicle.hash.impl.stage.query.HashQuery;
@@ -116,6 +117,18 @@ public abstract class MapQuery<K, V, R> extends HashQuery<K>
         }
     }
 
+    @Override
+    public void doUpdateValueBytes(
+            long offsetInValue, RandomDataInput source, long sourceOffset, long length) {
+        putPrefix();
+        if (entryPresent()) {
+            e.innerUpdateValueBytes(offsetInValue, source, sourceOffset, length);
+        } else {
+            throw new IllegalStateException(
+                    "Entry is absent in the map when doUpdateValueBytes() is called");
+        }
+    }
+
     @NotNull
     @Override
     public MapQuery<K, V, R> context() {
@@ -17,6 +17,7 @@
 
 package net.openhft.chronicle.map.impl.stage.query;
 
+import net.openhft.chronicle.bytes.RandomDataInput;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.replication.ReplicableEntry;
 import net.openhft.chronicle.map.impl.stage.data.DummyValueZeroData;
@@ -100,4 +101,12 @@ public abstract class ReplicatedMapQuery<K, V, R> extends MapQuery<K, V, R>
         e.updatedReplicationStateOnPresentEntry();
         ru.updateChange();
     }
+
+    @Override
+    public void doUpdateValueBytes(
+            long offsetInValue, RandomDataInput source, long sourceOffset, long length) {
+        super.doUpdateValueBytes(offsetInValue, source, sourceOffset, length);
+        e.updatedReplicationStateOnPresentEntry();
+        ru.updateChange();
+    }
 }
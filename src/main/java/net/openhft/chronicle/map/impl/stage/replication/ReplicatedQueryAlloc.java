@@ -31,7 +31,6 @@ import net.openhft.sg.Staged;
 
 import java.util.function.Consumer;
 
-import static net.openhft.chronicle.hash.replication.TimeProvider.currentTime;
 import static net.openhft.chronicle.hash.replication.TimeProvider.systemTimeIntervalBetween;
 
 @Staged
@@ -70,7 +69,7 @@ public class ReplicatedQueryAlloc extends QueryAlloc {
             ReplicatedChronicleMap<?, ?, ?> map = mh.m();
             if (!(e instanceof MapAbsentEntry) || iterationContext.pos() == posToSkip)
                 return;
-            long currentTime = currentTime();
+            long currentTime = map.timestampSource.currentTime();
             if (e.originTimestamp() > currentTime)
                 return; // presumably unsynchronized clocks
             long deleteTimeout = systemTimeIntervalBetween(
@@ -63,7 +63,7 @@ public abstract class ReplicationUpdate<K> implements RemoteOperationContext<K>
     
     public void updateChange() {
         if (!replicationUpdateInit()) {
-            raiseChange();
+            mh.m().raiseChange(s.tierIndex, e.pos, e.takeValueDelta());
         }
     }
 
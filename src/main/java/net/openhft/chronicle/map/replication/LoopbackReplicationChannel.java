@@ -0,0 +1,84 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.replication;
+
+import net.openhft.chronicle.bytes.Bytes;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * {@link ReplicationChannel} between two replicas in the same JVM, for testing. Ends of a channel
+ * are created by {@link #pair()}.
+ */
+public final class LoopbackReplicationChannel implements ReplicationChannel {
+
+    /**
+     * Creates two connected ends of a loopback channel: frames, sent to one end, are received
+     * from the other.
+     *
+     * @return array of two connected channel ends
+     */
+    public static LoopbackReplicationChannel[] pair() {
+        Queue<byte[]> aToB = new ConcurrentLinkedQueue<>();
+        Queue<byte[]> bToA = new ConcurrentLinkedQueue<>();
+        return new LoopbackReplicationChannel[] {
+                new LoopbackReplicationChannel(bToA, aToB),
+                new LoopbackReplicationChannel(aToB, bToA)
+        };
+    }
+
+    private final Queue<byte[]> inbound;
+    private final Queue<byte[]> outbound;
+    private volatile boolean closed;
+
+    private LoopbackReplicationChannel(Queue<byte[]> inbound, Queue<byte[]> outbound) {
+        this.inbound = inbound;
+        this.outbound = outbound;
+    }
+
+    @Override
+    public void send(Bytes<?> frame) throws IOException {
+        checkOpen();
+        byte[] frameBytes = new byte[(int) frame.readRemaining()];
+        frame.read(frameBytes);
+        outbound.add(frameBytes);
+    }
+
+    @Override
+    public boolean receive(Bytes<?> destination) throws IOException {
+        checkOpen();
+        byte[] frameBytes = inbound.poll();
+        if (frameBytes == null)
+            return false;
+        destination.write(frameBytes);
+        return true;
+    }
+
+    private void checkOpen() throws ClosedChannelException {
+        if (closed)
+            throw new ClosedChannelException();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
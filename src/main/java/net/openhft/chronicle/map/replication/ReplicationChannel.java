@@ -0,0 +1,55 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.replication;
+
+import net.openhft.chronicle.bytes.Bytes;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A bidirectional, frame-oriented channel between two replicating nodes, used by {@link
+ * ReplicationEngine}. Frames are delivered to the other end whole and in the order they were sent.
+ *
+ * @see LoopbackReplicationChannel
+ * @see SocketReplicationChannel
+ * @see SharedMemoryReplicationChannel
+ */
+public interface ReplicationChannel extends Closeable {
+
+    /**
+     * Sends the readable bytes of the given {@code frame} to the other end of the channel as a
+     * single frame, consuming them. May block, if the channel couldn't accept the frame
+     * immediately.
+     *
+     * @param frame the bytes to send
+     * @throws IOException if the channel is closed or broken
+     */
+    void send(Bytes<?> frame) throws IOException;
+
+    /**
+     * Appends the next frame, received from the other end of the channel, to the {@code
+     * destination}. Doesn't block.
+     *
+     * @param destination the bytes to write the received frame to
+     * @return {@code true} if a frame was received, {@code false} if there is no complete frame
+     * available yet
+     * @throws IOException if the channel is closed or broken
+     */
+    boolean receive(Bytes<?> destination) throws IOException;
+}
@@ -0,0 +1,292 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.replication;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.map.Replica;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replicates a {@link Replica} to a single remote node over a {@link ReplicationChannel}, in both
+ * directions. Changed entries are drained from the {@linkplain Replica#acquireModificationIterator
+ * modification iterator} in batches of up to {@code maxEntriesPerFrame} entries, each batch is
+ * sent as a single frame. {@link Replica.ModificationIterator#drain(int, Bytes) drain()} writes
+ * changed entries of a segment tier together, so the receiving side applies them with {@link
+ * Replica.EntryExternalizable#readExternalEntry(Bytes, byte) readExternalEntry()} grouped by
+ * segment as well.
+ *
+ * <p>On start, each end sends a handshake with its identifier and the {@linkplain
+ * Replica#remoteNodeCouldBootstrapFrom(byte) time, from which it needs changes} of the remote
+ * node. On receiving the handshake, the other end {@linkplain
+ * Replica.ModificationIterator#dirtyEntries(long) dirties} all entries, changed since then, so a
+ * node, which was disconnected or restarted, catches up. The handshake is sent again, if a
+ * {@linkplain Replica#takeDeltaResyncTimestamp(byte) delta update couldn't be applied}.
+ *
+ * <p>The engine could be driven either by calling {@link #poll()} from an event loop, or by
+ * running it in a dedicated thread via {@link #run()}, until it is {@linkplain #close() closed}.
+ */
+public final class ReplicationEngine implements Runnable, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicationEngine.class);
+
+    static final byte HANDSHAKE_FRAME = 1;
+    static final byte ENTRIES_FRAME = 2;
+
+    /**
+     * Maximum number of frames, received in one {@link #poll()}, so that sending local changes is
+     * not starved by a fast remote node
+     */
+    private static final int MAX_RECEIVED_FRAMES_PER_POLL = 16;
+    private static final long MAX_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Replica replica;
+    private final Replica.EntryExternalizable entryExternalizable;
+    private final byte remoteIdentifier;
+    private final ReplicationChannel channel;
+    private final int maxEntriesPerFrame;
+    private final Replica.ModificationIterator modificationIterator;
+    private final Bytes<?> outFrame = Bytes.allocateElasticDirect(1 << 16);
+    private final Bytes<?> inFrame = Bytes.allocateElasticDirect(1 << 16);
+    private boolean handshakeSent;
+    private volatile boolean closed;
+    private volatile Thread runnerThread;
+    private boolean resourcesClosed;
+
+    /**
+     * @param replica the local replicated map, should implement {@link
+     *                Replica.EntryExternalizable} as well (all replicated Chronicle Maps do)
+     * @param remoteIdentifier the identifier of the remote node
+     * @param channel the channel to the remote node
+     * @param maxEntriesPerFrame the maximum number of changed entries, sent in a single frame
+     * @throws IllegalArgumentException if {@code replica} doesn't implement {@code
+     * EntryExternalizable}, {@code remoteIdentifier} is equal to the local identifier, or {@code
+     * maxEntriesPerFrame} is not positive
+     */
+    public ReplicationEngine(Replica replica, byte remoteIdentifier, ReplicationChannel channel,
+                             int maxEntriesPerFrame) {
+        if (!(replica instanceof Replica.EntryExternalizable)) {
+            throw new IllegalArgumentException(replica + " doesn't implement " +
+                    Replica.EntryExternalizable.class.getName());
+        }
+        if (replica.identifier() == remoteIdentifier) {
+            throw new IllegalArgumentException("Remote identifier " + remoteIdentifier +
+                    " is equal to the local identifier");
+        }
+        if (maxEntriesPerFrame <= 0) {
+            throw new IllegalArgumentException("maxEntriesPerFrame should be positive, " +
+                    maxEntriesPerFrame + " given");
+        }
+        this.replica = replica;
+        this.entryExternalizable = (Replica.EntryExternalizable) replica;
+        this.remoteIdentifier = remoteIdentifier;
+        this.channel = channel;
+        this.maxEntriesPerFrame = maxEntriesPerFrame;
+        modificationIterator = replica.acquireModificationIterator(remoteIdentifier);
+        modificationIterator.setModificationNotifier(this::wakeUp);
+    }
+
+    /**
+     * Makes a single, non-blocking round of replication: sends the handshake, if it is not sent
+     * yet, applies frames received from the remote node, and sends a batch of local changes.
+     *
+     * @return the number of received frames and sent entries, {@code 0} if there was nothing to do
+     * @throws IOException if the channel is broken
+     * @throws IllegalStateException if the engine is {@linkplain #close() closed}, or is
+     * {@linkplain #run() run} or polled by another thread
+     */
+    public int poll() throws IOException {
+        startRunning();
+        try {
+            return doPoll();
+        } finally {
+            stopRunning(false);
+        }
+    }
+
+    /**
+     * Makes the current thread the runner thread, under the same monitor, as {@link #close()}
+     * checks it, so that the resources are not released while they are used.
+     */
+    private synchronized void startRunning() {
+        if (closed) {
+            throw new IllegalStateException("Replication to the node " + remoteIdentifier +
+                    " is closed");
+        }
+        if (runnerThread != null) {
+            throw new IllegalStateException("Replication to the node " + remoteIdentifier +
+                    " is already run by " + runnerThread);
+        }
+        runnerThread = Thread.currentThread();
+    }
+
+    /**
+     * Clears the runner thread, and closes the resources, if the engine is closed meanwhile, or
+     * {@code stopEngine} is {@code true}.
+     */
+    private void stopRunning(boolean stopEngine) {
+        boolean closedMeanwhile;
+        synchronized (this) {
+            runnerThread = null;
+            closedMeanwhile = closed;
+            if (stopEngine)
+                closed = true;
+        }
+        if (closedMeanwhile) {
+            // clear the interrupt from close()
+            Thread.interrupted();
+        }
+        if (closedMeanwhile || stopEngine)
+            closeResources();
+    }
+
+    private int doPoll() throws IOException {
+        if (!handshakeSent) {
+            sendHandshake(replica.remoteNodeCouldBootstrapFrom(remoteIdentifier));
+            handshakeSent = true;
+        }
+        int work = 0;
+        for (int i = 0; i < MAX_RECEIVED_FRAMES_PER_POLL; i++) {
+            inFrame.clear();
+            if (!channel.receive(inFrame))
+                break;
+            onFrame(inFrame);
+            work++;
+        }
+        long resyncFrom = replica.takeDeltaResyncTimestamp(remoteIdentifier);
+        if (resyncFrom != 0) {
+            // a delta update from the remote node couldn't be applied, the handshake makes the
+            // remote node to resend entries, changed since then, in full
+            sendHandshake(resyncFrom);
+            work++;
+        }
+        outFrame.clear();
+        outFrame.writeByte(ENTRIES_FRAME);
+        int drained = modificationIterator.drain(maxEntriesPerFrame, outFrame);
+        // a frame without entries could still hold the bootstrap time
+        if (outFrame.readRemaining() > 1)
+            channel.send(outFrame);
+        return work + drained;
+    }
+
+    private void sendHandshake(long bootstrapTime) throws IOException {
+        outFrame.clear();
+        outFrame.writeByte(HANDSHAKE_FRAME);
+        outFrame.writeByte(replica.identifier());
+        outFrame.writeLong(bootstrapTime);
+        channel.send(outFrame);
+    }
+
+    private void onFrame(Bytes<?> frame) {
+        byte frameType = frame.readByte();
+        if (frameType == HANDSHAKE_FRAME) {
+            byte identifier = frame.readByte();
+            if (identifier != remoteIdentifier) {
+                throw new IllegalStateException("Expected handshake from the node " +
+                        remoteIdentifier + ", received from " + identifier);
+            }
+            long bootstrapTime = frame.readLong();
+            LOG.debug("Handshake from the node {}, dirtying entries changed since {}",
+                    identifier, bootstrapTime);
+            modificationIterator.dirtyEntries(bootstrapTime);
+        } else if (frameType == ENTRIES_FRAME) {
+            while (frame.readRemaining() > 0) {
+                entryExternalizable.readExternalEntry(frame, remoteIdentifier);
+            }
+        } else {
+            throw new IllegalStateException("Unknown replication frame type: " + frameType);
+        }
+    }
+
+    /**
+     * Runs {@link #poll()} until the engine is {@linkplain #close() closed}, or the channel is
+     * broken, or the replication fails, then closes the channel. When there is nothing to do,
+     * parks until local changes are made, or up to 1 ms, to check for frames from the remote node.
+     */
+    @Override
+    public void run() {
+        // the handoff with close() is guarded by this monitor: either close() sees the runner
+        // thread and interrupts it, or run() sees the engine closed and doesn't start
+        synchronized (this) {
+            if (closed) {
+                closeResources();
+                return;
+            }
+            startRunning();
+        }
+        long pauseNanos = 0;
+        try {
+            while (!closed) {
+                if (doPoll() > 0) {
+                    pauseNanos = 0;
+                } else {
+                    pauseNanos = Math.min(Math.max(1000, pauseNanos * 2), MAX_PAUSE_NANOS);
+                    LockSupport.parkNanos(this, pauseNanos);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!closed)
+                LOG.error("Replication to the node " + remoteIdentifier + " is stopped", e);
+        } finally {
+            stopRunning(true);
+        }
+    }
+
+    private void wakeUp() {
+        Thread runnerThread = this.runnerThread;
+        if (runnerThread != null)
+            LockSupport.unpark(runnerThread);
+    }
+
+    /**
+     * Stops the engine and closes the channel. If the engine is {@linkplain #run() running} or
+     * {@linkplain #poll() polled}, the runner thread is interrupted (to break out of a blocking
+     * {@link ReplicationChannel#send}) and closes the channel itself, when it stops.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (runnerThread != null) {
+                // the runner thread couldn't leave run() while this monitor is held, so the
+                // interrupt doesn't leak to whatever the thread runs afterwards
+                runnerThread.interrupt();
+                return;
+            }
+        }
+        closeResources();
+    }
+
+    private synchronized void closeResources() {
+        if (resourcesClosed)
+            return;
+        resourcesClosed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.error("Error while closing replication channel", e);
+        } finally {
+            outFrame.release();
+            inFrame.release();
+        }
+    }
+}
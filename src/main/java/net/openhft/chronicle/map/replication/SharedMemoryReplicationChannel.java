@@ -0,0 +1,209 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.replication;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.NativeBytesStore;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.OS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static net.openhft.chronicle.core.OS.pageAlign;
+import static net.openhft.chronicle.hash.impl.DummyReferenceCounted.DUMMY_REFERENCE_COUNTED;
+
+/**
+ * {@link ReplicationChannel} between replicas on the same host, or in the same JVM, over a pair of
+ * single-producer, single-consumer ring buffers in memory-mapped files. One file holds frames sent
+ * by this end, another holds frames, received by this end, so the other end should be opened with
+ * the files swapped:
+ * <pre>{@code
+ * ReplicationChannel a = SharedMemoryReplicationChannel.open(aToB, bToA, capacity);
+ * ReplicationChannel b = SharedMemoryReplicationChannel.open(bToA, aToB, capacity);
+ * }</pre>
+ *
+ * <p>A frame couldn't be larger than the capacity of the ring, less the frame header. {@link
+ * #send(Bytes)} spins, while there is not enough free space in the ring, until the thread is
+ * interrupted.
+ */
+public final class SharedMemoryReplicationChannel implements ReplicationChannel {
+
+    /**
+     * Opens (creating, if needed) the ring buffer files and returns a channel end over them.
+     *
+     * @param outbound the file of the ring buffer, to which this end sends frames
+     * @param inbound the file of the ring buffer, from which this end receives frames
+     * @param capacity the capacity of each ring buffer in bytes, rounded up to a power of 2
+     * @return a channel end
+     * @throws IOException if the files couldn't be opened or mapped
+     * @throws IllegalArgumentException if the files already exist and have a different capacity
+     */
+    public static SharedMemoryReplicationChannel open(File outbound, File inbound, long capacity)
+            throws IOException {
+        long ringCapacity = Maths.nextPower2(Math.max(capacity, Ring.FRAME_ALIGNMENT), 1);
+        Ring outboundRing = new Ring(outbound, ringCapacity);
+        try {
+            return new SharedMemoryReplicationChannel(outboundRing, new Ring(inbound, ringCapacity));
+        } catch (IOException | RuntimeException e) {
+            outboundRing.close();
+            throw e;
+        }
+    }
+
+    private final Ring outbound;
+    private final Ring inbound;
+
+    private SharedMemoryReplicationChannel(Ring outbound, Ring inbound) {
+        this.outbound = outbound;
+        this.inbound = inbound;
+    }
+
+    @Override
+    public void send(Bytes<?> frame) throws IOException {
+        outbound.write(frame);
+    }
+
+    @Override
+    public boolean receive(Bytes<?> destination) throws IOException {
+        return inbound.read(destination);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            outbound.close();
+        } finally {
+            inbound.close();
+        }
+    }
+
+    /**
+     * Layout of the file: the write sequence (total number of bytes written) and the read sequence
+     * (total number of bytes read) on separate cache lines, followed by the data area. Frames are
+     * aligned to 8 bytes, so the int frame size never wraps around the end of the data area.
+     */
+    private static final class Ring {
+        static final long FRAME_ALIGNMENT = 8L;
+        private static final long WRITE_SEQUENCE_OFFSET = 0L;
+        private static final long READ_SEQUENCE_OFFSET = 64L;
+        private static final long DATA_OFFSET = 128L;
+
+        private final RandomAccessFile raf;
+        private final NativeBytesStore store;
+        private final long capacity;
+        private volatile boolean closed;
+
+        Ring(File file, long capacity) throws IOException {
+            this.capacity = capacity;
+            long mapSize = pageAlign(DATA_OFFSET + capacity);
+            raf = new RandomAccessFile(file, "rw");
+            try {
+                long fileSize = raf.length();
+                if (fileSize == 0) {
+                    raf.setLength(mapSize);
+                } else if (fileSize != mapSize) {
+                    throw new IllegalArgumentException("Ring buffer file " + file + " has size " +
+                            fileSize + ", expected " + mapSize + " for capacity " + capacity);
+                }
+                long address = OS.map(raf.getChannel(), READ_WRITE, 0L, mapSize);
+                OS.Unmapper unmapper = new OS.Unmapper(address, mapSize, DUMMY_REFERENCE_COUNTED);
+                store = new NativeBytesStore(address, mapSize, unmapper, false);
+            } catch (IOException | RuntimeException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        void write(Bytes<?> frame) throws IOException {
+            int frameSize = (int) frame.readRemaining();
+            long alignedSize = alignedFrameSize(frameSize);
+            if (alignedSize > capacity) {
+                throw new IllegalArgumentException("Frame of " + frameSize + " bytes couldn't " +
+                        "fit a ring buffer of " + capacity + " bytes");
+            }
+            long writeSequence = store.readLong(WRITE_SEQUENCE_OFFSET);
+            while (writeSequence + alignedSize - readSequence() > capacity) {
+                checkOpen();
+                if (Thread.currentThread().isInterrupted())
+                    throw new InterruptedIOException("Interrupted while waiting for free space");
+                Thread.yield();
+            }
+            long headerOffset = dataOffset(writeSequence);
+            store.writeInt(headerOffset, frameSize);
+            long payloadOffset = dataOffset(writeSequence + Integer.BYTES);
+            long firstPart = Math.min(frameSize, DATA_OFFSET + capacity - payloadOffset);
+            long readPosition = frame.readPosition();
+            store.write(payloadOffset, frame, readPosition, firstPart);
+            if (firstPart < frameSize) {
+                store.write(DATA_OFFSET, frame, readPosition + firstPart, frameSize - firstPart);
+            }
+            frame.readSkip(frameSize);
+            // publishes the frame to the reader
+            store.writeOrderedLong(WRITE_SEQUENCE_OFFSET, writeSequence + alignedSize);
+        }
+
+        boolean read(Bytes<?> destination) throws IOException {
+            checkOpen();
+            long readSequence = store.readLong(READ_SEQUENCE_OFFSET);
+            if (store.readVolatileLong(WRITE_SEQUENCE_OFFSET) == readSequence)
+                return false;
+            int frameSize = store.readInt(dataOffset(readSequence));
+            long payloadOffset = dataOffset(readSequence + Integer.BYTES);
+            long firstPart = Math.min(frameSize, DATA_OFFSET + capacity - payloadOffset);
+            destination.write(store, payloadOffset, firstPart);
+            if (firstPart < frameSize)
+                destination.write(store, DATA_OFFSET, frameSize - firstPart);
+            // frees space in the ring for the writer
+            store.writeOrderedLong(READ_SEQUENCE_OFFSET,
+                    readSequence + alignedFrameSize(frameSize));
+            return true;
+        }
+
+        private long readSequence() {
+            return store.readVolatileLong(READ_SEQUENCE_OFFSET);
+        }
+
+        private long dataOffset(long sequence) {
+            return DATA_OFFSET + (sequence & (capacity - 1));
+        }
+
+        private static long alignedFrameSize(int frameSize) {
+            return (Integer.BYTES + frameSize + FRAME_ALIGNMENT - 1) & -FRAME_ALIGNMENT;
+        }
+
+        private void checkOpen() throws IOException {
+            if (closed)
+                throw new IOException("Ring buffer is closed");
+        }
+
+        void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            try {
+                store.release();
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.replication;
+
+import net.openhft.chronicle.bytes.Bytes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * {@link ReplicationChannel} over a connected TCP {@link SocketChannel}. Each frame is written as
+ * an int length, followed by the frame bytes. The socket channel is switched to the non-blocking
+ * mode, {@link #send(Bytes)} spins until the whole frame is written.
+ */
+public final class SocketReplicationChannel implements ReplicationChannel {
+
+    private static final int FRAME_HEADER_SIZE = 4;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final SocketChannel channel;
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+    private ByteBuffer readBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+    private byte[] copyBuffer = new byte[INITIAL_BUFFER_SIZE];
+
+    public SocketReplicationChannel(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    @Override
+    public void send(Bytes<?> frame) throws IOException {
+        int frameSize = (int) frame.readRemaining();
+        if (writeBuffer.capacity() < FRAME_HEADER_SIZE + frameSize)
+            writeBuffer = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + frameSize);
+        byte[] frameBytes = copyBuffer(frameSize);
+        frame.read(frameBytes, 0, frameSize);
+        writeBuffer.clear();
+        writeBuffer.putInt(frameSize);
+        writeBuffer.put(frameBytes, 0, frameSize);
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            if (channel.write(writeBuffer) == 0)
+                Thread.yield();
+        }
+    }
+
+    @Override
+    public boolean receive(Bytes<?> destination) throws IOException {
+        if (channel.read(readBuffer) < 0)
+            throw new EOFException("Replication channel is closed by the remote end");
+        readBuffer.flip();
+        try {
+            if (readBuffer.remaining() < FRAME_HEADER_SIZE)
+                return false;
+            int frameSize = readBuffer.getInt(readBuffer.position());
+            if (readBuffer.remaining() < FRAME_HEADER_SIZE + frameSize) {
+                if (readBuffer.capacity() < FRAME_HEADER_SIZE + frameSize) {
+                    ByteBuffer newReadBuffer =
+                            ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + frameSize);
+                    newReadBuffer.put(readBuffer);
+                    newReadBuffer.flip();
+                    readBuffer = newReadBuffer;
+                }
+                return false;
+            }
+            readBuffer.position(readBuffer.position() + FRAME_HEADER_SIZE);
+            byte[] frameBytes = copyBuffer(frameSize);
+            readBuffer.get(frameBytes, 0, frameSize);
+            destination.write(frameBytes, 0, frameSize);
+            return true;
+        } finally {
+            readBuffer.compact();
+        }
+    }
+
+    private byte[] copyBuffer(int size) {
+        if (copyBuffer.length < size)
+            copyBuffer = new byte[size];
+        return copyBuffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -187,6 +187,12 @@ public final class ChronicleSetBuilder<K>
         return this;
     }
 
+    @Override
+    public ChronicleSetBuilder<K> medianSizedSegments(boolean medianSizedSegments) {
+        chronicleMapBuilder.medianSizedSegments(medianSizedSegments);
+        return this;
+    }
+
     @Override
     public String toString() {
         return " ChronicleSetBuilder{" +
@@ -247,6 +253,12 @@ public final class ChronicleSetBuilder<K>
         return this;
     }
 
+    @Override
+    public ChronicleSetBuilder<K> keyFieldLayoutMarshalling() {
+        chronicleMapBuilder.keyFieldLayoutMarshalling();
+        return this;
+    }
+
     @Override
     public ChronicleSetBuilder<K> aligned64BitMemoryOperationsAtomic(
             boolean aligned64BitMemoryOperationsAtomic) {
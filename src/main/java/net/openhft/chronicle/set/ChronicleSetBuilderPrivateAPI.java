@@ -17,14 +17,18 @@
 
 package net.openhft.chronicle.set;
 
+import net.openhft.chronicle.hash.ChecksumAlgorithm;
 import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import net.openhft.chronicle.hash.CorruptEntryListener;
 import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.replication.TimestampSource;
 import net.openhft.chronicle.hash.serialization.impl.SerializationBuilder;
 import net.openhft.chronicle.map.replication.MapRemoteOperations;
 import net.openhft.chronicle.map.replication.MapRemoteQueryContext;
 import net.openhft.chronicle.set.replication.SetRemoteOperations;
 import net.openhft.chronicle.set.replication.SetRemoteQueryContext;
 
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 class ChronicleSetBuilderPrivateAPI<K>
@@ -87,6 +91,11 @@ class ChronicleSetBuilderPrivateAPI<K>
         return mapB.maxExtraTiers();
     }
 
+    @Override
+    public long reservedExtraTiers() {
+        return mapB.reservedExtraTiers();
+    }
+
     @Override
     public boolean aligned64BitMemoryOperationsAtomic() {
         return mapB.aligned64BitMemoryOperationsAtomic();
@@ -97,6 +106,16 @@ class ChronicleSetBuilderPrivateAPI<K>
         return mapB.checksumEntries();
     }
 
+    @Override
+    public ChecksumAlgorithm checksumAlgorithm() {
+        return mapB.checksumAlgorithm();
+    }
+
+    @Override
+    public void checksumAlgorithm(ChecksumAlgorithm checksumAlgorithm) {
+        mapB.checksumAlgorithm(checksumAlgorithm);
+    }
+
     @Override
     public void replication(byte identifier) {
         mapB.replication(identifier);
@@ -112,6 +131,42 @@ class ChronicleSetBuilderPrivateAPI<K>
         mapB.removedEntryCleanupTimeout(removedEntryCleanupTimeout, unit);
     }
 
+    @Override
+    public void cleanupExecutor(ScheduledExecutorService cleanupExecutor) {
+        mapB.cleanupExecutor(cleanupExecutor);
+    }
+
+    @Override
+    public void recoveryThreads(int recoveryThreads) {
+        mapB.recoveryThreads(recoveryThreads);
+    }
+
+    @Override
+    public void lazyRecovery(boolean lazyRecovery) {
+        mapB.lazyRecovery(lazyRecovery);
+    }
+
+    @Override
+    public void openersInSameProcessIdNamespace(boolean openersInSameProcessIdNamespace) {
+        mapB.openersInSameProcessIdNamespace(openersInSameProcessIdNamespace);
+    }
+
+    @Override
+    public void checksumScrubbing(long bytesPerSecond, CorruptEntryListener listener,
+                                  boolean quarantineCorruptEntries) {
+        mapB.checksumScrubbing(bytesPerSecond, listener, quarantineCorruptEntries);
+    }
+
+    @Override
+    public void timestampSource(TimestampSource timestampSource) {
+        mapB.timestampSource(timestampSource);
+    }
+
+    @Override
+    public void deltaReplication(boolean deltaReplication) {
+        mapB.deltaReplication(deltaReplication);
+    }
+
     @Override
     public void remoteOperations(SetRemoteOperations<K, ?> remoteOperations) {
         mapB.remoteOperations(new MapRemoteOperations<K, DummyValue, Object>() {
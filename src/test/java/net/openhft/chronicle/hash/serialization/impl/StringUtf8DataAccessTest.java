@@ -0,0 +1,45 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.serialization.impl;
+
+import net.openhft.chronicle.algo.hashing.LongHashFunction;
+import net.openhft.chronicle.hash.Data;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class StringUtf8DataAccessTest {
+
+    @Test
+    public void bytesAreUtf8Encoded() {
+        StringUtf8DataAccess dataAccess = new StringUtf8DataAccess();
+        for (String s : new String[] {"", "ascii key", "latin-1 é", "utf-16 Ж中"}) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            Data<String> data = dataAccess.getData(s);
+            Assert.assertEquals(utf8.length, data.size());
+            for (int i = 0; i < utf8.length; i++) {
+                Assert.assertEquals(utf8[i], data.bytes().readByte(data.offset() + i));
+            }
+            Assert.assertEquals(LongHashFunction.xx_r39().hashBytes(utf8),
+                    data.hash(LongHashFunction.xx_r39()));
+            Assert.assertSame(s, data.get());
+            dataAccess.uninit();
+        }
+    }
+}
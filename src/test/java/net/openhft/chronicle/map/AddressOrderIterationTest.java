@@ -0,0 +1,116 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.map.impl.IterationContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class AddressOrderIterationTest {
+
+    @Test
+    public void entriesAreVisitedInAddressOrder() {
+        int entries = 10_000;
+        try (ChronicleMap<Integer, Long> map = ChronicleMap.of(Integer.class, Long.class)
+                .entries(entries)
+                .actualSegments(4)
+                .create()) {
+            for (int i = 0; i < entries; i++) {
+                map.put(i, (long) i);
+            }
+            Set<Integer> visited = new HashSet<>();
+            for (int i = 0; i < map.segments(); i++) {
+                try (MapSegmentContext<Integer, Long, ?> c = map.segmentContext(i)) {
+                    long[] lastPos = {-1L};
+                    c.forEachSegmentEntryInAddressOrder(e -> {
+                        long pos = ((IterationContext<Integer, Long, ?>) c).pos();
+                        Assert.assertTrue(pos > lastPos[0]);
+                        lastPos[0] = pos;
+                        Assert.assertTrue(visited.add(e.key().get()));
+                        Assert.assertEquals((long) e.key().get(), (long) e.value().get());
+                    });
+                }
+            }
+            Assert.assertEquals(entries, visited.size());
+        }
+    }
+
+    @Test
+    public void removeDuringAddressOrderIteration() {
+        int entries = 10_000;
+        try (ChronicleMap<Integer, Long> map = ChronicleMap.of(Integer.class, Long.class)
+                .entries(entries)
+                .actualSegments(4)
+                .create()) {
+            for (int i = 0; i < entries; i++) {
+                map.put(i, (long) i);
+            }
+            for (int i = 0; i < map.segments(); i++) {
+                try (MapSegmentContext<Integer, Long, ?> c = map.segmentContext(i)) {
+                    c.forEachSegmentEntryInAddressOrder(e -> {
+                        if (e.key().get() % 2 == 0)
+                            e.doRemove();
+                    });
+                }
+            }
+            Assert.assertEquals(entries / 2, map.size());
+            for (int i = 0; i < entries; i++) {
+                if (i % 2 == 0) {
+                    Assert.assertNull(map.get(i));
+                } else {
+                    Assert.assertEquals((long) i, (long) map.get(i));
+                }
+            }
+            // removed entries are no longer reachable from the hash lookup, re-insertion works
+            for (int i = 0; i < entries; i += 2) {
+                map.put(i, (long) i);
+            }
+            Assert.assertEquals(entries, map.size());
+        }
+    }
+
+    @Test
+    public void growingValuesDuringAddressOrderIterationAreVisitedOnce() {
+        int entries = 1_000;
+        try (ChronicleMap<Integer, CharSequence> map = ChronicleMap
+                .of(Integer.class, CharSequence.class)
+                .entries(entries)
+                .averageValue("x")
+                .actualSegments(1)
+                .create()) {
+            for (int i = 0; i < entries; i++) {
+                map.put(i, "x");
+            }
+            Set<Integer> visited = new HashSet<>();
+            try (MapSegmentContext<Integer, CharSequence, ?> c = map.segmentContext(0)) {
+                c.forEachSegmentEntryInAddressOrder(e -> {
+                    Assert.assertTrue(visited.add(e.key().get()));
+                    // forces relocation of the entry
+                    e.doReplaceValue(e.context().wrapValueAsData("xxxxxxxxxxxxxxxxxxxxxxxxxxxxxx"));
+                });
+            }
+            Assert.assertEquals(entries, visited.size());
+            Assert.assertEquals(entries, map.size());
+            for (int i = 0; i < entries; i++) {
+                Assert.assertEquals("xxxxxxxxxxxxxxxxxxxxxxxxxxxxxx", map.get(i).toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+public class BatchedIterationTest {
+
+    private static ChronicleMap<Integer, CharSequence> newMultiTierMap(int entries) {
+        ChronicleMap<Integer, CharSequence> map = ChronicleMap
+                .of(Integer.class, CharSequence.class)
+                .averageValue("value-1000")
+                .actualSegments(1)
+                .entriesPerSegment(entries / 5)
+                .maxBloatFactor(10)
+                .create();
+        for (int i = 0; i < entries; i++) {
+            map.put(i, "value-" + i);
+        }
+        return map;
+    }
+
+    @Test
+    public void reusingIteratorVisitsEachEntryOnce() {
+        int entries = 1000;
+        try (ChronicleMap<Integer, CharSequence> map = newMultiTierMap(entries)) {
+            BitSet visited = new BitSet();
+            Iterator<Map.Entry<Integer, CharSequence>> it = map.reusingEntryIterator(7);
+            int count = 0;
+            while (it.hasNext()) {
+                Map.Entry<Integer, CharSequence> e = it.next();
+                int key = e.getKey();
+                Assert.assertFalse("visited twice: " + key, visited.get(key));
+                visited.set(key);
+                Assert.assertEquals("value-" + key, e.getValue().toString());
+                count++;
+            }
+            Assert.assertEquals(entries, count);
+        }
+    }
+
+    @Test
+    public void reusingIteratorReusesInstances() {
+        int entries = 100;
+        try (ChronicleMap<Integer, CharSequence> map = newMultiTierMap(entries)) {
+            Set<CharSequence> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+            Iterator<Map.Entry<Integer, CharSequence>> it = map.reusingEntryIterator(1);
+            while (it.hasNext()) {
+                instances.add(it.next().getValue());
+            }
+            // batches are extended to the end of hash lookup slot clusters, so there are more
+            // than batchSize + 1 instances in the pool, but much less than entries
+            Assert.assertTrue(instances.size() < entries / 2);
+        }
+    }
+
+    @Test
+    public void removalDuringIteration() {
+        int entries = 1000;
+        try (ChronicleMap<Integer, CharSequence> map = newMultiTierMap(entries)) {
+            Iterator<Map.Entry<Integer, CharSequence>> it = map.reusingEntryIterator(10);
+            while (it.hasNext()) {
+                if (it.next().getKey() % 2 == 0)
+                    it.remove();
+            }
+            Assert.assertEquals(entries / 2, map.size());
+            for (Integer key : map.keySet()) {
+                Assert.assertEquals(1, key % 2);
+            }
+        }
+    }
+}
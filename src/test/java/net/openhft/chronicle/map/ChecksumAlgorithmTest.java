@@ -0,0 +1,101 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.NativeBytesStore;
+import net.openhft.chronicle.hash.ChecksumAlgorithm;
+import net.openhft.chronicle.hash.ChecksumEntry;
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import net.openhft.chronicle.hash.impl.stage.entry.ChecksumHashing;
+import net.openhft.chronicle.set.Builder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class ChecksumAlgorithmTest {
+
+    @Test
+    public void crc32c() {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        NativeBytesStore<Void> bytes = NativeBytesStore.nativeStoreWithFixedCapacity(1024);
+        try {
+            bytes.write(0, check);
+            // the standard check value of CRC-32C
+            Assert.assertEquals(0xE3069283L, ChecksumHashing.crc32c(bytes.address(0), 9));
+            Assert.assertEquals(0xE3069283L, ChecksumHashing.softwareCrc32c(bytes.address(0), 9));
+
+            Random random = new Random(0);
+            for (int i = 0; i < 1024; i++) {
+                bytes.writeByte(i, (byte) random.nextInt());
+            }
+            for (int offset = 0; offset < 8; offset++) {
+                for (int length = 0; length < 1024 - offset; length += 7) {
+                    long address = bytes.address(offset);
+                    Assert.assertEquals(ChecksumHashing.softwareCrc32c(address, length),
+                            ChecksumHashing.crc32c(address, length));
+                }
+            }
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void crc32cEntryChecksumsPersistedInHeader() throws IOException {
+        File file = Builder.getPersistenceFile();
+        ChronicleMapBuilder<Integer, byte[]> builder = ChronicleMap
+                .of(Integer.class, byte[].class)
+                .entries(100)
+                .averageValueSize(1000)
+                .checksumEntries(true);
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI())
+                .checksumAlgorithm(ChecksumAlgorithm.CRC32C);
+        byte[] value = new byte[1000];
+        new Random(0).nextBytes(value);
+        try (ChronicleMap<Integer, byte[]> map = builder.createPersistedTo(file)) {
+            map.put(1, value);
+            assertChecksumCorrect(map);
+        }
+
+        // open with the default algorithm configured, the stored one should be used
+        try (ChronicleMap<Integer, byte[]> map = ChronicleMap
+                .of(Integer.class, byte[].class)
+                .entries(100)
+                .averageValueSize(1000)
+                .checksumEntries(true)
+                .createPersistedTo(file)) {
+            Assert.assertEquals(ChecksumAlgorithm.CRC32C,
+                    ((VanillaChronicleMap<?, ?, ?>) map).checksumAlgorithm);
+            Assert.assertArrayEquals(value, map.get(1));
+            assertChecksumCorrect(map);
+        }
+    }
+
+    private static void assertChecksumCorrect(ChronicleMap<Integer, byte[]> map) {
+        try (ExternalMapQueryContext<Integer, byte[], ?> c = map.queryContext(1)) {
+            c.updateLock().lock();
+            MapEntry<Integer, byte[]> entry = c.entry();
+            Assert.assertNotNull(entry);
+            Assert.assertTrue(((ChecksumEntry) entry).checkSum());
+        }
+    }
+}
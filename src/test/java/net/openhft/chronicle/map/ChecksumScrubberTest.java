@@ -0,0 +1,105 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.core.values.LongValue;
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import net.openhft.chronicle.hash.CorruptEntryListener;
+import net.openhft.chronicle.values.Values;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class ChecksumScrubberTest {
+
+    private static final int ENTRIES = 1000;
+
+    private static ChronicleMap<Integer, LongValue> createMap(
+            CorruptEntryListener listener, boolean quarantine) {
+        ChronicleMapBuilder<Integer, LongValue> builder = ChronicleMap
+                .of(Integer.class, LongValue.class)
+                .entries(ENTRIES)
+                .checksumEntries(true);
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI())
+                .checksumScrubbing(100 << 20, listener, quarantine);
+        ChronicleMap<Integer, LongValue> map = builder.create();
+        LongValue value = Values.newHeapInstance(LongValue.class);
+        for (int i = 0; i < ENTRIES; i++) {
+            value.setValue(i);
+            map.put(i, value);
+        }
+        return map;
+    }
+
+    @Test(timeout = 30_000)
+    public void correctEntriesAreVerified() throws InterruptedException {
+        try (ChronicleMap<Integer, LongValue> map = createMap(
+                (hash, segmentIndex, entry) -> Assert.fail("no entries are corrupt"), false)) {
+            VanillaChronicleMap<?, ?, ?> vanillaMap = (VanillaChronicleMap<?, ?, ?>) map;
+            // the first round might have started before all entries are inserted
+            while (vanillaMap.checksumScrubbingRounds() < 2)
+                Thread.sleep(10);
+            Assert.assertTrue(vanillaMap.checksumScrubbedEntries() >= ENTRIES);
+            Assert.assertTrue(vanillaMap.checksumScrubbedBytes() >= ENTRIES * (4 + 8));
+            Assert.assertEquals(0, vanillaMap.checksumScrubbingCorruptEntries());
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void corruptEntryIsReportedAndQuarantined() throws InterruptedException {
+        BlockingQueue<Integer> corruptKeys = new LinkedBlockingQueue<>();
+        try (ChronicleMap<Integer, LongValue> map = createMap(
+                (hash, segmentIndex, entry) -> corruptKeys.add((Integer) entry.key().get()),
+                true)) {
+            corruptValue(map, 42);
+            Assert.assertEquals(Integer.valueOf(42), corruptKeys.take());
+            VanillaChronicleMap<?, ?, ?> vanillaMap = (VanillaChronicleMap<?, ?, ?>) map;
+            // the entry is removed after the listener returns
+            while (vanillaMap.checksumScrubbingQuarantinedEntries() == 0)
+                Thread.sleep(1);
+            Assert.assertFalse(map.containsKey(42));
+            Assert.assertEquals(ENTRIES - 1, map.size());
+            Assert.assertEquals(1, vanillaMap.checksumScrubbingCorruptEntries());
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void corruptEntryIsKeptWithoutQuarantine() throws InterruptedException {
+        BlockingQueue<Integer> corruptKeys = new LinkedBlockingQueue<>();
+        try (ChronicleMap<Integer, LongValue> map = createMap(
+                (hash, segmentIndex, entry) -> corruptKeys.add((Integer) entry.key().get()),
+                false)) {
+            corruptValue(map, 42);
+            Assert.assertEquals(Integer.valueOf(42), corruptKeys.take());
+            Assert.assertTrue(map.containsKey(42));
+            Assert.assertEquals(ENTRIES, map.size());
+        }
+    }
+
+    private static void corruptValue(ChronicleMap<Integer, LongValue> map, int key) {
+        try (ExternalMapQueryContext<Integer, LongValue, ?> c = map.queryContext(key)) {
+            c.updateLock().lock();
+            MapEntry<Integer, LongValue> entry = c.entry();
+            Assert.assertNotNull(entry);
+            // This value bytes update bypass Chronicle Map internals, so checksum is not updated
+            entry.value().getUsing(Values.newNativeReference(LongValue.class)).setValue(-1);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.NativeBytesStore;
+import net.openhft.chronicle.hash.ChecksumAlgorithm;
+import net.openhft.chronicle.hash.impl.stage.entry.ChecksumHashing;
+
+import java.util.Random;
+
+/**
+ * Compares throughput of computing entry payload checksums by {@link ChecksumAlgorithm#XX_HASH}
+ * and {@link ChecksumAlgorithm#CRC32C} across value sizes. CRC-32C is computed by the JVM
+ * intrinsic on Java 9+, run on Java 8 to measure the table-driven fallback.
+ */
+public class ChecksumThroughputMain {
+
+    static final int[] VALUE_SIZES = {16, 64, 256, 1024, 4096, 16384, 65536, 1 << 20};
+    static final long BYTES_PER_RUN = 1L << 30;
+    static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        int maxSize = VALUE_SIZES[VALUE_SIZES.length - 1];
+        NativeBytesStore<Void> bytes = NativeBytesStore.nativeStoreWithFixedCapacity(maxSize);
+        Random random = new Random(0);
+        for (int i = 0; i < maxSize; i++) {
+            bytes.writeByte(i, (byte) random.nextInt());
+        }
+        long address = bytes.address(0);
+        try {
+            for (int size : VALUE_SIZES) {
+                for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+                    runTest(algorithm, address, size);
+                }
+            }
+        } finally {
+            bytes.release();
+        }
+    }
+
+    private static void runTest(ChecksumAlgorithm algorithm, long address, int size) {
+        long iterations = BYTES_PER_RUN / size;
+        double bestGbPerSecond = 0;
+        long blackhole = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            for (long i = 0; i < iterations; i++) {
+                blackhole += ChecksumHashing.hashMemory(algorithm, address, size);
+            }
+            long time = System.nanoTime() - start;
+            bestGbPerSecond = Math.max(bestGbPerSecond, iterations * size * 1.0 / time);
+        }
+        System.out.printf("%-8s %8d bytes: %6.2f GB/s (%d)%n",
+                algorithm, size, bestGbPerSecond, blackhole);
+    }
+}
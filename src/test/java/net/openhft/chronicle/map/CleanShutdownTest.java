@@ -0,0 +1,115 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import net.openhft.chronicle.hash.VanillaGlobalMutableState;
+import net.openhft.chronicle.hash.impl.BigSegmentHeader;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class CleanShutdownTest {
+
+    private static final int ENTRIES = 10_000;
+    // greater than max pid on Linux
+    private static final int DEAD_PROCESS_ID = Integer.MAX_VALUE;
+
+    private static ChronicleMapBuilder<Integer, Integer> builder() {
+        return ChronicleMap
+                .of(Integer.class, Integer.class)
+                .entries(ENTRIES)
+                .actualSegments(8);
+    }
+
+    private static int registeredOpeners(VanillaGlobalMutableState state, int processId) {
+        int openers = 0;
+        for (int slot = 0; slot < 16; slot++) {
+            if (state.getOpenerProcessIdAt(slot) == processId)
+                openers++;
+        }
+        return openers;
+    }
+
+    @Test
+    public void closedCleanlyOnlyWhenAllOpenersClose() throws IOException {
+        File file = File.createTempFile("cleanShutdown", ".map");
+        file.deleteOnExit();
+        int processId = OS.getProcessId();
+        ChronicleMap<Integer, Integer> map1 = builder().createPersistedTo(file);
+        ChronicleMap<Integer, Integer> map2 = builder().createPersistedTo(file);
+        VanillaGlobalMutableState state = ((VanillaChronicleMap) map2).globalMutableState();
+        Assert.assertEquals(2, registeredOpeners(state, processId));
+        map1.put(1, 1);
+        map1.close();
+        Assert.assertEquals(1, registeredOpeners(state, processId));
+        Assert.assertFalse(state.getClosedCleanly());
+        map2.close();
+
+        try (ChronicleMap<Integer, Integer> map = builder().createOrRecoverPersistedTo(file)) {
+            Assert.assertEquals((Integer) 1, map.get(1));
+            state = ((VanillaChronicleMap) map).globalMutableState();
+            Assert.assertEquals(1, registeredOpeners(state, processId));
+            Assert.assertFalse(state.getClosedCleanly());
+        }
+    }
+
+    @Test
+    public void onlyLockedSegmentsRecoveredAfterCrash() throws IOException {
+        // liveness of processes is determined via procfs
+        Assume.assumeTrue(new File("/proc/self").exists());
+        File file = File.createTempFile("cleanShutdown", ".map");
+        file.deleteOnExit();
+        ChronicleMap<Integer, Integer> crashed = builder().createPersistedTo(file);
+        for (int i = 0; i < ENTRIES; i++) {
+            crashed.put(i, i);
+        }
+        // Simulate a process crash while holding the lock of a segment: leave the lock acquired,
+        // replace the registered id of the current process with a dead process id and never close
+        // the map instance
+        VanillaChronicleMap<?, ?, ?> crashedMap = (VanillaChronicleMap<?, ?, ?>) crashed;
+        long segmentHeaderAddress = crashedMap.segmentHeaderAddress(0);
+        BigSegmentHeader.INSTANCE.writeLock(segmentHeaderAddress);
+        VanillaGlobalMutableState crashedState = crashedMap.globalMutableState();
+        for (int slot = 0; slot < 16; slot++) {
+            if (crashedState.getOpenerProcessIdAt(slot) == OS.getProcessId())
+                crashedState.setOpenerProcessIdAt(slot, DEAD_PROCESS_ID);
+        }
+
+        ChronicleMapBuilder<Integer, Integer> builder = builder();
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI())
+                .openersInSameProcessIdNamespace(true);
+        try (ChronicleMap<Integer, Integer> map = builder.createOrRecoverPersistedTo(file)) {
+            VanillaChronicleMap<?, ?, ?> recovered = (VanillaChronicleMap<?, ?, ?>) map;
+            Assert.assertEquals(BigSegmentHeader.INSTANCE.resetLockState(),
+                    BigSegmentHeader.INSTANCE.getLockState(recovered.segmentHeaderAddress(0)));
+            VanillaGlobalMutableState state = recovered.globalMutableState();
+            Assert.assertEquals(0, registeredOpeners(state, DEAD_PROCESS_ID));
+            Assert.assertEquals(1, registeredOpeners(state, OS.getProcessId()));
+            Assert.assertEquals(ENTRIES, map.size());
+            for (int i = 0; i < ENTRIES; i++) {
+                Assert.assertEquals((Integer) i, map.get(i));
+                map.put(i, -i);
+            }
+            recovered.verifyTierCountersAreaData();
+        }
+    }
+}
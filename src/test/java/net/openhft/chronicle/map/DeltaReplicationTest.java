@@ -0,0 +1,170 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DeltaReplicationTest {
+
+    private static final int VALUE_SIZE = 4096;
+
+    /**
+     * Shared clock of both maps in a test, updates made while the clock stays still get the same
+     * timestamps on both maps, see {@code updatedReplicationStateOnPresentEntry()}
+     */
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    private ReplicatedChronicleMap<Integer, byte[], ?> replicatedMap(byte identifier) {
+        ChronicleMapBuilder<Integer, byte[]> builder = ChronicleMap
+                .of(Integer.class, byte[].class)
+                .entries(100)
+                .averageValueSize(VALUE_SIZE)
+                .actualSegments(2);
+        ChronicleHashBuilderPrivateAPI<?, ?> privateAPI =
+                (ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI();
+        privateAPI.replication(identifier);
+        privateAPI.deltaReplication(true);
+        privateAPI.timestampSource(clock::get);
+        return (ReplicatedChronicleMap<Integer, byte[], ?>) builder.create();
+    }
+
+    private static long replicate(Replica.ModificationIterator it,
+                                  ReplicatedChronicleMap<Integer, byte[], ?> destination) {
+        Bytes<?> buffer = Bytes.elasticByteBuffer();
+        try {
+            long written = 0;
+            while (it.drain(100, buffer) > 0) {
+                written += buffer.readRemaining();
+                while (buffer.readRemaining() > 0) {
+                    destination.readExternalEntry(buffer, (byte) 1);
+                }
+                buffer.clear();
+            }
+            return written;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void sameSizeUpdatesAreSentAsPatches() {
+        try (ReplicatedChronicleMap<Integer, byte[], ?> map1 = replicatedMap((byte) 1);
+             ReplicatedChronicleMap<Integer, byte[], ?> map2 = replicatedMap((byte) 2)) {
+            Replica.ModificationIterator it = map1.acquireModificationIterator((byte) 2);
+            byte[] value = new byte[VALUE_SIZE];
+            map1.put(1, value);
+            Assert.assertTrue(replicate(it, map2) > VALUE_SIZE);
+            Assert.assertArrayEquals(value, map2.get(1));
+
+            value[100] = 1;
+            value[3000] = 2;
+            map1.put(1, value);
+            value[3001] = 3;
+            map1.put(1, value);
+            long written = replicate(it, map2);
+            Assert.assertTrue("written " + written, written < 100);
+            Assert.assertArrayEquals(value, map2.get(1));
+            Assert.assertEquals(0, map2.takeDeltaResyncTimestamp((byte) 1));
+
+            // different size => full value
+            map1.put(1, new byte[VALUE_SIZE / 2]);
+            Assert.assertTrue(replicate(it, map2) > VALUE_SIZE / 2);
+            Assert.assertEquals(VALUE_SIZE / 2, map2.get(1).length);
+        }
+    }
+
+    @Test
+    public void conflictingNewerDeltaRequestsResync() {
+        try (ReplicatedChronicleMap<Integer, byte[], ?> map1 = replicatedMap((byte) 1);
+             ReplicatedChronicleMap<Integer, byte[], ?> map2 = replicatedMap((byte) 2)) {
+            Replica.ModificationIterator it = map1.acquireModificationIterator((byte) 2);
+            map1.put(1, new byte[VALUE_SIZE]);
+            replicate(it, map2);
+
+            byte[] conflicting = new byte[VALUE_SIZE];
+            conflicting[1] = 1;
+            map2.put(1, conflicting);
+            clock.addAndGet(1000);
+            byte[] value = new byte[VALUE_SIZE];
+            value[0] = 1;
+            map1.put(1, value);
+            replicate(it, map2);
+
+            assertResyncedTo(value, it, map2);
+        }
+    }
+
+    @Test
+    public void conflictingDeltaWinningByIdentifierRequestsResync() {
+        try (ReplicatedChronicleMap<Integer, byte[], ?> map1 = replicatedMap((byte) 1);
+             ReplicatedChronicleMap<Integer, byte[], ?> map2 = replicatedMap((byte) 2)) {
+            Replica.ModificationIterator it = map1.acquireModificationIterator((byte) 2);
+            map1.put(1, new byte[VALUE_SIZE]);
+            replicate(it, map2);
+
+            byte[] value = new byte[VALUE_SIZE];
+            value[0] = 1;
+            map1.put(1, value);
+            byte[] conflicting = new byte[VALUE_SIZE];
+            conflicting[1] = 1;
+            map2.put(1, conflicting);
+            // both updates have the same timestamp, the update from the node 1 wins
+            replicate(it, map2);
+
+            assertResyncedTo(value, it, map2);
+        }
+    }
+
+    private static void assertResyncedTo(byte[] value, Replica.ModificationIterator it,
+                                         ReplicatedChronicleMap<Integer, byte[], ?> map2) {
+        long resyncFrom = map2.takeDeltaResyncTimestamp((byte) 1);
+        Assert.assertNotEquals(0, resyncFrom);
+        Assert.assertEquals(0, map2.takeDeltaResyncTimestamp((byte) 1));
+        it.dirtyEntries(resyncFrom);
+        Assert.assertTrue(replicate(it, map2) > VALUE_SIZE);
+        Assert.assertArrayEquals(value, map2.get(1));
+    }
+
+    @Test
+    public void deltaLosingToLocalEntryIsDropped() {
+        try (ReplicatedChronicleMap<Integer, byte[], ?> map1 = replicatedMap((byte) 1);
+             ReplicatedChronicleMap<Integer, byte[], ?> map2 = replicatedMap((byte) 2)) {
+            Replica.ModificationIterator it = map1.acquireModificationIterator((byte) 2);
+            map1.put(1, new byte[VALUE_SIZE]);
+            replicate(it, map2);
+
+            byte[] value = new byte[VALUE_SIZE];
+            value[0] = 1;
+            map1.put(1, value);
+            clock.addAndGet(1000);
+            byte[] conflicting = new byte[VALUE_SIZE];
+            conflicting[1] = 1;
+            map2.put(1, conflicting);
+            replicate(it, map2);
+
+            // map2 update is newer, the full entry would be discarded as well
+            Assert.assertEquals(0, map2.takeDeltaResyncTimestamp((byte) 1));
+            Assert.assertArrayEquals(conflicting, map2.get(1));
+        }
+    }
+}
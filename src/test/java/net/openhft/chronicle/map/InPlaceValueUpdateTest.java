@@ -0,0 +1,76 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.Data;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class InPlaceValueUpdateTest {
+
+    private static long readLong(byte[] value, int offset) {
+        return ByteBuffer.wrap(value).order(ByteOrder.nativeOrder()).getLong(offset);
+    }
+
+    @Test
+    public void fixedSizeFieldIsUpdatedInPlace() {
+        try (ChronicleMap<Integer, byte[]> map = ChronicleMap.of(Integer.class, byte[].class)
+                .entries(100)
+                .averageValueSize(16)
+                .checksumEntries(true)
+                .create()) {
+            map.put(1, new byte[16]);
+            Bytes<?> field = Bytes.allocateElasticDirect(8);
+            field.writeLong(0, 42L);
+            try (ExternalMapQueryContext<Integer, byte[], ?> c = map.queryContext(1)) {
+                MapEntry<Integer, byte[]> entry = c.entry();
+                Assert.assertNotNull(entry);
+                entry.doUpdateValueBytes(8, field, 0, 8);
+                Data<byte[]> value = entry.value();
+                Assert.assertEquals(16, value.size());
+                Assert.assertEquals(42L, value.bytes().readLong(value.offset() + 8));
+                Assert.assertEquals(0L, value.bytes().readLong(value.offset()));
+            }
+            Assert.assertEquals(42L, readLong(map.get(1), 8));
+            map.forEachEntry(e -> e.doUpdateValueBytes(0, field, 0, 8));
+            Assert.assertEquals(42L, readLong(map.get(1), 0));
+            Assert.assertEquals(42L, readLong(map.get(1), 8));
+            field.release();
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void updateOutOfValueBoundsIsRejected() {
+        try (ChronicleMap<Integer, byte[]> map = ChronicleMap.of(Integer.class, byte[].class)
+                .entries(100)
+                .averageValueSize(16)
+                .create()) {
+            map.put(1, new byte[16]);
+            Bytes<?> field = Bytes.allocateElasticDirect(8);
+            try (ExternalMapQueryContext<Integer, byte[], ?> c = map.queryContext(1)) {
+                c.entry().doUpdateValueBytes(12, field, 0, 8);
+            } finally {
+                field.release();
+            }
+        }
+    }
+}
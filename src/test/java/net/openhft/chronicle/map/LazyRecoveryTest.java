@@ -0,0 +1,84 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class LazyRecoveryTest {
+
+    private static final int ENTRIES = 20_000;
+
+    private static ChronicleMapBuilder<Integer, Integer> builder(boolean lazyRecovery) {
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMap
+                .of(Integer.class, Integer.class)
+                .entries(ENTRIES / 4)
+                .actualSegments(16);
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI()).lazyRecovery(lazyRecovery);
+        return builder;
+    }
+
+    private static void awaitRecovered(VanillaChronicleMap<?, ?, ?> map)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        for (int segmentIndex = 0; segmentIndex < map.segments(); segmentIndex++) {
+            while (map.segmentNeedsRecovery(segmentIndex)) {
+                Assert.assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Test
+    public void segmentsAreRecoveredOnAccessAndInBackground()
+            throws IOException, InterruptedException {
+        File file = File.createTempFile("lazyRecovery", ".map");
+        file.deleteOnExit();
+        // entries(ENTRIES / 4) => segments need extra tiers
+        try (ChronicleMap<Integer, Integer> map = builder(false).createPersistedTo(file)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                map.put(i, i);
+            }
+        }
+
+        try (ChronicleMap<Integer, Integer> map = builder(true).recoverPersistedTo(file, true)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                Assert.assertEquals((Integer) i, map.get(i));
+            }
+            Assert.assertEquals(ENTRIES, map.size());
+            awaitRecovered((VanillaChronicleMap<?, ?, ?>) map);
+            ((VanillaChronicleMap) map).verifyTierCountersAreaData();
+            for (int i = ENTRIES; i < ENTRIES * 2; i++) {
+                map.put(i, i);
+            }
+            Assert.assertEquals(ENTRIES * 2, map.size());
+        }
+
+        // a lazily recovered map is recovered eagerly as well
+        try (ChronicleMap<Integer, Integer> map = builder(false).recoverPersistedTo(file, true)) {
+            Assert.assertEquals(ENTRIES * 2, map.size());
+            for (int segmentIndex = 0; segmentIndex < 16; segmentIndex++) {
+                Assert.assertFalse(
+                        ((VanillaChronicleMap<?, ?, ?>) map).segmentNeedsRecovery(segmentIndex));
+            }
+        }
+    }
+}
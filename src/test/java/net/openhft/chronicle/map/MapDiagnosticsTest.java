@@ -0,0 +1,97 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MapDiagnosticsTest {
+
+    private static String value(int i) {
+        return i % 10 == 0 ? String.format("%0200d", i) : String.format("%020d", i);
+    }
+
+    @Test
+    public void analyzeGeometryOfOverfilledMap() throws IOException {
+        File file = File.createTempFile("chronicle-map-", ".dat");
+        file.deleteOnExit();
+        int entries = 10_000;
+        try (ChronicleMap<Integer, String> map = ChronicleMap.of(Integer.class, String.class)
+                .entries(entries / 4).averageValueSize(20).maxBloatFactor(8.0)
+                .actualSegments(4)
+                .createPersistedTo(file)) {
+            for (int i = 0; i < entries; i++) {
+                map.put(i, value(i));
+            }
+            // analyze through a separate instance, like an offline tool does
+            try (ChronicleMap<Object, Object> analyzed = ChronicleMap
+                    .of(Object.class, Object.class).createPersistedTo(file)) {
+                MapGeometryReport<Object, Object> report =
+                        MapDiagnostics.analyzeGeometry(analyzed, entries);
+                assertEquals(entries, report.entries());
+
+                long keys = 0;
+                for (long count : report.keySizeHistogram()) {
+                    keys += count;
+                }
+                assertEquals(entries, keys);
+                // 4-byte keys
+                assertEquals(entries, report.keySizeHistogram()[3]);
+
+                long segments = 0;
+                for (long count : report.segmentsByTiers()) {
+                    segments += count;
+                }
+                assertEquals(4, segments);
+                assertTrue("the map should be tiered", report.segmentsByTiers().length > 1);
+
+                assertTrue(report.chunkUtilization() > 0.0 && report.chunkUtilization() <= 1.0);
+                assertTrue(report.maxHashLookupLoad() >= report.averageHashLookupLoad());
+                assertTrue(report.absentKeyProbes() >= report.presentKeyProbes());
+
+                assertTrue(report.projectedSegmentTieringProbability() < 0.01);
+                assertTrue(report.projectedAbsentKeyProbes() < report.absentKeyProbes());
+                assertTrue(report.toString().contains(".entries(" + entries + ")"));
+
+                try (ChronicleMap<Object, Object> recommended =
+                             report.recommendedBuilder().create()) {
+                    for (int i = 0; i < entries; i++) {
+                        recommended.put(i, value(i));
+                    }
+                    assertEquals(value(10), recommended.get(10));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void analyzeGeometryOfEmptyMap() {
+        try (ChronicleMap<Integer, String> map = ChronicleMap.of(Integer.class, String.class)
+                .entries(100).averageValueSize(10).create()) {
+            MapGeometryReport<Integer, String> report = MapDiagnostics.analyzeGeometry(map, 100);
+            assertEquals(0, report.entries());
+            assertNull(report.recommendedBuilder());
+        }
+    }
+}
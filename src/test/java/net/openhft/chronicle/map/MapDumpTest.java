@@ -0,0 +1,142 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package net.openhft.chronicle.map;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Tests {@link ChronicleMap#getAll(File)} and {@link ChronicleMap#putAll(File)} in the formats,
+ * chosen by the file name.
+ */
+@RunWith(value = Parameterized.class)
+public class MapDumpTest {
+
+    // a few YAML batches per segment
+    private static final int ENTRIES = 10 * YamlMapDump.ENTRIES_PER_BATCH;
+
+    private final String suffix;
+    private final boolean binaryDump;
+
+    public MapDumpTest(String suffix, boolean binaryDump) {
+        this.suffix = suffix;
+        this.binaryDump = binaryDump;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> data() {
+        return asList(new Object[][]{
+                {".dump", true},
+                {".dump.gz", true},
+                {".yaml", false},
+                {".yaml.gz", false},
+                {".json", false}
+        });
+    }
+
+    private static ChronicleMap<Integer, String> createMap() {
+        return ChronicleMap
+                .of(Integer.class, String.class)
+                .averageValue("value-" + ENTRIES)
+                .entries(ENTRIES)
+                .actualSegments(4)
+                .create();
+    }
+
+    private File createFile() throws IOException {
+        File file = File.createTempFile("chronicle-map-", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void exportAndImport() throws IOException {
+        File file = createFile();
+        try (ChronicleMap<Integer, String> expected = createMap()) {
+            for (int i = 0; i < ENTRIES; i++) {
+                expected.put(i, "value-" + i);
+            }
+            expected.getAll(file);
+            Assert.assertEquals(binaryDump, BinaryMapDump.isDump(file));
+
+            try (ChronicleMap<Integer, String> actual = createMap()) {
+                actual.put(0, "overwritten");
+                actual.put(-1, "kept");
+                actual.putAll(file);
+                Assert.assertEquals(ENTRIES + 1, actual.size());
+                Assert.assertEquals("kept", actual.remove(-1));
+                Assert.assertEquals(expected, actual);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void importIntoMapWithDifferentSerialization() throws IOException {
+        Assume.assumeTrue(binaryDump);
+        File file = createFile();
+        try (ChronicleMap<Integer, String> expected = createMap()) {
+            for (int i = 0; i < 100; i++) {
+                expected.put(i, "value-" + i);
+            }
+            expected.getAll(file);
+
+            try (ChronicleMap<Integer, CharSequence> actual = ChronicleMap
+                    .of(Integer.class, CharSequence.class)
+                    .averageValue("value-100")
+                    .entries(100)
+                    .create()) {
+                actual.putAll(file);
+                Assert.assertEquals(100, actual.size());
+                for (int i = 0; i < 100; i++) {
+                    Assert.assertEquals("value-" + i, actual.get(i).toString());
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void yamlExportIsReadableText() throws IOException {
+        Assume.assumeTrue(suffix.equals(".yaml"));
+        File file = createFile();
+        try (ChronicleMap<Integer, String> map = createMap()) {
+            map.put(42, "forty-two");
+            map.getAll(file);
+            String text = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+            Assert.assertTrue(text, text.contains("java.lang.Integer"));
+            Assert.assertTrue(text, text.contains("42"));
+            Assert.assertTrue(text, text.contains("forty-two"));
+        } finally {
+            file.delete();
+        }
+    }
+}
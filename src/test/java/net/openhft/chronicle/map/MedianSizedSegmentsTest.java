@@ -0,0 +1,103 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MedianSizedSegmentsTest {
+
+    private static final int ENTRIES = 100_000;
+
+    private static ChronicleMapBuilder<Integer, Integer> builder(boolean medianSizedSegments) {
+        return ChronicleMap.of(Integer.class, Integer.class)
+                .entries(ENTRIES).actualSegments(256)
+                .medianSizedSegments(medianSizedSegments);
+    }
+
+    @Test
+    public void segmentsAreSizedForMedian() {
+        ChronicleMapBuilder<Integer, Integer> percentileSized = builder(false);
+        ChronicleMapBuilder<Integer, Integer> medianSized = builder(true);
+        assertTrue(medianSized.entriesPerSegment() < percentileSized.entriesPerSegment());
+        assertEquals(0, percentileSized.reservedExtraTiers());
+        long reservedExtraTiers = medianSized.reservedExtraTiers();
+        // about half of segments overflow
+        assertTrue(reservedExtraTiers > 256 / 2 && reservedExtraTiers < 256);
+        assertTrue(medianSized.maxExtraTiers() >= reservedExtraTiers);
+    }
+
+    @Test
+    public void overflowTiersAreClaimedFromReservedPool() {
+        try (ChronicleMap<Integer, Integer> map = builder(true).create()) {
+            VanillaChronicleMap<Integer, Integer, ?> m =
+                    (VanillaChronicleMap<Integer, Integer, ?>) map;
+            int reservedBulks = m.globalMutableState().getAllocatedExtraTierBulks();
+            assertTrue(reservedBulks > 0);
+            for (int i = 0; i < ENTRIES; i++) {
+                map.put(i, i);
+            }
+            assertEquals(ENTRIES, map.size());
+            long extraTiersInUse = m.extraTiersInUse();
+            assertTrue(extraTiersInUse > 0);
+            assertTrue(extraTiersInUse <= m.reservedExtraTiers);
+            // no tier bulks allocated beyond the reserved ones
+            assertEquals(reservedBulks, m.globalMutableState().getAllocatedExtraTierBulks());
+            for (int i = 0; i < ENTRIES; i++) {
+                assertEquals(Integer.valueOf(i), map.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void reservedPoolSurvivesReopeningAndRecovery() throws IOException {
+        File file = File.createTempFile("medianSizedSegments", ".map");
+        file.deleteOnExit();
+        try {
+            long extraTiersInUse;
+            try (ChronicleMap<Integer, Integer> map = builder(true).createPersistedTo(file)) {
+                for (int i = 0; i < ENTRIES / 2; i++) {
+                    map.put(i, i);
+                }
+                extraTiersInUse = ((VanillaChronicleMap) map).extraTiersInUse();
+            }
+            try (ChronicleMap<Integer, Integer> map = builder(true).createPersistedTo(file)) {
+                VanillaChronicleMap m = (VanillaChronicleMap) map;
+                assertEquals(extraTiersInUse, m.extraTiersInUse());
+                assertEquals(builder(true).reservedExtraTiers(), m.reservedExtraTiers);
+            }
+            try (ChronicleMap<Integer, Integer> map =
+                         builder(true).recoverPersistedTo(file, true)) {
+                assertEquals(extraTiersInUse, ((VanillaChronicleMap) map).extraTiersInUse());
+                for (int i = ENTRIES / 2; i < ENTRIES; i++) {
+                    map.put(i, i);
+                }
+                assertEquals(ENTRIES, map.size());
+                for (int i = 0; i < ENTRIES; i++) {
+                    assertEquals(Integer.valueOf(i), map.get(i));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
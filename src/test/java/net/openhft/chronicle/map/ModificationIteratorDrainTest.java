@@ -0,0 +1,83 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ModificationIteratorDrainTest {
+
+    private static ReplicatedChronicleMap<Integer, Integer, ?> replicatedMap(byte identifier) {
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMap
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .actualSegments(4);
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI()).replication(identifier);
+        return (ReplicatedChronicleMap<Integer, Integer, ?>) builder.create();
+    }
+
+    @Test
+    public void drainReplicatesAllChangesInBatches() {
+        try (ReplicatedChronicleMap<Integer, Integer, ?> map1 = replicatedMap((byte) 1);
+             ReplicatedChronicleMap<Integer, Integer, ?> map2 = replicatedMap((byte) 2)) {
+            Replica.ModificationIterator it = map1.acquireModificationIterator((byte) 2);
+            AtomicInteger notifications = new AtomicInteger();
+            it.setModificationNotifier(notifications::incrementAndGet);
+            for (int i = 0; i < 100; i++) {
+                map1.put(i, i);
+            }
+            // the notifier fires once on the transition from idle to dirty, not on each change
+            Assert.assertEquals(1, notifications.get());
+
+            Bytes<?> buffer = Bytes.elasticByteBuffer();
+            int drained;
+            int total = 0;
+            while ((drained = it.drain(30, buffer)) > 0) {
+                Assert.assertTrue(drained <= 30);
+                total += drained;
+                while (buffer.readRemaining() > 0) {
+                    map2.readExternalEntry(buffer, (byte) 1);
+                }
+                buffer.clear();
+            }
+            Assert.assertEquals(100, total);
+            Assert.assertEquals(map1, map2);
+            Assert.assertFalse(it.hasNext());
+
+            map1.put(100, 100);
+            map1.put(101, 101);
+            Assert.assertEquals(2, notifications.get());
+            Assert.assertEquals(2, it.drain(10, buffer));
+            while (buffer.readRemaining() > 0) {
+                map2.readExternalEntry(buffer, (byte) 1);
+            }
+            Assert.assertEquals(map1, map2);
+            buffer.release();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainRejectsNonPositiveMaxEntries() {
+        try (ReplicatedChronicleMap<Integer, Integer, ?> map = replicatedMap((byte) 1)) {
+            map.acquireModificationIterator((byte) 2).drain(0, Bytes.elasticByteBuffer());
+        }
+    }
+}
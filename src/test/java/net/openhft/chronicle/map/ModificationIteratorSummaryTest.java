@@ -0,0 +1,98 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModificationIteratorSummaryTest {
+
+    private static ReplicatedChronicleMap<Integer, Integer, ?> replicatedMap(
+            byte identifier, long entries, double maxBloatFactor) {
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMap
+                .of(Integer.class, Integer.class)
+                .entries(entries)
+                .maxBloatFactor(maxBloatFactor)
+                .actualSegments(2);
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI()).replication(identifier);
+        return (ReplicatedChronicleMap<Integer, Integer, ?>) builder.create();
+    }
+
+    private static int drainAll(Replica.ModificationIterator it,
+                                ReplicatedChronicleMap<Integer, Integer, ?> destination) {
+        Bytes<?> buffer = Bytes.elasticByteBuffer();
+        try {
+            int total = 0;
+            int drained;
+            while ((drained = it.drain(100, buffer)) > 0) {
+                total += drained;
+                while (buffer.readRemaining() > 0) {
+                    destination.readExternalEntry(buffer, (byte) 1);
+                }
+                buffer.clear();
+            }
+            return total;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void sparseChangesInLargeTiersAreAllFound() {
+        try (ReplicatedChronicleMap<Integer, Integer, ?> map1 = replicatedMap((byte) 1, 1_000_000, 1);
+             ReplicatedChronicleMap<Integer, Integer, ?> map2 = replicatedMap((byte) 2, 1_000_000, 1)) {
+            Replica.ModificationIterator it = map1.acquireModificationIterator((byte) 2);
+            for (int i = 0; i < 50; i++) {
+                map1.put(i * 7919, i);
+            }
+            Assert.assertEquals(50, drainAll(it, map2));
+            Assert.assertEquals(map1, map2);
+            Assert.assertFalse(it.hasNext());
+
+            // changes, raised after summaries of their groups were cleared, are found again
+            map1.put(7919, -1);
+            map1.remove(0);
+            Assert.assertEquals(2, drainAll(it, map2));
+            Assert.assertEquals(map1, map2);
+            Assert.assertFalse(it.hasNext());
+        }
+    }
+
+    @Test
+    public void changesInExtraTiersAreAllFound() {
+        try (ReplicatedChronicleMap<Integer, Integer, ?> map1 = replicatedMap((byte) 1, 100, 20);
+             ReplicatedChronicleMap<Integer, Integer, ?> map2 = replicatedMap((byte) 2, 100, 20)) {
+            Replica.ModificationIterator it = map1.acquireModificationIterator((byte) 2);
+            for (int i = 0; i < 1000; i++) {
+                map1.put(i, i);
+            }
+            Assert.assertTrue(map1.globalMutableState().getExtraTiersInUse() > 0);
+            Assert.assertEquals(1000, drainAll(it, map2));
+            Assert.assertEquals(map1, map2);
+
+            for (int i = 0; i < 1000; i += 100) {
+                map1.put(i, -i);
+            }
+            Assert.assertEquals(10, drainAll(it, map2));
+            Assert.assertEquals(map1, map2);
+            Assert.assertFalse(it.hasNext());
+        }
+    }
+}
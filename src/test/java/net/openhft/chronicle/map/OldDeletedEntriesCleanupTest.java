@@ -0,0 +1,110 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class OldDeletedEntriesCleanupTest {
+
+    private static final int ENTRIES = 5000;
+
+    private static ReplicatedChronicleMap<Integer, Integer, ?> replicatedMap(
+            boolean cleanup, ScheduledExecutorService cleanupExecutor) {
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMap
+                .of(Integer.class, Integer.class)
+                .entries(ENTRIES)
+                .actualSegments(2);
+        ChronicleHashBuilderPrivateAPI<?, ?> privateAPI =
+                (ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI();
+        privateAPI.replication((byte) 1);
+        privateAPI.cleanupRemovedEntries(cleanup);
+        privateAPI.removedEntryCleanupTimeout(1, TimeUnit.MILLISECONDS);
+        privateAPI.cleanupExecutor(cleanupExecutor);
+        return (ReplicatedChronicleMap<Integer, Integer, ?>) builder.create();
+    }
+
+    private static void putAndRemove(ReplicatedChronicleMap<Integer, Integer, ?> map) {
+        for (int i = 0; i < ENTRIES; i++) {
+            map.put(i, i);
+        }
+        for (int i = 0; i < ENTRIES; i++) {
+            map.remove(i);
+        }
+    }
+
+    private static void awaitCleanup(ReplicatedChronicleMap<Integer, Integer, ?> map)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (map.deletedEntries() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void deletedEntriesAreCountedPerSegment() {
+        try (ReplicatedChronicleMap<Integer, Integer, ?> map = replicatedMap(false, null)) {
+            putAndRemove(map);
+            Assert.assertEquals(ENTRIES, map.deletedEntries());
+            Assert.assertEquals(ENTRIES,
+                    map.segmentDeletedEntries(0) + map.segmentDeletedEntries(1));
+            Assert.assertEquals(0, map.cleanupRemovedEntriesCount());
+        }
+    }
+
+    @Test
+    public void dedicatedThreadRemovesOldDeletedEntries() throws InterruptedException {
+        try (ReplicatedChronicleMap<Integer, Integer, ?> map = replicatedMap(true, null)) {
+            putAndRemove(map);
+            awaitCleanup(map);
+            Assert.assertEquals(0, map.deletedEntries());
+            Assert.assertEquals(ENTRIES, map.cleanupRemovedEntriesCount());
+            Assert.assertTrue(map.cleanupThroughput() > 0.0);
+            Assert.assertTrue(map.isEmpty());
+        }
+    }
+
+    @Test
+    public void sharedExecutorRemovesOldDeletedEntries() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            try (ReplicatedChronicleMap<Integer, Integer, ?> map1 = replicatedMap(true, executor);
+                 ReplicatedChronicleMap<Integer, Integer, ?> map2 = replicatedMap(true, executor)) {
+                putAndRemove(map1);
+                putAndRemove(map2);
+                awaitCleanup(map1);
+                awaitCleanup(map2);
+                Assert.assertEquals(ENTRIES, map1.cleanupRemovedEntriesCount());
+                Assert.assertEquals(ENTRIES, map2.cleanupRemovedEntriesCount());
+
+                // entries could be inserted again after complete removal
+                for (int i = 0; i < ENTRIES; i++) {
+                    map1.put(i, i);
+                }
+                Assert.assertEquals(ENTRIES, map1.size());
+            }
+            Assert.assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
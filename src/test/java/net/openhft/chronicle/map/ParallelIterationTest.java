@@ -0,0 +1,78 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+public class ParallelIterationTest {
+
+    private static ChronicleMap<Integer, Integer> newMap(int entries) {
+        ChronicleMap<Integer, Integer> map = ChronicleMap.of(Integer.class, Integer.class)
+                .entries(entries)
+                .actualSegments(16)
+                .create();
+        for (int i = 0; i < entries; i++) {
+            map.put(i, -i);
+        }
+        return map;
+    }
+
+    @Test
+    public void parallelStreamsVisitAllEntries() {
+        int entries = 10_000;
+        try (ChronicleMap<Integer, Integer> map = newMap(entries)) {
+            Assert.assertEquals(entries, map.keySet().parallelStream().distinct().count());
+            Assert.assertEquals(-(long) entries * (entries - 1) / 2,
+                    map.values().parallelStream().mapToLong(v -> v).sum());
+            Assert.assertEquals(map.entrySet(),
+                    map.entrySet().parallelStream().collect(Collectors.toSet()));
+            Assert.assertTrue(map.entrySet().stream().allMatch(e -> e.getValue() == -e.getKey()));
+        }
+    }
+
+    @Test
+    public void forEachEntryParallelVisitsAllEntriesFromSeveralThreads() {
+        int entries = 10_000;
+        try (ChronicleMap<Integer, Integer> map = newMap(entries)) {
+            AtomicLong count = new AtomicLong();
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            map.forEachEntryParallel(4, e -> {
+                Assert.assertEquals(-e.key().get(), (int) e.value().get());
+                count.incrementAndGet();
+                threads.add(Thread.currentThread());
+            });
+            Assert.assertEquals(entries, count.get());
+            Assert.assertTrue(threads.size() <= 4);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void exceptionFromActionIsRethrown() {
+        try (ChronicleMap<Integer, Integer> map = newMap(100)) {
+            map.forEachEntryParallel(2, e -> {
+                throw new IllegalStateException();
+            });
+        }
+    }
+}
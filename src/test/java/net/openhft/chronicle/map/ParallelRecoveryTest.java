@@ -0,0 +1,83 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ParallelRecoveryTest {
+
+    private static final int ENTRIES = 20_000;
+
+    private static ChronicleMapBuilder<Integer, Integer> builder(int recoveryThreads) {
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMap
+                .of(Integer.class, Integer.class)
+                .entries(ENTRIES / 4)
+                .actualSegments(16);
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI())
+                .recoveryThreads(recoveryThreads);
+        return builder;
+    }
+
+    private static Map<Integer, Integer> recoverAndCopy(File file, int recoveryThreads)
+            throws IOException {
+        try (ChronicleMap<Integer, Integer> map =
+                     builder(recoveryThreads).recoverPersistedTo(file, true)) {
+            ((VanillaChronicleMap) map).verifyTierCountersAreaData();
+            Map<Integer, Integer> copy = new HashMap<>(map);
+            // the recovered map is usable: extra tiers are linked, free tiers could be allocated
+            for (int i = ENTRIES; i < ENTRIES * 2; i++) {
+                map.put(i, i);
+            }
+            Assert.assertEquals(ENTRIES * 2, map.size());
+            for (int i = ENTRIES; i < ENTRIES * 2; i++) {
+                map.remove(i);
+            }
+            return copy;
+        }
+    }
+
+    @Test
+    public void parallelRecoveryIsEquivalentToSequential() throws IOException {
+        File file = File.createTempFile("parallelRecovery", ".map");
+        file.deleteOnExit();
+        Map<Integer, Integer> expected = new HashMap<>();
+        // entries(ENTRIES / 4) => segments need extra tiers
+        try (ChronicleMap<Integer, Integer> map = builder(1).createPersistedTo(file)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                map.put(i, -i);
+                expected.put(i, -i);
+            }
+            Assert.assertTrue(((VanillaChronicleMap) map).globalMutableState()
+                    .getExtraTiersInUse() > 0);
+        }
+        Assert.assertEquals(expected, recoverAndCopy(file, 4));
+        Assert.assertEquals(expected, recoverAndCopy(file, 1));
+        Assert.assertEquals(expected, recoverAndCopy(file, 16));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveRecoveryThreadsAreRejected() {
+        builder(0);
+    }
+}
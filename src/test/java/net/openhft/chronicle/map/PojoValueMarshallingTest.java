@@ -0,0 +1,141 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.serialization.impl.PojoDataAccess;
+import net.openhft.chronicle.hash.serialization.impl.SerializableDataAccess;
+import net.openhft.chronicle.hash.serialization.impl.SerializationBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+public class PojoValueMarshallingTest {
+
+    static class BasePojo implements Serializable {
+        private static final long serialVersionUID = 0L;
+        long id;
+    }
+
+    static class Pojo extends BasePojo {
+        private static final long serialVersionUID = 0L;
+        int count;
+        boolean active;
+        char grade;
+        double price;
+        String name;
+        byte[] payload;
+        Long optional;
+        transient int cached;
+    }
+
+    static class PojoWithHooks implements Serializable {
+        private static final long serialVersionUID = 0L;
+        int x;
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+        }
+    }
+
+    static class PojoWithUnsupportedField implements Serializable {
+        private static final long serialVersionUID = 0L;
+        Object o;
+    }
+
+    private static Pojo pojo(long id) {
+        Pojo pojo = new Pojo();
+        pojo.id = id;
+        pojo.count = (int) id * 2;
+        pojo.active = id % 2 == 0;
+        pojo.grade = (char) ('A' + id % 5);
+        pojo.price = id * 1.5;
+        pojo.name = id % 3 == 0 ? null : "name-" + id;
+        pojo.payload = id % 4 == 0 ? null : new byte[(int) (id % 7)];
+        pojo.optional = id % 2 == 0 ? null : id;
+        pojo.cached = 42;
+        return pojo;
+    }
+
+    private static void assertPojoEquals(Pojo expected, Pojo actual) {
+        Assert.assertEquals(expected.id, actual.id);
+        Assert.assertEquals(expected.count, actual.count);
+        Assert.assertEquals(expected.active, actual.active);
+        Assert.assertEquals(expected.grade, actual.grade);
+        Assert.assertEquals(expected.price, actual.price, 0.0);
+        Assert.assertEquals(expected.name, actual.name);
+        Assert.assertArrayEquals(expected.payload, actual.payload);
+        Assert.assertEquals(expected.optional, actual.optional);
+        Assert.assertEquals(0, actual.cached);
+    }
+
+    @Test
+    public void pojoMarshallersAreOptIn() {
+        SerializationBuilder<Pojo> builder = new SerializationBuilder<>(Pojo.class);
+        Assert.assertTrue(builder.dataAccess() instanceof SerializableDataAccess);
+        builder.fieldLayoutMarshalling();
+        Assert.assertTrue(builder.dataAccess() instanceof PojoDataAccess);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pojoWithHooksIsNotSupported() {
+        ChronicleMap.of(Long.class, PojoWithHooks.class).valueFieldLayoutMarshalling();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pojoWithUnsupportedFieldIsNotSupported() {
+        ChronicleMap.of(Long.class, PojoWithUnsupportedField.class).valueFieldLayoutMarshalling();
+    }
+
+    @Test
+    public void pojoValuesRoundTrip() throws IOException {
+        File file = ChronicleMapTest.getPersistenceFile();
+        Pojo average = pojo(1);
+        try (ChronicleMap<Long, Pojo> map = ChronicleMap.of(Long.class, Pojo.class)
+                .valueFieldLayoutMarshalling()
+                .entries(1000)
+                .averageValue(average)
+                .createPersistedTo(file)) {
+            for (long i = 0; i < 1000; i++) {
+                map.put(i, pojo(i));
+            }
+            Pojo using = new Pojo();
+            byte[] payload = null;
+            for (long i = 0; i < 1000; i++) {
+                Pojo expected = pojo(i);
+                Pojo actual = map.getUsing(i, using);
+                Assert.assertSame(using, actual);
+                assertPojoEquals(expected, actual);
+                if (payload != null && expected.payload != null &&
+                        payload.length == expected.payload.length) {
+                    // same-size arrays are reused
+                    Assert.assertSame(payload, actual.payload);
+                }
+                payload = actual.payload;
+            }
+        }
+        try (ChronicleMap<Long, Pojo> map = ChronicleMap.of(Long.class, Pojo.class)
+                .createPersistedTo(file)) {
+            Assert.assertEquals(1000, map.size());
+            assertPojoEquals(pojo(999), map.get(999L));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.serialization.impl.DoubleArrayMarshaller;
+import net.openhft.chronicle.hash.serialization.impl.IntArrayMarshaller;
+import net.openhft.chronicle.hash.serialization.impl.LongArrayMarshaller;
+import net.openhft.chronicle.hash.serialization.impl.SortedLongArrayMarshaller;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrimitiveArrayValuesTest {
+
+    @Test
+    public void primitiveArrayValuesRoundTrip() {
+        long[] longs = {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE};
+        int[] ints = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+        double[] doubles = {Double.NaN, -0.0, 1.5, Double.MAX_VALUE};
+        try (ChronicleMap<Integer, long[]> longMap = ChronicleMap.of(Integer.class, long[].class)
+                .valueMarshaller(LongArrayMarshaller.INSTANCE)
+                .entries(10).averageValue(longs).create();
+             ChronicleMap<Integer, int[]> intMap = ChronicleMap.of(Integer.class, int[].class)
+                     .valueMarshaller(IntArrayMarshaller.INSTANCE)
+                     .entries(10).averageValue(ints).create();
+             ChronicleMap<Integer, double[]> doubleMap =
+                     ChronicleMap.of(Integer.class, double[].class)
+                             .valueMarshaller(DoubleArrayMarshaller.INSTANCE)
+                             .entries(10).averageValue(doubles).create()) {
+            longMap.put(1, longs);
+            intMap.put(1, ints);
+            doubleMap.put(1, doubles);
+            longMap.put(2, new long[0]);
+
+            long[] using = new long[longs.length];
+            Assert.assertSame(using, longMap.getUsing(1, using));
+            Assert.assertArrayEquals(longs, using);
+            Assert.assertEquals(0, longMap.get(2).length);
+            Assert.assertArrayEquals(ints, intMap.get(1));
+            Assert.assertArrayEquals(doubles, doubleMap.get(1), 0.0);
+        }
+    }
+
+    @Test
+    public void sortedArraysAreDeltaEncoded() {
+        long[] ids = new long[1000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1_000_000_000_000L + i * 3;
+        }
+        Bytes bytes = Bytes.allocateElasticDirect(16);
+        try {
+            SortedLongArrayMarshaller.INSTANCE.write(bytes, ids);
+            // the first element takes 6 bytes, the length and every delta take 1-2 bytes
+            Assert.assertTrue(bytes.readRemaining() < ids.length + 10);
+            Assert.assertArrayEquals(ids, SortedLongArrayMarshaller.INSTANCE.read(bytes, null));
+
+            long[] unsorted = {5, Long.MIN_VALUE, Long.MAX_VALUE, -3};
+            bytes.clear();
+            SortedLongArrayMarshaller.INSTANCE.write(bytes, unsorted);
+            Assert.assertArrayEquals(unsorted,
+                    SortedLongArrayMarshaller.INSTANCE.read(bytes, new long[4]));
+        } finally {
+            bytes.release();
+        }
+    }
+}
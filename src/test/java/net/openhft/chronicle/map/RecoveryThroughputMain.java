@@ -0,0 +1,69 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Measures recovery throughput of a persisted map, in GB of the data store per second, with
+ * different numbers of recovery threads. Pass the number of entries (in millions) as the first
+ * argument, 10 by default.
+ */
+public class RecoveryThroughputMain {
+
+    static final int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        long entries = (args.length > 0 ? Long.parseLong(args[0]) : 10) * 1_000_000L;
+        File file = File.createTempFile("recoveryThroughput", ".map");
+        file.deleteOnExit();
+        try (ChronicleMap<Long, byte[]> map = builder(1, entries).createPersistedTo(file)) {
+            byte[] value = new byte[100];
+            for (long i = 0; i < entries; i++) {
+                map.put(i, value);
+            }
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                long dataStoreSize;
+                try (ChronicleMap<Long, byte[]> map =
+                             builder(threads, entries).recoverPersistedTo(file, true)) {
+                    dataStoreSize = ((VanillaChronicleMap) map).dataStoreSize();
+                }
+                long time = System.nanoTime() - start;
+                System.out.printf("%d threads: %.2f GB/s (%d MB in %d ms)%n",
+                        threads, dataStoreSize / (double) time, dataStoreSize >> 20,
+                        time / 1_000_000);
+            }
+        }
+    }
+
+    private static ChronicleMapBuilder<Long, byte[]> builder(int recoveryThreads, long entries) {
+        ChronicleMapBuilder<Long, byte[]> builder = ChronicleMap
+                .of(Long.class, byte[].class)
+                .entries(entries)
+                .averageValueSize(100);
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI())
+                .recoveryThreads(recoveryThreads);
+        return builder;
+    }
+}
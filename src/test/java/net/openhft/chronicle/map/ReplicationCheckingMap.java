@@ -21,11 +21,13 @@ import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.core.util.SerializableFunction;
+import net.openhft.chronicle.hash.BytesPredicate;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Assert;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
@@ -249,6 +251,30 @@ public class ReplicationCheckingMap<K, V> implements ChronicleMap<K, V> {
         map1.forEachEntry(action);
     }
 
+    @Override
+    public void forEachEntryParallel(
+            int parallelism, Consumer<? super MapEntry<K, V>> action) {
+        map1.forEachEntryParallel(parallelism, action);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> reusingEntryIterator(int batchSize) {
+        return map1.reusingEntryIterator(batchSize);
+    }
+
+    @Override
+    public void scan(BytesPredicate keyFilter, BytesPredicate valueFilter,
+                     Consumer<? super MapEntry<K, V>> action) {
+        map1.scan(keyFilter, valueFilter, action);
+    }
+
+    @Override
+    public void scanParallel(int parallelism, BytesPredicate keyFilter,
+                             BytesPredicate valueFilter,
+                             Consumer<? super MapEntry<K, V>> action) {
+        map1.scanParallel(parallelism, keyFilter, valueFilter, action);
+    }
+
     @Override
     public Class<V> valueClass() {
         return map1.valueClass();
@@ -0,0 +1,58 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.BytesPredicate;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ScanTest {
+
+    @Test
+    public void scanFiltersByRawBytes() {
+        int entries = 10_000;
+        try (ChronicleMap<Integer, Long> map = ChronicleMap.of(Integer.class, Long.class)
+                .entries(entries)
+                .actualSegments(8)
+                .create()) {
+            for (int i = 0; i < entries; i++) {
+                map.put(i, i * 10L);
+            }
+            BytesPredicate evenKeys = (bytes, offset, size) -> bytes.readInt(offset) % 2 == 0;
+            BytesPredicate valuesUnder1000 = (bytes, offset, size) -> bytes.readLong(offset) < 1000;
+
+            Set<Integer> sequential = ConcurrentHashMap.newKeySet();
+            map.scan(evenKeys, valuesUnder1000, e -> sequential.add(e.key().get()));
+            Assert.assertEquals(50, sequential.size());
+            for (Integer key : sequential) {
+                Assert.assertTrue(key % 2 == 0 && key < 100);
+            }
+
+            Set<Integer> parallel = ConcurrentHashMap.newKeySet();
+            map.scanParallel(4, evenKeys, valuesUnder1000, e -> parallel.add(e.key().get()));
+            Assert.assertEquals(sequential, parallel);
+
+            Set<Integer> all = ConcurrentHashMap.newKeySet();
+            map.scan(null, null, e -> all.add(e.key().get()));
+            Assert.assertEquals(entries, all.size());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SizeFromSampleTest {
+
+    private static String value(int i) {
+        // bimodal: most values are short, every tenth is ten times longer
+        StringBuilder sb = new StringBuilder();
+        int length = i % 10 == 0 ? 200 : 20;
+        while (sb.length() < length) {
+            sb.append(i);
+        }
+        return sb.toString();
+    }
+
+    private static List<Map.Entry<String, String>> sample(int size) {
+        List<Map.Entry<String, String>> sample = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            sample.add(new SimpleEntry<>("key" + i, value(i)));
+        }
+        return sample;
+    }
+
+    @Test
+    public void sizeFromSample() {
+        int entries = 50_000;
+        ChronicleMapBuilder<String, String> builder =
+                ChronicleMapBuilder.of(String.class, String.class)
+                        .sizeFromSample(sample(1000), entries);
+        assertEquals(entries, builder.entries());
+        long chunkSize = builder.chunkSize();
+        assertTrue(chunkSize > 0 && chunkSize % 4 == 0);
+        // average entry takes at most 8 chunks, the builder assumes the worst fragmentation
+        assertTrue(builder.averageChunksPerEntry() < 9.0);
+        // the largest sampled entry fits
+        assertTrue(builder.maxChunksPerEntry() * chunkSize > 200);
+        try (ChronicleMap<String, String> map = builder.create()) {
+            for (int i = 0; i < entries; i++) {
+                map.put("key" + i, value(i));
+            }
+            assertEquals(entries, map.size());
+            assertEquals(value(10), map.get("key10"));
+            assertEquals(value(11), map.get("key11"));
+        }
+    }
+
+    @Test
+    public void sizeFromSampleOfConstantlySizedEntries() {
+        List<Map.Entry<Long, Long>> sample = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            sample.add(new SimpleEntry<>(i, i * i));
+        }
+        ChronicleMapBuilder<Long, Long> builder = ChronicleMapBuilder.of(Long.class, Long.class)
+                .sizeFromSample(sample, 10_000);
+        try (ChronicleMap<Long, Long> map = builder.create()) {
+            for (long i = 0; i < 10_000; i++) {
+                map.put(i, i);
+            }
+            assertEquals(10_000, map.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptySample() {
+        ChronicleMapBuilder.of(String.class, String.class)
+                .sizeFromSample(Collections.<Map.Entry<String, String>>emptyList(), 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveExpectedEntries() {
+        ChronicleMapBuilder.of(String.class, String.class).sizeFromSample(sample(10), 0);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+/**
+ * Measures {@code ChronicleMap<String, Long>.get()} throughput with ASCII keys (which take the
+ * compact strings fast path on Java 9+, see {@code StringUtf8DataAccess}) and non-ASCII keys,
+ * which are UTF-8 encoded before hashing. Run with {@code -XX:-CompactStrings} to compare with
+ * encoding of all keys.
+ */
+public class StringKeyLookupThroughputMain {
+
+    static final int ENTRIES = 1_000_000;
+    static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        String[] asciiKeys = new String[ENTRIES];
+        String[] nonAsciiKeys = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            asciiKeys[i] = "customer:" + i + ":profile";
+            nonAsciiKeys[i] = "kunde:" + i + ":profilé";
+        }
+        runTest("ASCII keys", asciiKeys);
+        runTest("non-ASCII keys", nonAsciiKeys);
+    }
+
+    private static void runTest(String name, String[] keys) {
+        try (ChronicleMap<String, Long> map = ChronicleMapBuilder.of(String.class, Long.class)
+                .entries(ENTRIES)
+                .averageKey(keys[ENTRIES / 2])
+                .create()) {
+            for (int i = 0; i < ENTRIES; i++) {
+                map.put(keys[i], (long) i);
+            }
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                long sum = 0;
+                for (String key : keys) {
+                    sum += map.get(key);
+                }
+                long time = System.nanoTime() - start;
+                System.out.printf("%s: %.1f M lookups/s (checksum %d)%n",
+                        name, ENTRIES * 1e3 / time, sum);
+            }
+        }
+    }
+}
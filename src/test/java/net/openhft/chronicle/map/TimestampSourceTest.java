@@ -0,0 +1,73 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import net.openhft.chronicle.hash.replication.ReplicableEntry;
+import net.openhft.chronicle.hash.replication.TimestampSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TimestampSourceTest {
+
+    @Test
+    public void perThreadMonotonicTimestampsAreNonDecreasing() throws InterruptedException {
+        TimestampSource timestampSource = TimestampSource.perThreadMonotonic();
+        long previous = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long time = timestampSource.currentTime();
+            Assert.assertTrue(time >= previous);
+            previous = time;
+        }
+        long barrierTime = timestampSource.barrierTime();
+        Assert.assertTrue(barrierTime >= previous);
+        AtomicLong otherThreadTime = new AtomicLong();
+        Thread otherThread = new Thread(() -> otherThreadTime.set(timestampSource.currentTime()));
+        otherThread.start();
+        otherThread.join();
+        Assert.assertTrue(otherThreadTime.get() >= barrierTime);
+    }
+
+    @Test
+    public void updateTimestampsAreTakenFromConfiguredSource() {
+        long fixedTime = 1_000_000L;
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMap
+                .of(Integer.class, Integer.class)
+                .entries(100);
+        ChronicleHashBuilderPrivateAPI<?, ?> privateAPI =
+                (ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI();
+        privateAPI.replication((byte) 1);
+        privateAPI.timestampSource(() -> fixedTime);
+        try (ChronicleMap<Integer, Integer> map = builder.create()) {
+            map.put(1, 1);
+            Assert.assertEquals(fixedTime, originTimestamp(map));
+            // the timestamp of an entry grows on each update, even if the source doesn't advance
+            map.put(1, 2);
+            Assert.assertEquals(fixedTime + 1, originTimestamp(map));
+            map.put(1, 3);
+            Assert.assertEquals(fixedTime + 2, originTimestamp(map));
+        }
+    }
+
+    private static long originTimestamp(ChronicleMap<Integer, Integer> map) {
+        long[] timestamp = new long[1];
+        map.forEachEntry(e -> timestamp[0] = ((ReplicableEntry) e).originTimestamp());
+        return timestamp[0];
+    }
+}
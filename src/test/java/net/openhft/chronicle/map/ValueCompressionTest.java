@@ -0,0 +1,103 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.serialization.impl.BlockCompression;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ValueCompressionTest {
+
+    private static String jsonLikeValue(int i, int fields) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int f = 0; f < fields; f++) {
+            if (f > 0)
+                sb.append(',');
+            sb.append("\"field").append(f).append("\":\"value-").append(i * 31 + f).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    @Test
+    public void testBlockCompressionRoundTrip() {
+        Random random = new Random(42);
+        int[] hashTable = BlockCompression.newHashTable();
+        for (int length : new int[] {0, 1, 12, 13, 100, 4096, 100_000}) {
+            byte[] src = new byte[length];
+            for (int i = 0; i < length; i++) {
+                // mix of runs and random bytes
+                src[i] = (byte) ((i / 7) % 3 == 0 ? 'a' : random.nextInt(4));
+            }
+            byte[] compressed = new byte[BlockCompression.maxCompressedLength(length)];
+            int compressedLength = BlockCompression.compress(src, length, compressed, hashTable);
+            byte[] decompressed = new byte[length];
+            BlockCompression.decompress(compressed, compressedLength, decompressed, length);
+            assertArrayEquals(src, decompressed);
+        }
+    }
+
+    @Test
+    public void testCompressedValues() throws IOException {
+        File file = File.createTempFile("valueCompression", ".deleteme");
+        file.deleteOnExit();
+        ChronicleMapBuilder<Integer, String> builder = ChronicleMapBuilder
+                .of(Integer.class, String.class)
+                .entries(1000)
+                .averageValue(jsonLikeValue(0, 50))
+                .valueCompression(64);
+        try (ChronicleMap<Integer, String> map = builder.createPersistedTo(file)) {
+            for (int i = 0; i < 1000; i++) {
+                map.put(i, jsonLikeValue(i, 50));
+            }
+            // below the threshold, stored uncompressed
+            map.put(-1, "short");
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(jsonLikeValue(i, 50), map.get(i));
+            }
+            assertEquals("short", map.get(-1));
+        }
+        try (ChronicleMap<Integer, String> map = builder.createPersistedTo(file)) {
+            assertEquals(1001, map.size());
+            assertEquals(jsonLikeValue(999, 50), map.get(999));
+        }
+        file.delete();
+    }
+
+    @Test
+    public void testChunkSizeEstimatedFromCompressedSize() {
+        String averageValue = jsonLikeValue(0, 50);
+        ChronicleMapBuilder<Integer, String> plain = ChronicleMapBuilder
+                .of(Integer.class, String.class)
+                .entries(1000)
+                .averageValue(averageValue);
+        ChronicleMapBuilder<Integer, String> compressed = plain.clone().valueCompression(64);
+        plain.preMapConstruction();
+        compressed.preMapConstruction();
+        assertTrue(compressed.averageValueSize() < plain.averageValueSize());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCompressionOfConstantSizedValuesIsForbidden() {
+        ChronicleMapBuilder.of(Integer.class, Long.class).valueCompression(0);
+    }
+}
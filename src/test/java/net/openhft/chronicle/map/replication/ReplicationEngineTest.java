@@ -0,0 +1,178 @@
+/*
+ *      Copyright (C) 2012, 2016  higherfrequencytrading.com
+ *      Copyright (C) 2016 Roman Leventov
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.replication;
+
+import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import net.openhft.chronicle.map.ChronicleMap;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import net.openhft.chronicle.map.Replica;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+public class ReplicationEngineTest {
+
+    private static ChronicleMap<Integer, Integer> replicatedMap(byte identifier) {
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMap
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .actualSegments(4);
+        ((ChronicleHashBuilderPrivateAPI<?, ?>) builder.privateAPI()).replication(identifier);
+        return builder.create();
+    }
+
+    private static void pollUntilIdle(ReplicationEngine e1, ReplicationEngine e2)
+            throws IOException {
+        int idleRounds = 0;
+        while (idleRounds < 3) {
+            int work = e1.poll() + e2.poll();
+            idleRounds = work == 0 ? idleRounds + 1 : 0;
+        }
+    }
+
+    private static void awaitEqual(ChronicleMap<Integer, Integer> map1,
+                                   ChronicleMap<Integer, Integer> map2)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!map1.equals(map2) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(map1, map2);
+    }
+
+    @Test
+    public void loopbackReplicatesInBothDirections() throws IOException {
+        try (ChronicleMap<Integer, Integer> map1 = replicatedMap((byte) 1);
+             ChronicleMap<Integer, Integer> map2 = replicatedMap((byte) 2)) {
+            LoopbackReplicationChannel[] channels = LoopbackReplicationChannel.pair();
+            ReplicationEngine e1 = new ReplicationEngine((Replica) map1, (byte) 2, channels[0], 7);
+            ReplicationEngine e2 = new ReplicationEngine((Replica) map2, (byte) 1, channels[1], 7);
+            for (int i = 0; i < 100; i++) {
+                map1.put(i, i);
+                map2.put(1000 + i, i);
+            }
+            pollUntilIdle(e1, e2);
+            Assert.assertEquals(200, map1.size());
+            Assert.assertEquals(map1, map2);
+
+            map2.remove(0);
+            map1.put(1000, -1);
+            pollUntilIdle(e1, e2);
+            Assert.assertEquals(map1, map2);
+            Assert.assertEquals(-1, (int) map2.get(1000));
+            Assert.assertNotEquals(0L, ((Replica) map2).remoteNodeCouldBootstrapFrom((byte) 1));
+            e1.close();
+            e2.close();
+        }
+    }
+
+    @Test
+    public void handshakeBootstrapsReconnectedNode() throws IOException {
+        try (ChronicleMap<Integer, Integer> map1 = replicatedMap((byte) 1);
+             ChronicleMap<Integer, Integer> map2 = replicatedMap((byte) 2)) {
+            for (int i = 0; i < 50; i++) {
+                map1.put(i, i);
+            }
+            // drains changes, so they could be sent to the node 2 only through bootstrap
+            LoopbackReplicationChannel[] lost = LoopbackReplicationChannel.pair();
+            ReplicationEngine lostEngine =
+                    new ReplicationEngine((Replica) map1, (byte) 2, lost[0], 1000);
+            lostEngine.poll();
+            lostEngine.close();
+
+            LoopbackReplicationChannel[] channels = LoopbackReplicationChannel.pair();
+            ReplicationEngine e1 = new ReplicationEngine((Replica) map1, (byte) 2, channels[0], 10);
+            ReplicationEngine e2 = new ReplicationEngine((Replica) map2, (byte) 1, channels[1], 10);
+            pollUntilIdle(e1, e2);
+            Assert.assertEquals(map1, map2);
+            e1.close();
+            e2.close();
+        }
+    }
+
+    @Test
+    public void sharedMemoryChannelReplicatesFromRunningEngines() throws Exception {
+        File aToB = File.createTempFile("aToB", ".ring");
+        File bToA = File.createTempFile("bToA", ".ring");
+        aToB.delete();
+        bToA.delete();
+        try (ChronicleMap<Integer, Integer> map1 = replicatedMap((byte) 1);
+             ChronicleMap<Integer, Integer> map2 = replicatedMap((byte) 2)) {
+            ReplicationEngine e1 = new ReplicationEngine((Replica) map1, (byte) 2,
+                    SharedMemoryReplicationChannel.open(aToB, bToA, 4096), 10);
+            ReplicationEngine e2 = new ReplicationEngine((Replica) map2, (byte) 1,
+                    SharedMemoryReplicationChannel.open(bToA, aToB, 4096), 10);
+            Thread t1 = new Thread(e1);
+            Thread t2 = new Thread(e2);
+            t1.start();
+            t2.start();
+            for (int i = 0; i < 500; i++) {
+                map1.put(i, i);
+            }
+            awaitEqual(map1, map2);
+            e1.close();
+            e2.close();
+            t1.join();
+            t2.join();
+        } finally {
+            aToB.delete();
+            bToA.delete();
+        }
+    }
+
+    @Test
+    public void socketChannelReplicatesFromRunningEngines() throws Exception {
+        try (ChronicleMap<Integer, Integer> map1 = replicatedMap((byte) 1);
+             ChronicleMap<Integer, Integer> map2 = replicatedMap((byte) 2);
+             ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("localhost", 0));
+            SocketChannel client = SocketChannel.open(server.getLocalAddress());
+            SocketChannel accepted = server.accept();
+            ReplicationEngine e1 = new ReplicationEngine((Replica) map1, (byte) 2,
+                    new SocketReplicationChannel(client), 10);
+            ReplicationEngine e2 = new ReplicationEngine((Replica) map2, (byte) 1,
+                    new SocketReplicationChannel(accepted), 10);
+            Thread t1 = new Thread(e1);
+            Thread t2 = new Thread(e2);
+            t1.start();
+            t2.start();
+            for (int i = 0; i < 500; i++) {
+                map1.put(i, i);
+                map2.put(1000 + i, i);
+            }
+            awaitEqual(map1, map2);
+            Assert.assertEquals(1000, map1.size());
+            e1.close();
+            e2.close();
+            t1.join();
+            t2.join();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void engineRejectsLocalIdentifierAsRemote() {
+        try (ChronicleMap<Integer, Integer> map = replicatedMap((byte) 1)) {
+            new ReplicationEngine((Replica) map, (byte) 1, LoopbackReplicationChannel.pair()[0], 10);
+        }
+    }
+}